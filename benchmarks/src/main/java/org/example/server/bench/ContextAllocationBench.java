@@ -0,0 +1,100 @@
+package org.example.server.bench;
+
+import org.example.server.context.SlotContextListener;
+import org.example.server.participant.BuildResponse;
+import org.example.server.participant.SendResponse;
+import org.example.server.participant.ValidateMsg;
+import org.jpos.core.Configurable;
+import org.jpos.core.ConfigurationException;
+import org.jpos.core.SimpleConfiguration;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISORequestListener;
+import org.jpos.iso.ISOSource;
+import org.jpos.iso.IncomingListener;
+import org.jpos.space.Space;
+import org.jpos.space.SpaceFactory;
+import org.jpos.transaction.Context;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and, with {@code -prof gc}, heap bytes allocated per transaction for the request path that
+ * does not touch the database: listener, space hand-off, {@code ValidateMsg}, {@code BuildResponse}
+ * and {@code SendResponse}. Compares jPOS {@code IncomingListener} with a {@link Context} against
+ * {@link SlotContextListener} with slot contexts.
+ * <p>
+ * Usage: {@code java -jar benchmarks.jar ContextAllocationBench -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContextAllocationBench {
+    private static final String SPACE = "tspace:bench";
+    private static final String QUEUE = "bench";
+    private static final ISOSource SINK = new ISOSource() {
+        @Override
+        public void send(ISOMsg m) {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+    };
+
+    @Param({"incoming-listener", "slot-context-listener"})
+    public String listener;
+
+    private final ValidateMsg validate = new ValidateMsg();
+    private final BuildResponse build = new BuildResponse();
+    private final SendResponse send = new SendResponse();
+    private ISORequestListener selected;
+    private Space<String, Object> space;
+    private ISOMsg request;
+    private long id;
+
+    @Setup
+    public void setUp() throws ConfigurationException {
+        selected = "incoming-listener".equals(listener) ? new IncomingListener() : new SlotContextListener();
+        Properties properties = new Properties();
+        properties.setProperty("space", SPACE);
+        properties.setProperty("queue", QUEUE);
+        if (selected instanceof Configurable configurable) {
+            configurable.setConfiguration(new SimpleConfiguration(properties));
+        }
+        space = SpaceFactory.getSpace(SPACE);
+        request = new ISOMsg("0200");
+        request.set(2, "4242424242424242");
+        request.set(3, "000000");
+        request.set(4, "000000010000");
+        request.set(7, "1018120000");
+        request.set(11, "000001");
+        request.set(41, "TERMID01");
+    }
+
+    @Benchmark
+    public Context transaction() {
+        selected.process(SINK, request);
+        Context ctx = (Context) space.in(QUEUE);
+        long txn = id++;
+        validate.prepare(txn, ctx);
+        build.commit(txn, ctx);
+        send.commit(txn, ctx);
+        return ctx;
+    }
+}
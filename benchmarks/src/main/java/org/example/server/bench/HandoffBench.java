@@ -0,0 +1,96 @@
+package org.example.server.bench;
+
+import org.example.server.handoff.RingBuffer;
+import org.example.server.handoff.RingBufferSpace;
+import org.example.server.handoff.WaitStrategy;
+import org.jpos.space.Space;
+import org.jpos.space.TSpace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the handoff from channel threads to transaction manager sessions through a jPOS
+ * {@link TSpace} with the {@link RingBufferSpace} under each {@link WaitStrategy}. Every invocation
+ * has {@code producers} threads {@code out} {@value #ITEMS} items as fast as they can while
+ * {@code consumers} threads {@code in} them, so the score is the throughput of the handoff alone.
+ * With one producer the ring uses its single-writer path. Busy-spin needs a core per thread to give
+ * meaningful numbers.
+ * <p>
+ * Usage: {@code java -jar benchmarks.jar HandoffBench -p producers=4 -p consumers=4 -prof gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandoffBench {
+    private static final String QUEUE = "bench";
+    private static final int ITEMS = 200_000;
+    private static final Object ITEM = new Object();
+
+    @Param({"tspace", "busy-spin", "yield", "park"})
+    public String space;
+
+    @Param({"4"})
+    public int producers;
+
+    @Param({"4"})
+    public int consumers;
+
+    private Space<String, Object> selected;
+
+    @Setup
+    public void setUp() {
+        if ("tspace".equals(space)) {
+            selected = new TSpace<>();
+            return;
+        }
+        RingBuffer<Object> ring = new RingBuffer<>(4096, producers == 1, WaitStrategy.parse(space), 50_000L);
+        selected = new RingBufferSpace(Map.of(QUEUE, ring));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void handoff() throws InterruptedException {
+        AtomicLong remaining = new AtomicLong(ITEMS);
+        List<Thread> threads = new ArrayList<>(producers + consumers);
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    while (selected.in(QUEUE, 1000L) == null) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }, "consumer-" + c));
+        }
+        for (int p = 0; p < producers; p++) {
+            int count = ITEMS / producers + (p < ITEMS % producers ? 1 : 0);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    selected.out(QUEUE, ITEM);
+                }
+            }, "producer-" + p));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.example.server.bench;
+
+import org.example.server.ServerMain;
+import org.example.server.config.DataSourceProvider;
+import org.example.server.config.EnvironmentLoader;
+import org.example.server.config.StandInDataSource;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.channel.ASCIIChannel;
+import org.jpos.iso.packager.GenericPackager;
+import org.jpos.q2.Q2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the JSON-over-HTTP ingress with the ISO 8583 channel. Runs the server in-process against
+ * a {@link StandInDataSource} with the HTTP gateway enabled; every benchmark thread is a
+ * closed-loop client sending the same 0200, either over its own ASCII channel or as JSON posted on
+ * a keep-alive HTTP/1.1 connection. Sample mode reports the round-trip latency distribution. The
+ * stand-in's latency is set with the {@code standin.*} system properties.
+ * <p>
+ * Usage: {@code java -jar benchmarks.jar IngressBench -t 32 -bm sample}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(1)
+public class IngressBench {
+    private static final String TERMINAL = "LOADTEST";
+
+    private final AtomicLong stan = new AtomicLong();
+    private Q2 q2;
+    private int isoPort;
+    private URI uri;
+    private GenericPackager packager;
+
+    @Setup
+    public void setUp() throws Exception {
+        EnvironmentLoader.load();
+        if (System.getProperty("JPOS_HOME") == null) {
+            System.setProperty("JPOS_HOME", Files.createTempDirectory("rayan-jpos-ingress").toString());
+        }
+        System.setProperty("SERVER_PORT", Integer.toString(freePort()));
+        System.setProperty("HTTP_PORT", Integer.toString(freePort()));
+        System.setProperty("HTTP_ENABLED", "true");
+        System.setProperty("THROTTLE_ENABLED", "false");
+        System.setProperty("PAN_KEYSTORE_BOOTSTRAP", "true");
+        DataSourceProvider.install(StandInDataSource.fromSystemProperties());
+
+        q2 = ServerMain.start();
+        isoPort = EnvironmentLoader.getInt("SERVER_PORT", 5000);
+        uri = URI.create("http://127.0.0.1:" + EnvironmentLoader.getInt("HTTP_PORT", 8080) + "/v1/transactions");
+        packager = createPackager();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ServerMain.stop(q2);
+    }
+
+    @Benchmark
+    public ISOMsg isoChannel(Client client) throws ISOException, IOException {
+        ISOMsg request = new ISOMsg("0200");
+        request.set(2, "4242424242424242");
+        request.set(3, "000000");
+        request.set(4, "000000010000");
+        request.set(7, "0101120000");
+        request.set(11, nextStan());
+        request.set(41, TERMINAL);
+        request.set(49, "840");
+        client.channel.send(request);
+        ISOMsg response = client.channel.receive();
+        if (!"00".equals(response.getString(39))) {
+            throw new IllegalStateException("ISO request declined with " + response.getString(39));
+        }
+        return response;
+    }
+
+    @Benchmark
+    public String httpJson(Client client) throws IOException, InterruptedException {
+        String body = "{\"mti\":\"0200\",\"pan\":\"4242424242424242\",\"processingCode\":\"000000\","
+                + "\"amount\":10000,\"transmissionDateTime\":\"0101120000\",\"stan\":\"" + nextStan()
+                + "\",\"terminalId\":\"" + TERMINAL + "\",\"currencyCode\":\"840\"}";
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = client.http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200 || !response.body().contains("\"responseCode\":\"00\"")) {
+            throw new IllegalStateException("HTTP request failed with " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    /**
+     * One ASCII channel and one HTTP client per benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        private ASCIIChannel channel;
+        private HttpClient http;
+
+        @Setup
+        public void setUp(IngressBench bench) throws IOException {
+            channel = new ASCIIChannel("127.0.0.1", bench.isoPort, bench.packager);
+            channel.setTimeout(30_000);
+            channel.connect();
+            http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            channel.disconnect();
+            http.close();
+        }
+    }
+
+    private String nextStan() {
+        return String.format("%06d", stan.incrementAndGet() % 1_000_000L);
+    }
+
+    private static GenericPackager createPackager() throws ISOException, IOException {
+        try (InputStream inputStream = IngressBench.class.getClassLoader().getResourceAsStream("packager/iso87ascii.xml")) {
+            if (inputStream == null) {
+                throw new IOException("Resource not found on classpath: packager/iso87ascii.xml");
+            }
+            return new GenericPackager(inputStream);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
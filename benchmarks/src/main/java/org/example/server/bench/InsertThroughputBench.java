@@ -0,0 +1,169 @@
+package org.example.server.bench;
+
+import org.example.server.config.DataSourceProvider;
+import org.example.server.config.EnvironmentLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares single-row insert throughput of the original {@code ISO_MESSAGES} layout (heap table,
+ * global unique index on {@code STAN}, text amount) with the interval-partitioned layout with
+ * local indexes, using the insert {@code PersistToOracle} issues. Each layout is created as a
+ * scratch table in the Oracle schema configured by {@code ORACLE_*}, loaded by one connection per
+ * benchmark thread and dropped again.
+ * <p>
+ * STANs wrap at 999999 as they do on the wire, so on the heap layout runs of more than a million
+ * rows hit unique violations; those are counted and logged when the table is dropped.
+ * <p>
+ * Usage: {@code java -jar benchmarks.jar InsertThroughputBench -t 8}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class InsertThroughputBench {
+    private static final String HEAP_TABLE = "BENCH_ISO_HEAP";
+    private static final String PARTITIONED_TABLE = "BENCH_ISO_PARTITIONED";
+
+    @Param({"heap", "partitioned"})
+    public String layout;
+
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private DataSource dataSource;
+    private String table;
+
+    @Setup
+    public void setUp() throws SQLException {
+        EnvironmentLoader.load();
+        dataSource = DataSourceProvider.getDataSource();
+        table = "heap".equals(layout) ? HEAP_TABLE : PARTITIONED_TABLE;
+        execute(List.of("DROP TABLE " + table + " PURGE"), true);
+        execute("heap".equals(layout) ? heapLayout() : partitionedLayout(), false);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try {
+            System.out.printf("%n%s: %d rows, %d unique violations%n", table, next.get(), duplicates.get());
+            execute(List.of("DROP TABLE " + table + " PURGE"), true);
+        } finally {
+            DataSourceProvider.close();
+        }
+    }
+
+    @Benchmark
+    public int insert(Inserter inserter) throws SQLException {
+        long row = next.getAndIncrement();
+        long amount = 100L + row % 100_000L;
+        PreparedStatement statement = inserter.statement;
+        statement.setString(1, "0200");
+        statement.setString(2, "4242424242" + String.format("%06d", row % 1_000_000L));
+        statement.setString(3, "000000");
+        if ("partitioned".equals(layout)) {
+            statement.setLong(4, amount);
+        } else {
+            statement.setString(4, String.format("%012d", amount));
+        }
+        statement.setString(5, "1018120000");
+        statement.setString(6, String.format("%06d", row % 1_000_000L));
+        statement.setString(7, String.format("TERM%04d", row % 5_000L));
+        try {
+            return statement.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            duplicates.incrementAndGet();
+            return 0;
+        }
+    }
+
+    /**
+     * One connection and prepared insert per benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Inserter {
+        private Connection connection;
+        private PreparedStatement statement;
+
+        @Setup
+        public void setUp(InsertThroughputBench bench) throws SQLException {
+            connection = bench.dataSource.getConnection();
+            statement = connection.prepareStatement("INSERT INTO " + bench.table +
+                    " (MTI, PAN, PROCESSING_CODE, AMOUNT, TRANSMISSION_DATETIME, STAN, TERMINAL_ID) VALUES (?, ?, ?, ?, ?, ?, ?)");
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            statement.close();
+            connection.close();
+        }
+    }
+
+    private static List<String> heapLayout() {
+        return List.of(
+                "CREATE TABLE " + HEAP_TABLE + " (" +
+                        "ID NUMBER GENERATED BY DEFAULT ON NULL AS IDENTITY PRIMARY KEY, " +
+                        "MTI VARCHAR2(4 CHAR) NOT NULL, PAN VARCHAR2(19 CHAR), " +
+                        "PROCESSING_CODE VARCHAR2(6 CHAR) NOT NULL, AMOUNT VARCHAR2(12 CHAR), " +
+                        "TRANSMISSION_DATETIME VARCHAR2(10 CHAR), STAN VARCHAR2(6 CHAR) NOT NULL, " +
+                        "TERMINAL_ID VARCHAR2(16 CHAR), CREATED_AT TIMESTAMP(6) DEFAULT SYSTIMESTAMP NOT NULL)",
+                "CREATE UNIQUE INDEX " + HEAP_TABLE + "_STAN ON " + HEAP_TABLE + " (STAN)",
+                "CREATE INDEX " + HEAP_TABLE + "_TC ON " + HEAP_TABLE + " (TERMINAL_ID, CREATED_AT)",
+                "CREATE INDEX " + HEAP_TABLE + "_PAN ON " + HEAP_TABLE + " (PAN)");
+    }
+
+    private static List<String> partitionedLayout() {
+        return List.of(
+                "CREATE TABLE " + PARTITIONED_TABLE + " (" +
+                        "ID NUMBER GENERATED BY DEFAULT ON NULL AS IDENTITY, " +
+                        "MTI VARCHAR2(4 CHAR) NOT NULL, PAN VARCHAR2(19 CHAR), " +
+                        "PROCESSING_CODE VARCHAR2(6 CHAR) NOT NULL, AMOUNT NUMBER(12), " +
+                        "TRANSMISSION_DATETIME VARCHAR2(10 CHAR), STAN VARCHAR2(6 CHAR) NOT NULL, " +
+                        "TERMINAL_ID VARCHAR2(16 CHAR), CREATED_AT TIMESTAMP(6) DEFAULT SYSTIMESTAMP NOT NULL, " +
+                        "CONSTRAINT " + PARTITIONED_TABLE + "_PK PRIMARY KEY (ID, CREATED_AT) USING INDEX LOCAL) " +
+                        "PARTITION BY RANGE (CREATED_AT) INTERVAL (NUMTODSINTERVAL(1, 'DAY')) " +
+                        "(PARTITION P_INITIAL VALUES LESS THAN (TIMESTAMP '2024-01-01 00:00:00'))",
+                "CREATE INDEX " + PARTITIONED_TABLE + "_TST ON " + PARTITIONED_TABLE +
+                        " (TERMINAL_ID, STAN, TRANSMISSION_DATETIME) LOCAL",
+                "CREATE INDEX " + PARTITIONED_TABLE + "_TC ON " + PARTITIONED_TABLE + " (TERMINAL_ID, CREATED_AT) LOCAL",
+                "CREATE INDEX " + PARTITIONED_TABLE + "_PAN ON " + PARTITIONED_TABLE + " (PAN) LOCAL");
+    }
+
+    private void execute(List<String> statements, boolean ignoreErrors) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                try {
+                    statement.execute(sql);
+                } catch (SQLException e) {
+                    if (!ignoreErrors) {
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+}
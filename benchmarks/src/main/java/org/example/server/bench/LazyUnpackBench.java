@@ -0,0 +1,118 @@
+package org.example.server.bench;
+
+import org.example.server.packager.LazyGenericPackager;
+import org.jpos.iso.IFA_AMOUNT;
+import org.jpos.iso.IFA_BINARY;
+import org.jpos.iso.IFA_BITMAP;
+import org.jpos.iso.ISOBasePackager;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOFieldPackager;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.packager.GenericPackager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and, with {@code -prof gc}, heap bytes allocated per message for the receive/respond path
+ * of a wide request: unpack, read the fields the participants look at (MTI, 2, 3, 4, 7, 11, 41),
+ * clone into a response, set field 39 and pack. Compares {@link GenericPackager} with
+ * {@link LazyGenericPackager} on a frame carrying every field defined by
+ * {@code packager/iso87ascii.xml} except the secondary bitmap (65).
+ * <p>
+ * Usage: {@code java -jar benchmarks.jar LazyUnpackBench -prof gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LazyUnpackBench {
+    private static final int[] READ_FIELDS = {2, 3, 4, 7, 11, 41};
+
+    @Param({"eager", "lazy"})
+    public String packager;
+
+    private ISOBasePackager selected;
+    private byte[] frame;
+
+    @Setup
+    public void setUp() throws ISOException, IOException {
+        GenericPackager eager;
+        LazyGenericPackager lazy;
+        try (InputStream eagerConfig = packagerConfig(); InputStream lazyConfig = packagerConfig()) {
+            eager = new GenericPackager(eagerConfig);
+            lazy = new LazyGenericPackager(lazyConfig);
+        }
+        frame = wideRequest(eager).pack();
+        if (!Arrays.equals(respond(eager, frame), respond(lazy, frame))) {
+            throw new IllegalStateException("Lazy and eager packagers produced different responses");
+        }
+        selected = "lazy".equals(packager) ? lazy : eager;
+    }
+
+    @Benchmark
+    public byte[] respond() throws ISOException {
+        return respond(selected, frame);
+    }
+
+    private static byte[] respond(ISOBasePackager packager, byte[] frame) throws ISOException {
+        ISOMsg request = packager.createISOMsg();
+        request.setPackager(packager);
+        request.unpack(frame);
+        request.getMTI();
+        for (int field : READ_FIELDS) {
+            request.getString(field);
+        }
+        ISOMsg response = (ISOMsg) request.clone();
+        response.setResponseMTI();
+        response.set(39, "00");
+        return response.pack();
+    }
+
+    private static ISOMsg wideRequest(GenericPackager packager) throws ISOException {
+        ISOMsg request = new ISOMsg();
+        request.setPackager(packager);
+        request.setMTI("0200");
+        for (int field = 2; field <= 128; field++) {
+            ISOFieldPackager fieldPackager = packager.getFieldPackager(field);
+            if (field == 65 || fieldPackager == null || fieldPackager instanceof IFA_BITMAP) {
+                continue;
+            }
+            int length = fieldPackager.getLength();
+            if (fieldPackager instanceof IFA_BINARY) {
+                byte[] value = new byte[length];
+                Arrays.fill(value, (byte) field);
+                request.set(field, value);
+            } else if (fieldPackager instanceof IFA_AMOUNT) {
+                request.set(field, "C" + "0".repeat(length - 2) + "1");
+            } else {
+                request.set(field, "1".repeat(Math.min(length, 12)));
+            }
+        }
+        request.set(41, "TERMID01");
+        return request;
+    }
+
+    private static InputStream packagerConfig() throws IOException {
+        InputStream inputStream = LazyUnpackBench.class.getClassLoader().getResourceAsStream("packager/iso87ascii.xml");
+        if (inputStream == null) {
+            throw new IOException("Resource not found on classpath: packager/iso87ascii.xml");
+        }
+        return inputStream;
+    }
+}
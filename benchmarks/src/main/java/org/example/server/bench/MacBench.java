@@ -0,0 +1,209 @@
+package org.example.server.bench;
+
+import org.example.server.mac.MacKey;
+import org.example.server.mac.MacService;
+import org.example.server.packager.LazyGenericPackager;
+import org.jpos.iso.ISOBasePackager;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the request/response message path (unpack a 0200, read it, clone into a 0210, set
+ * field 39, pack) without a MAC, with the request MAC verified and the response MAC'd through the
+ * {@link MacService} cipher pools, and with the same MAC work done naively: key unwrapped from the
+ * keystore and ciphers created and initialised for every MAC. The pools are sized for one cipher
+ * set per available processor.
+ * <p>
+ * Usage: {@code java -jar benchmarks.jar MacBench -t max -prof gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MacBench {
+    private static final String TERMINAL = "TERMID01";
+    private static final char[] PASSWORD = "bench".toCharArray();
+    private static final byte[] KEY = HexFormat.of().parseHex("0123456789ABCDEFFEDCBA9876543210");
+
+    @Param({"none", "pooled", "naive"})
+    public String mac;
+
+    private Path keystore;
+    private LazyGenericPackager packager;
+    private MessagePath path;
+    private byte[] frame;
+
+    @Setup
+    public void setUp() throws Exception {
+        try (InputStream config = packagerConfig()) {
+            packager = new LazyGenericPackager(config);
+        }
+        keystore = Files.createTempFile("mac-bench", ".p12");
+        KeyStore store = writeKeystore(keystore);
+        MacService service = new MacService(keystore, PASSWORD, 60_000L, Runtime.getRuntime().availableProcessors());
+        MacKey key = service.find(TERMINAL);
+        byte[] macd = request(packager, service, key);
+
+        MessagePath pooled = request -> {
+            byte[] packed = request.pack();
+            int length = packed.length - MacService.packedMacLength(request, 64);
+            if (!service.verify(key, packed, 0, length, request.getBytes(64))) {
+                throw new IllegalStateException("MAC verification failed");
+            }
+            ISOMsg response = response(request);
+            response.set(64, new byte[8]);
+            byte[] unsigned = response.pack();
+            response.set(64, service.generate(key, unsigned, 0,
+                    unsigned.length - MacService.packedMacLength(response, 64)));
+            return response.pack();
+        };
+        MessagePath naive = request -> {
+            byte[] packed = request.pack();
+            int length = packed.length - MacService.packedMacLength(request, 64);
+            if (!MessageDigest.isEqual(naiveMac(store, packed, length), request.getBytes(64))) {
+                throw new IllegalStateException("MAC verification failed");
+            }
+            ISOMsg response = response(request);
+            response.set(64, new byte[8]);
+            byte[] unsigned = response.pack();
+            response.set(64, naiveMac(store, unsigned, unsigned.length - MacService.packedMacLength(response, 64)));
+            return response.pack();
+        };
+        if (!Arrays.equals(pooled.run(unpack(packager, macd)), naive.run(unpack(packager, macd)))) {
+            throw new IllegalStateException("Pooled and naive MACs differ");
+        }
+        switch (mac) {
+            case "pooled" -> path = pooled;
+            case "naive" -> path = naive;
+            default -> path = request -> response(request).pack();
+        }
+        frame = "none".equals(mac) ? request(packager, null, null) : macd;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(keystore);
+    }
+
+    @Benchmark
+    public byte[] message() throws Exception {
+        return path.run(unpack(packager, frame));
+    }
+
+    private static ISOMsg unpack(ISOBasePackager packager, byte[] frame) throws ISOException {
+        ISOMsg request = packager.createISOMsg();
+        request.setPackager(packager);
+        request.unpack(frame);
+        request.getMTI();
+        for (int field : new int[]{2, 3, 4, 7, 11, 41}) {
+            request.getString(field);
+        }
+        return request;
+    }
+
+    private static ISOMsg response(ISOMsg request) throws ISOException {
+        ISOMsg response = (ISOMsg) request.clone();
+        response.setResponseMTI();
+        response.set(39, "00");
+        return response;
+    }
+
+    /**
+     * The same ISO 9797-1 algorithm 3 MAC as {@link MacService}, unwrapping the key and creating
+     * the ciphers every time.
+     */
+    private static byte[] naiveMac(KeyStore store, byte[] data, int length) throws GeneralSecurityException {
+        byte[] material = store.getKey(TERMINAL.toLowerCase(Locale.ROOT), PASSWORD).getEncoded();
+        SecretKey left = new SecretKeySpec(material, 0, 8, "DES");
+        SecretKey right = new SecretKeySpec(material, 8, 8, "DES");
+        Cipher chain = Cipher.getInstance("DES/CBC/NoPadding");
+        chain.init(Cipher.ENCRYPT_MODE, left, new IvParameterSpec(new byte[8]));
+        byte[] padded = Arrays.copyOf(data, Math.max(8, (length + 7) & ~7));
+        Arrays.fill(padded, length, padded.length, (byte) 0);
+        byte[] chained = chain.doFinal(padded);
+        Cipher decrypt = Cipher.getInstance("DES/ECB/NoPadding");
+        decrypt.init(Cipher.DECRYPT_MODE, right);
+        Cipher encrypt = Cipher.getInstance("DES/ECB/NoPadding");
+        encrypt.init(Cipher.ENCRYPT_MODE, left);
+        return encrypt.doFinal(decrypt.doFinal(chained, chained.length - 8, 8));
+    }
+
+    private static byte[] request(ISOBasePackager packager, MacService service, MacKey key)
+            throws ISOException, GeneralSecurityException {
+        ISOMsg request = new ISOMsg();
+        request.setPackager(packager);
+        request.setMTI("0200");
+        request.set(2, "4242424242424242");
+        request.set(3, "000000");
+        request.set(4, "000000010000");
+        request.set(7, "0101120000");
+        request.set(11, "000001");
+        request.set(22, "012");
+        request.set(25, "00");
+        request.set(41, TERMINAL);
+        request.set(42, "MERCHANT0001");
+        request.set(49, "840");
+        if (service == null) {
+            return request.pack();
+        }
+        request.set(64, new byte[8]);
+        byte[] unsigned = request.pack();
+        request.set(64, service.generate(key, unsigned, 0, unsigned.length - MacService.packedMacLength(request, 64)));
+        return request.pack();
+    }
+
+    private static KeyStore writeKeystore(Path file) throws IOException, GeneralSecurityException {
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        store.load(null, PASSWORD);
+        store.setEntry(TERMINAL.toLowerCase(Locale.ROOT), new KeyStore.SecretKeyEntry(new SecretKeySpec(KEY, "DESede")),
+                new KeyStore.PasswordProtection(PASSWORD));
+        try (OutputStream out = Files.newOutputStream(file)) {
+            store.store(out, PASSWORD);
+        }
+        return store;
+    }
+
+    private static InputStream packagerConfig() throws IOException {
+        InputStream inputStream = MacBench.class.getClassLoader().getResourceAsStream("packager/iso87ascii.xml");
+        if (inputStream == null) {
+            throw new IOException("Resource not found on classpath: packager/iso87ascii.xml");
+        }
+        return inputStream;
+    }
+
+    @FunctionalInterface
+    private interface MessagePath {
+        byte[] run(ISOMsg request) throws Exception;
+    }
+}
@@ -0,0 +1,288 @@
+package org.example.server.bench;
+
+import org.example.server.config.DataSourceProvider;
+import org.example.server.config.EnvironmentLoader;
+import org.example.server.pan.PanToken;
+import org.example.server.pan.PanVault;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares storing and finding cards by clear PAN with the tokenized layout of
+ * {@code PersistToOracle}, for a card mix in which 90% of transactions come from 1% of the cards.
+ * <p>
+ * The {@code tokenize*} benchmarks measure the {@link PanVault} alone: tokens per second with and
+ * without the LRU cache, and tokenizing plus encrypting. The keystore is a throwaway one. The
+ * {@code insert*} and {@code lookup*} benchmarks need the {@code ORACLE_*} settings: two scratch
+ * tables are created in that schema and preloaded with {@code rows} rows, one with the old
+ * {@code VARCHAR2(19)} PAN index and one with the {@code RAW(8)} token index and encrypted PAN.
+ * The size of each PAN index is printed before the tables are dropped.
+ * <p>
+ * Usage: {@code java -jar benchmarks.jar 'PanTokenBench.tokenize' -t 8 -prof gc}, or
+ * {@code 'PanTokenBench.(insert|lookup)'} against a database.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PanTokenBench {
+    private static final String CLEAR_TABLE = "BENCH_PAN_CLEAR";
+    private static final String TOKEN_TABLE = "BENCH_PAN_TOKEN";
+    private static final int CARDS = 1_000_000;
+    private static final int HOT_CARDS = CARDS / 100;
+
+    @Benchmark
+    public long tokenizeUncached(Vaults vaults, Cards cards) throws GeneralSecurityException {
+        return vaults.uncached.token(pan(cards.next()));
+    }
+
+    @Benchmark
+    public long tokenizeCached(Vaults vaults, Cards cards) throws GeneralSecurityException {
+        return vaults.cached.token(pan(cards.next()));
+    }
+
+    @Benchmark
+    public byte[] tokenizeAndEncrypt(Vaults vaults, Cards cards) throws GeneralSecurityException {
+        String pan = pan(cards.next());
+        return vaults.cached.encrypt(pan, vaults.cached.token(pan));
+    }
+
+    @Benchmark
+    public int insertClearPan(Session session, Cards cards) throws SQLException {
+        session.insertClear.setString(1, pan(cards.next()));
+        session.insertClear.setString(2, session.nextStan());
+        return session.insertClear.executeUpdate();
+    }
+
+    @Benchmark
+    public int insertToken(Session session, Cards cards) throws SQLException, GeneralSecurityException {
+        String pan = pan(cards.next());
+        long token = session.vault.token(pan);
+        session.insertToken.setBytes(1, PanToken.toBytes(token));
+        session.insertToken.setBytes(2, session.vault.encrypt(pan, token));
+        session.insertToken.setString(3, session.nextStan());
+        return session.insertToken.executeUpdate();
+    }
+
+    @Benchmark
+    public long lookupClearPan(Session session, Cards cards) throws SQLException {
+        session.lookupClear.setString(1, pan(cards.next()));
+        return count(session.lookupClear);
+    }
+
+    @Benchmark
+    public long lookupToken(Session session, Cards cards) throws SQLException, GeneralSecurityException {
+        session.lookupToken.setBytes(1, PanToken.toBytes(session.vault.token(pan(cards.next()))));
+        return count(session.lookupToken);
+    }
+
+    /**
+     * Vaults over one throwaway keystore, with and without the token cache.
+     */
+    @State(Scope.Benchmark)
+    public static class Vaults {
+        private Path keystore;
+        private PanVault uncached;
+        private PanVault cached;
+
+        @Setup
+        public void setUp() throws IOException {
+            keystore = Files.createTempFile("pan-bench", ".p12");
+            Files.delete(keystore);
+            char[] password = "bench".toCharArray();
+            uncached = PanVault.open(keystore, password, 0, true);
+            cached = PanVault.open(keystore, password, 100_000, false);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            System.out.printf("%ncache hit ratio %.1f%%%n",
+                    100.0 * cached.getCacheHits() / Math.max(1L, cached.getCacheHits() + cached.getCacheMisses()));
+            Files.deleteIfExists(keystore);
+        }
+    }
+
+    /**
+     * Per-thread card draws: hot cards come up in 90% of them.
+     */
+    @State(Scope.Thread)
+    public static class Cards {
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next() {
+            return random.nextInt(10) < 9 ? random.nextInt(HOT_CARDS) : random.nextInt(CARDS);
+        }
+    }
+
+    /**
+     * The two scratch tables, preloaded with {@code rows} rows each.
+     */
+    @State(Scope.Benchmark)
+    public static class Database {
+        @Param({"200000"})
+        public int rows;
+
+        private final AtomicLong stan = new AtomicLong();
+        private DataSource dataSource;
+
+        @Setup
+        public void setUp(Vaults vaults) throws SQLException, GeneralSecurityException {
+            EnvironmentLoader.load();
+            dataSource = DataSourceProvider.getDataSource();
+            String partitioning = " PARTITION BY RANGE (CREATED_AT) INTERVAL (NUMTODSINTERVAL(1, 'DAY')) " +
+                    "(PARTITION P_INITIAL VALUES LESS THAN (TIMESTAMP '2024-01-01 00:00:00'))";
+            execute(List.of("DROP TABLE " + CLEAR_TABLE + " PURGE", "DROP TABLE " + TOKEN_TABLE + " PURGE"), true);
+            execute(List.of(
+                    "CREATE TABLE " + CLEAR_TABLE + " (PAN VARCHAR2(19 CHAR), STAN VARCHAR2(6 CHAR) NOT NULL, " +
+                            "CREATED_AT TIMESTAMP(6) DEFAULT SYSTIMESTAMP NOT NULL)" + partitioning,
+                    "CREATE INDEX " + CLEAR_TABLE + "_IX ON " + CLEAR_TABLE + " (PAN) LOCAL",
+                    "CREATE TABLE " + TOKEN_TABLE + " (PAN_TOKEN RAW(8), PAN_ENCRYPTED RAW(64), " +
+                            "STAN VARCHAR2(6 CHAR) NOT NULL, CREATED_AT TIMESTAMP(6) DEFAULT SYSTIMESTAMP NOT NULL)" +
+                            partitioning,
+                    "CREATE INDEX " + TOKEN_TABLE + "_IX ON " + TOKEN_TABLE + " (PAN_TOKEN) LOCAL"), false);
+            preload(vaults.cached);
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            try {
+                printIndexSizes();
+                execute(List.of("DROP TABLE " + CLEAR_TABLE + " PURGE", "DROP TABLE " + TOKEN_TABLE + " PURGE"), true);
+            } finally {
+                DataSourceProvider.close();
+            }
+        }
+
+        private void preload(PanVault vault) throws SQLException, GeneralSecurityException {
+            Cards cards = new Cards();
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement clear = connection.prepareStatement(
+                         "INSERT INTO " + CLEAR_TABLE + " (PAN, STAN) VALUES (?, ?)");
+                 PreparedStatement tokenized = connection.prepareStatement(
+                         "INSERT INTO " + TOKEN_TABLE + " (PAN_TOKEN, PAN_ENCRYPTED, STAN) VALUES (?, ?, ?)")) {
+                for (int row = 0; row < rows; row++) {
+                    String pan = pan(cards.next());
+                    long token = vault.token(pan);
+                    String rowStan = String.format("%06d", row % 1_000_000);
+                    clear.setString(1, pan);
+                    clear.setString(2, rowStan);
+                    clear.addBatch();
+                    tokenized.setBytes(1, PanToken.toBytes(token));
+                    tokenized.setBytes(2, vault.encrypt(pan, token));
+                    tokenized.setString(3, rowStan);
+                    tokenized.addBatch();
+                    if (row % 1000 == 999) {
+                        clear.executeBatch();
+                        tokenized.executeBatch();
+                    }
+                }
+                clear.executeBatch();
+                tokenized.executeBatch();
+            }
+        }
+
+        private void printIndexSizes() throws SQLException {
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(
+                         "SELECT SEGMENT_NAME, SUM(BYTES), SUM(BLOCKS) FROM USER_SEGMENTS " +
+                                 "WHERE SEGMENT_NAME IN (?, ?) GROUP BY SEGMENT_NAME ORDER BY SEGMENT_NAME")) {
+                statement.setString(1, CLEAR_TABLE + "_IX");
+                statement.setString(2, TOKEN_TABLE + "_IX");
+                try (ResultSet rs = statement.executeQuery()) {
+                    System.out.println();
+                    while (rs.next()) {
+                        System.out.printf("%-24s %8.1f MB  %8d blocks%n", rs.getString(1),
+                                rs.getLong(2) / 1024.0 / 1024.0, rs.getLong(3));
+                    }
+                }
+            }
+        }
+
+        private void execute(List<String> statements, boolean ignoreErrors) throws SQLException {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                for (String sql : statements) {
+                    try {
+                        statement.execute(sql);
+                    } catch (SQLException e) {
+                        if (!ignoreErrors) {
+                            throw e;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * One connection and the four prepared statements per benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+        private Database database;
+        private PanVault vault;
+        private Connection connection;
+        private PreparedStatement insertClear;
+        private PreparedStatement insertToken;
+        private PreparedStatement lookupClear;
+        private PreparedStatement lookupToken;
+
+        @Setup
+        public void setUp(Database database, Vaults vaults) throws SQLException {
+            this.database = database;
+            vault = vaults.cached;
+            connection = database.dataSource.getConnection();
+            insertClear = connection.prepareStatement("INSERT INTO " + CLEAR_TABLE + " (PAN, STAN) VALUES (?, ?)");
+            insertToken = connection.prepareStatement(
+                    "INSERT INTO " + TOKEN_TABLE + " (PAN_TOKEN, PAN_ENCRYPTED, STAN) VALUES (?, ?, ?)");
+            lookupClear = connection.prepareStatement("SELECT COUNT(*) FROM " + CLEAR_TABLE + " WHERE PAN = ?");
+            lookupToken = connection.prepareStatement("SELECT COUNT(*) FROM " + TOKEN_TABLE + " WHERE PAN_TOKEN = ?");
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+
+        String nextStan() {
+            return String.format("%06d", database.stan.getAndIncrement() % 1_000_000L);
+        }
+    }
+
+    private static String pan(int card) {
+        String digits = Integer.toString(card);
+        return "4242420" + "000000000".substring(digits.length()) + digits;
+    }
+
+    private static long count(PreparedStatement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+}
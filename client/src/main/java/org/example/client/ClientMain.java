@@ -1,6 +1,8 @@
 package org.example.client;
 
 import org.example.client.config.Environment;
+import org.example.client.replay.ReplayClient;
+import org.example.client.terminals.TerminalClient;
 import org.jpos.iso.BaseChannel;
 import org.jpos.iso.ISOException;
 import org.jpos.iso.ISOMsg;
@@ -108,6 +110,16 @@ public final class ClientMain {
 
         info("Using ISO hosts {} on port {} (connect timeout {} ms, response timeout {} ms)", hosts, port, connectTimeout, responseTimeout);
 
+        String mode = Environment.getOrDefault("ISO_CLIENT_MODE", "single");
+        if ("replay".equalsIgnoreCase(mode)) {
+            ReplayClient.run(hosts.get(0), port);
+            return;
+        }
+        if ("terminals".equalsIgnoreCase(mode)) {
+            TerminalClient.run(hosts.get(0), port);
+            return;
+        }
+
         ISOException lastIsoException = null;
         IllegalStateException lastIllegalStateException = null;
         for (int index = 0; index < hosts.size(); index++) {
@@ -0,0 +1,85 @@
+package org.example.client.replay;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reader for the traffic capture files produced by the server's {@code CaptureLogListener}.
+ * <p>
+ * The client does not depend on the server module, so the layout is repeated here:
+ * a 16 byte header ({@code int} magic {@code "RJCP"}, {@code int} version, {@code long} creation
+ * time) followed by records of {@code int} length, {@code long} timestamp in epoch microseconds,
+ * {@code byte} direction ({@code 'I'} or {@code 'O'}), {@code int} connection id and the packed
+ * frame. A zero length marks the end of the data.
+ */
+final class CaptureFile {
+    static final byte INBOUND = 'I';
+    static final byte OUTBOUND = 'O';
+
+    private static final int MAGIC = 0x524A4350;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_LENGTH = 16;
+    private static final int RECORD_HEADER_LENGTH = 17;
+    private static final String PREFIX = "capture-";
+    private static final String SUFFIX = ".bin";
+
+    record Frame(long timestampMicros, byte direction, int connectionId, byte[] bytes) {
+    }
+
+    private CaptureFile() {
+    }
+
+    static List<Frame> readAll(Path location) throws IOException {
+        List<Frame> frames = new ArrayList<>();
+        for (Path file : files(location)) {
+            read(file, frames);
+        }
+        return frames;
+    }
+
+    private static List<Path> files(Path location) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(location)) {
+            files.add(location);
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(location, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparing(file -> file.getFileName().toString()));
+        return files;
+    }
+
+    private static void read(Path file, List<Frame> frames) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FILE_HEADER_LENGTH) {
+                return;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a supported capture file: " + file);
+            }
+            int position = FILE_HEADER_LENGTH;
+            while (position + RECORD_HEADER_LENGTH <= size) {
+                int length = buffer.getInt(position);
+                if (length < RECORD_HEADER_LENGTH || position + length > size) {
+                    break;
+                }
+                byte[] bytes = new byte[length - RECORD_HEADER_LENGTH];
+                buffer.get(position + RECORD_HEADER_LENGTH, bytes);
+                frames.add(new Frame(buffer.getLong(position + 4), buffer.get(position + 12),
+                        buffer.getInt(position + 13), bytes));
+                position += length;
+            }
+        }
+    }
+}
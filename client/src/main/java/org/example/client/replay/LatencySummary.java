@@ -0,0 +1,31 @@
+package org.example.client.replay;
+
+import java.util.Arrays;
+
+/**
+ * Exact percentiles over a finite set of latency samples.
+ */
+final class LatencySummary {
+    private final long[] sorted;
+
+    LatencySummary(long[] samples) {
+        this.sorted = samples.clone();
+        Arrays.sort(this.sorted);
+    }
+
+    int count() {
+        return sorted.length;
+    }
+
+    long percentile(double percentile) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    long max() {
+        return sorted.length == 0 ? 0L : sorted[sorted.length - 1];
+    }
+}
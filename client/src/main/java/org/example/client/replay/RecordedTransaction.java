@@ -0,0 +1,16 @@
+package org.example.client.replay;
+
+import org.jpos.iso.ISOMsg;
+
+/**
+ * A request taken from a capture together with what the server answered at recording time.
+ *
+ * @param connectionId     connection the request arrived on
+ * @param offsetMicros     arrival time relative to the first recorded request
+ * @param request          unpacked request
+ * @param responseCode     recorded field 39, or {@code null} when no response was captured
+ * @param latencyMicros    recorded request-to-response time, or {@code -1} when no response was captured
+ */
+record RecordedTransaction(int connectionId, long offsetMicros, ISOMsg request, String responseCode,
+                           long latencyMicros) {
+}
@@ -0,0 +1,87 @@
+package org.example.client.replay;
+
+import org.example.client.config.Environment;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.packager.GenericPackager;
+import org.jpos.util.Log;
+import org.jpos.util.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays traffic recorded by the server's capture log listener and reports how response codes
+ * and latencies compare with the recording. Enabled with {@code ISO_CLIENT_MODE=replay}.
+ * <p>
+ * Record with {@code Q2_LOGGER=capture} and {@code pan-mask} set to {@code none} on a test server,
+ * then point {@code ISO_REPLAY_CAPTURE} at the capture directory.
+ */
+public final class ReplayClient {
+    private static final Log LOG = new Log(Logger.getLogger("rayan-jpos-client"), ReplayClient.class.getSimpleName());
+
+    private ReplayClient() {
+    }
+
+    public static void run(String host, int port) throws IOException, ISOException, InterruptedException {
+        Path capture = Path.of(Environment.get("ISO_REPLAY_CAPTURE")
+                .orElseThrow(() -> new IllegalStateException("ISO_REPLAY_CAPTURE must point to a capture directory or file")));
+        double speed = parseSpeed(Environment.getOrDefault("ISO_REPLAY_SPEED", "1"));
+        int connections = Environment.getInt("ISO_REPLAY_CONNECTIONS", 16);
+        int maxOutstanding = Environment.getInt("ISO_REPLAY_MAX_OUTSTANDING", 256);
+        long responseTimeout = Environment.getLong("ISO_RESPONSE_TIMEOUT_MS", TimeUnit.SECONDS.toMillis(30));
+        ZoneId zone = ZoneId.of(Environment.getOrDefault("ISO_CLIENT_TIMEZONE", "UTC"));
+
+        GenericPackager packager = loadPackager();
+        List<RecordedTransaction> plan = ReplayPlan.load(capture, packager);
+        LOG.info("Replaying " + plan.size() + " recorded requests from " + capture + " against " + host + ':' + port
+                + " at " + (speed > 0 ? speed + "x" : "max speed"));
+
+        ReplayRunner runner = new ReplayRunner(host, port, packager, connections, speed, maxOutstanding,
+                responseTimeout, zone);
+        String report = runner.run(plan).render();
+        System.out.println(report);
+        Environment.get("ISO_REPLAY_REPORT").ifPresent(file -> writeReport(Path.of(file), report));
+    }
+
+    private static double parseSpeed(String value) {
+        String normalised = value.trim().toLowerCase(Locale.ROOT);
+        if (normalised.equals("max")) {
+            return 0.0;
+        }
+        if (normalised.endsWith("x")) {
+            normalised = normalised.substring(0, normalised.length() - 1);
+        }
+        try {
+            double speed = Double.parseDouble(normalised);
+            return speed > 0 ? speed : 1.0;
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid ISO_REPLAY_SPEED '" + value + "', replaying at 1x");
+            return 1.0;
+        }
+    }
+
+    private static GenericPackager loadPackager() throws IOException, ISOException {
+        try (InputStream packagerStream = ReplayClient.class.getResourceAsStream("/packager/iso87ascii.xml")) {
+            if (packagerStream == null) {
+                throw new IllegalStateException("Unable to load ISO packager configuration");
+            }
+            return new GenericPackager(packagerStream);
+        }
+    }
+
+    private static void writeReport(Path file, String report) {
+        try {
+            Files.writeString(file, report, StandardCharsets.UTF_8);
+            LOG.info("Replay report written to " + file);
+        } catch (IOException e) {
+            LOG.warn("Unable to write replay report to " + file, e);
+        }
+    }
+}
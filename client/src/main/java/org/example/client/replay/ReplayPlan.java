@@ -0,0 +1,98 @@
+package org.example.client.replay;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns captured frames into the ordered list of requests to replay.
+ * <p>
+ * Inbound requests are paired with the outbound frame that carries the same terminal id (field 41)
+ * and STAN (field 11) on the same connection, which yields the response code and latency observed
+ * when the traffic was recorded.
+ */
+final class ReplayPlan {
+    private ReplayPlan() {
+    }
+
+    static List<RecordedTransaction> load(Path capture, ISOPackager packager) throws IOException {
+        List<CaptureFile.Frame> frames = CaptureFile.readAll(capture);
+        List<Builder> builders = new ArrayList<>();
+        Map<String, Builder> awaitingResponse = new HashMap<>();
+        long firstRequest = Long.MIN_VALUE;
+
+        for (CaptureFile.Frame frame : frames) {
+            ISOMsg message = unpack(packager, frame.bytes());
+            if (message == null) {
+                continue;
+            }
+            String key = frame.connectionId() + "|" + message.getString(41) + '|' + message.getString(11);
+            if (frame.direction() == CaptureFile.INBOUND && isRequest(message)) {
+                if (firstRequest == Long.MIN_VALUE) {
+                    firstRequest = frame.timestampMicros();
+                }
+                Builder builder = new Builder(frame.connectionId(), frame.timestampMicros() - firstRequest,
+                        frame.timestampMicros(), message);
+                builders.add(builder);
+                awaitingResponse.put(key, builder);
+            } else if (frame.direction() == CaptureFile.OUTBOUND) {
+                Builder builder = awaitingResponse.remove(key);
+                if (builder != null) {
+                    builder.responseCode = message.getString(39);
+                    builder.latencyMicros = frame.timestampMicros() - builder.receivedMicros;
+                }
+            }
+        }
+
+        List<RecordedTransaction> plan = new ArrayList<>(builders.size());
+        for (Builder builder : builders) {
+            plan.add(new RecordedTransaction(builder.connectionId, builder.offsetMicros, builder.request,
+                    builder.responseCode, builder.latencyMicros));
+        }
+        plan.sort(Comparator.comparingLong(RecordedTransaction::offsetMicros));
+        return plan;
+    }
+
+    private static ISOMsg unpack(ISOPackager packager, byte[] bytes) {
+        try {
+            ISOMsg message = new ISOMsg();
+            message.setPackager(packager);
+            message.unpack(bytes);
+            return message;
+        } catch (ISOException e) {
+            return null;
+        }
+    }
+
+    private static boolean isRequest(ISOMsg message) {
+        try {
+            return message.isRequest();
+        } catch (ISOException e) {
+            return false;
+        }
+    }
+
+    private static final class Builder {
+        private final int connectionId;
+        private final long offsetMicros;
+        private final long receivedMicros;
+        private final ISOMsg request;
+        private String responseCode;
+        private long latencyMicros = -1L;
+
+        private Builder(int connectionId, long offsetMicros, long receivedMicros, ISOMsg request) {
+            this.connectionId = connectionId;
+            this.offsetMicros = offsetMicros;
+            this.receivedMicros = receivedMicros;
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.client.replay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Compares replay results with what was recorded: response code distribution, per-transaction
+ * response code mismatches and latency percentiles.
+ */
+final class ReplayReport {
+    private static final int MAX_EXAMPLES = 20;
+
+    private final List<RecordedTransaction> plan;
+    private final String[] replayCodes;
+    private final long[] replayLatencies;
+    private final long elapsedMillis;
+    private final double speed;
+
+    ReplayReport(List<RecordedTransaction> plan, String[] replayCodes, long[] replayLatencies, long elapsedMillis,
+                 double speed) {
+        this.plan = plan;
+        this.replayCodes = replayCodes;
+        this.replayLatencies = replayLatencies;
+        this.elapsedMillis = elapsedMillis;
+        this.speed = speed;
+    }
+
+    String render() {
+        Map<String, int[]> codes = new TreeMap<>();
+        List<Long> recordedLatencies = new ArrayList<>();
+        List<Long> replayedLatencies = new ArrayList<>();
+        List<String> examples = new ArrayList<>();
+        int mismatches = 0;
+        int recordedTimeouts = 0;
+        int replayTimeouts = 0;
+
+        for (int i = 0; i < plan.size(); i++) {
+            RecordedTransaction recorded = plan.get(i);
+            String recordedCode = recorded.responseCode() == null ? "none" : recorded.responseCode();
+            String replayCode = replayCodes[i] == null ? "none" : replayCodes[i];
+            codes.computeIfAbsent(recordedCode, key -> new int[2])[0]++;
+            codes.computeIfAbsent(replayCode, key -> new int[2])[1]++;
+            if (recorded.latencyMicros() >= 0) {
+                recordedLatencies.add(recorded.latencyMicros());
+            } else {
+                recordedTimeouts++;
+            }
+            if (replayLatencies[i] >= 0) {
+                replayedLatencies.add(replayLatencies[i]);
+            } else {
+                replayTimeouts++;
+            }
+            if (!Objects.equals(recordedCode, replayCode)) {
+                mismatches++;
+                if (examples.size() < MAX_EXAMPLES) {
+                    examples.add(String.format("  terminal %s stan %s: %s -> %s", recorded.request().getString(41),
+                            recorded.request().getString(11), recordedCode, replayCode));
+                }
+            }
+        }
+
+        LatencySummary recordedSummary = new LatencySummary(toArray(recordedLatencies));
+        LatencySummary replaySummary = new LatencySummary(toArray(replayedLatencies));
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Replayed %d transactions at %s in %d ms (%.1f tps)%n", plan.size(),
+                speed > 0 ? speed + "x" : "max speed", elapsedMillis,
+                elapsedMillis == 0 ? 0.0 : plan.size() * 1000.0 / elapsedMillis));
+        out.append(String.format("%-22s %12s %12s%n", "", "recorded", "replay"));
+        out.append(String.format("%-22s %12d %12d%n", "responses", recordedSummary.count(), replaySummary.count()));
+        out.append(String.format("%-22s %12d %12d%n", "no response", recordedTimeouts, replayTimeouts));
+        for (double percentile : new double[]{50.0, 90.0, 99.0, 99.9}) {
+            out.append(String.format("%-22s %12.3f %12.3f%n", "p" + trim(percentile) + " latency (ms)",
+                    recordedSummary.percentile(percentile) / 1000.0, replaySummary.percentile(percentile) / 1000.0));
+        }
+        out.append(String.format("%-22s %12.3f %12.3f%n", "max latency (ms)",
+                recordedSummary.max() / 1000.0, replaySummary.max() / 1000.0));
+        out.append(String.format("%nResponse codes%n"));
+        for (Map.Entry<String, int[]> entry : codes.entrySet()) {
+            out.append(String.format("  %-20s %12d %12d%n", entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        }
+        out.append(String.format("%nResponse code mismatches: %d%n", mismatches));
+        for (String example : examples) {
+            out.append(example).append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+
+    private static long[] toArray(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static String trim(double percentile) {
+        return percentile == Math.rint(percentile) ? Integer.toString((int) percentile) : Double.toString(percentile);
+    }
+}
@@ -0,0 +1,187 @@
+package org.example.client.replay;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+import org.jpos.iso.channel.ASCIIChannel;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a {@link ReplayPlan} against a server, preserving the recorded inter-arrival times
+ * scaled by {@code speed} (or sending as fast as {@code maxOutstanding} allows when {@code speed}
+ * is not positive).
+ * <p>
+ * Every request gets a fresh STAN and fresh transmission/local date-time fields so replays do not
+ * collide with the recorded rows on the server's STAN index. PANs masked in the capture are
+ * replaced with {@link TestPans test PANs}, since the server declines a field 2 that is not numeric.
+ */
+final class ReplayRunner {
+    private static final DateTimeFormatter TRANSMISSION_DATETIME = DateTimeFormatter.ofPattern("MMddHHmmss");
+    private static final DateTimeFormatter LOCAL_TRANSACTION_TIME = DateTimeFormatter.ofPattern("HHmmss");
+    private static final DateTimeFormatter LOCAL_TRANSACTION_DATE = DateTimeFormatter.ofPattern("MMdd");
+
+    private final String host;
+    private final int port;
+    private final ISOPackager packager;
+    private final int connections;
+    private final double speed;
+    private final int maxOutstanding;
+    private final long responseTimeoutNanos;
+    private final ZoneId zone;
+    private final AtomicInteger stan = new AtomicInteger(ThreadLocalRandom.current().nextInt(1_000_000));
+    private final Map<String, InFlight> pending = new ConcurrentHashMap<>();
+
+    ReplayRunner(String host, int port, ISOPackager packager, int connections, double speed, int maxOutstanding,
+                 long responseTimeoutMs, ZoneId zone) {
+        this.host = host;
+        this.port = port;
+        this.packager = packager;
+        this.connections = Math.max(1, connections);
+        this.speed = speed;
+        this.maxOutstanding = Math.max(1, maxOutstanding);
+        this.responseTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, responseTimeoutMs));
+        this.zone = zone;
+    }
+
+    ReplayReport run(List<RecordedTransaction> plan) throws IOException, ISOException, InterruptedException {
+        String[] codes = new String[plan.size()];
+        long[] latencies = new long[plan.size()];
+        Arrays.fill(latencies, -1L);
+        Semaphore outstanding = new Semaphore(maxOutstanding);
+
+        List<ASCIIChannel> channels = new ArrayList<>(connections);
+        List<Thread> receivers = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            ASCIIChannel channel = new ASCIIChannel(host, port, packager);
+            channel.connect();
+            channels.add(channel);
+            Thread receiver = new Thread(() -> receive(channel, codes, latencies, outstanding), "replay-receiver-" + i);
+            receiver.setDaemon(true);
+            receiver.start();
+            receivers.add(receiver);
+        }
+        Thread reaper = new Thread(() -> reap(outstanding), "replay-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+
+        Map<Integer, ASCIIChannel> assignment = new HashMap<>();
+        long start = System.nanoTime();
+        try {
+            for (int index = 0; index < plan.size(); index++) {
+                RecordedTransaction recorded = plan.get(index);
+                if (speed > 0) {
+                    long due = start + (long) (TimeUnit.MICROSECONDS.toNanos(recorded.offsetMicros()) / speed);
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                outstanding.acquire();
+                ASCIIChannel channel = assignment.computeIfAbsent(recorded.connectionId(),
+                        id -> channels.get(assignment.size() % channels.size()));
+                ISOMsg request = prepare(recorded.request());
+                String key = key(request);
+                InFlight inFlight = new InFlight(index, System.nanoTime());
+                pending.put(key, inFlight);
+                try {
+                    channel.send(request);
+                } catch (ISOException | IOException e) {
+                    if (pending.remove(key, inFlight)) {
+                        outstanding.release();
+                    }
+                }
+            }
+            long deadline = System.nanoTime() + responseTimeoutNanos;
+            while (!pending.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10L);
+            }
+        } finally {
+            for (ASCIIChannel channel : channels) {
+                channel.disconnect();
+            }
+            reaper.interrupt();
+            for (Thread receiver : receivers) {
+                receiver.join(1000L);
+            }
+            pending.clear();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new ReplayReport(plan, codes, latencies, elapsedMillis, speed);
+    }
+
+    private ISOMsg prepare(ISOMsg recorded) throws ISOException {
+        ISOMsg request = (ISOMsg) recorded.clone();
+        request.setPackager(packager);
+        request.set(11, String.format("%06d", Math.floorMod(stan.getAndIncrement(), 999_999) + 1));
+        request.set(7, TRANSMISSION_DATETIME.format(LocalDateTime.now(ZoneOffset.UTC)));
+        String pan = request.getString(2);
+        if (pan != null && !TestPans.isClear(pan)) {
+            request.set(2, TestPans.substitute(pan));
+        }
+        LocalDateTime local = LocalDateTime.now(zone);
+        if (request.hasField(12)) {
+            request.set(12, LOCAL_TRANSACTION_TIME.format(local));
+        }
+        if (request.hasField(13)) {
+            request.set(13, LOCAL_TRANSACTION_DATE.format(local));
+        }
+        return request;
+    }
+
+    private void receive(ASCIIChannel channel, String[] codes, long[] latencies, Semaphore outstanding) {
+        while (channel.isConnected()) {
+            try {
+                ISOMsg response = channel.receive();
+                InFlight inFlight = pending.remove(key(response));
+                if (inFlight != null) {
+                    codes[inFlight.index()] = response.getString(39);
+                    latencies[inFlight.index()] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inFlight.sentNanos());
+                    outstanding.release();
+                }
+            } catch (IOException | ISOException e) {
+                return;
+            }
+        }
+    }
+
+    private void reap(Semaphore outstanding) {
+        while (!Thread.currentThread().isInterrupted()) {
+            long now = System.nanoTime();
+            for (Map.Entry<String, InFlight> entry : pending.entrySet()) {
+                // Only the thread that removes the entry releases its permit; a response may win the race.
+                if (now - entry.getValue().sentNanos() > responseTimeoutNanos
+                        && pending.remove(entry.getKey(), entry.getValue())) {
+                    outstanding.release();
+                }
+            }
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private static String key(ISOMsg message) {
+        return message.getString(41) + '|' + message.getString(11);
+    }
+
+    private record InFlight(int index, long sentNanos) {
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.client.replay;
+
+/**
+ * Stand-in PANs for captures recorded with a PAN mask. The visible digits of a masked PAN (the BIN
+ * and the last four with the default mask) are kept and every {@code *} is filled from a hash of
+ * the masked value, so all requests that carried the same masked PAN replay with the same card.
+ * One filled digit is chosen so that the result passes the Luhn check.
+ */
+final class TestPans {
+    private TestPans() {
+    }
+
+    static boolean isClear(String pan) {
+        for (int i = 0; i < pan.length(); i++) {
+            if (pan.charAt(i) < '0' || pan.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String substitute(String masked) {
+        char[] digits = masked.toCharArray();
+        long hash = 0xcbf29ce484222325L;
+        for (char c : digits) {
+            hash = (hash ^ c) * 0x100000001b3L;
+        }
+        int free = -1;
+        for (int i = 0; i < digits.length; i++) {
+            if (digits[i] < '0' || digits[i] > '9') {
+                hash = hash * 6364136223846793005L + 1442695040888963407L;
+                digits[i] = (char) ('0' + (int) Long.remainderUnsigned(hash >>> 16, 10));
+                free = i;
+            }
+        }
+        if (free >= 0) {
+            digits[free] = '0';
+            int sum = luhnSum(digits);
+            boolean doubled = (digits.length - 1 - free) % 2 == 1;
+            int needed = (10 - sum % 10) % 10;
+            // Doubling maps 0..9 onto 0..9 one to one (0,2,4,6,8,1,3,5,7,9), so a digit always exists.
+            int digit = doubled ? (needed % 2 == 0 ? needed / 2 : (needed + 9) / 2) : needed;
+            digits[free] = (char) ('0' + digit);
+        }
+        return new String(digits);
+    }
+
+    private static int luhnSum(char[] digits) {
+        int sum = 0;
+        for (int i = digits.length - 1, position = 0; i >= 0; i--, position++) {
+            int digit = digits[i] - '0';
+            if (position % 2 == 1) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return sum;
+    }
+}
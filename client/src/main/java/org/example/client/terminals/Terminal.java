@@ -0,0 +1,288 @@
+package org.example.client.terminals;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One simulated POS terminal: its own connection, terminal id and STAN sequence. It sends a 0200
+ * after every think time, a 0800 echo whenever it has been idle for the echo interval, and
+ * reconnects with exponential backoff and jitter after its connection fails or is dropped.
+ * <p>
+ * Frames use the {@code ASCIIChannel} layout (four ASCII length digits) over a plain blocking
+ * socket rather than the jPOS channel, whose synchronized send and receive would pin the carrier
+ * threads of thousands of virtual threads blocked in reads.
+ */
+final class Terminal implements Runnable {
+    private static final DateTimeFormatter TRANSMISSION_DATETIME = DateTimeFormatter.ofPattern("MMddHHmmss");
+    private static final DateTimeFormatter LOCAL_TIME = DateTimeFormatter.ofPattern("HHmmss");
+    private static final DateTimeFormatter LOCAL_DATE = DateTimeFormatter.ofPattern("MMdd");
+
+    private final int index;
+    private final String terminalId;
+    private final InetSocketAddress address;
+    private final ISOPackager packager;
+    private final TerminalSettings settings;
+    private final TerminalStats stats;
+    private final long startNanos;
+    private final long endNanos;
+    private volatile Thread thread;
+    private volatile Socket socket;
+    private DataInputStream in;
+    private OutputStream out;
+    private volatile boolean hungUp;
+    private int stan;
+    private long exchanges;
+    private long latencySumMicros;
+    private long latencyMaxMicros;
+
+    Terminal(int index, InetSocketAddress address, ISOPackager packager, TerminalSettings settings,
+             TerminalStats stats, long startNanos, long endNanos) {
+        this.index = index;
+        this.terminalId = settings.terminalId(index);
+        this.address = address;
+        this.packager = packager;
+        this.settings = settings;
+        this.stats = stats;
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.stan = ThreadLocalRandom.current().nextInt(999_999);
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        long rampOffset = settings.rampMillis() * index / settings.terminals();
+        if (!parkUntil(startNanos + TimeUnit.MILLISECONDS.toNanos(rampOffset))) {
+            return;
+        }
+        int failedAttempts = 0;
+        long nextFinancial = 0L;
+        long nextEcho = 0L;
+        while (System.nanoTime() - endNanos < 0) {
+            if (socket == null) {
+                if (!connect()) {
+                    parkUntil(System.nanoTime() + backoffNanos(++failedAttempts));
+                    continue;
+                }
+                failedAttempts = 0;
+                long now = System.nanoTime();
+                nextFinancial = now + TimeUnit.MILLISECONDS.toNanos(settings.nextThinkMillis());
+                nextEcho = now + TimeUnit.MILLISECONDS.toNanos(settings.echoMillis());
+            }
+            boolean financial = nextFinancial - nextEcho <= 0;
+            if (!parkUntil(financial ? nextFinancial : nextEcho)) {
+                break;
+            }
+            if (hungUp) {
+                close();
+                stats.disconnects.increment();
+                parkUntil(System.nanoTime() + backoffNanos(1));
+                continue;
+            }
+            if (!exchange(financial)) {
+                close();
+                stats.disconnects.increment();
+                parkUntil(System.nanoTime() + backoffNanos(++failedAttempts));
+                continue;
+            }
+            long now = System.nanoTime();
+            if (financial) {
+                nextFinancial = now + TimeUnit.MILLISECONDS.toNanos(settings.nextThinkMillis());
+            }
+            nextEcho = now + TimeUnit.MILLISECONDS.toNanos(settings.echoMillis());
+            if (settings.dropRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.dropRate()) {
+                close();
+                stats.drops.increment();
+                parkUntil(System.nanoTime() + backoffNanos(1));
+            }
+        }
+        close();
+    }
+
+    /**
+     * Drops the connection as if the network had failed, waking the terminal so it reconnects.
+     */
+    void hangUp() {
+        Socket current = socket;
+        if (current != null) {
+            hungUp = true;
+            closeQuietly(current);
+        }
+        wake();
+    }
+
+    void wake() {
+        Thread current = thread;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    String terminalId() {
+        return terminalId;
+    }
+
+    long exchanges() {
+        return exchanges;
+    }
+
+    double meanLatencyMicros() {
+        return exchanges == 0 ? 0.0 : (double) latencySumMicros / exchanges;
+    }
+
+    long maxLatencyMicros() {
+        return latencyMaxMicros;
+    }
+
+    private boolean connect() {
+        Socket candidate = new Socket();
+        long started = System.nanoTime();
+        try {
+            candidate.setTcpNoDelay(true);
+            candidate.connect(address, settings.connectTimeout());
+            stats.connectLatency.recordNanos(System.nanoTime() - started);
+            candidate.setSoTimeout(settings.responseTimeout());
+            in = new DataInputStream(new BufferedInputStream(candidate.getInputStream()));
+            out = new BufferedOutputStream(candidate.getOutputStream());
+            hungUp = false;
+            socket = candidate;
+            stats.connected();
+            return true;
+        } catch (SocketTimeoutException e) {
+            stats.connectTimeouts.increment();
+        } catch (IOException e) {
+            stats.connectFailures.increment();
+        }
+        closeQuietly(candidate);
+        return false;
+    }
+
+    private boolean exchange(boolean financial) {
+        try {
+            ISOMsg request = financial ? financialRequest() : echoRequest();
+            byte[] packed = request.pack();
+            long sent = System.nanoTime();
+            out.write(String.format("%04d", packed.length).getBytes(StandardCharsets.US_ASCII));
+            out.write(packed);
+            out.flush();
+            ISOMsg response = read();
+            while (!request.getString(11).equals(response.getString(11))) {
+                response = read();
+            }
+            long elapsed = System.nanoTime() - sent;
+            (financial ? stats.financialLatency : stats.echoLatency).recordNanos(elapsed);
+            stats.responseCode(response.getMTI(), response.getString(39));
+            long micros = TimeUnit.NANOSECONDS.toMicros(elapsed);
+            exchanges++;
+            latencySumMicros += micros;
+            latencyMaxMicros = Math.max(latencyMaxMicros, micros);
+            return true;
+        } catch (SocketTimeoutException e) {
+            stats.responseTimeouts.increment();
+        } catch (IOException | ISOException | RuntimeException e) {
+            if (!hungUp) {
+                stats.exchangeErrors.increment();
+            }
+        }
+        return false;
+    }
+
+    private ISOMsg read() throws IOException, ISOException {
+        byte[] header = new byte[4];
+        in.readFully(header);
+        int length;
+        try {
+            length = Integer.parseInt(new String(header, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid frame length header");
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        ISOMsg response = new ISOMsg();
+        response.setPackager(packager);
+        response.unpack(frame);
+        return response;
+    }
+
+    private ISOMsg financialRequest() throws ISOException {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        ISOMsg request = echoRequest();
+        request.setMTI("0200");
+        request.set(2, "4242424242424242");
+        request.set(3, "000000");
+        request.set(4, String.format("%012d", ThreadLocalRandom.current().nextInt(100, 100_000)));
+        request.set(12, LOCAL_TIME.format(now));
+        request.set(13, LOCAL_DATE.format(now));
+        request.set(22, "012");
+        request.set(25, "00");
+        request.set(42, "MERCHANT0001");
+        request.set(49, "840");
+        return request;
+    }
+
+    private ISOMsg echoRequest() throws ISOException {
+        stan = stan % 999_999 + 1;
+        ISOMsg request = new ISOMsg();
+        request.setPackager(packager);
+        request.setMTI("0800");
+        request.set(7, TRANSMISSION_DATETIME.format(LocalDateTime.now(ZoneOffset.UTC)));
+        request.set(11, String.format("%06d", stan));
+        request.set(41, terminalId);
+        request.set(70, "301");
+        return request;
+    }
+
+    /**
+     * Parks until {@code deadline} or until woken by a hang up; returns false once the run is over.
+     */
+    private boolean parkUntil(long deadline) {
+        long wait;
+        while (!hungUp && (wait = Math.min(deadline, endNanos) - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, wait);
+        }
+        return System.nanoTime() - endNanos < 0;
+    }
+
+    private long backoffNanos(int attempt) {
+        long delay = settings.reconnectMillis() << Math.min(attempt - 1, 20);
+        long capped = Math.min(delay, settings.reconnectMaxMillis());
+        return TimeUnit.MILLISECONDS.toNanos((long) (capped * ThreadLocalRandom.current().nextDouble(0.5, 1.5)));
+    }
+
+    private void close() {
+        Socket current = socket;
+        socket = null;
+        in = null;
+        out = null;
+        hungUp = false;
+        if (current != null) {
+            stats.connected.decrementAndGet();
+            closeQuietly(current);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // the connection is abandoned either way
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.client.terminals;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.packager.GenericPackager;
+import org.jpos.util.Log;
+import org.jpos.util.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates a fleet of mostly idle POS terminals to find the connection ceiling of the server's
+ * channel rather than its transaction rate. Enabled with {@code ISO_CLIENT_MODE=terminals}; see
+ * {@link TerminalSettings} for the {@code ISO_TERMINALS*} settings.
+ * <p>
+ * Every terminal runs on its own virtual thread with its own connection. Connections are opened
+ * over the ramp period, then each terminal alternates think time, 0200 requests and 0800 echoes,
+ * hanging up at {@code ISO_TERMINALS_DROP_RATE} and reconnecting with backoff. Every
+ * {@code ISO_TERMINALS_STORM_S} seconds all connections are dropped at once to reproduce a
+ * reconnect storm. The report covers connect (server accept) latency, failed connects, response
+ * latency overall and per terminal, and response codes. Simulating 10k terminals on one host needs
+ * a file descriptor limit above the terminal count ({@code ulimit -n}).
+ */
+public final class TerminalClient {
+    private static final Log LOG = new Log(Logger.getLogger("rayan-jpos-client"), TerminalClient.class.getSimpleName());
+    private static final int WORST_TERMINALS = 10;
+
+    private TerminalClient() {
+    }
+
+    public static void run(String host, int port) throws IOException, ISOException, InterruptedException {
+        TerminalSettings settings = TerminalSettings.fromEnvironment();
+        GenericPackager packager = loadPackager();
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        TerminalStats stats = new TerminalStats();
+        LOG.info("Simulating " + settings.terminals() + " terminals against " + host + ':' + port + ", ramp "
+                + settings.rampMillis() / 1000 + " s, run " + settings.durationMillis() / 1000 + " s, think "
+                + settings.thinkMillis() + " ms " + settings.think().name().toLowerCase(Locale.ROOT) + ", echo every "
+                + settings.echoMillis() + " ms");
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(settings.rampMillis() + settings.durationMillis());
+        Terminal[] terminals = new Terminal[settings.terminals()];
+        List<Thread> threads = new ArrayList<>(terminals.length);
+        for (int i = 0; i < terminals.length; i++) {
+            terminals[i] = new Terminal(i, address, packager, settings, stats, start, end);
+            threads.add(Thread.ofVirtual().name("terminal-" + terminals[i].terminalId()).start(terminals[i]));
+        }
+
+        long reportInterval = TimeUnit.MILLISECONDS.toNanos(settings.reportMillis());
+        long stormInterval = TimeUnit.MILLISECONDS.toNanos(settings.stormMillis());
+        long nextReport = start + reportInterval;
+        long nextStorm = stormInterval > 0 ? start + TimeUnit.MILLISECONDS.toNanos(settings.rampMillis()) + stormInterval : Long.MAX_VALUE;
+        int storms = 0;
+        long lastConnects = 0L;
+        long lastFinancial = 0L;
+        long now;
+        while ((now = System.nanoTime()) - end < 0) {
+            long wake = Math.min(Math.min(nextReport, nextStorm), end);
+            if (wake - now > 0) {
+                TimeUnit.NANOSECONDS.sleep(wake - now);
+            }
+            now = System.nanoTime();
+            if (now - nextStorm >= 0) {
+                storms++;
+                LOG.info("Reconnect storm " + storms + ": dropping " + stats.connected.get() + " connections");
+                for (Terminal terminal : terminals) {
+                    terminal.hangUp();
+                }
+                nextStorm += stormInterval;
+            }
+            if (now - nextReport >= 0) {
+                long connects = stats.connects.sum();
+                long financial = stats.financialLatency.count();
+                LOG.info(String.format("connected %d, connects %d/s, failed connects %d, 0200 %d/s, p99 accept %.1f ms,"
+                                + " p99 0200 %.1f ms", stats.connected.get(),
+                        (connects - lastConnects) * 1000 / settings.reportMillis(), stats.failedConnects(),
+                        (financial - lastFinancial) * 1000 / settings.reportMillis(),
+                        stats.connectLatency.percentile(99.0) / 1000.0, stats.financialLatency.percentile(99.0) / 1000.0));
+                lastConnects = connects;
+                lastFinancial = financial;
+                nextReport += reportInterval;
+            }
+        }
+        for (Terminal terminal : terminals) {
+            terminal.wake();
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(settings.responseTimeout() / 1000 + 5));
+        }
+        System.out.println(render(settings, stats, terminals, storms));
+    }
+
+    private static String render(TerminalSettings settings, TerminalStats stats, Terminal[] terminals, int storms) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Simulated %d terminals for %d s after a %d s ramp%n", settings.terminals(),
+                settings.durationMillis() / 1000, settings.rampMillis() / 1000));
+        out.append(String.format("%-28s %d%n", "peak connected", stats.peakConnected.get()));
+        out.append(String.format("%-28s %d%n", "connects", stats.connects.sum()));
+        out.append(String.format("%-28s %d (%d timed out)%n", "failed connects", stats.failedConnects(),
+                stats.connectTimeouts.sum()));
+        out.append(String.format("%-28s %d%n", "lost connections", stats.disconnects.sum()));
+        out.append(String.format("%-28s %d%n", "voluntary hang ups", stats.drops.sum()));
+        out.append(String.format("%-28s %d%n", "reconnect storms", storms));
+        out.append(String.format("%-28s %d%n", "response timeouts", stats.responseTimeouts.sum()));
+        out.append(String.format("%-28s %d%n", "exchange errors", stats.exchangeErrors.sum()));
+        out.append(String.format("%n%-28s %10s %10s %10s %10s %10s %10s%n", "latency (ms)", "count", "p50", "p90",
+                "p99", "p99.9", "max"));
+        appendLatency(out, "connect (accept)", stats.connectLatency);
+        appendLatency(out, "0200 response", stats.financialLatency);
+        appendLatency(out, "0800 echo", stats.echoLatency);
+
+        Terminal[] active = Arrays.stream(terminals).filter(terminal -> terminal.exchanges() > 0).toArray(Terminal[]::new);
+        double[] means = Arrays.stream(active).mapToDouble(Terminal::meanLatencyMicros).sorted().toArray();
+        out.append(String.format("%nPer terminal: %d of %d exchanged messages%n", active.length, terminals.length));
+        if (means.length > 0) {
+            out.append(String.format("  mean latency across terminals (ms): p50 %.3f, p99 %.3f, max %.3f%n",
+                    rank(means, 50.0) / 1000.0, rank(means, 99.0) / 1000.0, means[means.length - 1] / 1000.0));
+            Arrays.sort(active, Comparator.comparingLong(Terminal::maxLatencyMicros).reversed());
+            out.append("  slowest terminals:").append(System.lineSeparator());
+            for (int i = 0; i < Math.min(WORST_TERMINALS, active.length); i++) {
+                out.append(String.format("    %-10s max %.3f ms, mean %.3f ms over %d messages%n", active[i].terminalId(),
+                        active[i].maxLatencyMicros() / 1000.0, active[i].meanLatencyMicros() / 1000.0,
+                        active[i].exchanges()));
+            }
+        }
+        out.append(String.format("%nResponse codes%n"));
+        for (Map.Entry<String, Long> entry : stats.responseCodes().entrySet()) {
+            out.append(String.format("  %-20s %12d%n", entry.getKey(), entry.getValue()));
+        }
+        return out.toString();
+    }
+
+    private static void appendLatency(StringBuilder out, String label, LatencyHistogram histogram) {
+        out.append(String.format("%-28s %10d %10.3f %10.3f %10.3f %10.3f %10.3f%n", label, histogram.count(),
+                histogram.percentile(50.0) / 1000.0, histogram.percentile(90.0) / 1000.0,
+                histogram.percentile(99.0) / 1000.0, histogram.percentile(99.9) / 1000.0, histogram.max() / 1000.0));
+    }
+
+    private static double rank(double[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static GenericPackager loadPackager() throws IOException, ISOException {
+        try (InputStream packagerStream = TerminalClient.class.getResourceAsStream("/packager/iso87ascii.xml")) {
+            if (packagerStream == null) {
+                throw new IllegalStateException("Unable to load ISO packager configuration");
+            }
+            return new GenericPackager(packagerStream);
+        }
+    }
+}
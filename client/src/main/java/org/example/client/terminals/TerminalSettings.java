@@ -0,0 +1,80 @@
+package org.example.client.terminals;
+
+import org.example.client.config.Environment;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Terminal simulator settings, read from {@code ISO_TERMINALS*} environment variables.
+ *
+ * @param terminals          number of simulated terminals, each with its own connection
+ * @param idPrefix           terminal ids are the prefix followed by a zero padded index, 8 characters
+ * @param rampMillis         time over which the initial connections are spread
+ * @param durationMillis     length of the run after the ramp
+ * @param thinkMillis        mean time between financial requests of one terminal
+ * @param think              distribution of the time between financial requests
+ * @param echoMillis         idle time after which a terminal sends a 0800 echo
+ * @param reconnectMillis    first delay before reconnecting, doubled on every failed attempt
+ * @param reconnectMaxMillis cap on the reconnect delay
+ * @param dropRate           probability that a terminal hangs up after an exchange
+ * @param stormMillis        interval between reconnect storms that drop every connection at once, 0 for none
+ * @param reportMillis       interval between progress lines
+ * @param connectTimeout     connect timeout in milliseconds
+ * @param responseTimeout    response timeout in milliseconds
+ */
+record TerminalSettings(int terminals, String idPrefix, long rampMillis, long durationMillis, long thinkMillis,
+                        Think think, long echoMillis, long reconnectMillis, long reconnectMaxMillis, double dropRate,
+                        long stormMillis, long reportMillis, int connectTimeout, int responseTimeout) {
+
+    static TerminalSettings fromEnvironment() {
+        return new TerminalSettings(
+                Math.max(1, Environment.getInt("ISO_TERMINALS", 10_000)),
+                Environment.getOrDefault("ISO_TERMINALS_ID_PREFIX", "SIM"),
+                TimeUnit.SECONDS.toMillis(Environment.getLong("ISO_TERMINALS_RAMP_S", 60L)),
+                TimeUnit.SECONDS.toMillis(Environment.getLong("ISO_TERMINALS_DURATION_S", 600L)),
+                Math.max(1L, Environment.getLong("ISO_TERMINALS_THINK_MS", 60_000L)),
+                Think.parse(Environment.getOrDefault("ISO_TERMINALS_THINK_DISTRIBUTION", "exponential")),
+                Math.max(1L, Environment.getLong("ISO_TERMINALS_ECHO_MS", 30_000L)),
+                Math.max(1L, Environment.getLong("ISO_TERMINALS_RECONNECT_MS", 1_000L)),
+                Math.max(1L, Environment.getLong("ISO_TERMINALS_RECONNECT_MAX_MS", 30_000L)),
+                Double.parseDouble(Environment.getOrDefault("ISO_TERMINALS_DROP_RATE", "0")),
+                TimeUnit.SECONDS.toMillis(Environment.getLong("ISO_TERMINALS_STORM_S", 0L)),
+                TimeUnit.SECONDS.toMillis(Math.max(1L, Environment.getLong("ISO_TERMINALS_REPORT_S", 10L))),
+                (int) Environment.getLong("ISO_CONNECT_TIMEOUT_MS", 30_000L),
+                (int) Environment.getLong("ISO_RESPONSE_TIMEOUT_MS", 30_000L));
+    }
+
+    String terminalId(int index) {
+        String number = Integer.toString(index);
+        int width = Math.max(number.length(), 8 - idPrefix.length());
+        return idPrefix + "0".repeat(width - number.length()) + number;
+    }
+
+    long nextThinkMillis() {
+        return think.sample(thinkMillis);
+    }
+
+    /**
+     * Distribution of terminal think time around its mean.
+     */
+    enum Think {
+        FIXED,
+        UNIFORM,
+        EXPONENTIAL;
+
+        long sample(long mean) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return switch (this) {
+                case FIXED -> mean;
+                case UNIFORM -> random.nextLong(2 * mean + 1);
+                case EXPONENTIAL -> (long) (-Math.log(1.0 - random.nextDouble()) * mean);
+            };
+        }
+
+        static Think parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.client.terminals;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms shared by all simulated terminals.
+ */
+final class TerminalStats {
+    final LatencyHistogram connectLatency = new LatencyHistogram();
+    final LatencyHistogram financialLatency = new LatencyHistogram();
+    final LatencyHistogram echoLatency = new LatencyHistogram();
+    final LongAdder connects = new LongAdder();
+    final LongAdder connectTimeouts = new LongAdder();
+    final LongAdder connectFailures = new LongAdder();
+    final LongAdder disconnects = new LongAdder();
+    final LongAdder drops = new LongAdder();
+    final LongAdder responseTimeouts = new LongAdder();
+    final LongAdder exchangeErrors = new LongAdder();
+    final AtomicInteger connected = new AtomicInteger();
+    final AtomicInteger peakConnected = new AtomicInteger();
+    private final Map<String, LongAdder> responseCodes = new ConcurrentHashMap<>();
+
+    void connected() {
+        connects.increment();
+        int now = connected.incrementAndGet();
+        peakConnected.accumulateAndGet(now, Math::max);
+    }
+
+    void responseCode(String mti, String code) {
+        responseCodes.computeIfAbsent(mti + " " + (code == null ? "none" : code), key -> new LongAdder()).increment();
+    }
+
+    Map<String, Long> responseCodes() {
+        Map<String, Long> codes = new TreeMap<>();
+        responseCodes.forEach((key, count) -> codes.put(key, count.sum()));
+        return codes;
+    }
+
+    long failedConnects() {
+        return connectTimeouts.sum() + connectFailures.sum();
+    }
+}
@@ -2,6 +2,22 @@
 -- Schema initialisation for the Rayan jPOS demo environment.
 -- Creates the ISO_MESSAGES table, supporting indexes, and a synonym that keeps
 -- backwards compatibility with existing code paths expecting ISO_TRANSACTIONS.
+--
+-- ISO_MESSAGES is interval partitioned by day on CREATED_AT and every index is
+-- LOCAL, so retention is enforced by dropping whole partitions (see
+-- IsoMessageArchiver) without global index maintenance. STAN wraps at 999999,
+-- so it is only meaningful together with the terminal and transmission time.
+-- The PAN is not stored in clear: PAN_TOKEN is a 64-bit keyed hash of it, the
+-- only PAN column that is indexed, and PAN_ENCRYPTED the AES-GCM encrypted PAN
+-- (see PanVault). Databases created before tokenization are migrated with
+-- db/migrations/005-tokenize-pan.sql.
+-- Databases created with the previous heap layout are converted with
+-- db/migrations/002-partition-iso-messages.sql.
+--
+-- ISO_FRAME_AUDIT keeps the deflated raw request and response frames for
+-- disputes (see FrameAuditWriter), partitioned the same way; the frames are
+-- small enough to stay in row, so the batched inserts do no LOB segment I/O.
+-- ISO_FRAME_DICTIONARIES holds the preset dictionaries they were compressed with.
 -- -----------------------------------------------------------------------------
 SET DEFINE OFF;
 
@@ -12,23 +28,27 @@ SELECT COUNT(*) INTO l_count FROM user_tables WHERE table_name = 'ISO_MESSAGES';
 IF l_count = 0 THEN
         EXECUTE IMMEDIATE q'[
             CREATE TABLE ISO_MESSAGES (
-                ID NUMBER GENERATED BY DEFAULT ON NULL AS IDENTITY PRIMARY KEY,
+                ID NUMBER GENERATED BY DEFAULT ON NULL AS IDENTITY,
                 MTI VARCHAR2(4 CHAR) NOT NULL,
-                PAN VARCHAR2(19 CHAR),
+                PAN_TOKEN RAW(8),
+                PAN_ENCRYPTED RAW(64),
                 PROCESSING_CODE VARCHAR2(6 CHAR) NOT NULL,
-                AMOUNT VARCHAR2(12 CHAR),
+                AMOUNT NUMBER(12),
                 TRANSMISSION_DATETIME VARCHAR2(10 CHAR),
                 STAN VARCHAR2(6 CHAR) NOT NULL,
                 TERMINAL_ID VARCHAR2(16 CHAR),
-                CREATED_AT TIMESTAMP(6) DEFAULT SYSTIMESTAMP NOT NULL
+                CREATED_AT TIMESTAMP(6) DEFAULT SYSTIMESTAMP NOT NULL,
+                CONSTRAINT PK_ISO_MESSAGES PRIMARY KEY (ID, CREATED_AT) USING INDEX LOCAL
             )
+            PARTITION BY RANGE (CREATED_AT) INTERVAL (NUMTODSINTERVAL(1, 'DAY'))
+            (PARTITION P_INITIAL VALUES LESS THAN (TIMESTAMP '2024-01-01 00:00:00'))
         ]';
 END IF;
 END;
 /
 
 BEGIN
-EXECUTE IMMEDIATE 'CREATE UNIQUE INDEX IDX_ISO_MESSAGES_STAN ON ISO_MESSAGES (STAN)';
+EXECUTE IMMEDIATE 'CREATE INDEX IDX_ISO_MESSAGES_TERMINAL_STAN ON ISO_MESSAGES (TERMINAL_ID, STAN, TRANSMISSION_DATETIME) LOCAL';
 EXCEPTION
     WHEN OTHERS THEN
         IF SQLCODE != -955 THEN -- ORA-00955: name is already used by an existing object
@@ -38,7 +58,7 @@ END;
 /
 
 BEGIN
-EXECUTE IMMEDIATE 'CREATE INDEX IDX_ISO_MESSAGES_TERMINAL_CREATED ON ISO_MESSAGES (TERMINAL_ID, CREATED_AT)';
+EXECUTE IMMEDIATE 'CREATE INDEX IDX_ISO_MESSAGES_TERMINAL_CREATED ON ISO_MESSAGES (TERMINAL_ID, CREATED_AT) LOCAL';
 EXCEPTION
     WHEN OTHERS THEN
         IF SQLCODE != -955 THEN
@@ -48,7 +68,7 @@ END;
 /
 
 BEGIN
-EXECUTE IMMEDIATE 'CREATE INDEX IDX_ISO_MESSAGES_PAN ON ISO_MESSAGES (PAN)';
+EXECUTE IMMEDIATE 'CREATE INDEX IDX_ISO_MESSAGES_PAN_TOKEN ON ISO_MESSAGES (PAN_TOKEN) LOCAL';
 EXCEPTION
     WHEN OTHERS THEN
         IF SQLCODE != -955 THEN
@@ -57,9 +77,60 @@ END IF;
 END;
 /
 
+DECLARE
+l_count INTEGER;
+BEGIN
+SELECT COUNT(*) INTO l_count FROM user_tables WHERE table_name = 'ISO_FRAME_AUDIT';
+IF l_count = 0 THEN
+        EXECUTE IMMEDIATE q'[
+            CREATE TABLE ISO_FRAME_AUDIT (
+                TERMINAL_ID VARCHAR2(16 CHAR),
+                STAN VARCHAR2(6 CHAR),
+                MTI VARCHAR2(4 CHAR) NOT NULL,
+                CREATED_AT TIMESTAMP(6) NOT NULL,
+                DICT_ID NUMBER(10) NOT NULL,
+                REQUEST_LENGTH NUMBER(6) NOT NULL,
+                REQUEST_FRAME BLOB NOT NULL,
+                RESPONSE_LENGTH NUMBER(6),
+                RESPONSE_FRAME BLOB
+            )
+            LOB (REQUEST_FRAME, RESPONSE_FRAME) STORE AS SECUREFILE (ENABLE STORAGE IN ROW)
+            PARTITION BY RANGE (CREATED_AT) INTERVAL (NUMTODSINTERVAL(1, 'DAY'))
+            (PARTITION P_INITIAL VALUES LESS THAN (TIMESTAMP '2024-01-01 00:00:00'))
+        ]';
+END IF;
+END;
+/
+
+BEGIN
+EXECUTE IMMEDIATE 'CREATE INDEX IDX_ISO_FRAME_AUDIT_LOOKUP ON ISO_FRAME_AUDIT (TERMINAL_ID, STAN, CREATED_AT) LOCAL';
+EXCEPTION
+    WHEN OTHERS THEN
+        IF SQLCODE != -955 THEN
+            RAISE;
+END IF;
+END;
+/
+
+DECLARE
+l_count INTEGER;
+BEGIN
+SELECT COUNT(*) INTO l_count FROM user_tables WHERE table_name = 'ISO_FRAME_DICTIONARIES';
+IF l_count = 0 THEN
+        EXECUTE IMMEDIATE q'[
+            CREATE TABLE ISO_FRAME_DICTIONARIES (
+                DICT_ID NUMBER(10) PRIMARY KEY,
+                CONTENT BLOB NOT NULL,
+                CREATED_AT TIMESTAMP(6) DEFAULT SYSTIMESTAMP NOT NULL
+            )
+        ]';
+END IF;
+END;
+/
+
 BEGIN
 EXECUTE IMMEDIATE 'CREATE OR REPLACE SYNONYM ISO_TRANSACTIONS FOR ISO_MESSAGES';
 END;
 /
 
-EXIT;
\ No newline at end of file
+EXIT;
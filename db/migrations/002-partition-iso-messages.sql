@@ -0,0 +1,120 @@
+-- -----------------------------------------------------------------------------
+-- Converts an ISO_MESSAGES table created with the original heap layout (global
+-- unique index on STAN, VARCHAR2 AMOUNT) to the layout of
+-- db/init/01-create-schema.sql: daily interval partitions on CREATED_AT, LOCAL
+-- indexes only, and AMOUNT stored as NUMBER(12) minor units.
+--
+-- The conversion uses DBMS_REDEFINITION, so the table stays readable and
+-- writable while the existing rows are copied; only the final switch takes a
+-- short exclusive lock. The old rows are kept as ISO_MESSAGES_OLD until they
+-- have been checked and dropped by hand. Running the script again on a
+-- partitioned table does nothing.
+--
+-- Run as the application user, for example:
+--   docker exec -i rayan-oracle sqlplus -s ISO_APP/ISO_APP_PASS@FREEPDB1 \
+--     < db/migrations/002-partition-iso-messages.sql
+-- after granting, as SYSTEM:
+--   GRANT EXECUTE ON DBMS_REDEFINITION TO ISO_APP;
+--   GRANT CREATE MATERIALIZED VIEW, CREATE TABLE, CREATE TRIGGER TO ISO_APP;
+-- -----------------------------------------------------------------------------
+SET DEFINE OFF;
+SET SERVEROUTPUT ON;
+WHENEVER SQLERROR EXIT SQL.SQLCODE;
+
+DECLARE
+    l_owner       VARCHAR2(128) := SYS_CONTEXT('USERENV', 'CURRENT_SCHEMA');
+    l_partitioned VARCHAR2(3);
+    l_errors      PLS_INTEGER;
+    l_started     BOOLEAN := FALSE;
+
+    PROCEDURE rename_index(p_from VARCHAR2, p_to VARCHAR2) IS
+    BEGIN
+        EXECUTE IMMEDIATE 'ALTER INDEX ' || p_from || ' RENAME TO ' || p_to;
+    EXCEPTION
+        WHEN OTHERS THEN
+            IF SQLCODE != -1418 THEN -- ORA-01418: specified index does not exist
+                RAISE;
+            END IF;
+    END;
+BEGIN
+    SELECT partitioned INTO l_partitioned FROM user_tables WHERE table_name = 'ISO_MESSAGES';
+    IF l_partitioned = 'YES' THEN
+        DBMS_OUTPUT.PUT_LINE('ISO_MESSAGES is already partitioned, nothing to do');
+        RETURN;
+    END IF;
+
+    DBMS_REDEFINITION.CAN_REDEF_TABLE(l_owner, 'ISO_MESSAGES', DBMS_REDEFINITION.CONS_USE_ROWID);
+
+    -- Free the index names for the new table; the old indexes leave with ISO_MESSAGES_OLD.
+    rename_index('IDX_ISO_MESSAGES_STAN', 'IDX_ISO_MESSAGES_OLD_STAN');
+    rename_index('IDX_ISO_MESSAGES_TERMINAL_CREATED', 'IDX_ISO_MESSAGES_OLD_TERMINAL');
+    rename_index('IDX_ISO_MESSAGES_PAN', 'IDX_ISO_MESSAGES_OLD_PAN');
+
+    EXECUTE IMMEDIATE q'[
+        CREATE TABLE ISO_MESSAGES_REDEF (
+            ID NUMBER GENERATED BY DEFAULT ON NULL AS IDENTITY,
+            MTI VARCHAR2(4 CHAR) NOT NULL,
+            PAN VARCHAR2(19 CHAR),
+            PROCESSING_CODE VARCHAR2(6 CHAR) NOT NULL,
+            AMOUNT NUMBER(12),
+            TRANSMISSION_DATETIME VARCHAR2(10 CHAR),
+            STAN VARCHAR2(6 CHAR) NOT NULL,
+            TERMINAL_ID VARCHAR2(16 CHAR),
+            CREATED_AT TIMESTAMP(6) DEFAULT SYSTIMESTAMP NOT NULL,
+            CONSTRAINT PK_ISO_MESSAGES PRIMARY KEY (ID, CREATED_AT) USING INDEX LOCAL
+        )
+        PARTITION BY RANGE (CREATED_AT) INTERVAL (NUMTODSINTERVAL(1, 'DAY'))
+        (PARTITION P_INITIAL VALUES LESS THAN (TIMESTAMP '2024-01-01 00:00:00'))
+    ]';
+
+    DBMS_REDEFINITION.START_REDEF_TABLE(
+            uname        => l_owner,
+            orig_table   => 'ISO_MESSAGES',
+            int_table    => 'ISO_MESSAGES_REDEF',
+            col_mapping  => 'ID ID, MTI MTI, PAN PAN, PROCESSING_CODE PROCESSING_CODE, '
+                            || 'TO_NUMBER(AMOUNT) AMOUNT, TRANSMISSION_DATETIME TRANSMISSION_DATETIME, '
+                            || 'STAN STAN, TERMINAL_ID TERMINAL_ID, CREATED_AT CREATED_AT',
+            options_flag => DBMS_REDEFINITION.CONS_USE_ROWID);
+    l_started := TRUE;
+
+    EXECUTE IMMEDIATE 'CREATE INDEX IDX_ISO_MESSAGES_TERMINAL_STAN ON ISO_MESSAGES_REDEF '
+                      || '(TERMINAL_ID, STAN, TRANSMISSION_DATETIME) LOCAL';
+    EXECUTE IMMEDIATE 'CREATE INDEX IDX_ISO_MESSAGES_TERMINAL_CREATED ON ISO_MESSAGES_REDEF '
+                      || '(TERMINAL_ID, CREATED_AT) LOCAL';
+    EXECUTE IMMEDIATE 'CREATE INDEX IDX_ISO_MESSAGES_PAN ON ISO_MESSAGES_REDEF (PAN) LOCAL';
+
+    DBMS_REDEFINITION.COPY_TABLE_DEPENDENTS(
+            uname            => l_owner,
+            orig_table       => 'ISO_MESSAGES',
+            int_table        => 'ISO_MESSAGES_REDEF',
+            copy_indexes     => 0,
+            copy_triggers    => TRUE,
+            copy_constraints => FALSE,
+            copy_privileges  => TRUE,
+            ignore_errors    => FALSE,
+            num_errors       => l_errors);
+
+    DBMS_REDEFINITION.SYNC_INTERIM_TABLE(l_owner, 'ISO_MESSAGES', 'ISO_MESSAGES_REDEF');
+    DBMS_REDEFINITION.FINISH_REDEF_TABLE(l_owner, 'ISO_MESSAGES', 'ISO_MESSAGES_REDEF');
+    l_started := FALSE;
+
+    -- The interim identity started at 1; continue after the highest copied ID.
+    EXECUTE IMMEDIATE 'ALTER TABLE ISO_MESSAGES MODIFY ID GENERATED BY DEFAULT ON NULL AS IDENTITY '
+                      || '(START WITH LIMIT VALUE)';
+    EXECUTE IMMEDIATE 'ALTER TABLE ISO_MESSAGES_REDEF RENAME TO ISO_MESSAGES_OLD';
+    DBMS_OUTPUT.PUT_LINE('ISO_MESSAGES is now partitioned; verify and then DROP TABLE ISO_MESSAGES_OLD PURGE');
+EXCEPTION
+    WHEN OTHERS THEN
+        IF l_started THEN
+            DBMS_REDEFINITION.ABORT_REDEF_TABLE(l_owner, 'ISO_MESSAGES', 'ISO_MESSAGES_REDEF');
+        END IF;
+        RAISE;
+END;
+/
+
+BEGIN
+EXECUTE IMMEDIATE 'CREATE OR REPLACE SYNONYM ISO_TRANSACTIONS FOR ISO_MESSAGES';
+END;
+/
+
+EXIT;
@@ -0,0 +1,42 @@
+-- -----------------------------------------------------------------------------
+-- Creates the schemas ISO_SHARD_0 .. ISO_SHARD_<n-1> in one Oracle instance so
+-- that ISO_MESSAGES can be sharded locally without running several databases
+-- (see ORACLE_JDBC_URL_<i> in .env.example). Every schema gets the password
+-- of APP_USER_PASSWORD in the demo setup (c_password) and needs its own ISO_MESSAGES,
+-- created by running db/init/01-create-schema.sql as that schema.
+--
+-- Run as SYSTEM, then create the tables per shard, for example:
+--   docker exec -i rayan-oracle sqlplus -s SYSTEM/Oracle123@FREEPDB1 \
+--     < db/migrations/003-create-shard-schemas.sql
+--   for i in 0 1; do
+--     docker exec -i rayan-oracle sqlplus -s ISO_SHARD_$i/ISO_APP_PASS@FREEPDB1 \
+--       < db/init/01-create-schema.sql
+--   done
+-- Running the script again leaves existing schemas untouched.
+-- -----------------------------------------------------------------------------
+SET DEFINE OFF;
+SET SERVEROUTPUT ON;
+WHENEVER SQLERROR EXIT SQL.SQLCODE;
+
+DECLARE
+    c_shards   CONSTANT PLS_INTEGER := 2;
+    c_password CONSTANT VARCHAR2(30) := 'ISO_APP_PASS';
+    l_user     VARCHAR2(128);
+    l_count    INTEGER;
+BEGIN
+    FOR i IN 0 .. c_shards - 1 LOOP
+        l_user := 'ISO_SHARD_' || i;
+        SELECT COUNT(*) INTO l_count FROM dba_users WHERE username = l_user;
+        IF l_count = 0 THEN
+            EXECUTE IMMEDIATE 'CREATE USER ' || l_user || ' IDENTIFIED BY "' || c_password || '"';
+            EXECUTE IMMEDIATE 'GRANT CREATE SESSION, CREATE TABLE, CREATE SYNONYM TO ' || l_user;
+            EXECUTE IMMEDIATE 'ALTER USER ' || l_user || ' QUOTA UNLIMITED ON USERS';
+            DBMS_OUTPUT.PUT_LINE('Created shard schema ' || l_user);
+        ELSE
+            DBMS_OUTPUT.PUT_LINE('Shard schema ' || l_user || ' already exists');
+        END IF;
+    END LOOP;
+END;
+/
+
+EXIT;
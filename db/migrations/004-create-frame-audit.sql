@@ -0,0 +1,65 @@
+-- -----------------------------------------------------------------------------
+-- Adds ISO_FRAME_AUDIT and ISO_FRAME_DICTIONARIES to a database created before
+-- raw frame auditing (FRAME_AUDIT_ENABLED) existed. The statements are the
+-- ones in db/init/01-create-schema.sql; running the script again does nothing.
+--
+-- Run as the application user (and as every ISO_SHARD_<i> schema when
+-- ISO_MESSAGES is sharded), for example:
+--   docker exec -i rayan-oracle sqlplus -s ISO_APP/ISO_APP_PASS@FREEPDB1 \
+--     < db/migrations/004-create-frame-audit.sql
+-- -----------------------------------------------------------------------------
+SET DEFINE OFF;
+WHENEVER SQLERROR EXIT SQL.SQLCODE;
+
+DECLARE
+l_count INTEGER;
+BEGIN
+SELECT COUNT(*) INTO l_count FROM user_tables WHERE table_name = 'ISO_FRAME_AUDIT';
+IF l_count = 0 THEN
+        EXECUTE IMMEDIATE q'[
+            CREATE TABLE ISO_FRAME_AUDIT (
+                TERMINAL_ID VARCHAR2(16 CHAR),
+                STAN VARCHAR2(6 CHAR),
+                MTI VARCHAR2(4 CHAR) NOT NULL,
+                CREATED_AT TIMESTAMP(6) NOT NULL,
+                DICT_ID NUMBER(10) NOT NULL,
+                REQUEST_LENGTH NUMBER(6) NOT NULL,
+                REQUEST_FRAME BLOB NOT NULL,
+                RESPONSE_LENGTH NUMBER(6),
+                RESPONSE_FRAME BLOB
+            )
+            LOB (REQUEST_FRAME, RESPONSE_FRAME) STORE AS SECUREFILE (ENABLE STORAGE IN ROW)
+            PARTITION BY RANGE (CREATED_AT) INTERVAL (NUMTODSINTERVAL(1, 'DAY'))
+            (PARTITION P_INITIAL VALUES LESS THAN (TIMESTAMP '2024-01-01 00:00:00'))
+        ]';
+END IF;
+END;
+/
+
+BEGIN
+EXECUTE IMMEDIATE 'CREATE INDEX IDX_ISO_FRAME_AUDIT_LOOKUP ON ISO_FRAME_AUDIT (TERMINAL_ID, STAN, CREATED_AT) LOCAL';
+EXCEPTION
+    WHEN OTHERS THEN
+        IF SQLCODE != -955 THEN
+            RAISE;
+END IF;
+END;
+/
+
+DECLARE
+l_count INTEGER;
+BEGIN
+SELECT COUNT(*) INTO l_count FROM user_tables WHERE table_name = 'ISO_FRAME_DICTIONARIES';
+IF l_count = 0 THEN
+        EXECUTE IMMEDIATE q'[
+            CREATE TABLE ISO_FRAME_DICTIONARIES (
+                DICT_ID NUMBER(10) PRIMARY KEY,
+                CONTENT BLOB NOT NULL,
+                CREATED_AT TIMESTAMP(6) DEFAULT SYSTIMESTAMP NOT NULL
+            )
+        ]';
+END IF;
+END;
+/
+
+EXIT;
@@ -0,0 +1,66 @@
+-- -----------------------------------------------------------------------------
+-- Replaces the clear PAN index of ISO_MESSAGES with a PAN token index, for
+-- databases created before PAN tokenization. Adds PAN_TOKEN RAW(8), the 64-bit
+-- keyed hash PersistToOracle now stores and PanLookup searches by, and
+-- PAN_ENCRYPTED RAW(64), the AES-GCM encrypted PAN, then swaps
+-- IDX_ISO_MESSAGES_PAN for IDX_ISO_MESSAGES_PAN_TOKEN. Adding nullable columns
+-- only changes the dictionary, so existing partitions are not rewritten.
+--
+-- PAN is no longer written. Rows stored before the migration still hold their
+-- clear PAN, which only the server's PAN keys can turn into a token, so once the
+-- new server is deployed backfill them from the server image with
+--   java -cp server.jar org.example.server.pan.PanBackfill
+-- which tokenizes and encrypts every remaining PAN and sets it to NULL, then
+-- drop the column with
+--   ALTER TABLE ISO_MESSAGES SET UNUSED (PAN);
+-- Until then IsoMessageArchiver tokenizes any clear PAN it archives.
+-- Running the script again does nothing.
+--
+-- Run as the application user (and as every ISO_SHARD_<i> schema when
+-- ISO_MESSAGES is sharded) before deploying the new server, for example:
+--   docker exec -i rayan-oracle sqlplus -s ISO_APP/ISO_APP_PASS@FREEPDB1 \
+--     < db/migrations/005-tokenize-pan.sql
+-- Compare the index sizes before and after with
+--   SELECT SEGMENT_NAME, SUM(BYTES) / 1024 / 1024 AS MB FROM USER_SEGMENTS
+--   WHERE SEGMENT_NAME LIKE 'IDX_ISO_MESSAGES_PAN%' GROUP BY SEGMENT_NAME;
+-- -----------------------------------------------------------------------------
+SET DEFINE OFF;
+WHENEVER SQLERROR EXIT SQL.SQLCODE;
+
+DECLARE
+    PROCEDURE add_column(p_name VARCHAR2, p_type VARCHAR2) IS
+        l_count INTEGER;
+    BEGIN
+        SELECT COUNT(*) INTO l_count FROM user_tab_columns
+        WHERE table_name = 'ISO_MESSAGES' AND column_name = p_name;
+        IF l_count = 0 THEN
+            EXECUTE IMMEDIATE 'ALTER TABLE ISO_MESSAGES ADD (' || p_name || ' ' || p_type || ')';
+        END IF;
+    END;
+BEGIN
+    add_column('PAN_TOKEN', 'RAW(8)');
+    add_column('PAN_ENCRYPTED', 'RAW(64)');
+END;
+/
+
+BEGIN
+EXECUTE IMMEDIATE 'CREATE INDEX IDX_ISO_MESSAGES_PAN_TOKEN ON ISO_MESSAGES (PAN_TOKEN) LOCAL ONLINE';
+EXCEPTION
+    WHEN OTHERS THEN
+        IF SQLCODE != -955 THEN -- ORA-00955: name is already used by an existing object
+            RAISE;
+END IF;
+END;
+/
+
+BEGIN
+EXECUTE IMMEDIATE 'DROP INDEX IDX_ISO_MESSAGES_PAN';
+EXCEPTION
+    WHEN OTHERS THEN
+        IF SQLCODE != -1418 THEN -- ORA-01418: specified index does not exist
+            RAISE;
+END IF;
+END;
+/
+
+EXIT;
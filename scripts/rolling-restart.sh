@@ -0,0 +1,58 @@
+#!/usr/bin/env sh
+#
+# rolling-restart.sh
+#   Restarts the instances started by start-servers.sh one at a time. Each instance receives
+#   SIGTERM, stops accepting, drains its in-flight transactions and exits while its siblings keep
+#   serving the shared port; the replacement must report ready before the next one is touched.
+
+set -eu
+
+usage() {
+  cat <<USAGE >&2
+Usage: ${0##*/} [options]
+
+Options:
+  -j, --jar path         Server jar (default: server/target/server-1.0-SNAPSHOT.jar)
+  -d, --run-dir path     Run directory used by start-servers.sh (default: run)
+  -t, --timeout seconds  Maximum time to wait for an instance to exit (default: 60)
+  -h, --help             Show this help message and exit
+USAGE
+}
+
+JAR=server/target/server-1.0-SNAPSHOT.jar
+RUN_DIR=run
+STOP_TIMEOUT=60
+
+while [ $# -gt 0 ]; do
+  case "$1" in
+    -j|--jar) JAR=$2; shift 2 ;;
+    -d|--run-dir) RUN_DIR=$2; shift 2 ;;
+    -t|--timeout) STOP_TIMEOUT=$2; shift 2 ;;
+    -h|--help) usage; exit 0 ;;
+    *) echo "Unknown argument: $1" >&2; usage; exit 1 ;;
+  esac
+done
+
+SCRIPT_DIR=$(cd "$(dirname "$0")" && pwd)
+
+for PID_FILE in "$RUN_DIR"/instance-*.pid; do
+  [ -f "$PID_FILE" ] || { echo "No instances found in $RUN_DIR" >&2; exit 1; }
+  INDEX=$(basename "$PID_FILE" .pid | sed 's/^instance-//')
+  PID=$(cat "$PID_FILE")
+
+  if kill -0 "$PID" 2>/dev/null; then
+    echo "Draining instance $INDEX (pid $PID)"
+    kill -TERM "$PID"
+    START=$(date +%s)
+    while kill -0 "$PID" 2>/dev/null; do
+      if [ $(( $(date +%s) - START )) -ge "$STOP_TIMEOUT" ]; then
+        echo "Instance $INDEX did not exit within ${STOP_TIMEOUT}s; aborting restart" >&2
+        exit 1
+      fi
+      sleep 1
+    done
+  fi
+  rm -f "$PID_FILE"
+
+  "$SCRIPT_DIR/start-instance.sh" "$JAR" "$RUN_DIR" "$INDEX"
+done
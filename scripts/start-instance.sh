@@ -0,0 +1,45 @@
+#!/usr/bin/env sh
+#
+# start-instance.sh jar run-dir index
+#   Starts one SO_REUSEPORT server instance in the background and waits until Q2 reports it has
+#   started. Used by start-servers.sh and rolling-restart.sh.
+
+set -eu
+
+if [ $# -ne 3 ]; then
+  echo "Usage: ${0##*/} jar run-dir index" >&2
+  exit 1
+fi
+
+JAR=$1
+RUN_DIR=$2
+INDEX=$3
+HOME_DIR="$RUN_DIR/instance-$INDEX"
+PID_FILE="$RUN_DIR/instance-$INDEX.pid"
+LOG_FILE="$RUN_DIR/instance-$INDEX.log"
+READY_TIMEOUT=${READY_TIMEOUT:-60}
+
+if [ -f "$PID_FILE" ] && kill -0 "$(cat "$PID_FILE")" 2>/dev/null; then
+  echo "Instance $INDEX already running with pid $(cat "$PID_FILE")" >&2
+  exit 1
+fi
+
+mkdir -p "$HOME_DIR"
+: > "$LOG_FILE"
+# shellcheck disable=SC2086
+SERVER_REUSE_PORT=true JPOS_HOME="$HOME_DIR" nohup java ${JAVA_OPTS:-} -jar "$JAR" >>"$LOG_FILE" 2>&1 &
+echo $! > "$PID_FILE"
+
+START=$(date +%s)
+until grep -q "jPOS Q2 started successfully" "$LOG_FILE"; do
+  if ! kill -0 "$(cat "$PID_FILE")" 2>/dev/null; then
+    echo "Instance $INDEX exited during startup; see $LOG_FILE" >&2
+    exit 1
+  fi
+  if [ $(( $(date +%s) - START )) -ge "$READY_TIMEOUT" ]; then
+    echo "Instance $INDEX not ready after ${READY_TIMEOUT}s; see $LOG_FILE" >&2
+    exit 1
+  fi
+  sleep 1
+done
+echo "Instance $INDEX started with pid $(cat "$PID_FILE")"
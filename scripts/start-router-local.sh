@@ -0,0 +1,58 @@
+#!/usr/bin/env sh
+#
+# start-router-local.sh
+#   Starts N backend servers on consecutive ports (stand-in datasource, no Oracle needed) and a
+#   router in front of them, all on this host. Stop everything with: kill $(cat run/router/*.pid)
+
+set -eu
+
+usage() {
+  cat <<USAGE >&2
+Usage: ${0##*/} [options]
+
+Options:
+  -n, --backends count   Number of backend servers (default: 3)
+  -p, --base-port port   Port of the first backend (default: 5001)
+  -r, --router-port port Port terminals connect to (default: 6000)
+  -j, --jar path         Server jar (default: server/target/server-1.0-SNAPSHOT.jar)
+  -d, --run-dir path     Directory for homes, pid files and logs (default: run/router)
+  -h, --help             Show this help message and exit
+USAGE
+}
+
+BACKENDS=3
+BASE_PORT=5001
+ROUTER_PORT=6000
+JAR=server/target/server-1.0-SNAPSHOT.jar
+RUN_DIR=run/router
+
+while [ $# -gt 0 ]; do
+  case "$1" in
+    -n|--backends) BACKENDS=$2; shift 2 ;;
+    -p|--base-port) BASE_PORT=$2; shift 2 ;;
+    -r|--router-port) ROUTER_PORT=$2; shift 2 ;;
+    -j|--jar) JAR=$2; shift 2 ;;
+    -d|--run-dir) RUN_DIR=$2; shift 2 ;;
+    -h|--help) usage; exit 0 ;;
+    *) echo "Unknown argument: $1" >&2; usage; exit 1 ;;
+  esac
+done
+
+SCRIPT_DIR=$(cd "$(dirname "$0")" && pwd)
+mkdir -p "$RUN_DIR"
+
+SPEC=""
+i=1
+while [ "$i" -le "$BACKENDS" ]; do
+  PORT=$((BASE_PORT + i - 1))
+  DATASOURCE_MODE=standin SERVER_PORT=$PORT "$SCRIPT_DIR/start-instance.sh" "$JAR" "$RUN_DIR" "$i"
+  SPEC="${SPEC:+$SPEC,}node$i=127.0.0.1:$PORT"
+  i=$((i + 1))
+done
+
+mkdir -p "$RUN_DIR/router-home"
+# shellcheck disable=SC2086
+ROUTER_BACKENDS=$SPEC ROUTER_PORT=$ROUTER_PORT JPOS_HOME="$RUN_DIR/router-home" \
+  nohup java ${JAVA_OPTS:-} -cp "$JAR" org.example.server.router.RouterMain >"$RUN_DIR/router.log" 2>&1 &
+echo $! > "$RUN_DIR/router.pid"
+echo "Router started with pid $(cat "$RUN_DIR/router.pid") on port $ROUTER_PORT routing to $SPEC"
@@ -0,0 +1,42 @@
+#!/usr/bin/env sh
+#
+# start-servers.sh
+#   Starts several server processes on this host that share SERVER_PORT through SO_REUSEPORT.
+#   Each instance gets its own JPOS_HOME, pid file and log under the run directory.
+
+set -eu
+
+usage() {
+  cat <<USAGE >&2
+Usage: ${0##*/} [options]
+
+Options:
+  -n, --instances count  Number of server processes to start (default: 2)
+  -j, --jar path         Server jar (default: server/target/server-1.0-SNAPSHOT.jar)
+  -d, --run-dir path     Directory for instance homes, pid files and logs (default: run)
+  -h, --help             Show this help message and exit
+USAGE
+}
+
+INSTANCES=2
+JAR=server/target/server-1.0-SNAPSHOT.jar
+RUN_DIR=run
+
+while [ $# -gt 0 ]; do
+  case "$1" in
+    -n|--instances) INSTANCES=$2; shift 2 ;;
+    -j|--jar) JAR=$2; shift 2 ;;
+    -d|--run-dir) RUN_DIR=$2; shift 2 ;;
+    -h|--help) usage; exit 0 ;;
+    *) echo "Unknown argument: $1" >&2; usage; exit 1 ;;
+  esac
+done
+
+SCRIPT_DIR=$(cd "$(dirname "$0")" && pwd)
+mkdir -p "$RUN_DIR"
+
+i=1
+while [ "$i" -le "$INSTANCES" ]; do
+  "$SCRIPT_DIR/start-instance.sh" "$JAR" "$RUN_DIR" "$i"
+  i=$((i + 1))
+done
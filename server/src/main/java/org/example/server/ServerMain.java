@@ -2,9 +2,17 @@ package org.example.server;
 
 import org.example.server.config.DataSourceProvider;
 import org.example.server.config.EnvironmentLoader;
+import org.example.server.dispatch.PriorityDispatcher;
+import org.example.server.handoff.HandoffRing;
+import org.example.server.http.HttpGateway;
+import org.example.server.jfr.ContinuousRecording;
 import org.example.server.logging.ApplicationLogger;
 import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.net.ReusePortServerSocketFactory;
+import org.example.server.pan.PanVault;
+import org.example.server.participant.SendResponse;
 import org.jpos.q2.Q2;
+import org.jpos.util.NameRegistrar;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -12,43 +20,56 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Entry point for the Rayan jPOS server module.
  */
 public final class ServerMain {
     private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(ServerMain.class);
+    private static final String LOGGER_DESCRIPTOR = "deploy/00_logger.xml";
+    private static final String CAPTURE_LOGGER_DESCRIPTOR = "logger/00_logger-capture.xml";
+    private static final String CONFIG_PREFIX = "cfg/";
+    private static final String DISPATCHER_NAME = "server-dispatcher";
+    private static final String HTTP_GATEWAY_NAME = "server-http";
+    private static final String HANDOFF_RING_NAME = "server-handoff";
     private static final List<String> RESOURCES = List.of(
+            LOGGER_DESCRIPTOR,
+            "deploy/01_server-handoff.xml",
+            "cfg/participants.xml",
+            "cfg/validation-rules.xml",
+            "deploy/server-archiver.xml",
+            "deploy/server-autotuner.xml",
+            "deploy/server-change-feed.xml",
             "deploy/server-channel.xml",
+            "deploy/server-dispatcher.xml",
+            "deploy/server-frame-audit.xml",
+            "deploy/server-http.xml",
             "deploy/server-mux.xml",
+            "deploy/server-throttle.xml",
             "deploy/server-txnmgr.xml",
             "logback.xml",
             "packager/iso87ascii.xml"
     );
 
+    private static volatile ContinuousRecording recording;
+
     private ServerMain() {
     }
 
     public static void main(String[] args) {
         ensureJavaCompatibility();
         EnvironmentLoader.load();
-        configureRuntimeProperties();
 
         try {
-            Path workingDirectory = prepareWorkingDirectory();
-            System.setProperty("jpos.home", workingDirectory.toString());
-            System.setProperty("q2.deploy.dir", workingDirectory.resolve("deploy").toString());
-            System.setProperty("logback.configurationFile", workingDirectory.resolve("logback.xml").toString());
-
-            LOGGER.info("Starting jPOS Q2 from {}", workingDirectory);
-            Q2 q2 = new Q2();
-            Runtime.getRuntime().addShutdownHook(new Thread(() -> shutdown(q2)));
-            q2.start();
-            if (!q2.ready(10_000L)) {
-                LOGGER.warn("jPOS Q2 did not reach ready state within 10 seconds");
-            }
-            LOGGER.info("jPOS Q2 started successfully");
-            waitForShutdown(q2);
+            Q2 q2 = start();
+            CountDownLatch stopped = new CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                stop(q2);
+                stopped.countDown();
+            }, "server-shutdown"));
+            waitForShutdown(q2, stopped);
         } catch (IOException e) {
             LOGGER.error("Failed to prepare jPOS working directory", e);
         } catch (InterruptedException e) {
@@ -59,6 +80,41 @@ public final class ServerMain {
         }
     }
 
+    /**
+     * Extracts the runtime resources into the jPOS home directory and starts Q2 in this JVM.
+     * Used by {@link #main(String[])} and by harnesses that embed the server in-process.
+     *
+     * @return the running Q2 instance
+     */
+    public static Q2 start() throws IOException {
+        configureRuntimeProperties();
+        Path workingDirectory = prepareWorkingDirectory();
+        System.setProperty("jpos.home", workingDirectory.toString());
+        System.setProperty("q2.deploy.dir", workingDirectory.resolve("deploy").toString());
+        System.setProperty("logback.configurationFile", workingDirectory.resolve("logback.xml").toString());
+        // Fails before any port opens when the PAN keystore is missing or unreadable.
+        PanVault.shared();
+
+        LOGGER.info("Starting jPOS Q2 from {}", workingDirectory);
+        Q2 q2 = new Q2();
+        q2.start();
+        if (!q2.ready(10_000L)) {
+            LOGGER.warn("jPOS Q2 did not reach ready state within 10 seconds");
+        }
+        recording = ContinuousRecording.startIfEnabled(workingDirectory, SendResponse.responseTime());
+        LOGGER.info("jPOS Q2 started successfully");
+        return q2;
+    }
+
+    /**
+     * {@link #drain(Q2) Drains} and stops a Q2 instance returned by {@link #start()}, then closes the
+     * shared datasource.
+     */
+    public static void stop(Q2 q2) {
+        drain(q2);
+        shutdown(q2);
+    }
+
     private static void shutdown(Q2 q2) {
         try {
             LOGGER.info("Shutting down jPOS Q2");
@@ -66,13 +122,57 @@ public final class ServerMain {
         } catch (Exception e) {
             LOGGER.warn("Unexpected error while shutting down Q2", e);
         } finally {
+            ContinuousRecording running = recording;
+            recording = null;
+            if (running != null) {
+                running.close();
+            }
             DataSourceProvider.close();
         }
     }
 
-    private static void waitForShutdown(Q2 q2) throws InterruptedException {
-        while (q2.running()) {
-            Thread.sleep(1000L);
+    /**
+     * Stops accepting new connections, declines new requests on established sessions and over HTTP,
+     * and waits up to {@code DRAIN_TIMEOUT_MS} for the dispatcher to report no queued or in-flight
+     * transactions, so responses for work already accepted are still sent before Q2 closes the
+     * sessions. With {@code SERVER_REUSE_PORT=true} sibling processes keep serving the port, and
+     * terminals reconnect to them.
+     */
+    public static void drain(Q2 q2) {
+        if (!q2.running()) {
+            return;
+        }
+        ReusePortServerSocketFactory.stopAccepting();
+        HttpGateway gateway = NameRegistrar.getIfExists(HttpGateway.registrationName(HTTP_GATEWAY_NAME));
+        if (gateway != null) {
+            gateway.drain();
+        }
+        PriorityDispatcher dispatcher = NameRegistrar.getIfExists(PriorityDispatcher.registrationName(DISPATCHER_NAME));
+        if (dispatcher == null) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(EnvironmentLoader.getInt("DRAIN_TIMEOUT_MS", 30_000));
+        int pending;
+        while ((pending = dispatcher.getInFlight() + dispatcher.getQueued()) > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                LOGGER.warn("Drain timed out with {} transactions outstanding", pending);
+                return;
+            }
+            try {
+                Thread.sleep(50L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        LOGGER.info("Drained all in-flight transactions");
+    }
+
+    private static void waitForShutdown(Q2 q2, CountDownLatch stopped) throws InterruptedException {
+        while (!stopped.await(1, TimeUnit.SECONDS)) {
+            if (!q2.running()) {
+                return;
+            }
         }
     }
 
@@ -94,17 +194,30 @@ public final class ServerMain {
 
         for (String resource : RESOURCES) {
             Path target = configuredHome.resolve(resource);
-            Files.createDirectories(target.getParent());
-            try (InputStream inputStream = ServerMain.class.getClassLoader().getResourceAsStream(resource)) {
-                if (inputStream == null) {
-                    throw new IOException("Resource not found on classpath: " + resource);
-                }
-                Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+            // cfg/ files are hot-reloaded and edited in place; only seed them on first start.
+            if (resource.startsWith(CONFIG_PREFIX) && Files.exists(target)) {
+                LOGGER.debug("Keeping existing {}", target);
+                continue;
             }
+            copyResource(resource, target);
+        }
+        if ("capture".equalsIgnoreCase(EnvironmentLoader.getOrDefault("Q2_LOGGER", "xml"))) {
+            LOGGER.info("Q2 logger configured for binary traffic capture");
+            copyResource(CAPTURE_LOGGER_DESCRIPTOR, configuredHome.resolve(LOGGER_DESCRIPTOR));
         }
         return configuredHome;
     }
 
+    private static void copyResource(String resource, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try (InputStream inputStream = ServerMain.class.getClassLoader().getResourceAsStream(resource)) {
+            if (inputStream == null) {
+                throw new IOException("Resource not found on classpath: " + resource);
+            }
+            Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     private static void ensureJavaCompatibility() {
         int feature = Runtime.version().feature();
         if (feature < 22) {
@@ -118,5 +231,18 @@ public final class ServerMain {
         int port = EnvironmentLoader.getInt("SERVER_PORT", 5000);
         System.setProperty("SERVER_PORT", Integer.toString(port));
         LOGGER.info("Configured ISO server port to {}", port);
+        System.setProperty("HTTP_ENABLED", Boolean.toString(Boolean.parseBoolean(EnvironmentLoader.getOrDefault("HTTP_ENABLED", "false"))));
+        System.setProperty("HTTP_PORT", Integer.toString(EnvironmentLoader.getInt("HTTP_PORT", 8080)));
+        boolean ring = "ring".equalsIgnoreCase(EnvironmentLoader.getOrDefault("HANDOFF", "space"));
+        System.setProperty("HANDOFF_SPACE", ring ? HandoffRing.spaceUri(HANDOFF_RING_NAME) : "txnmgr");
+        System.setProperty("HANDOFF_WAIT_STRATEGY", EnvironmentLoader.getOrDefault("HANDOFF_WAIT_STRATEGY", "park"));
+        System.setProperty("TM_SESSIONS", Integer.toString(Math.max(1, EnvironmentLoader.getInt("TM_SESSIONS", 64))));
+        if (ring) {
+            LOGGER.info("Handing requests to the transaction manager through ring buffers");
+        }
+        System.setProperty("CHANGE_FEED_ENABLED", Boolean.toString(Boolean.parseBoolean(EnvironmentLoader.getOrDefault("CHANGE_FEED_ENABLED", "false"))));
+        System.setProperty("FRAME_AUDIT_ENABLED", Boolean.toString(Boolean.parseBoolean(EnvironmentLoader.getOrDefault("FRAME_AUDIT_ENABLED", "false"))));
+        System.setProperty("AUTOTUNER_ENABLED", Boolean.toString(Boolean.parseBoolean(EnvironmentLoader.getOrDefault("AUTOTUNER_ENABLED", "false"))));
+        System.setProperty("THROTTLE_ENABLED", Boolean.toString(Boolean.parseBoolean(EnvironmentLoader.getOrDefault("THROTTLE_ENABLED", "true"))));
     }
 }
\ No newline at end of file
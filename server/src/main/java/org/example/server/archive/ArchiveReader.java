@@ -0,0 +1,63 @@
+package org.example.server.archive;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Read-only access to the segments produced by {@link IsoMessageArchiver}. Queries are answered
+ * entirely from the local archive directory and never touch Oracle. Segments whose rows have not
+ * been removed from Oracle yet ({@code PENDING_DELETE}) are skipped, so a row is never returned by
+ * both the archive and the live table.
+ */
+public final class ArchiveReader {
+    private final Path directory;
+    private final SegmentIndex index;
+
+    public ArchiveReader(Path directory) {
+        this.directory = Objects.requireNonNull(directory, "directory");
+        this.index = new SegmentIndex(directory);
+    }
+
+    /**
+     * Streams archived rows matching the given filters in segment order.
+     *
+     * @param terminalId terminal to match, or {@code null} for all terminals
+     * @param from       inclusive lower bound on {@code CREATED_AT}, or {@code null}
+     * @param to         exclusive upper bound on {@code CREATED_AT}, or {@code null}
+     * @param consumer   receives each matching row
+     * @return number of rows delivered
+     */
+    public long scan(String terminalId, Instant from, Instant to, Consumer<ArchivedMessage> consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        long matched = 0;
+        try {
+            for (SegmentIndex.Entry entry : index.entries()) {
+                if (entry.state() == SegmentIndex.State.COMPLETE && entry.overlaps(from, to)) {
+                    matched += SegmentReader.scan(directory.resolve(entry.fileName()), terminalId, from, to, consumer);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to scan archive in " + directory, e);
+        }
+        return matched;
+    }
+
+    public List<ArchivedMessage> findByTerminal(String terminalId, Instant from, Instant to) {
+        Objects.requireNonNull(terminalId, "terminalId");
+        List<ArchivedMessage> result = new ArrayList<>();
+        scan(terminalId, from, to, result::add);
+        return result;
+    }
+
+    public List<ArchivedMessage> findBetween(Instant from, Instant to) {
+        List<ArchivedMessage> result = new ArrayList<>();
+        scan(null, from, to, result::add);
+        return result;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.server.archive;
+
+import java.time.Instant;
+
+/**
+ * Row of the {@code ISO_MESSAGES} table as stored in an archive segment.
+ *
+ * @param pan the {@link org.example.server.pan.PanToken PAN token} in hex, or {@code null} for a row
+ *            without a PAN
+ */
+public record ArchivedMessage(
+        long id,
+        String mti,
+        String pan,
+        String processingCode,
+        String amount,
+        String transmissionDateTime,
+        String stan,
+        String terminalId,
+        Instant createdAt) {
+}
@@ -0,0 +1,370 @@
+package org.example.server.archive;
+
+import org.example.server.config.DataSourceProvider;
+import org.example.server.config.Shard;
+import org.example.server.config.ShardedDataSource;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.pan.PanToken;
+import org.example.server.pan.PanVault;
+import org.jpos.q2.QBeanSupport;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Moves {@code ISO_MESSAGES} partitions older than the retention window into compressed segment
+ * files and drops them.
+ * <p>
+ * {@code ISO_MESSAGES} is interval partitioned by day on {@code CREATED_AT}. Every partition whose
+ * upper bound is at or before the cutoff is streamed with a large JDBC fetch size, buffered into
+ * segments of {@code segment-rows} rows and written to {@code directory}. Only after all of its
+ * segments are durable on disk and recorded in the index is the partition dropped, which releases
+ * its space and local index entries without row-by-row deletes. Drops that were interrupted are
+ * finished on the next run; segments archived by row before the table was partitioned still have
+ * their rows deleted by id, in batches of {@code delete-batch-size}. Use {@link ArchiveReader} to
+ * query the archive.
+ * <p>
+ * Segments only ever hold the PAN token. While a table migrated by
+ * {@code db/migrations/005-tokenize-pan.sql} still has its clear {@code PAN} column, rows that
+ * {@link org.example.server.pan.PanBackfill} has not reached yet are tokenized here before they
+ * are written, so no clear PAN leaves the database.
+ * <p>
+ * When {@code ISO_MESSAGES} is sharded each shard is archived in turn into its own subdirectory
+ * ({@code shard-<i>}) with its own index, so partition names, which are only unique per database,
+ * never collide.
+ */
+public class IsoMessageArchiver extends QBeanSupport {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(IsoMessageArchiver.class);
+    private static final String PARTITIONS_SQL = "SELECT PARTITION_NAME, HIGH_VALUE FROM USER_TAB_PARTITIONS " +
+            "WHERE TABLE_NAME = 'ISO_MESSAGES' ORDER BY PARTITION_POSITION";
+    private static final String SELECT_SQL = "SELECT ID, MTI, RAWTOHEX(PAN_TOKEN), PROCESSING_CODE, AMOUNT, TRANSMISSION_DATETIME, " +
+            "STAN, TERMINAL_ID, CREATED_AT%s FROM ISO_MESSAGES PARTITION (%s) ORDER BY ID";
+    private static final String CLEAR_PAN_COLUMN_SQL = "SELECT COUNT(*) FROM USER_TAB_COLUMNS " +
+            "WHERE TABLE_NAME = 'ISO_MESSAGES' AND COLUMN_NAME = 'PAN'";
+    private static final String DROP_PARTITION_SQL = "ALTER TABLE ISO_MESSAGES DROP PARTITION %s UPDATE INDEXES";
+    private static final String TRUNCATE_PARTITION_SQL = "ALTER TABLE ISO_MESSAGES TRUNCATE PARTITION %s UPDATE INDEXES";
+    private static final String DELETE_SQL = "DELETE FROM ISO_MESSAGES WHERE ID = ?";
+    private static final Pattern HIGH_VALUE = Pattern.compile("TIMESTAMP'\\s*(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})");
+    private static final Pattern PARTITION_NAME = Pattern.compile("[A-Za-z0-9_$#]+");
+    private static final DateTimeFormatter HIGH_VALUE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int ORA_PARTITION_NOT_FOUND = 2149;
+    private static final int ORA_LAST_RANGE_PARTITION = 14758;
+    private static final DateTimeFormatter SEGMENT_NAME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss")
+            .withZone(ZoneOffset.UTC);
+
+    private ScheduledExecutorService scheduler;
+    private Path directory;
+    private final Map<String, SegmentIndex> indexes = new HashMap<>();
+    private Duration retention;
+    private int fetchSize;
+    private int segmentRows;
+    private int deleteBatchSize;
+
+    @Override
+    protected void initService() throws Exception {
+        directory = resolveDirectory(cfg.get("directory", "archive"));
+        retention = Duration.ofDays(cfg.getLong("retention-days", 30L));
+        fetchSize = Math.max(100, cfg.getInt("fetch-size", 5000));
+        segmentRows = Math.max(1, cfg.getInt("segment-rows", 100_000));
+        deleteBatchSize = Math.max(1, cfg.getInt("delete-batch-size", 1000));
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    protected void startService() {
+        if (!cfg.getBoolean("enabled", false)) {
+            LOGGER.info("ISO_MESSAGES archiver is disabled");
+            return;
+        }
+        long interval = Math.max(60_000L, cfg.getLong("interval", TimeUnit.HOURS.toMillis(1)));
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "iso-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runSafely, cfg.getLong("initial-delay", 60_000L), interval,
+                TimeUnit.MILLISECONDS);
+        LOGGER.info("ISO_MESSAGES archiver writing to {} with {} day retention", directory, retention.toDays());
+    }
+
+    @Override
+    protected void stopService() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            scheduler = null;
+        }
+    }
+
+    private void runSafely() {
+        try {
+            archive(Instant.now().minus(retention));
+        } catch (IOException | SQLException e) {
+            LOGGER.error("ISO_MESSAGES archive run failed", e);
+        }
+    }
+
+    /**
+     * Archives and drops every partition whose rows were all created before {@code cutoff}, on
+     * every shard.
+     *
+     * @return number of rows archived by this run
+     */
+    public long archive(Instant cutoff) throws IOException, SQLException {
+        ShardedDataSource shards = DataSourceProvider.getShards();
+        long archived = 0;
+        for (Shard shard : shards.shards()) {
+            archived += archive(target(shard, shards.size()), cutoff);
+        }
+        return archived;
+    }
+
+    private long archive(Target target, Instant cutoff) throws IOException, SQLException {
+        completePendingDeletes(target);
+
+        List<String> expired = expiredPartitions(target, cutoff);
+        if (expired == null) {
+            LOGGER.error("ISO_MESSAGES on {} is not partitioned; run db/migrations/002-partition-iso-messages.sql",
+                    target.name());
+            return 0;
+        }
+        boolean clearPanColumn = hasClearPanColumn(target);
+        long archived = 0;
+        for (String partition : expired) {
+            archived += archivePartition(target, partition, clearPanColumn);
+        }
+        if (archived > 0) {
+            LOGGER.info("Archived {} ISO_MESSAGES rows on {} from {} partitions created before {}", archived,
+                    target.name(), expired.size(), cutoff);
+        }
+        return archived;
+    }
+
+    /**
+     * An unsharded deployment keeps archiving into {@code directory} itself.
+     */
+    private Target target(Shard shard, int shardCount) throws IOException {
+        Path shardDirectory = shardCount == 1 ? directory : directory.resolve(shard.getName());
+        SegmentIndex index = indexes.get(shard.getName());
+        if (index == null) {
+            Files.createDirectories(shardDirectory);
+            index = new SegmentIndex(shardDirectory);
+            indexes.put(shard.getName(), index);
+        }
+        return new Target(shard.getName(), shard.dataSource(), shardDirectory, index);
+    }
+
+    /**
+     * Returns the partitions entirely older than {@code cutoff}, or {@code null} when the table is
+     * not partitioned.
+     */
+    private List<String> expiredPartitions(Target target, Instant cutoff) throws SQLException {
+        List<String> expired = new ArrayList<>();
+        boolean partitioned = false;
+        try (Connection connection = target.dataSource().getConnection();
+             PreparedStatement select = connection.prepareStatement(PARTITIONS_SQL);
+             ResultSet rows = select.executeQuery()) {
+            while (rows.next()) {
+                partitioned = true;
+                String name = rows.getString(1);
+                Matcher bound = HIGH_VALUE.matcher(String.valueOf(rows.getString(2)));
+                if (!bound.find() || !PARTITION_NAME.matcher(name).matches()) {
+                    LOGGER.warn("Skipping ISO_MESSAGES partition {} on {} with unexpected bound", name, target.name());
+                    continue;
+                }
+                Instant upperBound = LocalDateTime.parse(bound.group(1), HIGH_VALUE_FORMAT)
+                        .atZone(ZoneId.systemDefault())
+                        .toInstant();
+                if (!upperBound.isAfter(cutoff)) {
+                    expired.add(name);
+                }
+            }
+        }
+        return partitioned ? expired : null;
+    }
+
+    private boolean hasClearPanColumn(Target target) throws SQLException {
+        try (Connection connection = target.dataSource().getConnection();
+             PreparedStatement select = connection.prepareStatement(CLEAR_PAN_COLUMN_SQL);
+             ResultSet rows = select.executeQuery()) {
+            return rows.next() && rows.getInt(1) > 0;
+        }
+    }
+
+    private long archivePartition(Target target, String partition, boolean clearPanColumn)
+            throws IOException, SQLException {
+        List<SegmentIndex.Entry> entries = new ArrayList<>();
+        long archived = 0;
+        try (Connection readConnection = target.dataSource().getConnection();
+             PreparedStatement select = readConnection.prepareStatement(
+                     SELECT_SQL.formatted(clearPanColumn ? ", PAN" : "", partition))) {
+            select.setFetchSize(fetchSize);
+            try (ResultSet rows = select.executeQuery()) {
+                SegmentWriter writer = new SegmentWriter();
+                while (rows.next()) {
+                    writer.append(new ArchivedMessage(
+                            rows.getLong(1),
+                            rows.getString(2),
+                            panToken(rows, clearPanColumn),
+                            rows.getString(4),
+                            rows.getString(5),
+                            rows.getString(6),
+                            rows.getString(7),
+                            rows.getString(8),
+                            rows.getTimestamp(9).toInstant()));
+                    if (writer.rowCount() >= segmentRows) {
+                        entries.add(write(target, writer, partition));
+                        archived += writer.rowCount();
+                        writer = new SegmentWriter();
+                    }
+                }
+                if (writer.rowCount() > 0) {
+                    entries.add(write(target, writer, partition));
+                    archived += writer.rowCount();
+                }
+            }
+        }
+        target.index().putAll(entries);
+        dropPartition(target, partition);
+        target.index().putAll(entries.stream().map(entry -> entry.withState(SegmentIndex.State.COMPLETE)).toList());
+        LOGGER.debug("Archived partition {} of {} into {} segments with {} rows", partition, target.name(),
+                entries.size(), archived);
+        return archived;
+    }
+
+    /**
+     * The hex PAN token of the current row, computed from the clear PAN of a row stored before
+     * tokenization that has not been backfilled.
+     */
+    private String panToken(ResultSet rows, boolean clearPanColumn) throws IOException, SQLException {
+        String token = rows.getString(3);
+        String pan = clearPanColumn ? rows.getString(10) : null;
+        if (token != null || pan == null) {
+            return token;
+        }
+        try {
+            return PanToken.format(PanVault.shared().token(pan));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Unable to tokenize the PAN of ISO_MESSAGES row " + rows.getLong(1), e);
+        }
+    }
+
+    private SegmentIndex.Entry write(Target target, SegmentWriter writer, String partition) throws IOException {
+        String name = partition + '-' + SEGMENT_NAME.format(Instant.now()) + '-' + writer.ids().get(0)
+                + SegmentFormat.EXTENSION;
+        return writer.writeTo(target.directory().resolve(name), partition);
+    }
+
+    /**
+     * Drops {@code partition}. The lowest range partition of an interval-partitioned table cannot be
+     * dropped, so it is truncated instead; a partition that no longer exists was dropped by an
+     * earlier, interrupted run.
+     */
+    private void dropPartition(Target target, String partition) throws SQLException {
+        try (Connection connection = target.dataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            try {
+                statement.execute(DROP_PARTITION_SQL.formatted(partition));
+            } catch (SQLException e) {
+                if (e.getErrorCode() == ORA_LAST_RANGE_PARTITION) {
+                    statement.execute(TRUNCATE_PARTITION_SQL.formatted(partition));
+                } else if (e.getErrorCode() != ORA_PARTITION_NOT_FOUND) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void completePendingDeletes(Target target) throws IOException, SQLException {
+        Map<String, List<SegmentIndex.Entry>> partitions = new LinkedHashMap<>();
+        for (SegmentIndex.Entry entry : target.index().entries()) {
+            if (entry.state() != SegmentIndex.State.PENDING_DELETE) {
+                continue;
+            }
+            if (entry.partition() != null) {
+                partitions.computeIfAbsent(entry.partition(), name -> new ArrayList<>()).add(entry);
+                continue;
+            }
+            List<Long> ids = new ArrayList<>(entry.rowCount());
+            SegmentReader.scan(target.directory().resolve(entry.fileName()), null, null, null, row -> ids.add(row.id()));
+            deleteRows(target, ids);
+            target.index().put(entry.withState(SegmentIndex.State.COMPLETE));
+            LOGGER.info("Completed interrupted delete for archive segment {} on {}", entry.fileName(), target.name());
+        }
+        for (Map.Entry<String, List<SegmentIndex.Entry>> partition : partitions.entrySet()) {
+            if (!PARTITION_NAME.matcher(partition.getKey()).matches()) {
+                throw new IOException("Archive index names invalid partition " + partition.getKey());
+            }
+            dropPartition(target, partition.getKey());
+            target.index().putAll(partition.getValue().stream()
+                    .map(entry -> entry.withState(SegmentIndex.State.COMPLETE))
+                    .toList());
+            LOGGER.info("Completed interrupted drop of archived partition {} on {}", partition.getKey(), target.name());
+        }
+    }
+
+    private void deleteRows(Target target, List<Long> ids) throws SQLException {
+        try (Connection connection = target.dataSource().getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement delete = connection.prepareStatement(DELETE_SQL)) {
+                int pending = 0;
+                for (Long id : ids) {
+                    delete.setLong(1, id);
+                    delete.addBatch();
+                    if (++pending == deleteBatchSize) {
+                        delete.executeBatch();
+                        connection.commit();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    delete.executeBatch();
+                    connection.commit();
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private static Path resolveDirectory(String configured) {
+        Path path = Path.of(configured);
+        if (path.isAbsolute()) {
+            return path;
+        }
+        String home = System.getProperty("jpos.home");
+        return home == null ? path.toAbsolutePath() : Path.of(home).resolve(path);
+    }
+
+    private record Target(String name, DataSource dataSource, Path directory, SegmentIndex index) {
+    }
+}
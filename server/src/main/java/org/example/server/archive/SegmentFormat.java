@@ -0,0 +1,163 @@
+package org.example.server.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary layout shared by {@link SegmentWriter} and {@link SegmentReader}.
+ * <p>
+ * A segment starts with a fixed header (magic, version, row count, id and creation time bounds),
+ * followed by the terminal id dictionary and one deflated block per column. Readers can prune a
+ * segment using the header and dictionary alone, without inflating any column.
+ */
+final class SegmentFormat {
+    static final int MAGIC = 0x524A4153; // "RJAS"
+    static final int VERSION = 1;
+    static final String EXTENSION = ".seg";
+
+    static final int COLUMN_ID = 0;
+    static final int COLUMN_CREATED_AT = 1;
+    static final int COLUMN_TERMINAL_ID = 2;
+    static final int COLUMN_MTI = 3;
+    static final int COLUMN_PAN = 4;
+    static final int COLUMN_PROCESSING_CODE = 5;
+    static final int COLUMN_AMOUNT = 6;
+    static final int COLUMN_TRANSMISSION_DATETIME = 7;
+    static final int COLUMN_STAN = 8;
+    static final int COLUMN_COUNT = 9;
+
+    private SegmentFormat() {
+    }
+
+    static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000L);
+    }
+
+    static Instant fromMicros(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        long remaining = (value << 1) ^ (value >> 63);
+        while ((remaining & ~0x7FL) != 0) {
+            out.write((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.write((int) remaining);
+    }
+
+    static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarLong(out, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(buffer);
+                out.write(buffer, 0, written);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int offset = 0;
+            while (offset < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, offset, rawLength - offset);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += read;
+            }
+            if (offset != rawLength) {
+                throw new IOException("Truncated column block: expected " + rawLength + " bytes, got " + offset);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt column block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    static void writeBlock(DataOutput out, byte[] raw) throws IOException {
+        byte[] compressed = deflate(raw);
+        out.writeInt(raw.length);
+        out.writeInt(compressed.length);
+        out.write(compressed);
+    }
+
+    static byte[] readBlock(DataInput in) throws IOException {
+        int rawLength = in.readInt();
+        int compressedLength = in.readInt();
+        byte[] compressed = new byte[compressedLength];
+        in.readFully(compressed);
+        return inflate(compressed, rawLength);
+    }
+
+    static void skipBlock(DataInput in) throws IOException {
+        in.readInt();
+        int compressedLength = in.readInt();
+        in.skipBytes(compressedLength);
+    }
+
+    /**
+     * Sequential decoder over an inflated column block.
+     */
+    static final class ColumnCursor {
+        private final byte[] data;
+        private int position;
+
+        ColumnCursor(byte[] data) {
+            this.data = data;
+        }
+
+        long nextLong() {
+            long result = 0;
+            int shift = 0;
+            while (true) {
+                byte current = data[position++];
+                result |= (long) (current & 0x7F) << shift;
+                if ((current & 0x80) == 0) {
+                    break;
+                }
+                shift += 7;
+            }
+            return (result >>> 1) ^ -(result & 1);
+        }
+
+        String nextString() {
+            int length = (int) nextLong();
+            if (length < 0) {
+                return null;
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
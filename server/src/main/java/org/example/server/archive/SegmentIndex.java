@@ -0,0 +1,102 @@
+package org.example.server.archive;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Small text index of the segments in an archive directory.
+ * <p>
+ * Each line records the segment file name, row count, id range, creation time range, whether
+ * the archived rows have already been removed from Oracle and, for segments cut from a table
+ * partition, the partition name. Readers use it to prune segments by date without opening them;
+ * the archiver uses the state and partition columns to resume interrupted partition drops.
+ */
+final class SegmentIndex {
+    static final String FILE_NAME = "segments.idx";
+
+    enum State {
+        PENDING_DELETE,
+        COMPLETE
+    }
+
+    record Entry(String fileName, int rowCount, long minId, long maxId, Instant minCreated, Instant maxCreated,
+                 State state, String partition) {
+
+        boolean overlaps(Instant from, Instant to) {
+            return (from == null || !maxCreated.isBefore(from)) && (to == null || minCreated.isBefore(to));
+        }
+
+        Entry withState(State newState) {
+            return new Entry(fileName, rowCount, minId, maxId, minCreated, maxCreated, newState, partition);
+        }
+
+        private String format() {
+            String line = String.join("\t", fileName, Integer.toString(rowCount), Long.toString(minId),
+                    Long.toString(maxId), minCreated.toString(), maxCreated.toString(), state.name());
+            return partition == null ? line : line + '\t' + partition;
+        }
+
+        private static Entry parse(String line) {
+            String[] parts = line.split("\t");
+            if (parts.length != 7 && parts.length != 8) {
+                throw new IllegalArgumentException("Malformed archive index line: " + line);
+            }
+            return new Entry(parts[0], Integer.parseInt(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3]),
+                    Instant.parse(parts[4]), Instant.parse(parts[5]), State.valueOf(parts[6]),
+                    parts.length == 8 ? parts[7] : null);
+        }
+    }
+
+    private final Path file;
+
+    SegmentIndex(Path directory) {
+        this.file = directory.resolve(FILE_NAME);
+    }
+
+    synchronized List<Entry> entries() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return entries;
+        }
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                entries.add(Entry.parse(line));
+            }
+        }
+        return entries;
+    }
+
+    synchronized void put(Entry entry) throws IOException {
+        putAll(List.of(entry));
+    }
+
+    /**
+     * Adds or replaces several entries in one atomic rewrite of the index.
+     */
+    synchronized void putAll(List<Entry> updates) throws IOException {
+        List<Entry> entries = entries();
+        for (Entry update : updates) {
+            entries.removeIf(existing -> existing.fileName().equals(update.fileName()));
+            entries.add(update);
+        }
+        write(entries);
+    }
+
+    private void write(List<Entry> entries) throws IOException {
+        Path temporary = file.resolveSibling(FILE_NAME + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            for (Entry entry : entries) {
+                writer.write(entry.format());
+                writer.newLine();
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
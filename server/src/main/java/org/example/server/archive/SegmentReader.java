@@ -0,0 +1,91 @@
+package org.example.server.archive;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * Decodes a single segment file written by {@link SegmentWriter}.
+ */
+final class SegmentReader {
+    private SegmentReader() {
+    }
+
+    /**
+     * Streams the rows of {@code segment} that match the optional terminal and creation time filters.
+     * The terminal dictionary is consulted before any column is inflated, so segments that never saw
+     * the terminal are skipped after reading only their header.
+     *
+     * @param from inclusive lower bound, or {@code null}
+     * @param to   exclusive upper bound, or {@code null}
+     * @return number of rows delivered to {@code consumer}
+     */
+    static int scan(Path segment, String terminalId, Instant from, Instant to, Consumer<ArchivedMessage> consumer)
+            throws IOException {
+        try (InputStream fileStream = Files.newInputStream(segment);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(fileStream, 64 * 1024))) {
+            if (in.readInt() != SegmentFormat.MAGIC) {
+                throw new IOException("Not an archive segment: " + segment);
+            }
+            int version = in.readInt();
+            if (version != SegmentFormat.VERSION) {
+                throw new IOException("Unsupported archive segment version " + version + " in " + segment);
+            }
+            int rowCount = in.readInt();
+            in.readLong();
+            in.readLong();
+            in.readLong();
+            in.readLong();
+            int dictionarySize = in.readInt();
+            String[] terminals = new String[dictionarySize];
+            int wantedTerminal = -2;
+            for (int i = 0; i < dictionarySize; i++) {
+                terminals[i] = in.readUTF();
+                if (terminals[i].equals(terminalId)) {
+                    wantedTerminal = i;
+                }
+            }
+            if (terminalId != null && wantedTerminal < 0) {
+                return 0;
+            }
+
+            SegmentFormat.ColumnCursor[] cursors = new SegmentFormat.ColumnCursor[SegmentFormat.COLUMN_COUNT];
+            for (int column = 0; column < SegmentFormat.COLUMN_COUNT; column++) {
+                cursors[column] = new SegmentFormat.ColumnCursor(SegmentFormat.readBlock(in));
+            }
+
+            long fromMicros = from == null ? Long.MIN_VALUE : SegmentFormat.toMicros(from);
+            long toMicros = to == null ? Long.MAX_VALUE : SegmentFormat.toMicros(to);
+            long id = 0;
+            long created = 0;
+            int matched = 0;
+            for (int row = 0; row < rowCount; row++) {
+                id += cursors[SegmentFormat.COLUMN_ID].nextLong();
+                created += cursors[SegmentFormat.COLUMN_CREATED_AT].nextLong();
+                int terminal = (int) cursors[SegmentFormat.COLUMN_TERMINAL_ID].nextLong();
+                String mti = cursors[SegmentFormat.COLUMN_MTI].nextString();
+                String pan = cursors[SegmentFormat.COLUMN_PAN].nextString();
+                String processingCode = cursors[SegmentFormat.COLUMN_PROCESSING_CODE].nextString();
+                String amount = cursors[SegmentFormat.COLUMN_AMOUNT].nextString();
+                String transmission = cursors[SegmentFormat.COLUMN_TRANSMISSION_DATETIME].nextString();
+                String stan = cursors[SegmentFormat.COLUMN_STAN].nextString();
+
+                if (created < fromMicros || created >= toMicros) {
+                    continue;
+                }
+                if (terminalId != null && terminal != wantedTerminal) {
+                    continue;
+                }
+                consumer.accept(new ArchivedMessage(id, mti, pan, processingCode, amount, transmission, stan,
+                        terminal < 0 ? null : terminals[terminal], SegmentFormat.fromMicros(created)));
+                matched++;
+            }
+            return matched;
+        }
+    }
+}
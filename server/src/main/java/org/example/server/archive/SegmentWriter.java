@@ -0,0 +1,120 @@
+package org.example.server.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffers archived rows column by column and writes them as a single compressed segment file.
+ * <p>
+ * Ids and creation timestamps are delta encoded, terminal ids are dictionary encoded and every
+ * column is deflated independently. The file is written to a temporary name, forced to disk and
+ * then atomically renamed so a crash never leaves a partially written segment behind.
+ */
+final class SegmentWriter {
+    private final ByteArrayOutputStream[] columns = new ByteArrayOutputStream[SegmentFormat.COLUMN_COUNT];
+    private final Map<String, Integer> terminalDictionary = new HashMap<>();
+    private final List<String> terminals = new ArrayList<>();
+    private final List<Long> ids = new ArrayList<>();
+    private int rowCount;
+    private long previousId;
+    private long previousCreated;
+    private long minCreated = Long.MAX_VALUE;
+    private long maxCreated = Long.MIN_VALUE;
+    private long minId = Long.MAX_VALUE;
+    private long maxId = Long.MIN_VALUE;
+
+    SegmentWriter() {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ByteArrayOutputStream(8192);
+        }
+    }
+
+    void append(ArchivedMessage message) {
+        long created = SegmentFormat.toMicros(message.createdAt());
+        SegmentFormat.writeVarLong(columns[SegmentFormat.COLUMN_ID], message.id() - previousId);
+        SegmentFormat.writeVarLong(columns[SegmentFormat.COLUMN_CREATED_AT], created - previousCreated);
+        SegmentFormat.writeVarLong(columns[SegmentFormat.COLUMN_TERMINAL_ID], terminalIndex(message.terminalId()));
+        SegmentFormat.writeString(columns[SegmentFormat.COLUMN_MTI], message.mti());
+        SegmentFormat.writeString(columns[SegmentFormat.COLUMN_PAN], message.pan());
+        SegmentFormat.writeString(columns[SegmentFormat.COLUMN_PROCESSING_CODE], message.processingCode());
+        SegmentFormat.writeString(columns[SegmentFormat.COLUMN_AMOUNT], message.amount());
+        SegmentFormat.writeString(columns[SegmentFormat.COLUMN_TRANSMISSION_DATETIME], message.transmissionDateTime());
+        SegmentFormat.writeString(columns[SegmentFormat.COLUMN_STAN], message.stan());
+
+        previousId = message.id();
+        previousCreated = created;
+        minCreated = Math.min(minCreated, created);
+        maxCreated = Math.max(maxCreated, created);
+        minId = Math.min(minId, message.id());
+        maxId = Math.max(maxId, message.id());
+        ids.add(message.id());
+        rowCount++;
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+
+    List<Long> ids() {
+        return ids;
+    }
+
+    /**
+     * Writes the buffered rows to {@code target} and returns the index entry describing it.
+     *
+     * @param partition table partition the rows were read from, or {@code null}
+     */
+    SegmentIndex.Entry writeTo(Path target, String partition) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (OutputStream fileStream = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream, 64 * 1024))) {
+            out.writeInt(SegmentFormat.MAGIC);
+            out.writeInt(SegmentFormat.VERSION);
+            out.writeInt(rowCount);
+            out.writeLong(minId);
+            out.writeLong(maxId);
+            out.writeLong(minCreated);
+            out.writeLong(maxCreated);
+            out.writeInt(terminals.size());
+            for (String terminal : terminals) {
+                out.writeUTF(terminal);
+            }
+            for (ByteArrayOutputStream column : columns) {
+                SegmentFormat.writeBlock(out, column.toByteArray());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new SegmentIndex.Entry(target.getFileName().toString(), rowCount, minId, maxId,
+                SegmentFormat.fromMicros(minCreated), SegmentFormat.fromMicros(maxCreated), SegmentIndex.State.PENDING_DELETE,
+                partition);
+    }
+
+    private int terminalIndex(String terminalId) {
+        if (terminalId == null) {
+            return -1;
+        }
+        Integer existing = terminalDictionary.get(terminalId);
+        if (existing != null) {
+            return existing;
+        }
+        int index = terminals.size();
+        terminals.add(terminalId);
+        terminalDictionary.put(terminalId, index);
+        return index;
+    }
+}
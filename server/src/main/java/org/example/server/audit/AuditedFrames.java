@@ -0,0 +1,11 @@
+package org.example.server.audit;
+
+import java.time.Instant;
+
+/**
+ * The original request frame and the response frame sent for one transaction, as read back by
+ * {@link FrameAuditStore}. {@code response} is {@code null} when no response was sent.
+ */
+public record AuditedFrames(String terminalId, String stan, String mti, Instant createdAt, byte[] request,
+                            byte[] response) {
+}
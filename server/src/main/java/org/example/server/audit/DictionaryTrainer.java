@@ -0,0 +1,94 @@
+package org.example.server.audit;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link FrameDictionary} from frames seen in production. Frames are grouped by shape
+ * (MTI and present fields, so a purchase request and its response are different shapes) and the
+ * latest {@value #FRAMES_PER_SHAPE} frames of each shape are kept. The dictionary is made of those
+ * sample frames, the most frequent shapes first in line for the size budget and last in the
+ * dictionary, where deflate reaches them with the shortest distances. A new frame of a known shape
+ * then mostly compresses to references into its samples: the bitmap, the fixed fields and the
+ * common prefixes of terminal, merchant and card numbers.
+ */
+final class DictionaryTrainer {
+    static final int FRAMES_PER_SHAPE = 2;
+    private static final int MAX_SHAPES = 1024;
+
+    private final Map<String, Shape> shapes = new HashMap<>();
+    private final int target;
+    private int seen;
+
+    DictionaryTrainer(int target) {
+        this.target = target;
+    }
+
+    void add(String shape, byte[] frame) {
+        if (frame == null || frame.length == 0) {
+            return;
+        }
+        seen++;
+        Shape samples = shapes.get(shape);
+        if (samples == null) {
+            if (shapes.size() >= MAX_SHAPES) {
+                return;
+            }
+            samples = new Shape();
+            shapes.put(shape, samples);
+        }
+        samples.add(frame);
+    }
+
+    boolean isComplete() {
+        return seen >= target;
+    }
+
+    int seen() {
+        return seen;
+    }
+
+    /**
+     * Returns a dictionary of at most {@code maxSize} bytes, or {@code null} when no frame fits.
+     */
+    FrameDictionary build(int maxSize) {
+        List<Shape> byFrequency = new ArrayList<>(shapes.values());
+        byFrequency.sort(Comparator.comparingLong((Shape shape) -> shape.count).reversed());
+        List<byte[]> chosen = new ArrayList<>();
+        int size = 0;
+        for (Shape shape : byFrequency) {
+            for (byte[] frame : shape.frames) {
+                if (size + frame.length <= maxSize) {
+                    chosen.add(frame);
+                    size += frame.length;
+                }
+            }
+        }
+        if (chosen.isEmpty()) {
+            return null;
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream(size);
+        for (int i = chosen.size() - 1; i >= 0; i--) {
+            content.writeBytes(chosen.get(i));
+        }
+        return FrameDictionary.of(content.toByteArray());
+    }
+
+    private static final class Shape {
+        private final List<byte[]> frames = new ArrayList<>(FRAMES_PER_SHAPE);
+        private long count;
+
+        void add(byte[] frame) {
+            if (frames.size() < FRAMES_PER_SHAPE) {
+                frames.add(frame);
+            } else {
+                frames.set((int) (count % FRAMES_PER_SHAPE), frame);
+            }
+            count++;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.server.audit;
+
+import org.example.server.config.DataSourceProvider;
+import org.example.server.config.EnvironmentLoader;
+import org.example.server.config.ShardedDataSource;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Looks up and decompresses the frames written by {@link FrameAuditWriter}. A lookup by terminal,
+ * STAN and day goes to the terminal's shard only, reads one daily partition through the
+ * {@code (TERMINAL_ID, STAN, CREATED_AT)} index and inflates the frames locally; dictionaries are
+ * fetched once per id and cached.
+ * <p>
+ * Usage: {@code java -cp server.jar org.example.server.audit.FrameAuditStore <terminal> <stan> <yyyy-MM-dd>}
+ * prints the frames with non-printable bytes escaped.
+ */
+public final class FrameAuditStore {
+    private static final String SELECT_SQL = "SELECT MTI, CREATED_AT, DICT_ID, REQUEST_LENGTH, REQUEST_FRAME, " +
+            "RESPONSE_LENGTH, RESPONSE_FRAME FROM ISO_FRAME_AUDIT " +
+            "WHERE TERMINAL_ID = ? AND STAN = ? AND CREATED_AT >= ? AND CREATED_AT < ? ORDER BY CREATED_AT";
+    private static final String DICTIONARY_SQL = "SELECT CONTENT FROM ISO_FRAME_DICTIONARIES WHERE DICT_ID = ?";
+
+    private final ShardedDataSource shards;
+    private final Map<Long, FrameDictionary> dictionaries = new ConcurrentHashMap<>();
+
+    public FrameAuditStore(ShardedDataSource shards) {
+        this.shards = Objects.requireNonNull(shards, "shards");
+    }
+
+    /**
+     * Frames of the transactions with {@code stan} from {@code terminalId} received on {@code date}
+     * (server time zone), oldest first. STANs wrap, so several transactions may match.
+     */
+    public List<AuditedFrames> find(String terminalId, String stan, LocalDate date) throws SQLException {
+        Objects.requireNonNull(terminalId, "terminalId");
+        Objects.requireNonNull(stan, "stan");
+        return shards.lookup(terminalId, connection -> {
+            List<AuditedFrames> frames = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+                statement.setString(1, terminalId);
+                statement.setString(2, stan);
+                statement.setTimestamp(3, Timestamp.valueOf(date.atStartOfDay()));
+                statement.setTimestamp(4, Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        FrameDictionary dictionary = dictionary(connection, rs.getLong(3));
+                        byte[] request = inflate(rs.getBytes(5), rs.getInt(4), dictionary);
+                        byte[] compressedResponse = rs.getBytes(7);
+                        byte[] response = compressedResponse == null ? null
+                                : inflate(compressedResponse, rs.getInt(6), dictionary);
+                        frames.add(new AuditedFrames(terminalId, stan, rs.getString(1),
+                                rs.getTimestamp(2).toInstant(), request, response));
+                    }
+                }
+            }
+            return frames;
+        });
+    }
+
+    private FrameDictionary dictionary(Connection connection, long id) throws SQLException {
+        if (id == 0L) {
+            return null;
+        }
+        FrameDictionary dictionary = dictionaries.get(id);
+        if (dictionary != null) {
+            return dictionary;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(DICTIONARY_SQL)) {
+            statement.setLong(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Frame dictionary " + id + " is missing from ISO_FRAME_DICTIONARIES");
+                }
+                dictionary = FrameDictionary.of(rs.getBytes(1));
+            }
+        }
+        dictionaries.put(id, dictionary);
+        return dictionary;
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength, FrameDictionary dictionary) throws SQLException {
+        try {
+            return FrameCodec.decompress(compressed, rawLength, dictionary);
+        } catch (IOException e) {
+            throw new SQLException("Unable to decompress audited frame", e);
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length != 3) {
+            System.err.println("Usage: FrameAuditStore <terminal> <stan> <yyyy-MM-dd>");
+            System.exit(2);
+        }
+        EnvironmentLoader.load();
+        try {
+            List<AuditedFrames> found = new FrameAuditStore(DataSourceProvider.getShards())
+                    .find(args[0], args[1], LocalDate.parse(args[2]));
+            if (found.isEmpty()) {
+                System.out.println("No audited frames found");
+            }
+            for (AuditedFrames frames : found) {
+                System.out.printf("%s %s terminal %s stan %s%n", frames.createdAt(), frames.mti(),
+                        frames.terminalId(), frames.stan());
+                System.out.println("  request  " + printable(frames.request()));
+                System.out.println("  response " + (frames.response() == null ? "-" : printable(frames.response())));
+            }
+        } finally {
+            DataSourceProvider.close();
+        }
+    }
+
+    private static String printable(byte[] frame) {
+        StringBuilder out = new StringBuilder(frame.length + 16);
+        for (byte b : frame) {
+            int c = b & 0xFF;
+            if (c >= 0x20 && c < 0x7F && c != '\\') {
+                out.append((char) c);
+            } else {
+                out.append(String.format("\\x%02X", c));
+            }
+        }
+        return out.toString();
+    }
+}
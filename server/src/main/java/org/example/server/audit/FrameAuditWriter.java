@@ -0,0 +1,349 @@
+package org.example.server.audit;
+
+import org.example.server.config.DataSourceProvider;
+import org.example.server.config.Shard;
+import org.example.server.config.ShardedDataSource;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.metrics.LatencyRecorder;
+import org.example.server.metrics.MetricsRegistry;
+import org.jpos.core.ConfigurationException;
+import org.jpos.q2.QBeanSupport;
+import org.jpos.util.NameRegistrar;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the raw request and response frame of every transaction in {@code ISO_FRAME_AUDIT} for
+ * disputes, off the transaction path.
+ * <p>
+ * The {@code AuditFrames} participant hands frames to {@link #submit}, which only appends them to a
+ * bounded queue of {@code queue-capacity} entries; when the queue is full the frames are dropped
+ * and counted rather than slowing down the transaction manager. A single writer thread takes
+ * whatever has accumulated, up to {@code batch-size} rows, deflates each frame with the shared
+ * {@link FrameDictionary} and writes the rows of each shard with one batched (array) insert. Under
+ * load batches fill up by themselves; when traffic is light a lone row is written at once.
+ * <p>
+ * The dictionary is read from {@code dictionary} (relative to {@code jpos.home}), or else the
+ * newest one in {@code ISO_FRAME_DICTIONARIES}. Without either, frames are compressed without a
+ * dictionary while the first {@code train-samples} frames are sampled; the trained dictionary of
+ * at most {@code dictionary-size} bytes is then saved to {@code dictionary} and used from there on.
+ * Each dictionary is stored in {@code ISO_FRAME_DICTIONARIES} of every shard before the first row
+ * that needs it, so {@link FrameAuditStore} can always decompress.
+ */
+public class FrameAuditWriter extends QBeanSupport implements FrameAuditWriterMXBean {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(FrameAuditWriter.class);
+    private static final String INSERT_SQL = "INSERT INTO ISO_FRAME_AUDIT " +
+            "(TERMINAL_ID, STAN, MTI, CREATED_AT, DICT_ID, REQUEST_LENGTH, REQUEST_FRAME, RESPONSE_LENGTH, RESPONSE_FRAME) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String MERGE_DICTIONARY_SQL = "MERGE INTO ISO_FRAME_DICTIONARIES d " +
+            "USING (SELECT ? AS DICT_ID FROM DUAL) s ON (d.DICT_ID = s.DICT_ID) " +
+            "WHEN NOT MATCHED THEN INSERT (DICT_ID, CONTENT) VALUES (s.DICT_ID, ?)";
+    private static final String LATEST_DICTIONARY_SQL = "SELECT CONTENT FROM ISO_FRAME_DICTIONARIES " +
+            "ORDER BY CREATED_AT DESC FETCH FIRST 1 ROWS ONLY";
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LatencyRecorder batchTime = new LatencyRecorder();
+    private final Set<String> storedDictionaries = new HashSet<>();
+
+    private BlockingQueue<Pending> queue;
+    private ShardedDataSource shards;
+    private FrameCodec codec;
+    private volatile DictionaryTrainer trainer;
+    private volatile FrameDictionary dictionary;
+    private Path dictionaryFile;
+    private int dictionarySize;
+    private int batchSize;
+    private long pollMillis;
+    private boolean enabled;
+    private volatile boolean running;
+    private Thread writer;
+    private ObjectName objectName;
+
+    @Override
+    protected void initService() throws ConfigurationException {
+        enabled = cfg.getBoolean("enabled", true);
+        batchSize = Math.max(1, cfg.getInt("batch-size", 500));
+        pollMillis = Math.max(10L, cfg.getLong("poll-interval", 200L));
+        dictionarySize = Math.max(256, Math.min(32 * 1024, cfg.getInt("dictionary-size", 8192)));
+        queue = new ArrayBlockingQueue<>(Math.max(batchSize, cfg.getInt("queue-capacity", 65_536)));
+        dictionaryFile = Path.of(System.getProperty("jpos.home", ".")).resolve(cfg.get("dictionary", "cfg/frame-dictionary.bin"));
+        int level = cfg.getInt("level", 6);
+        if (level < 1 || level > 9) {
+            throw new ConfigurationException("level must be between 1 and 9, not " + level);
+        }
+        codec = new FrameCodec(level);
+        if (Files.exists(dictionaryFile)) {
+            try {
+                dictionary = FrameDictionary.load(dictionaryFile);
+            } catch (IOException | IllegalArgumentException e) {
+                throw new ConfigurationException("Unable to read frame dictionary " + dictionaryFile, e);
+            }
+        }
+    }
+
+    @Override
+    protected void startService() {
+        if (!enabled) {
+            LOGGER.info("Frame audit {} is disabled", getName());
+            return;
+        }
+        shards = DataSourceProvider.getShards();
+        if (dictionary == null) {
+            dictionary = latestStoredDictionary();
+        }
+        int trainSamples = cfg.getInt("train-samples", 10_000);
+        if (dictionary == null && trainSamples > 0) {
+            trainer = new DictionaryTrainer(trainSamples);
+        }
+        LOGGER.info("Auditing raw frames in batches of up to {} rows, dictionary {}", batchSize,
+                dictionary != null ? Long.toString(dictionary.id()) : trainer != null ? "in training" : "none");
+        running = true;
+        writer = new Thread(this::writeLoop, getName() + "-writer");
+        writer.start();
+        objectName = MetricsRegistry.name("FrameAudit", "name", getName());
+        MetricsRegistry.register(objectName, this);
+        MetricsRegistry.register(batchMetricName(), batchTime);
+        NameRegistrar.register(registrationName(getName()), this);
+    }
+
+    @Override
+    protected void stopService() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        NameRegistrar.unregister(registrationName(getName()));
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            LOGGER.warn("Frame audit stopped with {} rows unwritten", queue.size());
+        }
+        MetricsRegistry.unregister(objectName);
+        MetricsRegistry.unregister(batchMetricName());
+        codec.close();
+    }
+
+    /**
+     * Name under which a running writer is registered in the {@link NameRegistrar}.
+     */
+    public static String registrationName(String name) {
+        return "frame-audit." + name;
+    }
+
+    /**
+     * Queues the frames of one transaction. Never blocks; returns {@code false} when the queue is
+     * full and the frames were dropped. Frames are stored and sampled for the dictionary as given,
+     * so they must already be free of cardholder data (see {@code CardData}).
+     *
+     * @param shape MTI and field layout of the request, used while training the dictionary
+     */
+    public boolean submit(String terminalId, String stan, String mti, byte[] request, byte[] response, String shape) {
+        if (queue.offer(new Pending(terminalId, stan, mti, System.currentTimeMillis(), request, response, shape))) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            Pending first;
+            try {
+                first = queue.poll(pollMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                failed.add(batch.size());
+                LOGGER.error("Unable to write frame audit batch", e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        long started = System.nanoTime();
+        if (trainer != null) {
+            train(batch);
+        }
+        FrameDictionary current = dictionary;
+        Map<Shard, List<Row>> byShard = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            byte[] request = codec.compress(pending.request(), current);
+            byte[] response = pending.response() == null ? null : codec.compress(pending.response(), current);
+            rawBytes.add(pending.request().length + (pending.response() == null ? 0 : pending.response().length));
+            compressedBytes.add(request.length + (response == null ? 0 : response.length));
+            byShard.computeIfAbsent(shards.route(pending.terminalId()), shard -> new ArrayList<>())
+                    .add(new Row(pending, request, response));
+        }
+        byShard.forEach((shard, rows) -> insert(shard, rows, current));
+        batchTime.recordNanos(System.nanoTime() - started);
+    }
+
+    private void train(List<Pending> batch) {
+        for (Pending pending : batch) {
+            trainer.add(pending.shape(), pending.request());
+            trainer.add(pending.shape() + "/response", pending.response());
+        }
+        if (!trainer.isComplete()) {
+            return;
+        }
+        FrameDictionary trained = trainer.build(dictionarySize);
+        LOGGER.info("Trained a {} byte frame dictionary from {} frames", trained == null ? 0 : trained.size(),
+                trainer.seen());
+        trainer = null;
+        if (trained == null) {
+            return;
+        }
+        try {
+            trained.save(dictionaryFile);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to save frame dictionary to {}: {}", dictionaryFile, e.getMessage());
+        }
+        dictionary = trained;
+    }
+
+    private void insert(Shard shard, List<Row> rows, FrameDictionary current) {
+        try (Connection connection = shard.dataSource().getConnection()) {
+            if (current != null && !storedDictionaries.contains(shard.getName() + '/' + current.id())) {
+                storeDictionary(connection, current);
+                storedDictionaries.add(shard.getName() + '/' + current.id());
+            }
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                long dictionaryId = current == null ? 0L : current.id();
+                for (Row row : rows) {
+                    Pending pending = row.pending();
+                    statement.setString(1, pending.terminalId());
+                    statement.setString(2, pending.stan());
+                    statement.setString(3, pending.mti());
+                    statement.setTimestamp(4, new Timestamp(pending.createdMillis()));
+                    statement.setLong(5, dictionaryId);
+                    statement.setInt(6, pending.request().length);
+                    statement.setBytes(7, row.request());
+                    if (row.response() == null) {
+                        statement.setNull(8, Types.INTEGER);
+                        statement.setNull(9, Types.BLOB);
+                    } else {
+                        statement.setInt(8, pending.response().length);
+                        statement.setBytes(9, row.response());
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            shard.recordSuccess();
+            written.add(rows.size());
+            batches.increment();
+        } catch (SQLException e) {
+            shard.recordFailure(e);
+            failed.add(rows.size());
+            LOGGER.error("Unable to write {} audit rows to {}: {}", rows.size(), shard.getName(), e.getMessage());
+        }
+    }
+
+    private static void storeDictionary(Connection connection, FrameDictionary dictionary) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(MERGE_DICTIONARY_SQL)) {
+            statement.setLong(1, dictionary.id());
+            statement.setBytes(2, dictionary.content());
+            statement.executeUpdate();
+        }
+    }
+
+    private FrameDictionary latestStoredDictionary() {
+        Shard shard = shards.shard(0);
+        try (Connection connection = shard.dataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(LATEST_DICTIONARY_SQL);
+             ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? FrameDictionary.of(rs.getBytes(1)) : null;
+        } catch (SQLException | IllegalArgumentException e) {
+            LOGGER.warn("Unable to read the latest frame dictionary from {}: {}", shard.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public int getQueued() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    @Override
+    public long getWritten() {
+        return written.sum();
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    @Override
+    public double getCompressionRatio() {
+        long compressed = compressedBytes.sum();
+        return compressed == 0 ? 0.0 : (double) rawBytes.sum() / compressed;
+    }
+
+    @Override
+    public long getDictionaryId() {
+        FrameDictionary current = dictionary;
+        return current == null ? 0L : current.id();
+    }
+
+    @Override
+    public boolean isTraining() {
+        return trainer != null;
+    }
+
+    private ObjectName batchMetricName() {
+        return MetricsRegistry.name("FrameAuditBatch", "name", getName());
+    }
+
+    private record Pending(String terminalId, String stan, String mti, long createdMillis, byte[] request,
+                           byte[] response, String shape) {
+    }
+
+    private record Row(Pending pending, byte[] request, byte[] response) {
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.server.audit;
+
+/**
+ * JMX view of a {@link FrameAuditWriter}.
+ */
+public interface FrameAuditWriterMXBean {
+    int getQueued();
+
+    long getWritten();
+
+    long getDropped();
+
+    long getFailed();
+
+    long getBatches();
+
+    double getCompressionRatio();
+
+    long getDictionaryId();
+
+    boolean isTraining();
+}
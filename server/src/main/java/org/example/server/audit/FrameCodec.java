@@ -0,0 +1,70 @@
+package org.example.server.audit;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw deflate of single frames with an optional preset {@link FrameDictionary}. Frames are a few
+ * hundred bytes, too short for deflate to find much redundancy within one frame; the dictionary
+ * supplies it. An instance reuses its {@link Deflater} and output buffer and is not thread-safe.
+ */
+final class FrameCodec implements AutoCloseable {
+    private final Deflater deflater;
+    private byte[] buffer = new byte[4096];
+
+    FrameCodec(int level) {
+        this.deflater = new Deflater(level, true);
+    }
+
+    byte[] compress(byte[] raw, FrameDictionary dictionary) {
+        deflater.reset();
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary.content());
+        }
+        deflater.setInput(raw);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    static byte[] decompress(byte[] compressed, int rawLength, FrameDictionary dictionary) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            if (dictionary != null) {
+                inflater.setDictionary(dictionary.content());
+            }
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int offset = 0;
+            while (offset < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, offset, rawLength - offset);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += read;
+            }
+            if (offset != rawLength) {
+                throw new IOException("Truncated frame: expected " + rawLength + " bytes, got " + offset);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt frame", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void close() {
+        deflater.end();
+    }
+}
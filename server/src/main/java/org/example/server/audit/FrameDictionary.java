@@ -0,0 +1,64 @@
+package org.example.server.audit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+
+/**
+ * Preset deflate dictionary for audited frames. Its id is the Adler-32 checksum zlib uses for
+ * dictionary ids; every audit row records the id it was compressed with, and the dictionaries
+ * themselves are kept in {@code ISO_FRAME_DICTIONARIES}, so rows stay readable after the
+ * dictionary is retrained. Id 0 means no dictionary.
+ */
+public final class FrameDictionary {
+    private final byte[] content;
+    private final long id;
+
+    private FrameDictionary(byte[] content) {
+        if (content.length == 0) {
+            throw new IllegalArgumentException("Empty frame dictionary");
+        }
+        this.content = content;
+        Adler32 checksum = new Adler32();
+        checksum.update(content);
+        this.id = checksum.getValue();
+    }
+
+    public static FrameDictionary of(byte[] content) {
+        return new FrameDictionary(content.clone());
+    }
+
+    public static FrameDictionary load(Path file) throws IOException {
+        return new FrameDictionary(Files.readAllBytes(file));
+    }
+
+    /**
+     * Writes the dictionary to {@code file} through a temporary file, so readers never see part of it.
+     */
+    public void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        Files.write(temporary, content);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public int size() {
+        return content.length;
+    }
+
+    byte[] content() {
+        return content;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(content, content.length);
+    }
+}
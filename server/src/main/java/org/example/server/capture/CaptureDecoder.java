@@ -0,0 +1,75 @@
+package org.example.server.capture;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.packager.GenericPackager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offline tool that renders capture files through the ISO-8583 packager.
+ * <pre>
+ * java -cp app.jar org.example.server.capture.CaptureDecoder [--packager file] capture-dir-or-file...
+ * </pre>
+ * Without {@code --packager} the bundled {@code packager/iso87ascii.xml} is used.
+ */
+public final class CaptureDecoder {
+    private CaptureDecoder() {
+    }
+
+    public static void main(String[] args) throws IOException, ISOException {
+        String packagerFile = null;
+        List<Path> locations = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--packager".equals(args[i]) && i + 1 < args.length) {
+                packagerFile = args[++i];
+            } else {
+                locations.add(Path.of(args[i]));
+            }
+        }
+        if (locations.isEmpty()) {
+            System.err.println("Usage: CaptureDecoder [--packager file] capture-dir-or-file...");
+            System.exit(2);
+        }
+
+        GenericPackager packager = loadPackager(packagerFile);
+        PrintStream out = System.out;
+        for (Path location : locations) {
+            CaptureReader.readAll(location, record -> render(out, packager, record));
+        }
+        out.flush();
+    }
+
+    private static void render(PrintStream out, GenericPackager packager, CaptureRecord record) {
+        out.printf("%s %s conn=%08x len=%d%n", record.timestamp(), record.inbound() ? "<-" : "->",
+                record.connectionId(), record.frame().length);
+        try {
+            ISOMsg message = packager.createISOMsg();
+            message.setPackager(packager);
+            message.unpack(record.frame());
+            message.dump(out, "  ");
+        } catch (ISOException e) {
+            out.println("  <unpack error: " + e.getMessage() + ">");
+        }
+    }
+
+    private static GenericPackager loadPackager(String packagerFile) throws IOException, ISOException {
+        if (packagerFile != null) {
+            try (InputStream in = Files.newInputStream(Path.of(packagerFile))) {
+                return new GenericPackager(in);
+            }
+        }
+        try (InputStream in = CaptureDecoder.class.getClassLoader().getResourceAsStream("packager/iso87ascii.xml")) {
+            if (in == null) {
+                throw new IOException("Resource not found on classpath: packager/iso87ascii.xml");
+            }
+            return new GenericPackager(in);
+        }
+    }
+}
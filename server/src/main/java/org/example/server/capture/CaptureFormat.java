@@ -0,0 +1,48 @@
+package org.example.server.capture;
+
+import java.time.Instant;
+
+/**
+ * Layout of the capture files written by {@link CaptureWriter}.
+ * <pre>
+ * file   := header record* zero-padding
+ * header := int magic "RJCP", int version, long created (epoch micros)
+ * record := int length, long timestamp (epoch micros), byte direction ('I' or 'O'),
+ *           int connection id, byte[length - 17] frame
+ * </pre>
+ * All integers are big-endian. Files are preallocated, so a record length of zero marks the end
+ * of the data written so far.
+ */
+public final class CaptureFormat {
+    public static final int MAGIC = 0x524A4350;
+    public static final int VERSION = 1;
+    public static final int FILE_HEADER_LENGTH = 16;
+    public static final int RECORD_HEADER_LENGTH = 17;
+    public static final byte INBOUND = 'I';
+    public static final byte OUTBOUND = 'O';
+    public static final String FILE_PREFIX = "capture-";
+    public static final String FILE_SUFFIX = ".bin";
+
+    private CaptureFormat() {
+    }
+
+    static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000L;
+    }
+
+    static String fileName(long sequence) {
+        return String.format("%s%010d%s", FILE_PREFIX, sequence, FILE_SUFFIX);
+    }
+
+    static long sequenceOf(String fileName) {
+        if (!fileName.startsWith(FILE_PREFIX) || !fileName.endsWith(FILE_SUFFIX)) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(fileName.substring(FILE_PREFIX.length(), fileName.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
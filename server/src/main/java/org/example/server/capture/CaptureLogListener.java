@@ -0,0 +1,180 @@
+package org.example.server.capture;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.jpos.core.Configurable;
+import org.jpos.core.Configuration;
+import org.jpos.core.ConfigurationException;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.util.LogEvent;
+import org.jpos.util.LogListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * jPOS {@link LogListener} that records the frames of channel {@code send}/{@code receive} events
+ * into memory-mapped capture files instead of rendering them as XML. The bytes recorded are the
+ * ones the channel reported to {@link WireFrames}, with the PAN digits masked in place; channels
+ * that do not report frames are captured by packing the logged message again.
+ * <p>
+ * Configuration properties:
+ * <ul>
+ *     <li>{@code directory} - capture directory, relative to {@code jpos.home} (default {@code capture})</li>
+ *     <li>{@code file-size} - size of each preallocated file in megabytes (default 64)</li>
+ *     <li>{@code file-count} - number of files kept in the rotation (default 8)</li>
+ *     <li>{@code pan-mask} - {@code none}, {@code partial} (first six and last four digits kept) or
+ *     {@code full} (default {@code partial})</li>
+ *     <li>{@code consume-traffic} - when {@code true} captured events are not passed on to the
+ *     following listeners (default {@code true})</li>
+ * </ul>
+ * Use {@link CaptureDecoder} to render the files through the packager.
+ */
+public class CaptureLogListener implements LogListener, Configurable {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(CaptureLogListener.class);
+
+    enum PanMask {
+        NONE,
+        PARTIAL,
+        FULL
+    }
+
+    private CaptureWriter writer;
+    private PanMask panMask = PanMask.PARTIAL;
+    private boolean consumeTraffic = true;
+
+    @Override
+    public void setConfiguration(Configuration cfg) throws ConfigurationException {
+        try {
+            panMask = PanMask.valueOf(cfg.get("pan-mask", "partial").trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException("Invalid pan-mask " + cfg.get("pan-mask"), e);
+        }
+        consumeTraffic = cfg.getBoolean("consume-traffic", true);
+        Path directory = resolveDirectory(cfg.get("directory", "capture"));
+        int fileSize = (int) Math.min(Integer.MAX_VALUE, cfg.getLong("file-size", 64L) * 1024L * 1024L);
+        try {
+            writer = new CaptureWriter(directory, fileSize, cfg.getInt("file-count", 8));
+        } catch (IOException e) {
+            throw new ConfigurationException("Unable to open capture directory " + directory, e);
+        }
+        WireFrames.setRecording(true);
+        LOGGER.info("Capturing ISO traffic to {} with PAN mask {}", directory, panMask);
+    }
+
+    @Override
+    public LogEvent log(LogEvent ev) {
+        if (writer == null || ev == null) {
+            return ev;
+        }
+        byte direction;
+        String tag = ev.getTag();
+        if ("receive".equals(tag)) {
+            direction = CaptureFormat.INBOUND;
+        } else if ("send".equals(tag)) {
+            direction = CaptureFormat.OUTBOUND;
+        } else {
+            return ev;
+        }
+        boolean captured = false;
+        for (Object payload : ev.getPayLoad()) {
+            if (payload instanceof ISOMsg message) {
+                byte[] frame = frame(direction, message);
+                if (frame != null) {
+                    Object connection = message.getSource() != null ? message.getSource() : ev.getSource();
+                    writer.write(direction, System.identityHashCode(connection), frame);
+                    captured = true;
+                }
+            }
+        }
+        return captured && consumeTraffic ? null : ev;
+    }
+
+    @Override
+    public void close() {
+        WireFrames.setRecording(false);
+        if (writer != null) {
+            writer.close();
+            if (writer.dropped() > 0) {
+                LOGGER.warn("Capture dropped {} frames", writer.dropped());
+            }
+        }
+    }
+
+    private byte[] frame(byte direction, ISOMsg message) {
+        byte[] wire = WireFrames.take(direction);
+        if (wire != null) {
+            if (panMask == PanMask.NONE || !message.hasField(2) || maskInPlace(wire, message.getString(2))) {
+                return wire;
+            }
+        }
+        return pack(message);
+    }
+
+    /**
+     * Overwrites the PAN in {@code frame} with its mask. Works for packagers that carry field 2 as
+     * an ASCII LLVAR, such as iso87ascii, by finding the length prefix followed by the PAN digits;
+     * returns {@code false} when the PAN is not found that way.
+     */
+    private boolean maskInPlace(byte[] frame, String pan) {
+        if (pan == null || pan.isEmpty()) {
+            return true;
+        }
+        if (pan.length() > 99) {
+            return false;
+        }
+        String prefix = pan.length() < 10 ? "0" + pan.length() : Integer.toString(pan.length());
+        byte[] field = (prefix + pan).getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i + field.length <= frame.length; i++) {
+            if (Arrays.equals(frame, i, i + field.length, field, 0, field.length)) {
+                byte[] masked = mask(pan).getBytes(StandardCharsets.US_ASCII);
+                System.arraycopy(masked, 0, frame, i + prefix.length(), masked.length);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] pack(ISOMsg message) {
+        if (message.getPackager() == null) {
+            return null;
+        }
+        try {
+            if (panMask == PanMask.NONE || !message.hasField(2)) {
+                return message.pack();
+            }
+            ISOMsg masked = (ISOMsg) message.clone();
+            masked.set(2, mask(message.getString(2)));
+            return masked.pack();
+        } catch (ISOException e) {
+            LOGGER.debug("Unable to pack captured message: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    String mask(String pan) {
+        if (pan == null) {
+            return null;
+        }
+        char[] masked = pan.toCharArray();
+        int keepStart = panMask == PanMask.PARTIAL && masked.length > 10 ? 6 : 0;
+        int keepEnd = panMask == PanMask.PARTIAL && masked.length > 10 ? 4 : 0;
+        for (int i = keepStart; i < masked.length - keepEnd; i++) {
+            masked[i] = '*';
+        }
+        return new String(masked);
+    }
+
+    private static Path resolveDirectory(String configured) {
+        Path path = Path.of(configured);
+        if (path.isAbsolute()) {
+            return path;
+        }
+        String home = System.getProperty("jpos.home");
+        return home == null ? path.toAbsolutePath() : Path.of(home).resolve(path);
+    }
+}
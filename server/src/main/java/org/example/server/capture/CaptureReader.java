@@ -0,0 +1,73 @@
+package org.example.server.capture;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads capture files written by {@link CaptureWriter} in capture order.
+ */
+public final class CaptureReader {
+    private CaptureReader() {
+    }
+
+    /**
+     * Lists the capture files in {@code directory} oldest first. A plain file is returned as is.
+     */
+    public static List<Path> files(Path location) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(location)) {
+            files.add(location);
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(location,
+                CaptureFormat.FILE_PREFIX + "*" + CaptureFormat.FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparingLong(file -> CaptureFormat.sequenceOf(file.getFileName().toString())));
+        return files;
+    }
+
+    public static void read(Path file, Consumer<CaptureRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < CaptureFormat.FILE_HEADER_LENGTH) {
+                return;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != CaptureFormat.MAGIC) {
+                throw new IOException("Not a capture file: " + file);
+            }
+            int version = buffer.getInt(4);
+            if (version != CaptureFormat.VERSION) {
+                throw new IOException("Unsupported capture file version " + version + " in " + file);
+            }
+            int position = CaptureFormat.FILE_HEADER_LENGTH;
+            while (position + CaptureFormat.RECORD_HEADER_LENGTH <= size) {
+                int length = buffer.getInt(position);
+                if (length < CaptureFormat.RECORD_HEADER_LENGTH || position + length > size) {
+                    break;
+                }
+                byte[] frame = new byte[length - CaptureFormat.RECORD_HEADER_LENGTH];
+                buffer.get(position + CaptureFormat.RECORD_HEADER_LENGTH, frame);
+                consumer.accept(new CaptureRecord(buffer.getLong(position + 4), buffer.get(position + 12),
+                        buffer.getInt(position + 13), frame));
+                position += length;
+            }
+        }
+    }
+
+    public static void readAll(Path location, Consumer<CaptureRecord> consumer) throws IOException {
+        for (Path file : files(location)) {
+            read(file, consumer);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.server.capture;
+
+import java.time.Instant;
+
+/**
+ * One captured ISO-8583 frame.
+ *
+ * @param timestampMicros wall clock time of the capture in microseconds since the epoch
+ * @param direction       {@link CaptureFormat#INBOUND} or {@link CaptureFormat#OUTBOUND}
+ * @param connectionId    identifier of the channel connection that carried the frame
+ * @param frame           packed message bytes, without the channel length prefix
+ */
+public record CaptureRecord(long timestampMicros, byte direction, int connectionId, byte[] frame) {
+
+    public Instant timestamp() {
+        return Instant.ofEpochSecond(Math.floorDiv(timestampMicros, 1_000_000L),
+                Math.floorMod(timestampMicros, 1_000_000L) * 1_000L);
+    }
+
+    public boolean inbound() {
+        return direction == CaptureFormat.INBOUND;
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.server.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends capture records to a ring of preallocated, memory-mapped files.
+ * <p>
+ * Writers reserve space with a single compare-and-set on the current file's write position and
+ * then copy their record with absolute puts, so concurrent channel threads never block each other
+ * on the common path. When a file is full the writer that noticed rotates to the next file and the
+ * oldest file beyond {@code fileCount} is deleted.
+ */
+final class CaptureWriter implements Closeable {
+    private final Path directory;
+    private final int fileSize;
+    private final int fileCount;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile Segment current;
+    private long sequence;
+
+    CaptureWriter(Path directory, int fileSize, int fileCount) throws IOException {
+        this.directory = directory;
+        this.fileSize = Math.max(CaptureFormat.FILE_HEADER_LENGTH + 1024, fileSize);
+        this.fileCount = Math.max(2, fileCount);
+        Files.createDirectories(directory);
+        this.sequence = lastSequence(directory);
+        this.current = openNext();
+    }
+
+    void write(byte direction, int connectionId, byte[] frame) {
+        int length = CaptureFormat.RECORD_HEADER_LENGTH + frame.length;
+        if (length > fileSize - CaptureFormat.FILE_HEADER_LENGTH) {
+            dropped.incrementAndGet();
+            return;
+        }
+        long timestamp = CaptureFormat.nowMicros();
+        while (true) {
+            Segment segment = current;
+            int start = segment.reserve(length);
+            if (start >= 0) {
+                segment.write(start, length, timestamp, direction, connectionId, frame);
+                return;
+            }
+            try {
+                rotate(segment);
+            } catch (IOException e) {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    long dropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        current.buffer.force();
+    }
+
+    private synchronized void rotate(Segment full) throws IOException {
+        if (current != full) {
+            return;
+        }
+        full.buffer.force();
+        current = openNext();
+        Files.deleteIfExists(directory.resolve(CaptureFormat.fileName(sequence - fileCount)));
+    }
+
+    private Segment openNext() throws IOException {
+        sequence++;
+        Path file = directory.resolve(CaptureFormat.fileName(sequence));
+        Files.deleteIfExists(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(fileSize);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            buffer.putInt(0, CaptureFormat.MAGIC);
+            buffer.putInt(4, CaptureFormat.VERSION);
+            buffer.putLong(8, CaptureFormat.nowMicros());
+            return new Segment(buffer, fileSize);
+        }
+    }
+
+    private static long lastSequence(Path directory) throws IOException {
+        long last = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                CaptureFormat.FILE_PREFIX + "*" + CaptureFormat.FILE_SUFFIX)) {
+            for (Path file : files) {
+                last = Math.max(last, CaptureFormat.sequenceOf(file.getFileName().toString()));
+            }
+        }
+        return last;
+    }
+
+    private static final class Segment {
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final AtomicInteger position = new AtomicInteger(CaptureFormat.FILE_HEADER_LENGTH);
+
+        private Segment(MappedByteBuffer buffer, int capacity) {
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+
+        private int reserve(int length) {
+            while (true) {
+                int start = position.get();
+                if (start + length > capacity) {
+                    return -1;
+                }
+                if (position.compareAndSet(start, start + length)) {
+                    return start;
+                }
+            }
+        }
+
+        private void write(int start, int length, long timestamp, byte direction, int connectionId, byte[] frame) {
+            buffer.putLong(start + 4, timestamp);
+            buffer.put(start + 12, direction);
+            buffer.putInt(start + 13, connectionId);
+            buffer.put(start + CaptureFormat.RECORD_HEADER_LENGTH, frame);
+            buffer.putInt(start, length);
+        }
+    }
+}
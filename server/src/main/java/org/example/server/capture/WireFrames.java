@@ -0,0 +1,53 @@
+package org.example.server.capture;
+
+import java.util.Arrays;
+
+/**
+ * Hands the exact bytes a channel read or wrote to the {@link CaptureLogListener}. jPOS logs the
+ * {@code receive} and {@code send} events on the thread that did the I/O, right after it, so the
+ * channel leaves the frame in a thread-local slot per direction and the listener takes it from
+ * there. Nothing is kept while no capture listener is configured.
+ */
+public final class WireFrames {
+    private static final ThreadLocal<byte[]> RECEIVED = new ThreadLocal<>();
+    private static final ThreadLocal<byte[]> SENT = new ThreadLocal<>();
+    private static volatile boolean recording;
+
+    private WireFrames() {
+    }
+
+    static void setRecording(boolean enabled) {
+        recording = enabled;
+    }
+
+    /**
+     * Called by a channel after reading the body of a message.
+     */
+    public static void received(byte[] frame, int offset, int length) {
+        if (recording) {
+            RECEIVED.set(Arrays.copyOfRange(frame, offset, offset + length));
+        }
+    }
+
+    /**
+     * Called by a channel before writing the body of a message.
+     */
+    public static void sent(byte[] frame, int offset, int length) {
+        if (recording) {
+            SENT.set(Arrays.copyOfRange(frame, offset, offset + length));
+        }
+    }
+
+    /**
+     * Returns and forgets the last frame this thread read or wrote in {@code direction}, or
+     * {@code null} when the channel does not report frames.
+     */
+    static byte[] take(byte direction) {
+        ThreadLocal<byte[]> slot = direction == CaptureFormat.INBOUND ? RECEIVED : SENT;
+        byte[] frame = slot.get();
+        if (frame != null) {
+            slot.remove();
+        }
+        return frame;
+    }
+}
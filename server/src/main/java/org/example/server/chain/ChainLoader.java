@@ -0,0 +1,119 @@
+package org.example.server.chain;
+
+import org.jpos.core.Configurable;
+import org.jpos.core.SimpleConfiguration;
+import org.jpos.transaction.TransactionParticipant;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Builds a {@link ChainVersion} from a participant file of the form
+ * <pre>
+ * &lt;chain version="2024-06-01"&gt;
+ *     &lt;participant class="org.example.server.participant.ValidateMsg"&gt;
+ *         &lt;property name="rules" value="cfg/validation-rules.xml"/&gt;
+ *     &lt;/participant&gt;
+ * &lt;/chain&gt;
+ * </pre>
+ * Participants are created, configured and {@link Warmable#warm() warmed} in file order, the same
+ * way the transaction manager treats its {@code participant} elements; a property repeated within
+ * one participant is available through {@code getAll}. Any failure rejects the whole version.
+ */
+final class ChainLoader {
+    private ChainLoader() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the file is malformed or a participant cannot be built
+     */
+    static ChainVersion load(Path file) throws IOException {
+        Document document;
+        try (InputStream input = Files.newInputStream(file)) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            document = factory.newDocumentBuilder().parse(input);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalArgumentException("Malformed participant chain " + file + ": " + e.getMessage(), e);
+        }
+        Element root = document.getDocumentElement();
+        if (!"chain".equals(root.getTagName())) {
+            throw new IllegalArgumentException("Expected <chain> in " + file + ", found <" + root.getTagName() + ">");
+        }
+        String version = root.getAttribute("version");
+        if (version.isEmpty()) {
+            version = Long.toString(Files.getLastModifiedTime(file).toMillis());
+        }
+        List<TransactionParticipant> participants = new ArrayList<>();
+        for (Element element : children(root, "participant")) {
+            participants.add(participant(element));
+        }
+        if (participants.isEmpty()) {
+            throw new IllegalArgumentException("Participant chain " + file + " is empty");
+        }
+        return new ChainVersion(version, participants);
+    }
+
+    private static TransactionParticipant participant(Element element) {
+        String className = element.getAttribute("class");
+        Object participant;
+        try {
+            participant = Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalArgumentException("Unable to create participant " + className, e);
+        }
+        if (!(participant instanceof TransactionParticipant transactionParticipant)) {
+            throw new IllegalArgumentException(className + " is not a TransactionParticipant");
+        }
+        try {
+            if (participant instanceof Configurable configurable) {
+                configurable.setConfiguration(new SimpleConfiguration(properties(element)));
+            }
+            if (participant instanceof Warmable warmable) {
+                warmable.warm();
+            }
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unable to prepare participant " + className + ": " + e.getMessage(), e);
+        }
+        return transactionParticipant;
+    }
+
+    private static Properties properties(Element participant) {
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        for (Element property : children(participant, "property")) {
+            values.computeIfAbsent(property.getAttribute("name"), name -> new ArrayList<>())
+                    .add(property.getAttribute("value"));
+        }
+        Properties properties = new Properties();
+        values.forEach((name, list) -> properties.put(name, list.size() == 1 ? list.get(0) : list.toArray(new String[0])));
+        return properties;
+    }
+
+    private static List<Element> children(Element parent, String tag) {
+        List<Element> elements = new ArrayList<>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node instanceof Element element && tag.equals(element.getTagName())) {
+                elements.add(element);
+            }
+        }
+        return elements;
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.server.chain;
+
+/**
+ * The chain version a transaction prepared on and the participants of it that joined, kept in the
+ * context between the prepare and the commit or abort phase.
+ */
+public final class ChainRun {
+    private final ChainVersion version;
+    private final long joined;
+    private final boolean aborted;
+
+    ChainRun(ChainVersion version, long joined, boolean aborted) {
+        this.version = version;
+        this.joined = joined;
+        this.aborted = aborted;
+    }
+
+    ChainVersion version() {
+        return version;
+    }
+
+    long joined() {
+        return joined;
+    }
+
+    boolean aborted() {
+        return aborted;
+    }
+
+    public String versionName() {
+        return version.version();
+    }
+}
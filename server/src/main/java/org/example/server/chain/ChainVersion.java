@@ -0,0 +1,167 @@
+package org.example.server.chain;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.jpos.transaction.AbortParticipant;
+import org.jpos.transaction.TransactionConstants;
+import org.jpos.transaction.TransactionParticipant;
+import org.jpos.util.Destroyable;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One immutable generation of the participant chain. Transactions pin the version they prepared
+ * on with {@link #acquire()} and let go with {@link #release()}; a version that has been replaced
+ * is closed once its last pinned transaction is released, so transactions in flight during a swap
+ * finish on the participants they started with.
+ */
+final class ChainVersion implements TransactionConstants {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(ChainVersion.class);
+    private static final int CLOSED = -1;
+
+    private final String version;
+    private final TransactionParticipant[] participants;
+    private final Instant loadedAt = Instant.now();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean retired;
+
+    ChainVersion(String version, List<TransactionParticipant> participants) {
+        if (participants.size() > Long.SIZE) {
+            throw new IllegalArgumentException("A chain holds at most " + Long.SIZE + " participants");
+        }
+        this.version = version;
+        this.participants = participants.toArray(new TransactionParticipant[0]);
+    }
+
+    String version() {
+        return version;
+    }
+
+    Instant loadedAt() {
+        return loadedAt;
+    }
+
+    int size() {
+        return participants.length;
+    }
+
+    int inFlight() {
+        return Math.max(0, inFlight.get());
+    }
+
+    /**
+     * Pins the version for one transaction; fails once the version has been closed.
+     */
+    boolean acquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current == CLOSED) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        if (inFlight.decrementAndGet() == 0 && retired) {
+            closeIfIdle();
+        }
+    }
+
+    /**
+     * Marks the version as replaced; it is closed as soon as nothing is pinned to it.
+     */
+    void retire() {
+        retired = true;
+        closeIfIdle();
+    }
+
+    private void closeIfIdle() {
+        if (!inFlight.compareAndSet(0, CLOSED)) {
+            return;
+        }
+        for (TransactionParticipant participant : participants) {
+            try {
+                if (participant instanceof AutoCloseable closeable) {
+                    closeable.close();
+                } else if (participant instanceof Destroyable destroyable) {
+                    destroyable.destroy();
+                }
+            } catch (Exception e) {
+                LOGGER.warn("Unable to close {} of chain version {}: {}",
+                        participant.getClass().getSimpleName(), version, e.getMessage());
+            }
+        }
+        LOGGER.info("Participant chain version {} retired", version);
+    }
+
+    /**
+     * Runs the prepare phase the way the transaction manager does: each participant is prepared in
+     * order until one aborts, after which only {@link AbortParticipant}s get
+     * {@code prepareForAbort}. Returns which participants joined, and whether the chain aborted,
+     * as a {@link ChainRun}.
+     */
+    ChainRun prepare(long id, Serializable context, boolean aborting) {
+        long joined = 0L;
+        boolean aborted = aborting;
+        for (int i = 0; i < participants.length; i++) {
+            TransactionParticipant participant = participants[i];
+            int action = ABORTED;
+            try {
+                if (!aborted) {
+                    action = participant.prepare(id, context);
+                } else if (participant instanceof AbortParticipant abortParticipant) {
+                    action = abortParticipant.prepareForAbort(id, context);
+                } else {
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("PREPARE of {} in chain version {} failed for transaction {}",
+                        participant.getClass().getSimpleName(), version, id, e);
+            }
+            if ((action & (RETRY | PAUSE)) != 0) {
+                LOGGER.warn("{} asked for RETRY/PAUSE, which a versioned chain does not support; aborting",
+                        participant.getClass().getSimpleName());
+                action = ABORTED;
+            }
+            if ((action & PREPARED) == 0) {
+                aborted = true;
+            }
+            if ((action & NO_JOIN) == 0) {
+                joined |= 1L << i;
+            }
+        }
+        return new ChainRun(this, joined, aborted);
+    }
+
+    void commit(long id, Serializable context, long joined) {
+        for (int i = 0; i < participants.length; i++) {
+            if ((joined & (1L << i)) != 0) {
+                try {
+                    participants[i].commit(id, context);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("COMMIT of {} in chain version {} failed for transaction {}",
+                            participants[i].getClass().getSimpleName(), version, id, e);
+                }
+            }
+        }
+    }
+
+    void abort(long id, Serializable context, long joined) {
+        for (int i = 0; i < participants.length; i++) {
+            if ((joined & (1L << i)) != 0) {
+                try {
+                    participants[i].abort(id, context);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("ABORT of {} in chain version {} failed for transaction {}",
+                            participants[i].getClass().getSimpleName(), version, id, e);
+                }
+            }
+        }
+    }
+}
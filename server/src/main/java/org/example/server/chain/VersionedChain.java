@@ -0,0 +1,264 @@
+package org.example.server.chain;
+
+import org.example.server.context.Slots;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.metrics.MetricsRegistry;
+import org.jpos.core.Configurable;
+import org.jpos.core.Configuration;
+import org.jpos.core.ConfigurationException;
+import org.jpos.transaction.AbortParticipant;
+import org.jpos.transaction.Context;
+import org.jpos.util.Destroyable;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the business participants listed in {@code file} (relative to the jPOS home,
+ * {@code cfg/participants.xml} by default) as one participant of the transaction manager, and
+ * swaps them for a new version when the file changes without draining or redeploying the
+ * transaction manager.
+ * <p>
+ * The file is checked every {@code reload-interval} milliseconds (0 disables the check; the JMX
+ * {@code reload} operation always works). A changed file is built into a complete new
+ * {@link ChainVersion} next to the running one: every participant is created, configured and
+ * {@link Warmable warmed} before the version is published with a single reference swap, so new
+ * transactions go straight to warm participants. A transaction stays on the version it prepared on
+ * until its commit or abort, and a replaced version closes its {@link AutoCloseable} and destroys
+ * its {@link Destroyable} participants once its last transaction has finished. A file that fails to build leaves the running version in
+ * place.
+ * <p>
+ * Within a version participants behave as under the transaction manager: once one aborts only
+ * {@link AbortParticipant}s are called, and only those that joined see the commit or abort. RETRY
+ * and PAUSE are not supported and abort the transaction. Exported over JMX as
+ * {@code ParticipantChain}.
+ * <p>
+ * When the transaction manager is undeployed the file watcher is stopped, the MBean unregistered
+ * and the running version retired like a replaced one.
+ */
+public class VersionedChain implements AbortParticipant, Configurable, Destroyable, VersionedChainMXBean {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(VersionedChain.class);
+
+    private final AtomicReference<ChainVersion> active = new AtomicReference<>();
+    private final Set<ChainVersion> draining = ConcurrentHashMap.newKeySet();
+    private final AtomicLong swaps = new AtomicLong();
+    private final AtomicLong failedReloads = new AtomicLong();
+    private volatile String lastError = "";
+    private Path file;
+    private volatile long lastModified;
+    private volatile long lastSize;
+    private ScheduledExecutorService watcher;
+    private ObjectName objectName;
+    private boolean destroyed;
+
+    @Override
+    public synchronized void setConfiguration(Configuration cfg) throws ConfigurationException {
+        destroy();
+        destroyed = false;
+        file = Path.of(System.getProperty("jpos.home", ".")).resolve(cfg.get("file", "cfg/participants.xml"));
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            ChainVersion version = ChainLoader.load(file);
+            lastModified = attributes.lastModifiedTime().toMillis();
+            lastSize = attributes.size();
+            active.set(version);
+            LOGGER.info("Loaded participant chain version {} with {} participants from {}", version.version(),
+                    version.size(), file);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ConfigurationException("Unable to load participant chain from " + file, e);
+        }
+        String name = cfg.get("name", "server-txnmgr");
+        long interval = cfg.getLong("reload-interval", 5000L);
+        if (interval > 0L) {
+            watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name + "-chain-watcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            watcher.scheduleWithFixedDelay(this::reloadIfChanged, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        objectName = MetricsRegistry.name("ParticipantChain", "name", name);
+        MetricsRegistry.register(objectName, this);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (destroyed) {
+            return;
+        }
+        destroyed = true;
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+        if (objectName != null) {
+            MetricsRegistry.unregister(objectName, this);
+        }
+        ChainVersion current = active.get();
+        if (current != null) {
+            draining.add(current);
+            current.retire();
+            draining.removeIf(version -> version.inFlight() == 0);
+        }
+    }
+
+    @Override
+    public int prepare(long id, Serializable context) {
+        return run(id, context, false);
+    }
+
+    @Override
+    public int prepareForAbort(long id, Serializable context) {
+        return run(id, context, true);
+    }
+
+    private int run(long id, Serializable context, boolean aborting) {
+        if (!(context instanceof Context ctx)) {
+            LOGGER.error("Invalid transaction context type: {}", context == null ? "null" : context.getClass());
+            return ABORTED | NO_JOIN;
+        }
+        ChainVersion version = pin();
+        ChainRun run = version.prepare(id, context, aborting);
+        int action = run.aborted() ? ABORTED : PREPARED;
+        if (run.joined() == 0L) {
+            version.release();
+            return action | NO_JOIN | READONLY;
+        }
+        Slots.CHAIN_RUN.put(ctx, run);
+        return action;
+    }
+
+    /**
+     * Pins the active version, retrying if it was replaced and closed between the read and the pin.
+     */
+    private ChainVersion pin() {
+        while (true) {
+            ChainVersion version = active.get();
+            if (version.acquire()) {
+                return version;
+            }
+        }
+    }
+
+    @Override
+    public void commit(long id, Serializable context) {
+        ChainRun run = runOf(context);
+        if (run != null) {
+            try {
+                run.version().commit(id, context, run.joined());
+            } finally {
+                run.version().release();
+            }
+        }
+    }
+
+    @Override
+    public void abort(long id, Serializable context) {
+        ChainRun run = runOf(context);
+        if (run != null) {
+            try {
+                run.version().abort(id, context, run.joined());
+            } finally {
+                run.version().release();
+            }
+        }
+    }
+
+    private static ChainRun runOf(Serializable context) {
+        return context instanceof Context ctx ? Slots.CHAIN_RUN.get(ctx) : null;
+    }
+
+    private void reloadIfChanged() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (attributes.lastModifiedTime().toMillis() != lastModified || attributes.size() != lastSize) {
+                reload();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to check participant chain {}: {}", file, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized String reload() {
+        if (destroyed) {
+            return active.get().version();
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            lastModified = attributes.lastModifiedTime().toMillis();
+            lastSize = attributes.size();
+            ChainVersion next = ChainLoader.load(file);
+            ChainVersion previous = active.getAndSet(next);
+            swaps.incrementAndGet();
+            draining.add(previous);
+            previous.retire();
+            draining.removeIf(version -> version.inFlight() == 0);
+            LOGGER.info("Switched participant chain from version {} to {} ({} transactions still on {})",
+                    previous.version(), next.version(), previous.inFlight(), previous.version());
+        } catch (IOException | IllegalArgumentException e) {
+            failedReloads.incrementAndGet();
+            lastError = e.getMessage();
+            LOGGER.error("Keeping participant chain version " + active.get().version() + ", unable to load " + file, e);
+        }
+        return active.get().version();
+    }
+
+    @Override
+    public String getVersion() {
+        return active.get().version();
+    }
+
+    @Override
+    public String getLoadedAt() {
+        return active.get().loadedAt().toString();
+    }
+
+    @Override
+    public int getParticipants() {
+        return active.get().size();
+    }
+
+    @Override
+    public Map<String, Integer> getInFlightByVersion() {
+        draining.removeIf(version -> version.inFlight() == 0);
+        Map<String, Integer> inFlight = new LinkedHashMap<>();
+        ChainVersion current = active.get();
+        inFlight.put(current.version(), current.inFlight());
+        for (ChainVersion version : draining) {
+            if (version.inFlight() > 0) {
+                inFlight.merge(version.version(), version.inFlight(), Integer::sum);
+            }
+        }
+        return inFlight;
+    }
+
+    @Override
+    public long getSwaps() {
+        return swaps.get();
+    }
+
+    @Override
+    public long getFailedReloads() {
+        return failedReloads.get();
+    }
+
+    @Override
+    public String getLastError() {
+        return lastError;
+    }
+}
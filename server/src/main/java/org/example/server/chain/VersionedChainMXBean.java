@@ -0,0 +1,31 @@
+package org.example.server.chain;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link VersionedChain}.
+ */
+public interface VersionedChainMXBean {
+    String getVersion();
+
+    String getLoadedAt();
+
+    int getParticipants();
+
+    /**
+     * Transactions currently pinned to each live version, including retired versions still
+     * draining.
+     */
+    Map<String, Integer> getInFlightByVersion();
+
+    long getSwaps();
+
+    long getFailedReloads();
+
+    String getLastError();
+
+    /**
+     * Reloads the chain file now, whether or not it changed, and returns the active version.
+     */
+    String reload();
+}
@@ -0,0 +1,10 @@
+package org.example.server.chain;
+
+/**
+ * Participant that can prepare itself for traffic, for example by opening pooled connections or
+ * filling caches. {@link VersionedChain} calls {@link #warm()} once on every participant of a new
+ * chain version, after configuring it and before the version receives its first transaction.
+ */
+public interface Warmable {
+    void warm() throws Exception;
+}
@@ -5,12 +5,25 @@ import com.zaxxer.hikari.HikariDataSource;
 import com.zaxxer.hikari.pool.HikariPool;
 import org.example.server.logging.ApplicationLogger;
 import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.metrics.PoolMetrics;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Provides a lazily initialised {@link DataSource} backed by HikariCP for Oracle databases.
+ * <p>
+ * {@link #install(DataSource)} lets an embedding process, such as the soak test, supply its own
+ * datasource before the transaction manager is deployed.
+ * <p>
+ * {@link #getShards()} spreads {@code ISO_MESSAGES} over several databases when
+ * {@code ORACLE_JDBC_URL_0}, {@code ORACLE_JDBC_URL_1}, ... are set. Each shard gets its own pool
+ * ({@code rayan-jpos-oracle-shard-<i>}); {@code ORACLE_DB_USER_<i>}, {@code ORACLE_DB_PASSWORD_<i>}
+ * and {@code ORACLE_DB_MAX_POOL_<i>} override the unsuffixed settings per shard, which makes
+ * several schemas of one instance usable as shards. Without suffixed URLs the single datasource
+ * is the only shard.
  */
 public final class DataSourceProvider {
     public static final String JDBC_URL_KEY = "ORACLE_JDBC_URL";
@@ -20,17 +33,26 @@ public final class DataSourceProvider {
     public static final String CONNECTION_TIMEOUT_KEY = "ORACLE_DB_CONNECTION_TIMEOUT";
 
     private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(DataSourceProvider.class);
-    private static final AtomicReference<HikariDataSource> DATA_SOURCE = new AtomicReference<>();
+    private static final AtomicReference<DataSource> DATA_SOURCE = new AtomicReference<>();
+    private static final AtomicReference<ShardedDataSource> SHARDS = new AtomicReference<>();
 
     private DataSourceProvider() {
     }
 
+    /**
+     * Returns the shared datasource. When the deployment is sharded this is the first shard.
+     */
     public static DataSource getDataSource() {
-        HikariDataSource current = DATA_SOURCE.get();
+        DataSource current = DATA_SOURCE.get();
         if (current != null) {
             return current;
         }
-        HikariDataSource created = createDataSource();
+        if (configuredShards() > 0) {
+            return getShards().shard(0).dataSource();
+        }
+        HikariDataSource created = createDataSource(EnvironmentLoader.getRequired(JDBC_URL_KEY),
+                EnvironmentLoader.getRequired(USER_KEY), EnvironmentLoader.getRequired(PASSWORD_KEY),
+                EnvironmentLoader.getInt(MAX_POOL_KEY, 10), "rayan-jpos-oracle-pool");
         if (DATA_SOURCE.compareAndSet(null, created)) {
             LOGGER.info("Initialised Oracle datasource pool targeting {}", created.getJdbcUrl());
             return created;
@@ -39,16 +61,108 @@ public final class DataSourceProvider {
         return DATA_SOURCE.get();
     }
 
-    private static HikariDataSource createDataSource() {
+    /**
+     * Returns the shards {@code ISO_MESSAGES} is spread over, creating their pools and starting
+     * their health checks on first use. A datasource passed to {@link #install(DataSource)} is the
+     * only shard.
+     */
+    public static ShardedDataSource getShards() {
+        ShardedDataSource current = SHARDS.get();
+        if (current != null) {
+            return current;
+        }
+        int threshold = Math.max(1, EnvironmentLoader.getInt("SHARD_FAILURE_THRESHOLD", 3));
+        int count = DATA_SOURCE.get() != null ? 0 : configuredShards();
+        List<Shard> shards = new ArrayList<>(Math.max(1, count));
+        if (count == 0) {
+            shards.add(new Shard(0, "shard-0", getDataSource(), threshold));
+        } else {
+            for (int i = 0; i < count; i++) {
+                shards.add(new Shard(i, "shard-" + i, createShard(i), threshold));
+            }
+        }
+        ShardedDataSource created = new ShardedDataSource(shards);
+        if (!SHARDS.compareAndSet(null, created)) {
+            if (count > 0) {
+                created.close();
+            }
+            return SHARDS.get();
+        }
+        created.startHealthChecks(Math.max(500L, EnvironmentLoader.getInt("SHARD_HEALTH_INTERVAL_MS", 5000)),
+                Math.max(1, EnvironmentLoader.getInt("SHARD_VALIDATION_TIMEOUT_S", 2)));
+        if (count > 0) {
+            LOGGER.info("Initialised {} datasource shards", count);
+        }
+        return created;
+    }
+
+    /**
+     * Returns the shards if they have been initialised, without creating them.
+     */
+    public static ShardedDataSource currentShards() {
+        return SHARDS.get();
+    }
+
+    /**
+     * Returns the shared datasource if one has been initialised, without creating it.
+     */
+    public static DataSource current() {
+        DataSource current = DATA_SOURCE.get();
+        if (current != null) {
+            return current;
+        }
+        ShardedDataSource shards = SHARDS.get();
+        return shards == null ? null : shards.shard(0).dataSource();
+    }
+
+    /**
+     * Installs {@code dataSource} as the shared datasource. Must be called before anything has
+     * requested the default one.
+     *
+     * @throws IllegalStateException when a datasource is already in use
+     */
+    public static void install(DataSource dataSource) {
+        if (SHARDS.get() != null || !DATA_SOURCE.compareAndSet(null, dataSource)) {
+            throw new IllegalStateException("A datasource has already been initialised");
+        }
+        LOGGER.info("Installed datasource {}", dataSource.getClass().getSimpleName());
+    }
+
+    /**
+     * Number of suffixed shard URLs, {@code 0} when the deployment is not sharded.
+     */
+    private static int configuredShards() {
+        int count = 0;
+        while (EnvironmentLoader.get(JDBC_URL_KEY + "_" + count).filter(url -> !url.isBlank()).isPresent()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static DataSource createShard(int index) {
+        String suffix = "_" + index;
+        HikariDataSource pool = createDataSource(
+                EnvironmentLoader.getRequired(JDBC_URL_KEY + suffix),
+                EnvironmentLoader.get(USER_KEY + suffix).orElseGet(() -> EnvironmentLoader.getRequired(USER_KEY)),
+                EnvironmentLoader.get(PASSWORD_KEY + suffix).orElseGet(() -> EnvironmentLoader.getRequired(PASSWORD_KEY)),
+                EnvironmentLoader.getInt(MAX_POOL_KEY + suffix, EnvironmentLoader.getInt(MAX_POOL_KEY, 10)),
+                "rayan-jpos-oracle-shard-" + index);
+        LOGGER.info("Initialised shard {} pool targeting {} as {}", index, pool.getJdbcUrl(), pool.getUsername());
+        return pool;
+    }
+
+    private static HikariDataSource createDataSource(String url, String user, String password, int maxPool,
+                                                     String poolName) {
         HikariConfig config = new HikariConfig();
-        config.setJdbcUrl(EnvironmentLoader.getRequired(JDBC_URL_KEY));
-        config.setUsername(EnvironmentLoader.getRequired(USER_KEY));
-        config.setPassword(EnvironmentLoader.getRequired(PASSWORD_KEY));
+        config.setJdbcUrl(url);
+        config.setUsername(user);
+        config.setPassword(password);
         config.setDriverClassName("oracle.jdbc.OracleDriver");
-        config.setMaximumPoolSize(EnvironmentLoader.getInt(MAX_POOL_KEY, 10));
+        config.setMaximumPoolSize(maxPool);
         config.setConnectionTimeout(EnvironmentLoader.getInt(CONNECTION_TIMEOUT_KEY, 30000));
         config.setInitializationFailTimeout(-1L);
-        config.setPoolName("rayan-jpos-oracle-pool");
+        config.setPoolName(poolName);
+        config.setMetricsTrackerFactory(PoolMetrics.trackerFactory());
 
         int maxAttempts = Math.max(1, EnvironmentLoader.getInt("ORACLE_DB_INIT_ATTEMPTS", 10));
         int baseDelay = Math.max(100, EnvironmentLoader.getInt("ORACLE_DB_INIT_BACKOFF_MS", 2000));
@@ -81,10 +195,15 @@ public final class DataSourceProvider {
     }
 
     public static void close() {
-        HikariDataSource current = DATA_SOURCE.getAndSet(null);
-        if (current != null) {
+        ShardedDataSource shards = SHARDS.getAndSet(null);
+        if (shards != null) {
+            LOGGER.info("Shutting down {} datasource shards", shards.size());
+            shards.close();
+        }
+        DataSource current = DATA_SOURCE.getAndSet(null);
+        if (current instanceof HikariDataSource pool) {
             LOGGER.info("Shutting down Oracle datasource pool");
-            current.close();
+            pool.close();
         }
     }
 }
\ No newline at end of file
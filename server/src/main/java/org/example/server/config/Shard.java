@@ -0,0 +1,155 @@
+package org.example.server.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One database of a {@link ShardedDataSource} with its health and counters. Exported over JMX as
+ * {@code Shard,name=<name>}; pooled shards also have their own {@code ConnectionAcquire} and
+ * {@code ConnectionUsage} metrics under the pool name.
+ * <p>
+ * A shard is taken out of service after {@code failureThreshold} consecutive failed statements or
+ * a failed validation, and put back by the next successful validation.
+ */
+public final class Shard implements ShardMXBean {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(Shard.class);
+
+    private final int index;
+    private final String name;
+    private final DataSource dataSource;
+    private final int failureThreshold;
+    private final AtomicLong routed = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile boolean healthy = true;
+    private volatile String lastError = "none";
+
+    Shard(int index, String name, DataSource dataSource, int failureThreshold) {
+        this.index = index;
+        this.name = name;
+        this.dataSource = dataSource;
+        this.failureThreshold = Math.max(1, failureThreshold);
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Counts a statement routed to this shard.
+     */
+    public void routed() {
+        routed.incrementAndGet();
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    public void recordFailure(SQLException e) {
+        failures.incrementAndGet();
+        lastError = e.getClass().getSimpleName() + ": " + e.getMessage();
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            setHealthy(false);
+        }
+    }
+
+    /**
+     * Validates a connection from the shard and updates its health accordingly.
+     */
+    void check(int timeoutSeconds) {
+        try (Connection connection = dataSource.getConnection()) {
+            if (connection.isValid(timeoutSeconds)) {
+                consecutiveFailures.set(0);
+                setHealthy(true);
+                return;
+            }
+            lastError = "Connection validation failed";
+        } catch (SQLException e) {
+            failures.incrementAndGet();
+            lastError = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        setHealthy(false);
+    }
+
+    private synchronized void setHealthy(boolean value) {
+        if (healthy == value) {
+            return;
+        }
+        healthy = value;
+        if (value) {
+            LOGGER.info("Shard {} is back in service", name);
+        } else {
+            LOGGER.warn("Shard {} is out of service: {}", name, lastError);
+        }
+    }
+
+    void close() {
+        if (dataSource instanceof HikariDataSource pool) {
+            pool.close();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    @Override
+    public long getRouted() {
+        return routed.get();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    @Override
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        HikariPoolMXBean pool = poolBean();
+        return pool == null ? -1 : pool.getActiveConnections();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        HikariPoolMXBean pool = poolBean();
+        return pool == null ? -1 : pool.getIdleConnections();
+    }
+
+    private HikariPoolMXBean poolBean() {
+        return dataSource instanceof HikariDataSource pool && !pool.isClosed() ? pool.getHikariPoolMXBean() : null;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
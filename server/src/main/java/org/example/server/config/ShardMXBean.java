@@ -0,0 +1,22 @@
+package org.example.server.config;
+
+/**
+ * JMX view of a database {@link Shard}.
+ */
+public interface ShardMXBean {
+    String getName();
+
+    boolean isHealthy();
+
+    long getRouted();
+
+    long getFailures();
+
+    int getConsecutiveFailures();
+
+    String getLastError();
+
+    int getActiveConnections();
+
+    int getIdleConnections();
+}
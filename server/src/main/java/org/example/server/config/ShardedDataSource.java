@@ -0,0 +1,188 @@
+package org.example.server.config;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.metrics.MetricsRegistry;
+import org.example.server.util.StableHash;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A fixed set of {@link Shard databases} holding disjoint parts of {@code ISO_MESSAGES}. Rows are
+ * placed by a {@link StableHash#bucket(String, int) jump consistent hash} of their terminal id, so
+ * every process agrees on the owner of a terminal and lookups by terminal touch one shard; other
+ * lookups use {@link #scatterGather(ShardQuery, long)}.
+ * <p>
+ * The number of shards must not change while data is in place: adding a shard moves
+ * {@code 1/(n + 1)} of the terminals to it.
+ */
+public final class ShardedDataSource implements AutoCloseable {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(ShardedDataSource.class);
+
+    private final List<Shard> shards;
+    private final ExecutorService gatherExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private ScheduledExecutorService healthChecker;
+
+    public ShardedDataSource(List<Shard> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = List.copyOf(shards);
+        for (Shard shard : this.shards) {
+            MetricsRegistry.register(MetricsRegistry.name("Shard", "name", shard.getName()), shard);
+        }
+    }
+
+    /**
+     * Wraps a single datasource that is never taken out of service, for callers that supply their
+     * own datasource.
+     */
+    public static ShardedDataSource of(DataSource dataSource) {
+        return new ShardedDataSource(List.of(new Shard(0, "shard-0", dataSource, Integer.MAX_VALUE)));
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public Shard shard(int index) {
+        return shards.get(index);
+    }
+
+    public List<Shard> shards() {
+        return shards;
+    }
+
+    /**
+     * Returns the shard owning {@code key} (the terminal id); {@code null} keys go to the first shard.
+     */
+    public Shard route(String key) {
+        if (key == null || shards.size() == 1) {
+            return shards.get(0);
+        }
+        return shards.get(StableHash.bucket(key, shards.size()));
+    }
+
+    /**
+     * Runs {@code query} on the shard owning {@code key}.
+     */
+    public <T> List<T> lookup(String key, ShardQuery<T> query) throws SQLException {
+        Shard shard = route(key);
+        shard.routed();
+        return run(shard, query);
+    }
+
+    /**
+     * Runs {@code query} on every shard in parallel and concatenates the rows in shard order. The
+     * lookup fails as a whole when any shard fails or does not answer within {@code timeoutMillis},
+     * since a partial result cannot be told apart from a complete one; the failures of the other
+     * shards are attached as suppressed exceptions.
+     */
+    public <T> List<T> scatterGather(ShardQuery<T> query, long timeoutMillis) throws SQLException {
+        List<Future<List<T>>> futures = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            futures.add(gatherExecutor.submit(() -> run(shard, query)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        List<T> rows = new ArrayList<>();
+        SQLException failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            Future<List<T>> future = futures.get(i);
+            SQLException error;
+            try {
+                rows.addAll(future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                continue;
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                error = new SQLTimeoutException("Shard " + shards.get(i).getName() + " did not answer within "
+                        + timeoutMillis + " ms");
+            } catch (ExecutionException e) {
+                error = e.getCause() instanceof SQLException sql ? sql
+                        : new SQLException("Lookup on shard " + shards.get(i).getName() + " failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                throw new SQLException("Interrupted while gathering shard results", e);
+            }
+            if (failure == null) {
+                failure = error;
+            } else {
+                failure.addSuppressed(error);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return rows;
+    }
+
+    private static <T> List<T> run(Shard shard, ShardQuery<T> query) throws SQLException {
+        try (Connection connection = shard.dataSource().getConnection()) {
+            List<T> rows = query.query(connection);
+            shard.recordSuccess();
+            return rows;
+        } catch (SQLException e) {
+            shard.recordFailure(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Validates every shard every {@code intervalMillis}, logging health changes.
+     */
+    public synchronized void startHealthChecks(long intervalMillis, int validationTimeoutSeconds) {
+        if (healthChecker != null) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(() -> checkAll(validationTimeoutSeconds), intervalMillis,
+                intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void checkAll(int validationTimeoutSeconds) {
+        for (Shard shard : shards) {
+            try {
+                shard.check(validationTimeoutSeconds);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Health check of shard {} failed", shard.getName(), e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+        gatherExecutor.shutdownNow();
+        for (Shard shard : shards) {
+            MetricsRegistry.unregister(MetricsRegistry.name("Shard", "name", shard.getName()));
+            shard.close();
+        }
+    }
+
+    /**
+     * A read executed on one shard's connection.
+     */
+    @FunctionalInterface
+    public interface ShardQuery<T> {
+        List<T> query(Connection connection) throws SQLException;
+    }
+}
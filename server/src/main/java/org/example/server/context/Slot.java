@@ -0,0 +1,58 @@
+package org.example.server.context;
+
+import org.jpos.transaction.Context;
+
+/**
+ * Typed key for a value kept in a fixed slot of a {@link SlotContext}. On a plain {@link Context}
+ * the value is stored under {@link #key()} instead, so participants can use slots regardless of
+ * which listener created the context.
+ *
+ * @param <T> type of the value
+ */
+public final class Slot<T> {
+    private final int index;
+    private final String key;
+    private final Class<T> type;
+
+    Slot(int index, String key, Class<T> type) {
+        this.index = index;
+        this.key = key;
+        this.type = type;
+    }
+
+    int index() {
+        return index;
+    }
+
+    /**
+     * String key used for this value by plain contexts and by jPOS components such as TMUX/QMUX.
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Returns the value, or {@code null} when it is absent or of another type.
+     */
+    public T get(Context ctx) {
+        Object value = ctx instanceof SlotContext slots ? slots.slot(index) : ctx.get(key);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    public void put(Context ctx, T value) {
+        if (ctx instanceof SlotContext slots) {
+            slots.setSlot(index, value);
+        } else {
+            ctx.put(key, value);
+        }
+    }
+
+    public boolean isSet(Context ctx) {
+        return get(ctx) != null;
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -0,0 +1,269 @@
+package org.example.server.context;
+
+import org.jpos.transaction.Context;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.PrintStream;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transaction context that keeps the values for {@link Slots} in a fixed array instead of the
+ * context map.
+ * <p>
+ * The string-keyed {@link Context} API is preserved: {@code put("REQUEST", m)} and
+ * {@code get("RESPONSE")}, as used by {@code IncomingListener}, TMUX and QMUX, land in the same
+ * slots as {@link Slot#put(Context, Object)} and {@link Slot#get(Context)}. Other keys go to the
+ * regular context map. {@link #getMap()} is a view over both, a slot value put with
+ * {@code persist} set is serialized like a persistent map entry, and {@link #clone()} copies the
+ * slots. Like {@link Context}, an instance belongs to one transaction at a time.
+ */
+public class SlotContext extends Context {
+    private Object[] slots = new Object[Slots.COUNT];
+    private int persistent;
+    private long receivedNanos;
+    private Map<Object, Object> view;
+
+    public SlotContext() {
+    }
+
+    /**
+     * {@link System#nanoTime()} when the request was received, or {@code 0} when unknown.
+     */
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
+    public void setReceivedNanos(long receivedNanos) {
+        this.receivedNanos = receivedNanos;
+    }
+
+    Object slot(int index) {
+        return slots[index];
+    }
+
+    void setSlot(int index, Object value) {
+        slots[index] = value;
+        if (value == null) {
+            persistent &= ~(1 << index);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        int index = Slots.indexOf(key);
+        if (index >= 0) {
+            setSlot(index, value);
+        } else {
+            super.put(key, value);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value, boolean persist) {
+        int index = Slots.indexOf(key);
+        if (index < 0) {
+            super.put(key, value, persist);
+            return;
+        }
+        setSlot(index, value);
+        if (persist && value != null) {
+            persistent |= 1 << index;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key) {
+        int index = Slots.indexOf(key);
+        return index >= 0 ? (T) slots[index] : super.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, T defValue) {
+        T value = get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T remove(Object key) {
+        int index = Slots.indexOf(key);
+        if (index < 0) {
+            return super.remove(key);
+        }
+        Object previous = slots[index];
+        setSlot(index, null);
+        return (T) previous;
+    }
+
+    @Override
+    public String getString(Object key) {
+        int index = Slots.indexOf(key);
+        if (index < 0) {
+            return super.getString(key);
+        }
+        Object value = slots[index];
+        return value != null ? value.toString() : null;
+    }
+
+    @Override
+    public boolean hasKey(Object key) {
+        int index = Slots.indexOf(key);
+        return index >= 0 ? slots[index] != null : super.hasKey(key);
+    }
+
+    /**
+     * Live view of the slots, keyed by their string keys, followed by the regular context map.
+     * Reads and writes of slot keys through the view go to the slots.
+     */
+    @Override
+    public Map<Object, Object> getMap() {
+        Map<Object, Object> map = view;
+        if (map == null) {
+            map = new SlotMap();
+            view = map;
+        }
+        return map;
+    }
+
+    @Override
+    public SlotContext clone() {
+        SlotContext copy = (SlotContext) super.clone();
+        copy.slots = slots.clone();
+        copy.view = null;
+        copy.entries().keySet().removeIf(key -> Slots.indexOf(key) >= 0);
+        return copy;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        super.writeExternal(out);
+        out.writeInt(Integer.bitCount(persistent));
+        for (int i = 0; i < slots.length; i++) {
+            if ((persistent & 1 << i) != 0) {
+                out.writeUTF(Slots.at(i).key());
+                out.writeObject(slots[i]);
+            }
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        super.readExternal(in);
+        for (int count = in.readInt(); count > 0; count--) {
+            put(in.readUTF(), in.readObject(), true);
+        }
+    }
+
+    @Override
+    public void dump(PrintStream p, String indent) {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != null) {
+                p.println(indent + "<entry key='" + Slots.at(i).key() + "'>" + slots[i] + "</entry>");
+            }
+        }
+        super.dump(p, indent);
+    }
+
+    /**
+     * The regular context map, without the slots.
+     */
+    private Map<Object, Object> entries() {
+        return super.getMap();
+    }
+
+    private final class SlotMap extends AbstractMap<Object, Object> {
+        @Override
+        public Object get(Object key) {
+            int index = Slots.indexOf(key);
+            return index >= 0 ? slots[index] : entries().get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            int index = Slots.indexOf(key);
+            return index >= 0 ? slots[index] != null : entries().containsKey(key);
+        }
+
+        @Override
+        public Object put(Object key, Object value) {
+            int index = Slots.indexOf(key);
+            if (index < 0) {
+                return entries().put(key, value);
+            }
+            Object previous = slots[index];
+            setSlot(index, value);
+            return previous;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            int index = Slots.indexOf(key);
+            if (index < 0) {
+                return entries().remove(key);
+            }
+            Object previous = slots[index];
+            setSlot(index, null);
+            return previous;
+        }
+
+        @Override
+        public Set<Entry<Object, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Object, Object>> iterator() {
+                    List<Entry<Object, Object>> all = new ArrayList<>();
+                    for (int i = 0; i < slots.length; i++) {
+                        if (slots[i] != null) {
+                            all.add(new SimpleImmutableEntry<>(Slots.at(i).key(), slots[i]));
+                        }
+                    }
+                    all.addAll(entries().entrySet());
+                    Iterator<Entry<Object, Object>> iterator = all.iterator();
+                    return new Iterator<>() {
+                        private Entry<Object, Object> last;
+
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<Object, Object> next() {
+                            last = iterator.next();
+                            return last;
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last == null) {
+                                throw new IllegalStateException();
+                            }
+                            SlotMap.this.remove(last.getKey());
+                            last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int size = entries().size();
+                    for (Object slot : slots) {
+                        if (slot != null) {
+                            size++;
+                        }
+                    }
+                    return size;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.server.context;
+
+import org.example.server.deadline.DeadlineWatchdog;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.mac.MacService;
+import org.example.server.net.ReusePortServerSocketFactory;
+import org.example.server.throttle.RateLimiter;
+import org.example.server.util.ResponseCodes;
+import org.jpos.core.Configurable;
+import org.jpos.core.Configuration;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISORequestListener;
+import org.jpos.iso.ISOSource;
+import org.jpos.space.Space;
+import org.jpos.space.SpaceFactory;
+import org.jpos.util.NameRegistrar;
+
+import java.io.IOException;
+
+/**
+ * Drop-in replacement for jPOS {@code IncomingListener} that queues {@link SlotContext} instances,
+ * which keep the typed slots in an array instead of the context map, and records when each request
+ * was received. Contexts are not pooled: the transaction manager may keep references to a context
+ * after its last participant ran (profiler and log events), so reusing one is not safe. When
+ * {@code throttle} names a {@link RateLimiter}, requests over their terminal or acquirer limit are
+ * declined before a context is created. Once the server is
+ * {@link ReusePortServerSocketFactory#isDraining() draining}, new requests are declined at once
+ * with {@code drain-code} (default 91) so the transaction manager's backlog can only shrink. With
+ * {@code deadline} naming the {@code StartDeadline} watchdog, each request's deadline and timely
+ * decline are armed here, on receipt, rather than when the transaction manager picks it up.
+ */
+public class SlotContextListener implements ISORequestListener, Configurable {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(SlotContextListener.class);
+
+    private Space<String, Object> space;
+    private String queue;
+    private String throttle;
+    private String drainCode;
+    private String deadline;
+
+    @Override
+    public void setConfiguration(Configuration cfg) {
+        space = SpaceFactory.getSpace(cfg.get("space", "txnmgr"));
+        queue = cfg.get("queue", "server");
+        throttle = cfg.get("throttle", null);
+        drainCode = cfg.get("drain-code", ResponseCodes.ISSUER_UNAVAILABLE);
+        deadline = cfg.get("deadline", null);
+    }
+
+    @Override
+    public boolean process(ISOSource source, ISOMsg request) {
+        long received = System.nanoTime();
+        if (ReusePortServerSocketFactory.isDraining()) {
+            decline(source, request);
+            return true;
+        }
+        if (throttle != null) {
+            RateLimiter limiter = NameRegistrar.getIfExists(RateLimiter.registrationName(throttle));
+            if (limiter != null && !limiter.admit(source, request)) {
+                return true;
+            }
+        }
+        SlotContext ctx = new SlotContext();
+        ctx.setReceivedNanos(received);
+        Slots.REQUEST.put(ctx, request);
+        Slots.SOURCE.put(ctx, source);
+        Slots.DEADLINE.put(ctx, DeadlineWatchdog.armOnReceipt(deadline, received, source, request));
+        space.out(queue, ctx);
+        return true;
+    }
+
+    private void decline(ISOSource source, ISOMsg request) {
+        try {
+            ISOMsg response = (ISOMsg) request.clone();
+            response.setResponseMTI();
+            response.set(39, drainCode);
+            MacService.removeMac(response);
+            source.send(response);
+        } catch (ISOException | IOException e) {
+            LOGGER.debug("Unable to decline request while draining: {}", e.getMessage());
+        }
+    }
+}
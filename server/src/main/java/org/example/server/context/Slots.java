@@ -0,0 +1,68 @@
+package org.example.server.context;
+
+import org.example.server.chain.ChainRun;
+import org.example.server.deadline.Deadline;
+import org.example.server.dispatch.DispatchTicket;
+import org.example.server.mac.MacKey;
+import org.example.server.util.ServerContextKeys;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOSource;
+
+/**
+ * The {@link Slot slots} for the keys in {@link ServerContextKeys}.
+ */
+public final class Slots {
+    public static final Slot<ISOMsg> REQUEST = new Slot<>(0, ServerContextKeys.REQUEST, ISOMsg.class);
+    public static final Slot<ISOMsg> RESPONSE = new Slot<>(1, ServerContextKeys.RESPONSE, ISOMsg.class);
+    public static final Slot<ISOSource> SOURCE = new Slot<>(2, ServerContextKeys.SOURCE, ISOSource.class);
+    public static final Slot<String> RESPONSE_CODE = new Slot<>(3, ServerContextKeys.RESPONSE_CODE, String.class);
+    public static final Slot<String> ERROR_MESSAGE = new Slot<>(4, ServerContextKeys.ERROR_MESSAGE, String.class);
+    public static final Slot<String> APPROVAL_CODE = new Slot<>(5, ServerContextKeys.APPROVAL_CODE, String.class);
+    public static final Slot<DispatchTicket> DISPATCH_TICKET =
+            new Slot<>(6, ServerContextKeys.DISPATCH_TICKET, DispatchTicket.class);
+    public static final Slot<Deadline> DEADLINE = new Slot<>(7, ServerContextKeys.DEADLINE, Deadline.class);
+    public static final Slot<MacKey> MAC_KEY = new Slot<>(8, ServerContextKeys.MAC_KEY, MacKey.class);
+
+    public static final Slot<ChainRun> CHAIN_RUN =
+            new Slot<>(9, ServerContextKeys.PARTICIPANT_CHAIN, ChainRun.class);
+
+    static final int COUNT = 10;
+
+    private static final Slot<?>[] ALL = {
+            REQUEST, RESPONSE, SOURCE, RESPONSE_CODE, ERROR_MESSAGE, APPROVAL_CODE, DISPATCH_TICKET, DEADLINE, MAC_KEY,
+            CHAIN_RUN
+    };
+
+    private Slots() {
+    }
+
+    /**
+     * Returns the slot index for a context key, or {@code -1} when the key has no slot. Accepts the
+     * string keys as well as enum keys such as jPOS {@code ContextConstants.REQUEST}.
+     */
+    static int indexOf(Object key) {
+        if (key instanceof Slot<?> slot) {
+            return slot.index();
+        }
+        if (!(key instanceof String) && !(key instanceof Enum<?>)) {
+            return -1;
+        }
+        return switch (key.toString()) {
+            case ServerContextKeys.REQUEST -> 0;
+            case ServerContextKeys.RESPONSE -> 1;
+            case ServerContextKeys.SOURCE -> 2;
+            case ServerContextKeys.RESPONSE_CODE -> 3;
+            case ServerContextKeys.ERROR_MESSAGE -> 4;
+            case ServerContextKeys.APPROVAL_CODE -> 5;
+            case ServerContextKeys.DISPATCH_TICKET -> 6;
+            case ServerContextKeys.DEADLINE -> 7;
+            case ServerContextKeys.MAC_KEY -> 8;
+            case ServerContextKeys.PARTICIPANT_CHAIN -> 9;
+            default -> -1;
+        };
+    }
+
+    static Slot<?> at(int index) {
+        return ALL[index];
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.server.deadline;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Time budget of one transaction, measured from the moment the request was received.
+ * <p>
+ * Exactly one party answers the terminal: the transaction, once it {@link #claim() claims} the
+ * response, or the {@link DeadlineWatchdog} when the budget runs out first. Participants check
+ * {@link #isExpired()} before expensive steps and use {@link #queryTimeoutSeconds()} for JDBC.
+ */
+public final class Deadline {
+    private static final int PENDING = 0;
+    private static final int RESPONDING = 1;
+    private static final int DECLINED = 2;
+
+    private final long expiresNanos;
+    private final String declineCode;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    private volatile Future<?> expiry;
+
+    public Deadline(long expiresNanos, String declineCode) {
+        this.expiresNanos = expiresNanos;
+        this.declineCode = declineCode;
+    }
+
+    public long remainingNanos() {
+        return expiresNanos - System.nanoTime();
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0L;
+    }
+
+    /**
+     * JDBC query timeout covering the remaining budget, rounded up to whole seconds and at least
+     * one second since {@code 0} disables the timeout.
+     */
+    public int queryTimeoutSeconds() {
+        long remaining = Math.max(0L, remainingNanos());
+        return (int) Math.max(1L, (remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Response code the terminal receives when the budget is exhausted.
+     */
+    public String declineCode() {
+        return declineCode;
+    }
+
+    /**
+     * Claims the response for the transaction, cancelling the pending timely decline.
+     *
+     * @return {@code true} when the transaction owns the response, {@code false} when the terminal
+     * has already been declined
+     */
+    public boolean claim() {
+        if (state.compareAndSet(PENDING, RESPONDING)) {
+            Future<?> pending = expiry;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            return true;
+        }
+        return state.get() == RESPONDING;
+    }
+
+    /**
+     * Whether the terminal has already received the timely decline.
+     */
+    public boolean isDeclined() {
+        return state.get() == DECLINED;
+    }
+
+    boolean expire() {
+        return state.compareAndSet(PENDING, DECLINED);
+    }
+
+    void expireWith(Future<?> expiry) {
+        this.expiry = expiry;
+        if (state.get() != PENDING) {
+            expiry.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.example.server.deadline;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.mac.MacService;
+import org.example.server.metrics.MetricsRegistry;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOSource;
+import org.jpos.util.NameRegistrar;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the timely decline for transactions whose {@link Deadline} expires before they claimed
+ * their response. One daemon thread serves all deadlines; cancelled timers are removed from the
+ * queue immediately, so completed transactions cost nothing once they claim. Exported over JMX as
+ * {@code Deadlines}.
+ * <p>
+ * The {@code StartDeadline} participant that owns a watchdog registers it in the
+ * {@link NameRegistrar}, so ingress listeners can {@link #admit} requests the moment they arrive
+ * and the decline goes out on time even while the request is still queued for the transaction
+ * manager. It {@link #close closes} the watchdog when the transaction manager is undeployed.
+ */
+public final class DeadlineWatchdog implements DeadlineWatchdogMXBean, AutoCloseable {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(DeadlineWatchdog.class);
+
+    private final long budgetNanos;
+    private final String declineCode;
+    private final ScheduledThreadPoolExecutor timer;
+    private final ObjectName metricName = MetricsRegistry.name("Deadlines");
+    private final AtomicLong timelyDeclines = new AtomicLong();
+    private final AtomicLong expiredOnArrival = new AtomicLong();
+
+    public DeadlineWatchdog(long budget, TimeUnit unit, String declineCode) {
+        this.budgetNanos = unit.toNanos(budget);
+        this.declineCode = declineCode;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "deadline-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        MetricsRegistry.register(metricName, this);
+    }
+
+    /**
+     * Stops the timer thread, dropping the declines still armed, and unregisters the MBean.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        MetricsRegistry.unregister(metricName, this);
+    }
+
+    /**
+     * Creates the deadline of a request received at {@code receivedNanos}.
+     */
+    public Deadline start(long receivedNanos) {
+        return new Deadline(receivedNanos + budgetNanos, declineCode);
+    }
+
+    /**
+     * Name under which a watchdog is registered in the {@link NameRegistrar}.
+     */
+    public static String registrationName(String name) {
+        return "deadline-watchdog." + name;
+    }
+
+    /**
+     * Used by ingress listeners: {@link #admit admits} {@code request} with the watchdog registered
+     * as {@code name}. Returns {@code null} when {@code name} is {@code null}, when no such watchdog
+     * is registered yet (the transaction manager has not started, and {@code StartDeadline} will arm
+     * the deadline later) or when the decline cannot be built.
+     */
+    public static Deadline armOnReceipt(String name, long receivedNanos, ISOSource source, ISOMsg request) {
+        if (name == null) {
+            return null;
+        }
+        DeadlineWatchdog watchdog = NameRegistrar.getIfExists(registrationName(name));
+        if (watchdog == null) {
+            return null;
+        }
+        try {
+            return watchdog.admit(receivedNanos, source, request);
+        } catch (ISOException e) {
+            LOGGER.debug("Unable to arm deadline on receipt: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Starts the deadline of {@code request}, received at {@code receivedNanos} on {@code source},
+     * and arms its timely decline.
+     */
+    public Deadline admit(long receivedNanos, ISOSource source, ISOMsg request) throws ISOException {
+        Deadline deadline = start(receivedNanos);
+        arm(deadline, source, decline(request));
+        return deadline;
+    }
+
+    /**
+     * The decline sent for {@code request} when its deadline expires: a copy of the request with
+     * the response MTI, the decline code and no MAC.
+     */
+    public ISOMsg decline(ISOMsg request) throws ISOException {
+        ISOMsg decline = (ISOMsg) request.clone();
+        decline.setResponseMTI();
+        decline.set(39, declineCode);
+        MacService.removeMac(decline);
+        return decline;
+    }
+
+    /**
+     * Arms the timely decline: unless the transaction claims its response first, {@code decline} is
+     * sent on {@code source} when the deadline expires. {@code decline} must be built up front
+     * because the request is still being worked on by the transaction's thread at that point.
+     */
+    public void arm(Deadline deadline, ISOSource source, ISOMsg decline) {
+        deadline.expireWith(timer.schedule(() -> fire(deadline, source, decline),
+                Math.max(0L, deadline.remainingNanos()), TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Counts a request whose budget was already spent when its transaction started.
+     */
+    public void expiredOnArrival() {
+        expiredOnArrival.incrementAndGet();
+    }
+
+    @Override
+    public long getBudgetMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(budgetNanos);
+    }
+
+    @Override
+    public int getPending() {
+        return timer.getQueue().size();
+    }
+
+    @Override
+    public long getTimelyDeclines() {
+        return timelyDeclines.get();
+    }
+
+    @Override
+    public long getExpiredOnArrival() {
+        return expiredOnArrival.get();
+    }
+
+    @Override
+    public long getLateCommits() {
+        return LateCommitJournal.shared().count();
+    }
+
+    private void fire(Deadline deadline, ISOSource source, ISOMsg decline) {
+        if (!deadline.expire()) {
+            return;
+        }
+        timelyDeclines.incrementAndGet();
+        if (!source.isConnected()) {
+            return;
+        }
+        try {
+            source.send(decline);
+            LOGGER.debug("Declined STAN {} from terminal {} after its deadline expired", decline.getString(11),
+                    decline.getString(41));
+        } catch (ISOException | IOException e) {
+            LOGGER.warn("Unable to send timely decline", e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.server.deadline;
+
+/**
+ * JMX view of a {@link DeadlineWatchdog}.
+ */
+public interface DeadlineWatchdogMXBean {
+    long getBudgetMillis();
+
+    int getPending();
+
+    long getTimelyDeclines();
+
+    long getExpiredOnArrival();
+
+    long getLateCommits();
+}
@@ -0,0 +1,100 @@
+package org.example.server.deadline;
+
+import org.example.server.config.EnvironmentLoader;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only record of transactions that were persisted after the terminal had already received
+ * the timely decline, for reconciliation against the database. One pipe-separated line per entry:
+ * {@code timestamp|MTI|STAN|terminal id|transmission datetime|amount|overrun ms}. The card number
+ * is not written.
+ * <p>
+ * The file is {@code LATE_COMMIT_JOURNAL}, by default {@code late-commits.log} in the jPOS home
+ * directory.
+ */
+public final class LateCommitJournal {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(LateCommitJournal.class);
+    private static volatile LateCommitJournal shared;
+
+    private final Path file;
+    private final AtomicLong count = new AtomicLong();
+    private BufferedWriter writer;
+
+    LateCommitJournal(Path file) {
+        this.file = file;
+    }
+
+    public static LateCommitJournal shared() {
+        LateCommitJournal journal = shared;
+        if (journal == null) {
+            synchronized (LateCommitJournal.class) {
+                journal = shared;
+                if (journal == null) {
+                    Path defaultFile = Path.of(System.getProperty("jpos.home", "."), "late-commits.log");
+                    journal = new LateCommitJournal(EnvironmentLoader.get("LATE_COMMIT_JOURNAL")
+                            .map(Path::of)
+                            .orElse(defaultFile)
+                            .toAbsolutePath());
+                    shared = journal;
+                }
+            }
+        }
+        return journal;
+    }
+
+    /**
+     * Records that {@code request} was persisted after {@code deadline} had expired.
+     */
+    public void record(ISOMsg request, Deadline deadline) {
+        count.incrementAndGet();
+        long overrunMillis = TimeUnit.NANOSECONDS.toMillis(Math.max(0L, -deadline.remainingNanos()));
+        String line = String.join("|", Instant.now().toString(), mtiOf(request), value(request, 11),
+                value(request, 41), value(request, 7), value(request, 4), Long.toString(overrunMillis));
+        LOGGER.warn("Late commit of STAN {} from terminal {}, {} ms past its deadline, flagged for reconciliation",
+                value(request, 11), value(request, 41), overrunMillis);
+        synchronized (this) {
+            try {
+                if (writer == null) {
+                    Files.createDirectories(file.getParent());
+                    writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND);
+                }
+                writer.write(line);
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                LOGGER.error("Unable to write late commit journal " + file + ": " + line, e);
+            }
+        }
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    private static String mtiOf(ISOMsg request) {
+        try {
+            return request.getMTI();
+        } catch (ISOException e) {
+            return "";
+        }
+    }
+
+    private static String value(ISOMsg request, int field) {
+        String value = request.getString(field);
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.server.dispatch;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-flight slot handed out by the {@link PriorityDispatcher} and stored in the transaction
+ * context. {@link ReleaseDispatchSlot} returns it once the transaction manager is done.
+ */
+public final class DispatchTicket {
+    private final PriorityDispatcher dispatcher;
+    private final MtiLane lane;
+    private final long dispatchedNanos;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    DispatchTicket(PriorityDispatcher dispatcher, MtiLane lane) {
+        this.dispatcher = dispatcher;
+        this.lane = lane;
+        this.dispatchedNanos = System.nanoTime();
+    }
+
+    public MtiLane lane() {
+        return lane;
+    }
+
+    /**
+     * Releases the slot. Only the first call has an effect.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            dispatcher.release(System.nanoTime() - dispatchedNanos);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.server.dispatch;
+
+/**
+ * Dispatch lanes of the {@link PriorityDispatcher}, derived from the message class and function
+ * digits of the MTI.
+ */
+public enum MtiLane {
+    /**
+     * {@code 08xx} network management messages such as echo tests and key exchanges.
+     */
+    NETWORK_MANAGEMENT("network-weight", 8),
+    /**
+     * {@code 04xx} reversals and {@code xx2x}/{@code xx3x} advices, which must complete to keep
+     * balances correct.
+     */
+    REVERSAL_ADVICE("reversal-weight", 4),
+    /**
+     * Everything else, typically fresh {@code 0100}/{@code 0200} authorizations.
+     */
+    AUTHORIZATION("authorization-weight", 1);
+
+    private final String weightProperty;
+    private final int defaultWeight;
+
+    MtiLane(String weightProperty, int defaultWeight) {
+        this.weightProperty = weightProperty;
+        this.defaultWeight = defaultWeight;
+    }
+
+    String weightProperty() {
+        return weightProperty;
+    }
+
+    int defaultWeight() {
+        return defaultWeight;
+    }
+
+    public static MtiLane classify(String mti) {
+        if (mti == null || mti.length() != 4) {
+            return AUTHORIZATION;
+        }
+        char messageClass = mti.charAt(1);
+        char function = mti.charAt(2);
+        if (messageClass == '8') {
+            return NETWORK_MANAGEMENT;
+        }
+        if (messageClass == '4' || function == '2' || function == '3') {
+            return REVERSAL_ADVICE;
+        }
+        return AUTHORIZATION;
+    }
+}
@@ -0,0 +1,375 @@
+package org.example.server.dispatch;
+
+import org.example.server.context.Slots;
+import org.example.server.deadline.Deadline;
+import org.example.server.jfr.QueueWaitEvent;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.metrics.LatencyRecorder;
+import org.example.server.metrics.MetricsRegistry;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.q2.QBeanSupport;
+import org.jpos.space.Space;
+import org.jpos.space.SpaceFactory;
+import org.jpos.transaction.Context;
+import org.jpos.util.NameRegistrar;
+
+import javax.management.ObjectName;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Priority-aware layer between the channel's ingress queue and the transaction manager.
+ * <p>
+ * Requests taken from {@code queue} are sorted into per-MTI-class {@link MtiLane lanes} and fed to
+ * {@code output-queue} (the queue the transaction manager reads) using smooth weighted round-robin.
+ * At most {@code max-in-flight} transactions are handed to the transaction manager at once, so the
+ * backlog waits in the lanes where it can still be reordered instead of in the FIFO space queue.
+ * A lane whose oldest request has waited longer than {@code max-wait} milliseconds is served next
+ * regardless of weight, so authorizations are never starved by a flood of advices. Such promotions
+ * are limited to one per weighted round (as many dispatches as the weights of the busy lanes add
+ * up to): under a sustained backlog every head is past {@code max-wait}, and promoting each time
+ * would serve the lanes oldest first and lose the weighting.
+ * <p>
+ * Requests whose {@link Deadline} was armed on receipt and has already sent its timely decline are
+ * shed when they reach the head of their lane instead of being handed to the transaction manager:
+ * the terminal has its answer and nothing would be done with the result.
+ * <p>
+ * Per-lane queue wait time is exported over JMX and recorded as {@link QueueWaitEvent}s.
+ */
+public class PriorityDispatcher extends QBeanSupport implements PriorityDispatcherMXBean {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(PriorityDispatcher.class);
+    private static final MtiLane[] LANES = MtiLane.values();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dispatchable = lock.newCondition();
+    private final Map<MtiLane, ArrayDeque<Pending>> lanes = new EnumMap<>(MtiLane.class);
+    private final Map<MtiLane, LatencyRecorder> waitTimes = new EnumMap<>(MtiLane.class);
+    private final LatencyRecorder serviceTime = new LatencyRecorder();
+    private final int[] weights = new int[LANES.length];
+    private final int[] currentWeights = new int[LANES.length];
+    private final AtomicLong starvationPromotions = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+
+    private Space<String, Object> space;
+    private String inputQueue;
+    private String outputQueue;
+    private long maxWaitNanos;
+    private int maxInFlight;
+    private int inFlight;
+    private int dispatchesSincePromotion = Integer.MAX_VALUE;
+    private volatile boolean active;
+    private Thread ingressThread;
+    private Thread schedulerThread;
+    private ObjectName objectName;
+
+    @Override
+    protected void initService() {
+        space = SpaceFactory.getSpace(cfg.get("space", "txnmgr"));
+        inputQueue = cfg.get("queue", "server");
+        outputQueue = cfg.get("output-queue", inputQueue + ".tm");
+        maxInFlight = Math.max(1, cfg.getInt("max-in-flight", 64));
+        maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, cfg.getLong("max-wait", 1000L)));
+        for (MtiLane lane : LANES) {
+            weights[lane.ordinal()] = Math.max(1, cfg.getInt(lane.weightProperty(), lane.defaultWeight()));
+            lanes.put(lane, new ArrayDeque<>());
+            waitTimes.put(lane, new LatencyRecorder());
+        }
+    }
+
+    @Override
+    protected void startService() {
+        objectName = MetricsRegistry.name("Dispatcher", "name", getName());
+        MetricsRegistry.register(objectName, this);
+        MetricsRegistry.register(serviceTimeMetricName(), serviceTime);
+        for (MtiLane lane : LANES) {
+            MetricsRegistry.register(laneMetricName(lane), waitTimes.get(lane));
+        }
+        NameRegistrar.register(registrationName(getName()), this);
+        active = true;
+        ingressThread = new Thread(this::ingressLoop, getName() + "-ingress");
+        schedulerThread = new Thread(this::schedulerLoop, getName() + "-scheduler");
+        ingressThread.start();
+        schedulerThread.start();
+        LOGGER.info("Priority dispatcher {} feeding {} from {} with max {} in flight", getName(), outputQueue,
+                inputQueue, maxInFlight);
+    }
+
+    @Override
+    protected void stopService() throws InterruptedException {
+        active = false;
+        if (ingressThread != null) {
+            ingressThread.interrupt();
+            ingressThread.join(5000L);
+        }
+        if (schedulerThread != null) {
+            schedulerThread.interrupt();
+            schedulerThread.join(5000L);
+        }
+        requeueBacklog();
+        NameRegistrar.unregister(registrationName(getName()));
+        MetricsRegistry.unregister(objectName);
+        MetricsRegistry.unregister(serviceTimeMetricName());
+        for (MtiLane lane : LANES) {
+            MetricsRegistry.unregister(laneMetricName(lane));
+        }
+    }
+
+    @Override
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getMaxInFlight() {
+        lock.lock();
+        try {
+            return maxInFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Changes the number of transactions that may be outstanding in the transaction manager.
+     * Lowering the limit never interrupts work already dispatched.
+     */
+    @Override
+    public void setMaxInFlight(int maxInFlight) {
+        lock.lock();
+        try {
+            this.maxInFlight = Math.max(1, maxInFlight);
+            dispatchable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Integer> getLaneDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            for (MtiLane lane : LANES) {
+                depths.put(lane.name(), lanes.get(lane).size());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return depths;
+    }
+
+    /**
+     * Total number of requests waiting in the lanes.
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            int queued = 0;
+            for (ArrayDeque<Pending> lane : lanes.values()) {
+                queued += lane.size();
+            }
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getStarvationPromotions() {
+        return starvationPromotions.get();
+    }
+
+    @Override
+    public long getShedExpired() {
+        return shed.get();
+    }
+
+    public LatencyRecorder getWaitTime(MtiLane lane) {
+        return waitTimes.get(lane);
+    }
+
+    /**
+     * Time from dispatch to slot release, i.e. how long the transaction manager held each request.
+     */
+    public LatencyRecorder getServiceTime() {
+        return serviceTime;
+    }
+
+    /**
+     * Name under which a running dispatcher is registered in the {@link NameRegistrar}.
+     */
+    public static String registrationName(String name) {
+        return "dispatcher." + name;
+    }
+
+    void release(long serviceNanos) {
+        serviceTime.recordNanos(serviceNanos);
+        lock.lock();
+        try {
+            inFlight--;
+            dispatchable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ingressLoop() {
+        while (active) {
+            Object item = space.in(inputQueue, 1000L);
+            if (item == null) {
+                continue;
+            }
+            Context ctx = asContext(item);
+            if (ctx == null) {
+                LOGGER.warn("Discarding unsupported item {} from queue {}", item.getClass().getName(), inputQueue);
+                continue;
+            }
+            MtiLane lane = MtiLane.classify(mtiOf(ctx));
+            lock.lock();
+            try {
+                lanes.get(lane).addLast(new Pending(ctx, System.nanoTime(), QueueWaitEvent.start(lane.name())));
+                dispatchable.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void schedulerLoop() {
+        while (active) {
+            Pending next;
+            MtiLane lane;
+            boolean expired;
+            lock.lock();
+            try {
+                while ((lane = selectLane(System.nanoTime())) == null) {
+                    dispatchable.await();
+                }
+                next = lanes.get(lane).pollFirst();
+                Deadline deadline = Slots.DEADLINE.get(next.context());
+                expired = deadline != null && deadline.isDeclined();
+                if (!expired) {
+                    inFlight++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            waitTimes.get(lane).recordNanos(System.nanoTime() - next.enqueuedNanos());
+            next.waitEvent().complete(Slots.REQUEST.get(next.context()));
+            if (expired) {
+                shed.incrementAndGet();
+                continue;
+            }
+            Slots.DISPATCH_TICKET.put(next.context(), new DispatchTicket(this, lane));
+            space.out(outputQueue, next.context());
+        }
+    }
+
+    /**
+     * Picks the lane to serve next, or {@code null} when nothing is dispatchable. Must be called
+     * with {@link #lock} held.
+     */
+    private MtiLane selectLane(long now) {
+        if (inFlight >= maxInFlight) {
+            return null;
+        }
+        MtiLane starved = null;
+        long oldest = Long.MAX_VALUE;
+        int totalWeight = 0;
+        MtiLane best = null;
+        for (MtiLane lane : LANES) {
+            Pending head = lanes.get(lane).peekFirst();
+            if (head == null) {
+                continue;
+            }
+            if (now - head.enqueuedNanos() >= maxWaitNanos && head.enqueuedNanos() < oldest) {
+                oldest = head.enqueuedNanos();
+                starved = lane;
+            }
+            int index = lane.ordinal();
+            currentWeights[index] += weights[index];
+            totalWeight += weights[index];
+            if (best == null || currentWeights[index] > currentWeights[best.ordinal()]) {
+                best = lane;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        MtiLane selected = best;
+        if (starved != null && starved != best && dispatchesSincePromotion >= totalWeight) {
+            starvationPromotions.incrementAndGet();
+            selected = starved;
+            dispatchesSincePromotion = 0;
+        } else if (dispatchesSincePromotion < Integer.MAX_VALUE) {
+            dispatchesSincePromotion++;
+        }
+        currentWeights[selected.ordinal()] -= totalWeight;
+        return selected;
+    }
+
+    private void requeueBacklog() {
+        lock.lock();
+        try {
+            for (MtiLane lane : LANES) {
+                Pending pending;
+                while ((pending = lanes.get(lane).pollFirst()) != null) {
+                    space.out(inputQueue, pending.context());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Context asContext(Object item) {
+        if (item instanceof Context ctx) {
+            return ctx;
+        }
+        if (item instanceof ISOMsg request) {
+            Context ctx = new Context();
+            Slots.REQUEST.put(ctx, request);
+            return ctx;
+        }
+        return null;
+    }
+
+    private static String mtiOf(Context ctx) {
+        ISOMsg request = Slots.REQUEST.get(ctx);
+        if (request != null) {
+            try {
+                return request.getMTI();
+            } catch (ISOException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private ObjectName laneMetricName(MtiLane lane) {
+        return MetricsRegistry.name("DispatcherQueueWait", "name", getName(), "lane", lane.name());
+    }
+
+    private ObjectName serviceTimeMetricName() {
+        return MetricsRegistry.name("DispatcherServiceTime", "name", getName());
+    }
+
+    private record Pending(Context context, long enqueuedNanos, QueueWaitEvent waitEvent) {
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.server.dispatch;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link PriorityDispatcher}.
+ */
+public interface PriorityDispatcherMXBean {
+    int getInFlight();
+
+    int getMaxInFlight();
+
+    void setMaxInFlight(int maxInFlight);
+
+    Map<String, Integer> getLaneDepths();
+
+    long getStarvationPromotions();
+
+    /**
+     * Requests dropped before reaching the transaction manager because their timely decline had
+     * already been sent.
+     */
+    long getShedExpired();
+}
@@ -0,0 +1,144 @@
+package org.example.server.feed;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Layout of the change feed files written by {@link ChangeFeedWriter}.
+ * <pre>
+ * file    := header record* [end] zero-padding
+ * header  := int magic "RJCF", int version, long created (epoch micros)
+ * record  := int length, long sequence, long committed (epoch micros), int latency (micros),
+ *            long amount (minor units, -1 when absent), string mti, string stan, string terminal,
+ *            string acquirer, string processing code, string masked pan, string response code,
+ *            string approval code, zero-padding to a multiple of 8 bytes
+ * string  := short length (-1 for null), byte[length] US-ASCII
+ * end     := int -1
+ * </pre>
+ * All integers are big-endian. Files are preallocated, so a length of zero means the writer has not
+ * got that far yet, and {@code end} means it has moved on to the next file. The length is written
+ * last, with release semantics, so a reader that sees it also sees the whole record.
+ * <p>
+ * A position in the feed is the file sequence in the high 32 bits and the byte offset within the
+ * file in the low 32 bits.
+ */
+public final class ChangeFeedFormat {
+    public static final int MAGIC = 0x524A4346;
+    public static final int VERSION = 1;
+    public static final int FILE_HEADER_LENGTH = 16;
+    public static final int RECORD_HEADER_LENGTH = 32;
+    public static final int END_OF_FILE = -1;
+    public static final String FILE_PREFIX = "feed-";
+    public static final String FILE_SUFFIX = ".bin";
+    public static final String READERS_DIRECTORY = "readers";
+
+    /** Length words are accessed through this handle for acquire/release ordering across processes. */
+    static final VarHandle LENGTH = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private ChangeFeedFormat() {
+    }
+
+    static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000L;
+    }
+
+    static String fileName(long sequence) {
+        return String.format("%s%010d%s", FILE_PREFIX, sequence, FILE_SUFFIX);
+    }
+
+    static long sequenceOf(String fileName) {
+        if (!fileName.startsWith(FILE_PREFIX) || !fileName.endsWith(FILE_SUFFIX)) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(fileName.substring(FILE_PREFIX.length(), fileName.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    static long position(long file, int offset) {
+        return file << 32 | (offset & 0xFFFFFFFFL);
+    }
+
+    static long fileOf(long position) {
+        return position >>> 32;
+    }
+
+    static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    static int align(int length) {
+        return (length + 7) & ~7;
+    }
+
+    /**
+     * Bytes {@code record} takes in a file, before padding.
+     */
+    static int encodedLength(ChangeRecord record) {
+        return RECORD_HEADER_LENGTH + encodedLength(record.mti()) + encodedLength(record.stan())
+                + encodedLength(record.terminalId()) + encodedLength(record.acquirerId())
+                + encodedLength(record.processingCode()) + encodedLength(record.maskedPan())
+                + encodedLength(record.responseCode()) + encodedLength(record.approvalCode());
+    }
+
+    private static int encodedLength(String value) {
+        return Short.BYTES + (value == null ? 0 : value.length());
+    }
+
+    /**
+     * Writes {@code record} at {@code start} except for its length word, which the caller publishes.
+     */
+    static void encode(ByteBuffer buffer, int start, ChangeRecord record) {
+        buffer.putLong(start + 4, record.sequence());
+        buffer.putLong(start + 12, record.committedMicros());
+        buffer.putInt(start + 20, record.latencyMicros());
+        buffer.putLong(start + 24, record.amount());
+        int position = start + RECORD_HEADER_LENGTH;
+        position = putString(buffer, position, record.mti());
+        position = putString(buffer, position, record.stan());
+        position = putString(buffer, position, record.terminalId());
+        position = putString(buffer, position, record.acquirerId());
+        position = putString(buffer, position, record.processingCode());
+        position = putString(buffer, position, record.maskedPan());
+        position = putString(buffer, position, record.responseCode());
+        putString(buffer, position, record.approvalCode());
+    }
+
+    static ChangeRecord decode(ByteBuffer buffer, int start) {
+        int[] position = {start + RECORD_HEADER_LENGTH};
+        return new ChangeRecord(buffer.getLong(start + 4), buffer.getLong(start + 12), buffer.getInt(start + 20),
+                buffer.getLong(start + 24), getString(buffer, position), getString(buffer, position),
+                getString(buffer, position), getString(buffer, position), getString(buffer, position),
+                getString(buffer, position), getString(buffer, position), getString(buffer, position));
+    }
+
+    private static int putString(ByteBuffer buffer, int position, String value) {
+        if (value == null) {
+            buffer.putShort(position, (short) -1);
+            return position + Short.BYTES;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        buffer.putShort(position, (short) bytes.length);
+        buffer.put(position + Short.BYTES, bytes);
+        return position + Short.BYTES + bytes.length;
+    }
+
+    private static String getString(ByteBuffer buffer, int[] position) {
+        short length = buffer.getShort(position[0]);
+        position[0] += Short.BYTES;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position[0], bytes);
+        position[0] += length;
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
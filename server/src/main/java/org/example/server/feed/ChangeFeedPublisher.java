@@ -0,0 +1,219 @@
+package org.example.server.feed;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.metrics.LatencyRecorder;
+import org.example.server.metrics.MetricsRegistry;
+import org.jpos.core.ConfigurationException;
+import org.jpos.q2.QBeanSupport;
+import org.jpos.util.NameRegistrar;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes every committed transaction to a local, append-only change feed that fraud and
+ * analytics consumers read with {@link ChangeFeedReader} or {@link ChangeFeedTail} instead of
+ * polling {@code ISO_MESSAGES}.
+ * <p>
+ * The {@code PublishChange} participant hands records to {@link #submit}, which only appends them
+ * to a bounded queue of {@code queue-capacity} entries; when the queue is full the record is
+ * dropped and counted rather than slowing down the transaction manager. A single writer thread
+ * appends queued records to the memory-mapped files of {@code directory} (relative to
+ * {@code jpos.home}, {@code feed} by default): {@code file-count} files of {@code file-size}
+ * megabytes each. Readers see a record as soon as it is appended; the mapping is also flushed to
+ * disk every {@code force-interval} milliseconds and on rotation, so a crash of the host loses at
+ * most that much of the feed.
+ * <p>
+ * Queue, publish counts, how far each named reader is behind, and the time from submit to the
+ * record being readable ({@code ChangeFeedLatency}) are exported over JMX as {@code ChangeFeed}.
+ */
+public class ChangeFeedPublisher extends QBeanSupport implements ChangeFeedPublisherMXBean {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(ChangeFeedPublisher.class);
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LatencyRecorder publishLatency = new LatencyRecorder();
+
+    private BlockingQueue<Pending> queue;
+    private ChangeFeedWriter feed;
+    private Path directory;
+    private long forceIntervalNanos;
+    private boolean enabled;
+    private volatile boolean running;
+    private Thread writer;
+    private ObjectName objectName;
+
+    @Override
+    protected void initService() throws ConfigurationException {
+        enabled = cfg.getBoolean("enabled", true);
+        queue = new ArrayBlockingQueue<>(Math.max(1024, cfg.getInt("queue-capacity", 65_536)));
+        forceIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, cfg.getLong("force-interval", 1000L)));
+        directory = Path.of(System.getProperty("jpos.home", ".")).resolve(cfg.get("directory", "feed"));
+        if (!enabled) {
+            return;
+        }
+        int fileSize = (int) Math.min(Integer.MAX_VALUE, cfg.getLong("file-size", 64L) * 1024L * 1024L);
+        try {
+            feed = new ChangeFeedWriter(directory, fileSize, cfg.getInt("file-count", 8));
+        } catch (IOException e) {
+            throw new ConfigurationException("Unable to open change feed directory " + directory, e);
+        }
+    }
+
+    @Override
+    protected void startService() {
+        if (!enabled) {
+            LOGGER.info("Change feed {} is disabled", getName());
+            return;
+        }
+        LOGGER.info("Publishing committed transactions to {} from sequence {}", directory, feed.sequence() + 1);
+        running = true;
+        writer = new Thread(this::writeLoop, getName() + "-writer");
+        writer.start();
+        objectName = MetricsRegistry.name("ChangeFeed", "name", getName());
+        MetricsRegistry.register(objectName, this);
+        MetricsRegistry.register(latencyMetricName(), publishLatency);
+        NameRegistrar.register(registrationName(getName()), this);
+    }
+
+    @Override
+    protected void stopService() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        NameRegistrar.unregister(registrationName(getName()));
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            LOGGER.warn("Change feed stopped with {} records unpublished", queue.size());
+        }
+        MetricsRegistry.unregister(objectName);
+        MetricsRegistry.unregister(latencyMetricName());
+        feed.close();
+    }
+
+    /**
+     * Name under which a running publisher is registered in the {@link NameRegistrar}.
+     */
+    public static String registrationName(String name) {
+        return "change-feed." + name;
+    }
+
+    /**
+     * Queues {@code record}; its sequence number is assigned when it is written. Never blocks;
+     * returns {@code false} when the queue is full and the record was dropped.
+     */
+    public boolean submit(ChangeRecord record) {
+        if (queue.offer(new Pending(record, System.nanoTime()))) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        long lastForce = System.nanoTime();
+        while (running || !queue.isEmpty()) {
+            Pending first;
+            try {
+                first = queue.poll(100L, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first != null) {
+                batch.add(first);
+                queue.drainTo(batch);
+                append(batch);
+                batch.clear();
+            }
+            if (forceIntervalNanos > 0L && System.nanoTime() - lastForce >= forceIntervalNanos) {
+                feed.force();
+                lastForce = System.nanoTime();
+            }
+        }
+    }
+
+    private void append(List<Pending> batch) {
+        for (Pending pending : batch) {
+            try {
+                feed.append(pending.record());
+                published.increment();
+                publishLatency.recordNanos(System.nanoTime() - pending.submittedNanos());
+            } catch (IOException | RuntimeException e) {
+                failed.increment();
+                LOGGER.error("Unable to append STAN {} to the change feed: {}", pending.record().stan(), e.getMessage());
+            }
+        }
+    }
+
+    private ObjectName latencyMetricName() {
+        return MetricsRegistry.name("ChangeFeedLatency", "name", getName());
+    }
+
+    @Override
+    public int getQueued() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    @Override
+    public long getPublished() {
+        return published.sum();
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getSequence() {
+        return feed == null ? 0L : feed.sequence();
+    }
+
+    @Override
+    public String getDirectory() {
+        return String.valueOf(directory);
+    }
+
+    @Override
+    public Map<String, Long> getReaderLag() {
+        Map<String, Long> lag = new TreeMap<>();
+        long sequence = getSequence();
+        try (DirectoryStream<Path> readers = Files.newDirectoryStream(
+                directory.resolve(ChangeFeedFormat.READERS_DIRECTORY), "*.offset")) {
+            for (Path reader : readers) {
+                String[] parts = Files.readString(reader, StandardCharsets.US_ASCII).trim().split("\\s+");
+                String name = reader.getFileName().toString();
+                lag.put(name.substring(0, name.length() - ".offset".length()),
+                        parts.length > 1 ? Math.max(0L, sequence - Long.parseLong(parts[1])) : -1L);
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.debug("Unable to read change feed reader positions: {}", e.getMessage());
+        }
+        return lag;
+    }
+
+    private record Pending(ChangeRecord record, long submittedNanos) {
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.server.feed;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link ChangeFeedPublisher}.
+ */
+public interface ChangeFeedPublisherMXBean {
+    int getQueued();
+
+    long getPublished();
+
+    long getDropped();
+
+    long getFailed();
+
+    long getSequence();
+
+    String getDirectory();
+
+    /**
+     * Records each named reader has yet to consume, as of its last commit.
+     */
+    Map<String, Long> getReaderLag();
+}
@@ -0,0 +1,231 @@
+package org.example.server.feed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * Consumer API of the change feed: reads the files of a {@link ChangeFeedWriter} directory in
+ * order, from the same or another process, while they are being written.
+ * <pre>
+ * try (ChangeFeedReader reader = ChangeFeedReader.open(Path.of("feed"), "fraud")) {
+ *     ChangeRecord record;
+ *     while ((record = reader.poll(1, TimeUnit.SECONDS)) != null) {
+ *         ...
+ *     }
+ *     reader.commit();
+ * }
+ * </pre>
+ * Each named reader has its own position, stored by {@link #commit()} under {@code readers/} in
+ * the feed directory, and resumes from it when opened again; readers never affect the writer or
+ * each other. A reader opened without a name starts at the oldest record and stores nothing.
+ * Records are read straight from the mapped files without locks or system calls. A reader that
+ * falls so far behind that its file has been deleted continues with the oldest remaining file; the
+ * gap shows in the record sequence numbers.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class ChangeFeedReader implements Closeable {
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+    private static final long IDLE_PARK_NANOS = 50_000L;
+
+    private final Path directory;
+    private final String name;
+    private long file;
+    private int offset;
+    private MappedByteBuffer buffer;
+    private long lastSequence;
+
+    private ChangeFeedReader(Path directory, String name) {
+        this.directory = directory;
+        this.name = name;
+    }
+
+    /**
+     * Opens the reader {@code name} at its committed position, or at the oldest record when it has
+     * none. With a {@code null} name the reader is anonymous.
+     */
+    public static ChangeFeedReader open(Path directory, String name) throws IOException {
+        if (name != null && !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid reader name '" + name + "'");
+        }
+        ChangeFeedReader reader = new ChangeFeedReader(directory, name);
+        Path offsetFile = reader.offsetFile();
+        if (offsetFile != null && Files.exists(offsetFile)) {
+            String[] parts = Files.readString(offsetFile, StandardCharsets.US_ASCII).trim().split("\\s+");
+            try {
+                long position = Long.parseLong(parts[0]);
+                reader.file = ChangeFeedFormat.fileOf(position);
+                reader.offset = ChangeFeedFormat.offsetOf(position);
+                reader.lastSequence = parts.length > 1 ? Long.parseLong(parts[1]) : 0L;
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt reader position in " + offsetFile, e);
+            }
+        } else {
+            reader.seekToStart();
+        }
+        return reader;
+    }
+
+    /**
+     * Moves to the oldest record still in the feed.
+     */
+    public void seekToStart() throws IOException {
+        unmap();
+        file = Math.max(1L, edgeFile(true));
+        offset = ChangeFeedFormat.FILE_HEADER_LENGTH;
+    }
+
+    /**
+     * Moves past the last record written so far, so only new records are read.
+     */
+    public void seekToEnd() throws IOException {
+        seekToStart();
+        file = Math.max(1L, edgeFile(false));
+        while (poll() != null) {
+            // skip
+        }
+    }
+
+    /**
+     * Returns the next record, or {@code null} when the reader has caught up with the writer.
+     */
+    public ChangeRecord poll() throws IOException {
+        while (true) {
+            if (buffer == null && !map()) {
+                long oldest = edgeFile(true);
+                if (oldest > file) {
+                    file = oldest;
+                    offset = ChangeFeedFormat.FILE_HEADER_LENGTH;
+                    continue;
+                }
+                return null;
+            }
+            int length = offset + Integer.BYTES <= buffer.capacity()
+                    ? (int) ChangeFeedFormat.LENGTH.getAcquire(buffer, offset) : ChangeFeedFormat.END_OF_FILE;
+            if (length == 0) {
+                return null;
+            }
+            if (length == ChangeFeedFormat.END_OF_FILE) {
+                unmap();
+                file++;
+                offset = ChangeFeedFormat.FILE_HEADER_LENGTH;
+                continue;
+            }
+            if (length < ChangeFeedFormat.RECORD_HEADER_LENGTH || offset + length > buffer.capacity()) {
+                throw new IOException("Corrupt change feed record at " + offset + " of "
+                        + directory.resolve(ChangeFeedFormat.fileName(file)));
+            }
+            ChangeRecord record = ChangeFeedFormat.decode(buffer, offset);
+            offset += ChangeFeedFormat.align(length);
+            lastSequence = record.sequence();
+            return record;
+        }
+    }
+
+    /**
+     * Returns the next record, waiting up to {@code timeout} for one to be written. Returns
+     * {@code null} on timeout or when the calling thread is interrupted.
+     */
+    public ChangeRecord poll(long timeout, TimeUnit unit) throws IOException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        ChangeRecord record;
+        while ((record = poll()) == null) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            LockSupport.parkNanos(Math.min(IDLE_PARK_NANOS, remaining));
+        }
+        return record;
+    }
+
+    /**
+     * Position after the last record read, as described in {@link ChangeFeedFormat}.
+     */
+    public long position() {
+        return ChangeFeedFormat.position(file, offset);
+    }
+
+    /**
+     * Sequence number of the last record read, or 0 before the first.
+     */
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Stores the current position so the reader resumes after the last record read when opened
+     * again. Does nothing for an anonymous reader.
+     */
+    public void commit() throws IOException {
+        Path offsetFile = offsetFile();
+        if (offsetFile == null) {
+            return;
+        }
+        Path temporary = Files.createTempFile(offsetFile.getParent(), name, ".tmp");
+        Files.writeString(temporary, position() + " " + lastSequence + "\n", StandardCharsets.US_ASCII);
+        Files.move(temporary, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() {
+        unmap();
+    }
+
+    private Path offsetFile() {
+        return name == null ? null : directory.resolve(ChangeFeedFormat.READERS_DIRECTORY).resolve(name + ".offset");
+    }
+
+    private boolean map() throws IOException {
+        Path path = directory.resolve(ChangeFeedFormat.fileName(file));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < ChangeFeedFormat.FILE_HEADER_LENGTH) {
+                return false;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt(0) != ChangeFeedFormat.MAGIC) {
+                throw new IOException("Not a change feed file: " + path);
+            }
+            if (mapped.getInt(4) != ChangeFeedFormat.VERSION) {
+                throw new IOException("Unsupported change feed version " + mapped.getInt(4) + " in " + path);
+            }
+            buffer = mapped;
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private void unmap() {
+        buffer = null;
+    }
+
+    /**
+     * Sequence of the oldest or newest file in the directory, or 0 when there is none.
+     */
+    private long edgeFile(boolean oldest) throws IOException {
+        long edge = 0L;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                ChangeFeedFormat.FILE_PREFIX + "*" + ChangeFeedFormat.FILE_SUFFIX)) {
+            for (Path path : files) {
+                long sequence = ChangeFeedFormat.sequenceOf(path.getFileName().toString());
+                if (sequence > 0 && (edge == 0L || (oldest ? sequence < edge : sequence > edge))) {
+                    edge = sequence;
+                }
+            }
+        }
+        return edge;
+    }
+}
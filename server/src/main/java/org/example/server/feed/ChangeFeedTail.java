@@ -0,0 +1,72 @@
+package org.example.server.feed;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints the change feed, one line per committed transaction, and keeps following it.
+ * <pre>
+ * java -cp app.jar org.example.server.feed.ChangeFeedTail [--reader name] [--from-start | --from-end] [--no-follow] feed-dir
+ * </pre>
+ * With {@code --reader} the position is committed after every batch of records, so the next run
+ * continues where this one stopped; without it the tail starts at the end of the feed, or at the
+ * oldest record with {@code --from-start}, and stores nothing.
+ */
+public final class ChangeFeedTail {
+    private ChangeFeedTail() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String reader = null;
+        Boolean fromStart = null;
+        boolean follow = true;
+        Path directory = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--reader" -> reader = i + 1 < args.length ? args[++i] : null;
+                case "--from-start" -> fromStart = Boolean.TRUE;
+                case "--from-end" -> fromStart = Boolean.FALSE;
+                case "--no-follow" -> follow = false;
+                default -> directory = Path.of(args[i]);
+            }
+        }
+        if (directory == null) {
+            System.err.println("Usage: ChangeFeedTail [--reader name] [--from-start | --from-end] [--no-follow] feed-dir");
+            System.exit(2);
+        }
+
+        PrintStream out = System.out;
+        try (ChangeFeedReader feed = ChangeFeedReader.open(directory, reader)) {
+            if (Boolean.TRUE.equals(fromStart)) {
+                feed.seekToStart();
+            } else if (Boolean.FALSE.equals(fromStart) || reader == null) {
+                feed.seekToEnd();
+            }
+            while (true) {
+                ChangeRecord record = feed.poll(1, TimeUnit.SECONDS);
+                if (record == null) {
+                    if (!follow) {
+                        break;
+                    }
+                    continue;
+                }
+                do {
+                    render(out, record);
+                } while ((record = feed.poll()) != null);
+                out.flush();
+                feed.commit();
+            }
+            feed.commit();
+        }
+        out.flush();
+    }
+
+    private static void render(PrintStream out, ChangeRecord record) {
+        out.printf("%d %s %s stan=%s term=%s acq=%s pc=%s pan=%s amount=%d rc=%s auth=%s latency=%dus%n",
+                record.sequence(), record.committedAt(), record.mti(), record.stan(), record.terminalId(),
+                record.acquirerId(), record.processingCode(), record.maskedPan(), record.amount(),
+                record.responseCode(), record.approvalCode(), record.latencyMicros());
+    }
+}
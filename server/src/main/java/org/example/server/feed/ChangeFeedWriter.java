@@ -0,0 +1,149 @@
+package org.example.server.feed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Appends {@link ChangeRecord}s to a rotation of preallocated, memory-mapped files. Not thread-safe:
+ * the {@link ChangeFeedPublisher} calls it from its single writer thread.
+ * <p>
+ * A record is copied into the mapping and made visible by storing its length word with release
+ * semantics, so readers in the same or another process never see half a record and never need a
+ * lock. When a file is full the next one is created before the old file is marked with
+ * {@link ChangeFeedFormat#END_OF_FILE}, and files beyond {@code fileCount} are deleted. Reopening
+ * a directory continues after the last complete record and its sequence number.
+ */
+final class ChangeFeedWriter implements Closeable {
+    private final Path directory;
+    private final int fileSize;
+    private final int fileCount;
+    private long file;
+    private MappedByteBuffer buffer;
+    private int position;
+    private volatile long sequence;
+
+    ChangeFeedWriter(Path directory, int fileSize, int fileCount) throws IOException {
+        this.directory = directory;
+        this.fileSize = Math.max(ChangeFeedFormat.FILE_HEADER_LENGTH + 64 * 1024, fileSize);
+        this.fileCount = Math.max(2, fileCount);
+        Files.createDirectories(directory.resolve(ChangeFeedFormat.READERS_DIRECTORY));
+        long last = lastFile(directory);
+        if (last <= 0 || !resume(last)) {
+            file = Math.max(0L, last);
+            openNext();
+        }
+    }
+
+    /**
+     * Appends {@code record} with the next sequence number and returns that number.
+     */
+    long append(ChangeRecord record) throws IOException {
+        int length = ChangeFeedFormat.encodedLength(record);
+        if (ChangeFeedFormat.align(length) + Integer.BYTES > fileSize - ChangeFeedFormat.FILE_HEADER_LENGTH) {
+            throw new IllegalArgumentException("Change record of " + length + " bytes does not fit in a feed file");
+        }
+        if (position + ChangeFeedFormat.align(length) + Integer.BYTES > fileSize) {
+            rotate();
+        }
+        long next = sequence + 1;
+        ChangeFeedFormat.encode(buffer, position, record.withSequence(next));
+        ChangeFeedFormat.LENGTH.setRelease(buffer, position, length);
+        position += ChangeFeedFormat.align(length);
+        sequence = next;
+        return next;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Position the next record will be written at, as described in {@link ChangeFeedFormat}.
+     */
+    long position() {
+        return ChangeFeedFormat.position(file, position);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() {
+        buffer.force();
+    }
+
+    private void rotate() throws IOException {
+        MappedByteBuffer full = buffer;
+        int end = position;
+        openNext();
+        ChangeFeedFormat.LENGTH.setRelease(full, end, ChangeFeedFormat.END_OF_FILE);
+        full.force();
+        Files.deleteIfExists(directory.resolve(ChangeFeedFormat.fileName(file - fileCount)));
+    }
+
+    private void openNext() throws IOException {
+        file++;
+        Path path = directory.resolve(ChangeFeedFormat.fileName(file));
+        Files.deleteIfExists(path);
+        try (RandomAccessFile raf = new RandomAccessFile(path.toFile(), "rw")) {
+            raf.setLength(fileSize);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        }
+        buffer.putInt(0, ChangeFeedFormat.MAGIC);
+        buffer.putInt(4, ChangeFeedFormat.VERSION);
+        buffer.putLong(8, ChangeFeedFormat.nowMicros());
+        position = ChangeFeedFormat.FILE_HEADER_LENGTH;
+    }
+
+    /**
+     * Maps the newest file and finds the end of its records. Returns {@code false} when the file
+     * cannot be continued: it is not a feed file, has a different size or was already closed.
+     */
+    private boolean resume(long last) throws IOException {
+        Path path = directory.resolve(ChangeFeedFormat.fileName(last));
+        MappedByteBuffer mapped;
+        try (RandomAccessFile raf = new RandomAccessFile(path.toFile(), "rw")) {
+            if (raf.length() != fileSize) {
+                return false;
+            }
+            mapped = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        }
+        if (mapped.getInt(0) != ChangeFeedFormat.MAGIC || mapped.getInt(4) != ChangeFeedFormat.VERSION) {
+            return false;
+        }
+        int offset = ChangeFeedFormat.FILE_HEADER_LENGTH;
+        while (offset + Integer.BYTES <= fileSize) {
+            int length = mapped.getInt(offset);
+            if (length == ChangeFeedFormat.END_OF_FILE) {
+                return false;
+            }
+            if (length < ChangeFeedFormat.RECORD_HEADER_LENGTH || offset + length > fileSize) {
+                break;
+            }
+            sequence = mapped.getLong(offset + 4);
+            offset += ChangeFeedFormat.align(length);
+        }
+        file = last;
+        buffer = mapped;
+        position = offset;
+        return true;
+    }
+
+    private static long lastFile(Path directory) throws IOException {
+        long last = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                ChangeFeedFormat.FILE_PREFIX + "*" + ChangeFeedFormat.FILE_SUFFIX)) {
+            for (Path path : files) {
+                last = Math.max(last, ChangeFeedFormat.sequenceOf(path.getFileName().toString()));
+            }
+        }
+        return last;
+    }
+}
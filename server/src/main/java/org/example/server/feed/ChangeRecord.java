@@ -0,0 +1,28 @@
+package org.example.server.feed;
+
+import java.time.Instant;
+
+/**
+ * One committed transaction in the change feed.
+ *
+ * @param sequence        position of the record in the feed, assigned by the writer and increasing
+ *                        by one per record
+ * @param committedMicros wall clock time of the commit in microseconds since the epoch
+ * @param latencyMicros   time from receiving the request to the commit, or -1 when unknown
+ * @param amount          field 4 in minor units, or -1 when absent or not numeric
+ * @param maskedPan       field 2 with all but the first six and last four digits masked
+ */
+public record ChangeRecord(long sequence, long committedMicros, int latencyMicros, long amount, String mti,
+                           String stan, String terminalId, String acquirerId, String processingCode,
+                           String maskedPan, String responseCode, String approvalCode) {
+
+    public Instant committedAt() {
+        return Instant.ofEpochSecond(Math.floorDiv(committedMicros, 1_000_000L),
+                Math.floorMod(committedMicros, 1_000_000L) * 1_000L);
+    }
+
+    ChangeRecord withSequence(long sequence) {
+        return new ChangeRecord(sequence, committedMicros, latencyMicros, amount, mti, stan, terminalId, acquirerId,
+                processingCode, maskedPan, responseCode, approvalCode);
+    }
+}
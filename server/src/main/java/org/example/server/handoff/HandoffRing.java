@@ -0,0 +1,117 @@
+package org.example.server.handoff;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.metrics.MetricsRegistry;
+import org.jpos.core.ConfigurationException;
+import org.jpos.q2.QBeanSupport;
+import org.jpos.space.SpaceFactory;
+import org.jpos.util.NameRegistrar;
+
+import javax.management.ObjectName;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registers a {@link RingBufferSpace} with one preallocated {@link RingBuffer} of {@code capacity}
+ * slots per {@code queue} entry, for use in place of the {@code txnmgr} TSpace between the channel,
+ * the dispatcher and the transaction manager. Queues listed under {@code single-writer} get the
+ * single-producer fast path and must have exactly one writing thread. All rings wait with
+ * {@code wait-strategy} ({@code busy-spin}, {@code yield} or {@code park}, parking
+ * {@code park-nanos} at a time).
+ * <p>
+ * The space is registered with the {@link NameRegistrar} under {@link #spaceUri(String)} during
+ * init, so {@link SpaceFactory#getSpace(String)} returns it to every bean deployed later; the
+ * descriptor therefore has to sort before the channel, dispatcher and transaction manager. Ring
+ * depth and counters are exported as {@code RingBuffer} and the handoff latency of each queue as
+ * {@code RingHandoff}.
+ */
+public class HandoffRing extends QBeanSupport implements HandoffRingMXBean {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(HandoffRing.class);
+
+    private final Map<String, RingBuffer<Object>> rings = new LinkedHashMap<>();
+    private WaitStrategy waitStrategy;
+    private ObjectName objectName;
+
+    @Override
+    protected void initService() throws ConfigurationException {
+        int capacity = cfg.getInt("capacity", 4096);
+        long parkNanos = cfg.getLong("park-nanos", 50_000L);
+        List<String> singleWriters = Arrays.asList(cfg.getAll("single-writer"));
+        try {
+            waitStrategy = WaitStrategy.parse(cfg.get("wait-strategy", "park"));
+            for (String queue : cfg.getAll("queue")) {
+                rings.put(queue, new RingBuffer<>(capacity, singleWriters.contains(queue), waitStrategy, parkNanos));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException(e.getMessage(), e);
+        }
+        if (rings.isEmpty()) {
+            throw new ConfigurationException("At least one queue is required");
+        }
+        NameRegistrar.register(spaceUri(getName()), new RingBufferSpace(rings));
+        LOGGER.info("Ring handoff {} for queues {} with {} slots each, waiting by {}", spaceUri(getName()),
+                rings.keySet(), rings.values().iterator().next().getCapacity(), waitStrategy);
+    }
+
+    @Override
+    protected void startService() {
+        objectName = MetricsRegistry.name("HandoffRing", "name", getName());
+        MetricsRegistry.register(objectName, this);
+        rings.forEach((queue, ring) -> {
+            MetricsRegistry.register(ringMetricName(queue), ring);
+            MetricsRegistry.register(handoffMetricName(queue), ring.getHandoffLatency());
+        });
+    }
+
+    @Override
+    protected void stopService() {
+        MetricsRegistry.unregister(objectName);
+        rings.keySet().forEach(queue -> {
+            MetricsRegistry.unregister(ringMetricName(queue));
+            MetricsRegistry.unregister(handoffMetricName(queue));
+        });
+    }
+
+    @Override
+    protected void destroyService() {
+        NameRegistrar.unregister(spaceUri(getName()));
+    }
+
+    /**
+     * URI under which the space of the ring named {@code name} is found by
+     * {@link SpaceFactory#getSpace(String)}.
+     */
+    public static String spaceUri(String name) {
+        return "ring:" + name;
+    }
+
+    @Override
+    public String getSpaceUri() {
+        return spaceUri(getName());
+    }
+
+    @Override
+    public String getWaitStrategy() {
+        return waitStrategy.name();
+    }
+
+    @Override
+    public int getQueued() {
+        int queued = 0;
+        for (RingBuffer<Object> ring : rings.values()) {
+            queued += ring.getSize();
+        }
+        return queued;
+    }
+
+    private ObjectName ringMetricName(String queue) {
+        return MetricsRegistry.name("RingBuffer", "name", getName(), "queue", queue);
+    }
+
+    private ObjectName handoffMetricName(String queue) {
+        return MetricsRegistry.name("RingHandoff", "name", getName(), "queue", queue);
+    }
+}
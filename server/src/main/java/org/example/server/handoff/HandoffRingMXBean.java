@@ -0,0 +1,12 @@
+package org.example.server.handoff;
+
+/**
+ * JMX view of a {@link HandoffRing}.
+ */
+public interface HandoffRingMXBean {
+    String getSpaceUri();
+
+    String getWaitStrategy();
+
+    int getQueued();
+}
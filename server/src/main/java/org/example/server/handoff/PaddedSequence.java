@@ -0,0 +1,47 @@
+package org.example.server.handoff;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A {@code long} counter alone on its cache line. The padding is spread over a class hierarchy
+ * because the JVM keeps superclass fields ahead of subclass fields but may reorder fields within a
+ * class, so the value always sits between 56 bytes of padding on either side and a producer bumping
+ * the tail never invalidates the line consumers read the head from.
+ */
+final class PaddedSequence extends SequenceValue {
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private long p09, p10, p11, p12, p13, p14, p15;
+
+    long get() {
+        return (long) VALUE.getAcquire(this);
+    }
+
+    void setRelease(long newValue) {
+        VALUE.setRelease(this, newValue);
+    }
+
+    boolean compareAndSet(long expected, long newValue) {
+        return VALUE.compareAndSet(this, expected, newValue);
+    }
+}
+
+abstract class SequencePadding {
+    @SuppressWarnings("unused")
+    private long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class SequenceValue extends SequencePadding {
+    @SuppressWarnings("unused")
+    volatile long value;
+}
@@ -0,0 +1,252 @@
+package org.example.server.handoff;
+
+import org.example.server.metrics.LatencyRecorder;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, preallocated, lock-free queue for handing requests from one set of threads to another.
+ * <p>
+ * Every slot carries a sequence number telling whose turn it is: a producer may fill slot
+ * {@code pos & mask} once its sequence equals {@code pos}, and publishes the element by setting it
+ * to {@code pos + 1}; a consumer may take it at {@code pos + 1} and frees it for the next lap by
+ * setting {@code pos + capacity}. Consumers claim positions with a compare-and-set on the head, so
+ * any number may read. Producers do the same on the tail unless the buffer is created
+ * {@code singleWriter}, in which case claiming a slot is a plain ordered store; that is only
+ * correct when exactly one thread ever offers, as with the dispatcher feeding the transaction
+ * manager.
+ * <p>
+ * The head and tail live on cache lines of their own, and each slot's sequence and publish time
+ * sit {@value #STRIDE} longs apart in one array, so neighbouring slots being filled and drained at
+ * once do not share a line. Nothing is allocated per element. The time from publish to take is
+ * recorded as the handoff latency.
+ *
+ * @param <E> element type
+ */
+public final class RingBuffer<E> implements RingBufferMXBean {
+    /** Longs per slot in {@link #slots}: 64 bytes, one cache line. */
+    private static final int STRIDE = 8;
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle REFERENCES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final int capacity;
+    private final int mask;
+    private final long[] slots;
+    private final Object[] values;
+    private final boolean singleWriter;
+    private final WaitStrategy waitStrategy;
+    private final long parkNanos;
+    private final PaddedSequence head = new PaddedSequence();
+    private final PaddedSequence tail = new PaddedSequence();
+    private final LongAdder fullWaits = new LongAdder();
+    private final LatencyRecorder handoffLatency = new LatencyRecorder();
+
+    /**
+     * @param capacity     number of slots, rounded up to a power of two
+     * @param singleWriter whether exactly one thread will ever call {@link #offer} or {@link #put}
+     * @param waitStrategy how to wait while empty or full
+     * @param parkNanos    park time of {@link WaitStrategy#PARK}
+     */
+    public RingBuffer(int capacity, boolean singleWriter, WaitStrategy waitStrategy, long parkNanos) {
+        if (capacity < 2 || capacity > 1 << 24) {
+            throw new IllegalArgumentException("Ring capacity must be between 2 and 16777216, not " + capacity);
+        }
+        this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new long[this.capacity * STRIDE];
+        this.values = new Object[this.capacity];
+        this.singleWriter = singleWriter;
+        this.waitStrategy = Objects.requireNonNull(waitStrategy, "waitStrategy");
+        this.parkNanos = Math.max(1_000L, parkNanos);
+        for (int i = 0; i < this.capacity; i++) {
+            slots[i * STRIDE] = i;
+        }
+    }
+
+    /**
+     * Appends {@code element} unless the buffer is full.
+     */
+    public boolean offer(E element) {
+        Objects.requireNonNull(element, "element");
+        long pos;
+        int index;
+        while (true) {
+            pos = tail.get();
+            index = (int) (pos & mask);
+            long diff = (long) LONGS.getAcquire(slots, index * STRIDE) - pos;
+            if (diff == 0) {
+                if (singleWriter) {
+                    tail.setRelease(pos + 1);
+                    break;
+                }
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+        values[index] = element;
+        slots[index * STRIDE + 1] = System.nanoTime();
+        LONGS.setRelease(slots, index * STRIDE, pos + 1);
+        return true;
+    }
+
+    /**
+     * Appends {@code element}, waiting for a free slot while the buffer is full.
+     */
+    public void put(E element) {
+        if (offer(element)) {
+            return;
+        }
+        fullWaits.increment();
+        int attempt = 0;
+        do {
+            waitStrategy.idle(attempt++, parkNanos);
+        } while (!offer(element));
+    }
+
+    /**
+     * Takes the oldest element, or returns {@code null} when the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        while (true) {
+            long pos = head.get();
+            int index = (int) (pos & mask);
+            long diff = (long) LONGS.getAcquire(slots, index * STRIDE) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E element = (E) values[index];
+                    long published = slots[index * STRIDE + 1];
+                    values[index] = null;
+                    LONGS.setRelease(slots, index * STRIDE, pos + capacity);
+                    handoffLatency.recordNanos(System.nanoTime() - published);
+                    return element;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest element, waiting up to {@code timeoutNanos} for one to arrive. Returns
+     * {@code null} on timeout or when the calling thread is interrupted.
+     */
+    public E poll(long timeoutNanos) {
+        E element = poll();
+        if (element != null || timeoutNanos <= 0) {
+            return element;
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        int attempt = 0;
+        while ((element = poll()) == null) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            waitStrategy.idle(attempt++, Math.min(parkNanos, remaining));
+        }
+        return element;
+    }
+
+    /**
+     * Returns the oldest element without taking it, or {@code null} when the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        while (true) {
+            long pos = head.get();
+            int index = (int) (pos & mask);
+            long diff = (long) LONGS.getAcquire(slots, index * STRIDE) - (pos + 1);
+            if (diff < 0) {
+                return null;
+            }
+            if (diff == 0) {
+                Object element = REFERENCES.getAcquire(values, index);
+                if (element != null && head.get() == pos) {
+                    return (E) element;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the oldest element without taking it, waiting up to {@code timeoutNanos} for one.
+     */
+    public E peek(long timeoutNanos) {
+        return await(timeoutNanos, false);
+    }
+
+    /**
+     * Waits up to {@code timeoutNanos} for the buffer to become empty and returns whether it is.
+     */
+    public boolean awaitEmpty(long timeoutNanos) {
+        return await(timeoutNanos, true) == null;
+    }
+
+    /**
+     * Peeks until the buffer is empty ({@code untilEmpty}) or holds an element, or the timeout
+     * expires, and returns the last peeked element.
+     */
+    private E await(long timeoutNanos, boolean untilEmpty) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        int attempt = 0;
+        E element;
+        while (((element = peek()) == null) != untilEmpty) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            waitStrategy.idle(attempt++, Math.min(parkNanos, remaining));
+        }
+        return element;
+    }
+
+    /**
+     * Time from {@link #offer} to the element being taken.
+     */
+    public LatencyRecorder getHandoffLatency() {
+        return handoffLatency;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getSize() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0L, Math.min(capacity, size));
+    }
+
+    @Override
+    public long getPublished() {
+        return tail.get();
+    }
+
+    @Override
+    public long getConsumed() {
+        return head.get();
+    }
+
+    @Override
+    public long getFullWaits() {
+        return fullWaits.sum();
+    }
+
+    @Override
+    public boolean isSingleWriter() {
+        return singleWriter;
+    }
+
+    @Override
+    public String getWaitStrategy() {
+        return waitStrategy.name();
+    }
+}
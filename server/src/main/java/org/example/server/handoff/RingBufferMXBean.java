@@ -0,0 +1,20 @@
+package org.example.server.handoff;
+
+/**
+ * JMX view of a {@link RingBuffer}.
+ */
+public interface RingBufferMXBean {
+    int getCapacity();
+
+    int getSize();
+
+    long getPublished();
+
+    long getConsumed();
+
+    long getFullWaits();
+
+    boolean isSingleWriter();
+
+    String getWaitStrategy();
+}
@@ -0,0 +1,179 @@
+package org.example.server.handoff;
+
+import org.jpos.space.Space;
+import org.jpos.space.TSpace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link Space} whose configured queues are {@link RingBuffer}s, so the channel listener, the
+ * dispatcher and the transaction manager can switch from a {@code TSpace} to ring handoff by
+ * configuration alone. Keys without a ring are kept in an ordinary {@link TSpace}.
+ * <p>
+ * On a ring queue, leases passed to {@code out} are ignored (entries never expire), {@code push}
+ * appends at the tail like {@code out}, and {@code put} drains the ring before appending. Blocking
+ * operations wait with the ring's {@link WaitStrategy} and return {@code null} if the thread is
+ * interrupted, which the dispatcher and transaction manager loops already treat as a timeout.
+ */
+public final class RingBufferSpace implements Space<String, Object> {
+    private static final long EXIST_POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(100L);
+
+    private final Map<String, RingBuffer<Object>> rings;
+    private final Space<String, Object> fallback = new TSpace<>();
+
+    public RingBufferSpace(Map<String, RingBuffer<Object>> rings) {
+        this.rings = Map.copyOf(rings);
+    }
+
+    public RingBuffer<Object> ring(String key) {
+        return rings.get(key);
+    }
+
+    @Override
+    public void out(String key, Object value) {
+        RingBuffer<Object> ring = rings.get(key);
+        if (ring != null) {
+            ring.put(value);
+        } else {
+            fallback.out(key, value);
+        }
+    }
+
+    @Override
+    public void out(String key, Object value, long timeout) {
+        RingBuffer<Object> ring = rings.get(key);
+        if (ring != null) {
+            ring.put(value);
+        } else {
+            fallback.out(key, value, timeout);
+        }
+    }
+
+    @Override
+    public Object in(String key) {
+        RingBuffer<Object> ring = rings.get(key);
+        return ring != null ? ring.poll(Long.MAX_VALUE) : fallback.in(key);
+    }
+
+    @Override
+    public Object rd(String key) {
+        RingBuffer<Object> ring = rings.get(key);
+        return ring != null ? ring.peek(Long.MAX_VALUE) : fallback.rd(key);
+    }
+
+    @Override
+    public Object in(String key, long timeout) {
+        RingBuffer<Object> ring = rings.get(key);
+        return ring != null ? ring.poll(TimeUnit.MILLISECONDS.toNanos(timeout)) : fallback.in(key, timeout);
+    }
+
+    @Override
+    public Object rd(String key, long timeout) {
+        RingBuffer<Object> ring = rings.get(key);
+        return ring != null ? ring.peek(TimeUnit.MILLISECONDS.toNanos(timeout)) : fallback.rd(key, timeout);
+    }
+
+    @Override
+    public Object inp(String key) {
+        RingBuffer<Object> ring = rings.get(key);
+        return ring != null ? ring.poll() : fallback.inp(key);
+    }
+
+    @Override
+    public Object rdp(String key) {
+        RingBuffer<Object> ring = rings.get(key);
+        return ring != null ? ring.peek() : fallback.rdp(key);
+    }
+
+    @Override
+    public void nrd(String key) {
+        RingBuffer<Object> ring = rings.get(key);
+        if (ring != null) {
+            ring.awaitEmpty(Long.MAX_VALUE);
+        } else {
+            fallback.nrd(key);
+        }
+    }
+
+    @Override
+    public Object nrd(String key, long timeout) {
+        RingBuffer<Object> ring = rings.get(key);
+        if (ring == null) {
+            return fallback.nrd(key, timeout);
+        }
+        return ring.awaitEmpty(TimeUnit.MILLISECONDS.toNanos(timeout)) ? null : ring.peek();
+    }
+
+    @Override
+    public void push(String key, Object value) {
+        RingBuffer<Object> ring = rings.get(key);
+        if (ring != null) {
+            ring.put(value);
+        } else {
+            fallback.push(key, value);
+        }
+    }
+
+    @Override
+    public void push(String key, Object value, long timeout) {
+        RingBuffer<Object> ring = rings.get(key);
+        if (ring != null) {
+            ring.put(value);
+        } else {
+            fallback.push(key, value, timeout);
+        }
+    }
+
+    @Override
+    public boolean existAny(String[] keys) {
+        List<String> others = new ArrayList<>(keys.length);
+        for (String key : keys) {
+            RingBuffer<Object> ring = rings.get(key);
+            if (ring == null) {
+                others.add(key);
+            } else if (ring.peek() != null) {
+                return true;
+            }
+        }
+        return !others.isEmpty() && fallback.existAny(others.toArray(new String[0]));
+    }
+
+    @Override
+    public boolean existAny(String[] keys, long timeout) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (!existAny(keys)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            LockSupport.parkNanos(Math.min(EXIST_POLL_NANOS, remaining));
+        }
+        return true;
+    }
+
+    @Override
+    public void put(String key, Object value) {
+        RingBuffer<Object> ring = rings.get(key);
+        if (ring != null) {
+            while (ring.poll() != null) {
+                // drop the previous entries, as TSpace.put does
+            }
+            ring.put(value);
+        } else {
+            fallback.put(key, value);
+        }
+    }
+
+    @Override
+    public void put(String key, Object value, long timeout) {
+        if (rings.containsKey(key)) {
+            put(key, value);
+        } else {
+            fallback.put(key, value, timeout);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.server.handoff;
+
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * What a thread does while a {@link RingBuffer} is empty (consumers) or full (producers). Each call
+ * to {@link #idle(int, long)} is one unsuccessful attempt; {@code attempt} counts from 0 and lets
+ * the strategies back off.
+ */
+public enum WaitStrategy {
+    /**
+     * Spins on {@link Thread#onSpinWait()}: the lowest handoff latency, at the cost of one core per
+     * waiting thread. Only sensible with fewer waiting threads than dedicated cores.
+     */
+    BUSY_SPIN {
+        @Override
+        void idle(int attempt, long parkNanos) {
+            Thread.onSpinWait();
+        }
+    },
+    /**
+     * Spins briefly, then yields the CPU between attempts. Keeps latency low while letting other
+     * runnable threads in, but still shows idle threads as busy.
+     */
+    YIELD {
+        @Override
+        void idle(int attempt, long parkNanos) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+    /**
+     * Spins, yields, then parks for {@code park-nanos} between attempts. Idle threads cost next to
+     * nothing; the price is up to one park interval of extra latency after a quiet period.
+     */
+    PARK {
+        @Override
+        void idle(int attempt, long parkNanos) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+            }
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+
+    abstract void idle(int attempt, long parkNanos);
+
+    /**
+     * Parses {@code busy-spin}, {@code yield} or {@code park}, case-insensitively.
+     */
+    public static WaitStrategy parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown wait strategy '" + value + "', expected busy-spin, yield or park", e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.server.http;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the members of a {@link FlatJson} object to ISO 8583 fields and back. Each entry has the
+ * form {@code name=field} or {@code name=field:nLEN}; the latter marks a numeric field that is
+ * left-padded with zeros to {@code LEN} digits, so JSON clients can send {@code "amount": 10000}
+ * instead of {@code "000000010000"}. Field 0 is the MTI. Members without an entry are rejected.
+ * <p>
+ * Responses are written with the same entries, in the configured order, for the fields present in
+ * the message.
+ */
+final class FieldMapping {
+    private final String[] names;
+    private final int[] fields;
+    private final int[] lengths;
+    private final Map<String, Integer> index = new HashMap<>();
+
+    private FieldMapping(String[] names, int[] fields, int[] lengths) {
+        this.names = names;
+        this.fields = fields;
+        this.lengths = lengths;
+        for (int i = 0; i < names.length; i++) {
+            index.put(names[i], i);
+        }
+    }
+
+    /**
+     * Parses the {@code name=field[:nLEN]} entries.
+     *
+     * @throws IllegalArgumentException if an entry is malformed or a name or field is mapped twice
+     */
+    static FieldMapping parse(String[] entries) {
+        String[] names = new String[entries.length];
+        int[] fields = new int[entries.length];
+        int[] lengths = new int[entries.length];
+        boolean[] mapped = new boolean[129];
+        for (int i = 0; i < entries.length; i++) {
+            String entry = entries[i].trim();
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Field mapping entry '" + entry + "' is not name=field");
+            }
+            names[i] = entry.substring(0, separator).trim();
+            String target = entry.substring(separator + 1).trim();
+            int format = target.indexOf(':');
+            try {
+                fields[i] = Integer.parseInt(format < 0 ? target : target.substring(0, format));
+                if (format >= 0) {
+                    String spec = target.substring(format + 1);
+                    if (!spec.startsWith("n")) {
+                        throw new IllegalArgumentException("Unknown format '" + spec + "' in field mapping entry " + entry);
+                    }
+                    lengths[i] = Integer.parseInt(spec.substring(1));
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Field mapping entry '" + entry + "' is not name=field[:nLEN]", e);
+            }
+            if (fields[i] < 0 || fields[i] > 128 || fields[i] == 1) {
+                throw new IllegalArgumentException("Field mapping entry '" + entry + "' targets invalid field " + fields[i]);
+            }
+            if (mapped[fields[i]]) {
+                throw new IllegalArgumentException("Field " + fields[i] + " is mapped more than once");
+            }
+            mapped[fields[i]] = true;
+            for (int j = 0; j < i; j++) {
+                if (names[j].equals(names[i])) {
+                    throw new IllegalArgumentException("JSON member '" + names[i] + "' is mapped more than once");
+                }
+            }
+        }
+        return new FieldMapping(names, fields, lengths);
+    }
+
+    /**
+     * Builds a request from the JSON members. When no member maps to the MTI, {@code defaultMti} is
+     * used.
+     *
+     * @throws IllegalArgumentException if a member is unmapped or a numeric value is not valid
+     */
+    ISOMsg toIso(Map<String, String> members, ISOPackager packager, String defaultMti) throws ISOException {
+        ISOMsg message = new ISOMsg();
+        message.setPackager(packager);
+        message.setMTI(defaultMti);
+        for (Map.Entry<String, String> member : members.entrySet()) {
+            Integer position = index.get(member.getKey());
+            if (position == null) {
+                throw new IllegalArgumentException("Unknown member '" + member.getKey() + "'");
+            }
+            String value = format(position, member.getValue());
+            if (fields[position] == 0) {
+                message.setMTI(value);
+            } else {
+                message.set(fields[position], value);
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Writes the mapped fields present in {@code message} as a JSON object.
+     */
+    String toJson(ISOMsg message) throws ISOException {
+        StringBuilder out = new StringBuilder(256).append('{');
+        for (int i = 0; i < names.length; i++) {
+            if (fields[i] == 0) {
+                FlatJson.appendMember(out, names[i], message.getMTI());
+            } else if (message.hasField(fields[i])) {
+                FlatJson.appendMember(out, names[i], message.getString(fields[i]));
+            }
+        }
+        return out.append('}').toString();
+    }
+
+    private String format(int position, String value) {
+        int length = lengths[position];
+        if (length == 0) {
+            return value;
+        }
+        if (value.isEmpty() || value.length() > length) {
+            throw new IllegalArgumentException("'" + names[position] + "' must have 1 to " + length + " digits");
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                throw new IllegalArgumentException("'" + names[position] + "' must be an unsigned integer");
+            }
+        }
+        return "0".repeat(length - value.length()) + value;
+    }
+}
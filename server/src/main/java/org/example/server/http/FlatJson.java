@@ -0,0 +1,232 @@
+package org.example.server.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reader and writer for the flat JSON objects exchanged by the {@link HttpGateway}: one object whose
+ * members are strings, numbers, booleans or {@code null}. Numbers and booleans are returned as their
+ * literal text and {@code null} members are dropped. Nested objects and arrays are rejected, which
+ * keeps parsing a single pass over the body without a general purpose JSON library.
+ */
+final class FlatJson {
+    private final String text;
+    private int position;
+
+    private FlatJson(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses {@code body} as a UTF-8 JSON object.
+     *
+     * @throws IllegalArgumentException if the body is not a flat JSON object
+     */
+    static Map<String, String> parse(byte[] body) {
+        FlatJson parser = new FlatJson(new String(body, StandardCharsets.UTF_8));
+        Map<String, String> members = new LinkedHashMap<>();
+        parser.skipWhitespace();
+        parser.expect('{');
+        parser.skipWhitespace();
+        if (parser.peek() == '}') {
+            parser.position++;
+        } else {
+            while (true) {
+                parser.skipWhitespace();
+                String name = parser.readString();
+                parser.skipWhitespace();
+                parser.expect(':');
+                parser.skipWhitespace();
+                String value = parser.readValue(name);
+                if (value != null) {
+                    members.put(name, value);
+                }
+                parser.skipWhitespace();
+                char next = parser.next();
+                if (next == '}') {
+                    break;
+                }
+                if (next != ',') {
+                    throw parser.error("expected ',' or '}'");
+                }
+            }
+        }
+        parser.skipWhitespace();
+        if (parser.position != parser.text.length()) {
+            throw parser.error("unexpected content after the object");
+        }
+        return members;
+    }
+
+    /**
+     * Appends {@code value} to {@code out} as a quoted JSON string.
+     */
+    static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Appends a {@code "name":"value"} member, preceded by a comma unless it is the first member.
+     */
+    static void appendMember(StringBuilder out, String name, String value) {
+        if (out.length() > 1) {
+            out.append(',');
+        }
+        appendString(out, name);
+        out.append(':');
+        appendString(out, value);
+    }
+
+    private String readValue(String name) {
+        char c = peek();
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '{' || c == '[') {
+            throw error("nested value for '" + name + "' is not supported");
+        }
+        int start = position;
+        while (position < text.length() && "-+.0123456789eEtruefalsn".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        String literal = text.substring(start, position);
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (literal.equals("true") || literal.equals("false") || isNumber(literal)) {
+            return literal;
+        }
+        throw error("invalid value for '" + name + "'");
+    }
+
+    private String readString() {
+        expect('"');
+        StringBuilder value = null;
+        int start = position;
+        while (true) {
+            if (position >= text.length()) {
+                throw error("unterminated string");
+            }
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value == null ? text.substring(start, position - 1) : value.toString();
+            }
+            if (c < 0x20) {
+                throw error("control character in string");
+            }
+            if (c != '\\') {
+                if (value != null) {
+                    value.append(c);
+                }
+                continue;
+            }
+            if (value == null) {
+                value = new StringBuilder(text.substring(start, position - 1));
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"', '\\', '/' -> value.append(escaped);
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'n' -> value.append('\n');
+                case 'r' -> value.append('\r');
+                case 't' -> value.append('\t');
+                case 'u' -> {
+                    if (position + 4 > text.length()) {
+                        throw error("truncated unicode escape");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(text, position, position + 4, 16));
+                    } catch (NumberFormatException e) {
+                        throw error("invalid unicode escape");
+                    }
+                    position += 4;
+                }
+                default -> throw error("invalid escape '\\" + escaped + "'");
+            }
+        }
+    }
+
+    private static boolean isNumber(String literal) {
+        int i = literal.startsWith("-") ? 1 : 0;
+        int digits = 0;
+        while (i < literal.length() && Character.isDigit(literal.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < literal.length() && literal.charAt(i) == '.') {
+            int fraction = ++i;
+            while (i < literal.length() && Character.isDigit(literal.charAt(i))) {
+                i++;
+            }
+            if (i == fraction) {
+                return false;
+            }
+        }
+        if (i < literal.length() && (literal.charAt(i) == 'e' || literal.charAt(i) == 'E')) {
+            i++;
+            if (i < literal.length() && (literal.charAt(i) == '+' || literal.charAt(i) == '-')) {
+                i++;
+            }
+            int exponent = i;
+            while (i < literal.length() && Character.isDigit(literal.charAt(i))) {
+                i++;
+            }
+            if (i == exponent) {
+                return false;
+            }
+        }
+        return i == literal.length();
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        if (position >= text.length()) {
+            throw error("unexpected end of input");
+        }
+        return text.charAt(position);
+    }
+
+    private char next() {
+        char c = peek();
+        position++;
+        return c;
+    }
+
+    private void expect(char expected) {
+        if (next() != expected) {
+            throw error("expected '" + expected + "'");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at offset " + position + ": " + message);
+    }
+}
@@ -0,0 +1,281 @@
+package org.example.server.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.server.context.SlotContext;
+import org.example.server.context.Slots;
+import org.example.server.deadline.DeadlineWatchdog;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.metrics.LatencyRecorder;
+import org.example.server.metrics.MetricsRegistry;
+import org.example.server.packager.LazyGenericPackager;
+import org.example.server.throttle.RateLimiter;
+import org.jpos.core.ConfigurationException;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+import org.jpos.q2.QBeanSupport;
+import org.jpos.space.Space;
+import org.jpos.space.SpaceFactory;
+import org.jpos.util.NameRegistrar;
+
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JSON-over-HTTP ingress for clients that cannot speak ISO 8583 over TCP. A {@code POST} of a flat
+ * JSON object to {@code path} is mapped to an {@link ISOMsg} by the {@code field} entries (see
+ * {@link FieldMapping}) and queued on {@code queue} in {@code space} exactly like a request from
+ * the channel, so it goes through the dispatcher and the same transaction manager participants.
+ * The response message is returned as JSON with status 200 whatever its response code; requests
+ * that cannot be mapped get 400, and requests not answered within {@code timeout} milliseconds get
+ * 504. With {@code throttle} set, requests over their limit in that {@link RateLimiter} are
+ * answered with its decline without being queued. With {@code deadline} naming the
+ * {@code StartDeadline} watchdog, the deadline and timely decline are armed on receipt.
+ * <p>
+ * Exchanges run on virtual threads, one per request, which simply block until the transaction
+ * manager answers. Bodies are read completely and responses carry a {@code Content-Length}, so
+ * clients can keep their connections alive. The round trip is exported as {@code HttpRoundTrip}.
+ */
+public class HttpGateway extends QBeanSupport implements HttpGatewayMXBean {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(HttpGateway.class);
+    private static final String CONTENT_TYPE = "application/json";
+
+    private final LatencyRecorder roundTrip = new LatencyRecorder();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private Space<String, Object> space;
+    private String queue;
+    private ISOPackager packager;
+    private FieldMapping mapping;
+    private String defaultMti;
+    private long timeout;
+    private int maxBody;
+    private int port;
+    private String throttle;
+    private String deadline;
+    private volatile boolean draining;
+    private HttpServer server;
+    private ExecutorService executor;
+    private ObjectName objectName;
+
+    @Override
+    protected void initService() throws ConfigurationException {
+        space = SpaceFactory.getSpace(cfg.get("space", "txnmgr"));
+        queue = cfg.get("queue", "server");
+        defaultMti = cfg.get("default-mti", "0200");
+        timeout = Math.max(100L, cfg.getLong("timeout", 30_000L));
+        maxBody = Math.max(256, cfg.getInt("max-body", 8192));
+        port = cfg.getInt("port", 8080);
+        throttle = cfg.get("throttle", null);
+        deadline = cfg.get("deadline", null);
+        try {
+            mapping = FieldMapping.parse(cfg.getAll("field"));
+            packager = new LazyGenericPackager(cfg.get("packager-config", "packager/iso87ascii.xml"));
+        } catch (IllegalArgumentException | ISOException e) {
+            throw new ConfigurationException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected void startService() throws IOException {
+        if (!cfg.getBoolean("enabled", true)) {
+            LOGGER.info("HTTP gateway {} is disabled", getName());
+            return;
+        }
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress(cfg.get("host", "0.0.0.0"), port), cfg.getInt("backlog", 0));
+        server.setExecutor(executor);
+        server.createContext(cfg.get("path", "/v1/transactions"), this::handle);
+        server.start();
+        objectName = MetricsRegistry.name("HttpGateway", "name", getName());
+        MetricsRegistry.register(objectName, this);
+        MetricsRegistry.register(roundTripMetricName(), roundTrip);
+        NameRegistrar.register(registrationName(getName()), this);
+        LOGGER.info("HTTP gateway {} listening on port {} feeding {}", getName(), port, queue);
+    }
+
+    @Override
+    protected void stopService() {
+        if (server == null) {
+            return;
+        }
+        NameRegistrar.unregister(registrationName(getName()));
+        draining = true;
+        server.stop(Math.max(0, cfg.getInt("stop-delay", 5)));
+        executor.close();
+        server = null;
+        MetricsRegistry.unregister(objectName);
+        MetricsRegistry.unregister(roundTripMetricName());
+    }
+
+    /**
+     * Answers new requests with 503 and {@code Connection: close} from now on; requests already
+     * queued are still answered.
+     */
+    public void drain() {
+        draining = true;
+    }
+
+    /**
+     * Name under which a running gateway is registered in the {@link NameRegistrar}.
+     */
+    public static String registrationName(String name) {
+        return "http-gateway." + name;
+    }
+
+    private void handle(HttpExchange exchange) {
+        long received = System.nanoTime();
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                reject(exchange, 405, "method not allowed");
+                return;
+            }
+            if (draining) {
+                exchange.getResponseHeaders().set("Connection", "close");
+                reject(exchange, 503, "server is shutting down");
+                return;
+            }
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                reject(exchange, 413, "body larger than " + maxBody + " bytes");
+                return;
+            }
+            ISOMsg request;
+            try {
+                request = mapping.toIso(FlatJson.parse(body), packager, defaultMti);
+            } catch (IllegalArgumentException | ISOException e) {
+                reject(exchange, 400, e.getMessage());
+                return;
+            }
+            requests.incrementAndGet();
+            HttpSource source = new HttpSource();
+            SlotContext ctx = new SlotContext();
+            ctx.setReceivedNanos(received);
+            Slots.REQUEST.put(ctx, request);
+            Slots.SOURCE.put(ctx, source);
+            ISOMsg response;
+            inFlight.incrementAndGet();
+            try {
+                if (admit(source, request)) {
+                    Slots.DEADLINE.put(ctx, DeadlineWatchdog.armOnReceipt(deadline, received, source, request));
+                    space.out(queue, ctx);
+                }
+                response = source.await(timeout);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            if (response == null) {
+                timeouts.incrementAndGet();
+                LOGGER.warn("No response within {} ms for STAN {} from terminal {}", timeout,
+                        request.getString(11), request.getString(41));
+                write(exchange, 504, error("no response within " + timeout + " ms"));
+                return;
+            }
+            write(exchange, 200, mapping.toJson(response));
+            roundTrip.recordNanos(System.nanoTime() - received);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | ISOException e) {
+            LOGGER.debug("HTTP exchange failed: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Checks the request against the configured {@link RateLimiter}; a throttled request has
+     * already been answered through {@code source}.
+     */
+    private boolean admit(HttpSource source, ISOMsg request) {
+        if (throttle == null) {
+            return true;
+        }
+        RateLimiter limiter = NameRegistrar.getIfExists(RateLimiter.registrationName(throttle));
+        return limiter == null || limiter.admit(source, request);
+    }
+
+    private byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(512);
+        byte[] buffer = new byte[1024];
+        int read;
+        boolean tooLarge = false;
+        while ((read = in.read(buffer)) != -1) {
+            if (!tooLarge && body.size() + read <= maxBody) {
+                body.write(buffer, 0, read);
+            } else {
+                tooLarge = true;
+            }
+        }
+        return tooLarge ? null : body.toByteArray();
+    }
+
+    private void reject(HttpExchange exchange, int status, String message) throws IOException {
+        rejected.incrementAndGet();
+        write(exchange, status, error(message));
+    }
+
+    private static void write(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        StringBuilder out = new StringBuilder(64).append('{');
+        FlatJson.appendMember(out, "error", message == null ? "invalid request" : message);
+        return out.append('}').toString();
+    }
+
+    private ObjectName roundTripMetricName() {
+        return MetricsRegistry.name("HttpRoundTrip", "name", getName());
+    }
+
+    @Override
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public boolean isDraining() {
+        return draining;
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.server.http;
+
+/**
+ * JMX view of an {@link HttpGateway}.
+ */
+public interface HttpGatewayMXBean {
+    int getPort();
+
+    long getRequests();
+
+    long getRejected();
+
+    long getTimeouts();
+
+    int getInFlight();
+
+    boolean isDraining();
+}
@@ -0,0 +1,45 @@
+package org.example.server.http;
+
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOSource;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link ISOSource} standing in for the HTTP exchange of one request, so {@code SendResponse} and
+ * the deadline watchdog answer HTTP requests exactly as they answer channel sessions. The first
+ * message sent completes the exchange; once the gateway has given up waiting the source reports
+ * itself disconnected and late responses are dropped.
+ */
+final class HttpSource implements ISOSource {
+    private final CompletableFuture<ISOMsg> response = new CompletableFuture<>();
+    private volatile boolean connected = true;
+
+    @Override
+    public void send(ISOMsg message) {
+        response.complete(message);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected && !response.isDone();
+    }
+
+    /**
+     * Waits up to {@code timeoutMillis} for the response, returning {@code null} on timeout.
+     */
+    ISOMsg await(long timeoutMillis) throws InterruptedException {
+        try {
+            return response.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            connected = false;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jpos.iso.ISOMsg;
+
+/**
+ * Reading and unpacking one message after its length prefix arrived.
+ */
+@Name("org.example.server.ChannelReceive")
+@Label("Channel Receive")
+@Description("Reading and unpacking one ISO-8583 message from a terminal connection")
+@Category({"Rayan jPOS", "Channel"})
+public final class ChannelReceiveEvent extends TransactionEvent {
+    @Label("Channel")
+    String channel;
+
+    @Label("MTI")
+    String mti;
+
+    ChannelReceiveEvent(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    void identify(ISOMsg message) {
+        super.identify(message);
+        mti = ChannelSendEvent.mtiOf(message);
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+
+/**
+ * Packing and writing one message.
+ */
+@Name("org.example.server.ChannelSend")
+@Label("Channel Send")
+@Description("Packing and writing one ISO-8583 message to a terminal connection")
+@Category({"Rayan jPOS", "Channel"})
+public final class ChannelSendEvent extends TransactionEvent {
+    @Label("Channel")
+    String channel;
+
+    @Label("MTI")
+    String mti;
+
+    ChannelSendEvent(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    void identify(ISOMsg message) {
+        super.identify(message);
+        mti = mtiOf(message);
+    }
+
+    static String mtiOf(ISOMsg message) {
+        if (message == null || !message.hasField(0)) {
+            return null;
+        }
+        try {
+            return message.getMTI();
+        } catch (ISOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Time spent borrowing a connection from the Hikari pool.
+ */
+@Name("org.example.server.ConnectionAcquire")
+@Label("Connection Acquire")
+@Description("Time spent in DataSource.getConnection() borrowing a pooled JDBC connection")
+@Category({"Rayan jPOS", "Database"})
+public final class ConnectionAcquireEvent extends TransactionEvent {
+    private ConnectionAcquireEvent() {
+    }
+
+    public static ConnectionAcquireEvent start() {
+        ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+        event.begin();
+        return event;
+    }
+}
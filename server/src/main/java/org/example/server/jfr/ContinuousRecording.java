@@ -0,0 +1,143 @@
+package org.example.server.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.example.server.config.EnvironmentLoader;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.metrics.LatencyRecorder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Always-on flight recording that keeps the last {@code JFR_WINDOW_S} seconds of data and writes
+ * it to {@code JFR_DUMP_DIR} when the response-time p99 over {@code JFR_SLA_INTERVAL_S} seconds
+ * exceeds {@code JFR_SLA_P99_MS}, so a tail-latency incident can be examined after the fact.
+ * <p>
+ * The recording uses the JDK settings named by {@code JFR_SETTINGS} ({@code default} is the
+ * low-overhead profile) with the server's own events enabled above {@code JFR_EVENT_THRESHOLD_MS}.
+ * Started by {@code ServerMain} when {@code JFR_ENABLED=true}.
+ */
+public final class ContinuousRecording implements AutoCloseable {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(ContinuousRecording.class);
+    private static final String EVENT_PREFIX = "org.example.server.";
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Recording recording;
+    private final Path dumpDirectory;
+    private final ScheduledExecutorService scheduler;
+
+    private ContinuousRecording(Recording recording, Path dumpDirectory, ScheduledExecutorService scheduler) {
+        this.recording = recording;
+        this.dumpDirectory = dumpDirectory;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Starts the recording when {@code JFR_ENABLED=true}.
+     *
+     * @param home          directory under which dumps go when {@code JFR_DUMP_DIR} is not set
+     * @param responseTime  latency watched against the SLA
+     * @return the running recording, or {@code null} when disabled or unavailable
+     */
+    public static ContinuousRecording startIfEnabled(Path home, LatencyRecorder responseTime) {
+        if (!Boolean.parseBoolean(EnvironmentLoader.getOrDefault("JFR_ENABLED", "false"))) {
+            return null;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            LOGGER.warn("JFR_ENABLED is set but Flight Recorder is not available in this JVM");
+            return null;
+        }
+        String settings = EnvironmentLoader.getOrDefault("JFR_SETTINGS", "default");
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration(settings));
+        } catch (IOException | ParseException e) {
+            LOGGER.error("Unable to load flight recorder settings '" + settings + "'", e);
+            return null;
+        }
+        Duration window = Duration.ofSeconds(EnvironmentLoader.getInt("JFR_WINDOW_S", 300));
+        Duration threshold = Duration.ofMillis(EnvironmentLoader.getInt("JFR_EVENT_THRESHOLD_MS", 1));
+        recording.setName("rayan-continuous");
+        recording.setToDisk(true);
+        recording.setMaxAge(window);
+        recording.setMaxSize(EnvironmentLoader.getInt("JFR_MAX_SIZE_MB", 256) * 1024L * 1024L);
+        for (Class<? extends TransactionEvent> type : List.of(ChannelReceiveEvent.class, ChannelSendEvent.class,
+                QueueWaitEvent.class, ParticipantEvent.class, ConnectionAcquireEvent.class, JdbcExecuteEvent.class)) {
+            FlightRecorder.register(type);
+        }
+        for (EventType type : FlightRecorder.getFlightRecorder().getEventTypes()) {
+            if (type.getName().startsWith(EVENT_PREFIX)) {
+                recording.enable(type.getName()).withThreshold(threshold);
+            }
+        }
+        recording.start();
+
+        Path dumpDirectory = EnvironmentLoader.get("JFR_DUMP_DIR")
+                .map(Path::of)
+                .orElse(home.resolve("jfr"))
+                .toAbsolutePath();
+        int slaMillis = EnvironmentLoader.getInt("JFR_SLA_P99_MS", 250);
+        ScheduledExecutorService scheduler = null;
+        if (slaMillis > 0 && responseTime != null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jfr-sla-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        ContinuousRecording continuous = new ContinuousRecording(recording, dumpDirectory, scheduler);
+        if (scheduler != null) {
+            SlaWatchdog watchdog = new SlaWatchdog(responseTime,
+                    TimeUnit.MILLISECONDS.toMicros(slaMillis),
+                    TimeUnit.SECONDS.toNanos(Math.max(1, EnvironmentLoader.getInt("JFR_SLA_INTERVAL_S", 30))),
+                    Math.max(1, EnvironmentLoader.getInt("JFR_SLA_MIN_SAMPLES", 100)),
+                    TimeUnit.SECONDS.toNanos(Math.max(0, EnvironmentLoader.getInt("JFR_DUMP_COOLDOWN_S", 300))),
+                    continuous::dumpForBreach);
+            scheduler.scheduleWithFixedDelay(watchdog, 1L, 1L, TimeUnit.SECONDS);
+        }
+        LOGGER.info("Continuous flight recording started with '{}' settings, {} window, SLA p99 {} ms, dumps to {}",
+                settings, window, slaMillis > 0 ? slaMillis : "off", dumpDirectory);
+        return continuous;
+    }
+
+    /**
+     * Writes the current window of the recording to {@code file}.
+     */
+    public Path dump(String file) throws IOException {
+        Files.createDirectories(dumpDirectory);
+        Path target = dumpDirectory.resolve(file);
+        recording.dump(target);
+        return target;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        recording.close();
+    }
+
+    private void dumpForBreach(long p99Micros) {
+        String file = "sla-breach-" + FILE_TIMESTAMP.format(LocalDateTime.now()) + "-p99-"
+                + TimeUnit.MICROSECONDS.toMillis(p99Micros) + "ms.jfr";
+        try {
+            LOGGER.warn("Dumped flight recording to {}", dump(file));
+        } catch (IOException e) {
+            LOGGER.error("Unable to dump flight recording", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jpos.iso.ISOMsg;
+
+/**
+ * Execution of one JDBC statement.
+ */
+@Name("org.example.server.JdbcExecute")
+@Label("JDBC Execute")
+@Description("Execution of one JDBC statement, -1 rows when it failed")
+@Category({"Rayan jPOS", "Database"})
+public final class JdbcExecuteEvent extends TransactionEvent {
+    @Label("Statement")
+    String statement;
+
+    @Label("Rows")
+    int rows;
+
+    private JdbcExecuteEvent(String statement) {
+        this.statement = statement;
+    }
+
+    public static JdbcExecuteEvent start(String statement) {
+        JdbcExecuteEvent event = new JdbcExecuteEvent(statement);
+        event.begin();
+        return event;
+    }
+
+    public void complete(ISOMsg message, int rows) {
+        this.rows = rows;
+        complete(message);
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.server.jfr;
+
+import org.example.server.capture.WireFrames;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+import org.jpos.iso.channel.ASCIIChannel;
+
+import java.io.IOException;
+
+/**
+ * {@link ASCIIChannel} that emits {@link ChannelReceiveEvent} and {@link ChannelSendEvent}.
+ * <p>
+ * A receive is timed from the moment the length prefix has been read, so the idle time a session
+ * spends waiting for the terminal's next message is not counted; the event covers reading the
+ * body, unpacking and the incoming filters. A send covers the outgoing filters, packing and the
+ * socket write. The frames read and written are also handed to {@link WireFrames}, so a capture
+ * log records the bytes that crossed the wire rather than a re-packed message.
+ */
+public class JfrASCIIChannel extends ASCIIChannel {
+    private ChannelReceiveEvent receiving;
+
+    public JfrASCIIChannel() {
+        super();
+    }
+
+    public JfrASCIIChannel(String host, int port, ISOPackager packager) {
+        super(host, port, packager);
+    }
+
+    public JfrASCIIChannel(ISOPackager packager) throws IOException {
+        super(packager);
+    }
+
+    @Override
+    protected int getMessageLength() throws IOException, ISOException {
+        int length = super.getMessageLength();
+        receiving = new ChannelReceiveEvent(getName());
+        receiving.begin();
+        return length;
+    }
+
+    @Override
+    protected void getMessage(byte[] b, int offset, int len) throws IOException, ISOException {
+        super.getMessage(b, offset, len);
+        WireFrames.received(b, offset, len);
+    }
+
+    @Override
+    protected void sendMessage(byte[] b, int offset, int len) throws IOException {
+        WireFrames.sent(b, offset, len);
+        super.sendMessage(b, offset, len);
+    }
+
+    @Override
+    public ISOMsg receive() throws IOException, ISOException {
+        ISOMsg message = super.receive();
+        ChannelReceiveEvent event = receiving;
+        receiving = null;
+        if (event != null) {
+            event.complete(message);
+        }
+        return message;
+    }
+
+    @Override
+    public void send(ISOMsg m) throws IOException, ISOException {
+        ChannelSendEvent event = new ChannelSendEvent(getName());
+        event.begin();
+        super.send(m);
+        event.complete(m);
+    }
+}
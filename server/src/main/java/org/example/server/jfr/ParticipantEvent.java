@@ -0,0 +1,64 @@
+package org.example.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.example.server.context.Slots;
+import org.jpos.iso.ISOMsg;
+import org.jpos.transaction.Context;
+import org.jpos.transaction.TransactionConstants;
+
+import java.io.Serializable;
+
+/**
+ * One phase (prepare, commit or abort) of a transaction participant.
+ */
+@Name("org.example.server.Participant")
+@Label("Participant Phase")
+@Description("One prepare, commit or abort call of a transaction participant")
+@Category({"Rayan jPOS", "Transaction"})
+public final class ParticipantEvent extends TransactionEvent {
+    @Label("Participant")
+    String participant;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Result")
+    String result;
+
+    private ParticipantEvent(String participant, String phase) {
+        this.participant = participant;
+        this.phase = phase;
+    }
+
+    public static ParticipantEvent start(Class<?> participant, String phase) {
+        ParticipantEvent event = new ParticipantEvent(participant.getSimpleName(), phase);
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Completes a commit or abort phase.
+     */
+    public void complete(Serializable context) {
+        complete(requestOf(context));
+    }
+
+    /**
+     * Completes a prepare phase that returned {@code action}.
+     */
+    public void complete(Serializable context, int action) {
+        end();
+        if (shouldCommit()) {
+            result = (action & TransactionConstants.PREPARED) != 0 ? "PREPARED" : "ABORTED";
+            identify(requestOf(context));
+            commit();
+        }
+    }
+
+    private static ISOMsg requestOf(Serializable context) {
+        return context instanceof Context ctx ? Slots.REQUEST.get(ctx) : null;
+    }
+}
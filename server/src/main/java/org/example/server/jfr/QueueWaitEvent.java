@@ -0,0 +1,31 @@
+package org.example.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Time a request waited in a dispatcher lane before it was handed to the transaction manager.
+ */
+@Name("org.example.server.QueueWait")
+@Label("Transaction Queue Wait")
+@Description("Time a request waited in the priority dispatcher before the transaction manager took it")
+@Category({"Rayan jPOS", "Transaction"})
+public final class QueueWaitEvent extends TransactionEvent {
+    @Label("Lane")
+    String lane;
+
+    private QueueWaitEvent(String lane) {
+        this.lane = lane;
+    }
+
+    /**
+     * Begins timing the wait of a request queued in {@code lane}.
+     */
+    public static QueueWaitEvent start(String lane) {
+        QueueWaitEvent event = new QueueWaitEvent(lane);
+        event.begin();
+        return event;
+    }
+}
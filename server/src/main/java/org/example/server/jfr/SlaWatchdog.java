@@ -0,0 +1,72 @@
+package org.example.server.jfr;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.metrics.LatencyRecorder;
+
+import java.util.ArrayDeque;
+import java.util.function.LongConsumer;
+
+/**
+ * Computes the p99 of a {@link LatencyRecorder} over a sliding window and reports a breach of the
+ * SLA, at most once per cool-down period.
+ */
+final class SlaWatchdog implements Runnable {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(SlaWatchdog.class);
+
+    private final LatencyRecorder latency;
+    private final long slaMicros;
+    private final long windowNanos;
+    private final long minSamples;
+    private final long cooldownNanos;
+    private final LongConsumer onBreach;
+    private final ArrayDeque<Sample> window = new ArrayDeque<>();
+    private long lastBreachNanos;
+    private boolean breached;
+
+    SlaWatchdog(LatencyRecorder latency, long slaMicros, long windowNanos, long minSamples, long cooldownNanos,
+                LongConsumer onBreach) {
+        this.latency = latency;
+        this.slaMicros = slaMicros;
+        this.windowNanos = windowNanos;
+        this.minSamples = minSamples;
+        this.cooldownNanos = cooldownNanos;
+        this.onBreach = onBreach;
+    }
+
+    @Override
+    public void run() {
+        try {
+            check(System.nanoTime());
+        } catch (RuntimeException e) {
+            LOGGER.warn("SLA watchdog check failed", e);
+        }
+    }
+
+    void check(long now) {
+        LatencyRecorder.Snapshot current = latency.snapshot();
+        window.addLast(new Sample(now, current));
+        while (window.size() > 1 && now - window.peekFirst().takenNanos() > windowNanos) {
+            window.pollFirst();
+        }
+        LatencyRecorder.Snapshot interval = current.since(window.peekFirst().snapshot());
+        if (interval.count() < minSamples) {
+            return;
+        }
+        long p99 = interval.percentile(99.0);
+        if (p99 <= slaMicros) {
+            breached = false;
+            return;
+        }
+        if (breached && now - lastBreachNanos < cooldownNanos) {
+            return;
+        }
+        breached = true;
+        lastBreachNanos = now;
+        LOGGER.warn("Response time p99 {} us over {} samples exceeds SLA of {} us", p99, interval.count(), slaMicros);
+        onBreach.accept(p99);
+    }
+
+    private record Sample(long takenNanos, LatencyRecorder.Snapshot snapshot) {
+    }
+}
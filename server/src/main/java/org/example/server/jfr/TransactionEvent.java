@@ -0,0 +1,39 @@
+package org.example.server.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import org.jpos.iso.ISOMsg;
+
+/**
+ * Base for the server's flight recorder events. Every event carries the STAN (field 11) and
+ * terminal id (field 41) of the message it belongs to, so a slow event in a recording can be tied
+ * back to a transaction. The fields are only read from the message when the event is actually
+ * committed.
+ */
+@StackTrace(false)
+public abstract class TransactionEvent extends Event {
+    @Label("STAN")
+    String stan;
+
+    @Label("Terminal Id")
+    String terminalId;
+
+    /**
+     * Ends the event and commits it if it is enabled and exceeded its threshold.
+     */
+    public void complete(ISOMsg message) {
+        end();
+        if (shouldCommit()) {
+            identify(message);
+            commit();
+        }
+    }
+
+    void identify(ISOMsg message) {
+        if (message != null) {
+            stan = message.getString(11);
+            terminalId = message.getString(41);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.server.mac;
+
+import javax.crypto.SecretKey;
+
+/**
+ * A terminal's double-length MAC key, split into its two single-DES halves. The key check value
+ * (the first three bytes of the key encrypting a zero block, in hex) identifies the key version:
+ * a new key yields a new {@code MacKey} instance and with it fresh cipher state.
+ */
+public final class MacKey {
+    private final String terminalId;
+    private final String checkValue;
+    private final SecretKey left;
+    private final SecretKey right;
+
+    MacKey(String terminalId, String checkValue, SecretKey left, SecretKey right) {
+        this.terminalId = terminalId;
+        this.checkValue = checkValue;
+        this.left = left;
+        this.right = right;
+    }
+
+    public String terminalId() {
+        return terminalId;
+    }
+
+    public String checkValue() {
+        return checkValue;
+    }
+
+    SecretKey left() {
+        return left;
+    }
+
+    SecretKey right() {
+        return right;
+    }
+
+    @Override
+    public String toString() {
+        return terminalId + " (KCV " + checkValue + ")";
+    }
+}
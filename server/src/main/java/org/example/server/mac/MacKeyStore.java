@@ -0,0 +1,165 @@
+package org.example.server.mac;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Terminal MAC keys read from a local PKCS12 keystore in which each terminal has a secret key entry
+ * aliased by its terminal id, holding a single (8 byte) or double length (16 byte) DES key. The
+ * entries are protected with the keystore password; {@link MacKeyTool} maintains them.
+ * <p>
+ * All keys are unwrapped once per load. The file is checked for changes at most every
+ * {@code reloadIntervalMillis} by the thread that happens to look a key up, and reloaded when its
+ * modification time or size changed. A terminal whose key check value is unchanged keeps its
+ * {@link MacKey} instance; the listener is told about the new key set so cached cipher state of
+ * replaced or removed keys can be dropped. A keystore that fails to load leaves the previous keys
+ * in place.
+ */
+public final class MacKeyStore {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(MacKeyStore.class);
+    private static final byte[] ZERO_BLOCK = new byte[8];
+
+    private final Path file;
+    private final char[] password;
+    private final long reloadIntervalNanos;
+    private final Consumer<Map<String, MacKey>> listener;
+    private final AtomicBoolean checking = new AtomicBoolean();
+    private volatile Map<String, MacKey> keys = Map.of();
+    private volatile long lastCheck;
+    private long lastModified = Long.MIN_VALUE;
+    private long lastSize = -1L;
+    private boolean unreadable;
+
+    MacKeyStore(Path file, char[] password, long reloadIntervalMillis, Consumer<Map<String, MacKey>> listener) {
+        this.file = file;
+        this.password = password.clone();
+        this.reloadIntervalNanos = Math.max(0L, reloadIntervalMillis) * 1_000_000L;
+        this.listener = listener;
+        lastCheck = System.nanoTime();
+        reload();
+    }
+
+    /**
+     * Returns the current key of {@code terminalId}, or {@code null} when the keystore has none.
+     */
+    public MacKey find(String terminalId) {
+        long now = System.nanoTime();
+        if (now - lastCheck >= reloadIntervalNanos && checking.compareAndSet(false, true)) {
+            try {
+                lastCheck = now;
+                reload();
+            } finally {
+                checking.set(false);
+            }
+        }
+        return terminalId == null ? null : keys.get(terminalId.toLowerCase(Locale.ROOT));
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Reloads the keystore if the file changed since the last load.
+     */
+    synchronized void reload() {
+        long modified;
+        long size;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            modified = attributes.lastModifiedTime().toMillis();
+            size = attributes.size();
+        } catch (IOException e) {
+            if (!unreadable) {
+                LOGGER.warn("MAC keystore {} is not readable; keeping {} keys", file, keys.size());
+                unreadable = true;
+                lastModified = Long.MIN_VALUE;
+            }
+            return;
+        }
+        unreadable = false;
+        if (modified == lastModified && size == lastSize) {
+            return;
+        }
+        try {
+            Map<String, MacKey> loaded = load(keys);
+            lastModified = modified;
+            lastSize = size;
+            keys = loaded;
+            listener.accept(loaded);
+            LOGGER.info("Loaded {} terminal MAC keys from {}", loaded.size(), file);
+        } catch (IOException | GeneralSecurityException e) {
+            LOGGER.error("Unable to load MAC keystore " + file + "; keeping " + keys.size() + " keys", e);
+        }
+    }
+
+    private Map<String, MacKey> load(Map<String, MacKey> previous) throws IOException, GeneralSecurityException {
+        KeyStore store = KeyStore.getInstance(file.toFile(), password);
+        KeyStore.PasswordProtection protection = new KeyStore.PasswordProtection(password);
+        Map<String, MacKey> loaded = new HashMap<>();
+        for (String alias : Collections.list(store.aliases())) {
+            if (!store.entryInstanceOf(alias, KeyStore.SecretKeyEntry.class)) {
+                continue;
+            }
+            Key key = ((KeyStore.SecretKeyEntry) store.getEntry(alias, protection)).getSecretKey();
+            byte[] material = key.getEncoded();
+            try {
+                if (material == null || (material.length != 8 && material.length != 16)) {
+                    LOGGER.warn("Skipping MAC key {}: expected a single or double length DES key", alias);
+                    continue;
+                }
+                String terminal = alias.toLowerCase(Locale.ROOT);
+                MacKey macKey = create(terminal, material);
+                MacKey unchanged = previous.get(terminal);
+                loaded.put(terminal, unchanged != null && unchanged.checkValue().equals(macKey.checkValue())
+                        ? unchanged : macKey);
+            } finally {
+                if (material != null) {
+                    Arrays.fill(material, (byte) 0);
+                }
+            }
+        }
+        return Map.copyOf(loaded);
+    }
+
+    static MacKey create(String terminalId, byte[] material) throws GeneralSecurityException {
+        SecretKey left = new SecretKeySpec(material, 0, 8, "DES");
+        SecretKey right = material.length == 16 ? new SecretKeySpec(material, 8, 8, "DES") : left;
+        return new MacKey(terminalId, checkValue(left, right), left, right);
+    }
+
+    /**
+     * Triple-DES encryption of a zero block with the key, first three bytes in hex.
+     */
+    private static String checkValue(SecretKey left, SecretKey right) throws GeneralSecurityException {
+        Cipher encrypt = Cipher.getInstance("DES/ECB/NoPadding");
+        Cipher decrypt = Cipher.getInstance("DES/ECB/NoPadding");
+        encrypt.init(Cipher.ENCRYPT_MODE, left);
+        decrypt.init(Cipher.DECRYPT_MODE, right);
+        byte[] block = encrypt.doFinal(decrypt.doFinal(encrypt.doFinal(ZERO_BLOCK)));
+        return HexFormat.of().withUpperCase().formatHex(block, 0, 3);
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.server.mac;
+
+import org.example.server.config.EnvironmentLoader;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * Maintains the terminal MAC keystore ({@code MAC_KEYSTORE}, password {@code MAC_KEYSTORE_PASSWORD}).
+ * Changes are written to a temporary file and moved into place, so a running server never reads a
+ * partial keystore and picks the change up on its next reload check.
+ * <p>
+ * Usage: {@code java -cp server.jar org.example.server.mac.MacKeyTool list | add <terminal> [hex key]
+ * | remove <terminal>}. Without a key, {@code add} generates a random double length key with odd
+ * parity.
+ */
+public final class MacKeyTool {
+    private MacKeyTool() {
+    }
+
+    public static void main(String[] args) throws IOException, GeneralSecurityException {
+        EnvironmentLoader.load();
+        if (args.length == 0) {
+            System.err.println("Usage: MacKeyTool list | add <terminal> [hex key] | remove <terminal>");
+            System.exit(2);
+        }
+        Path file = MacService.keystorePath();
+        char[] password = EnvironmentLoader.getOrDefault("MAC_KEYSTORE_PASSWORD", "").toCharArray();
+        KeyStore store;
+        if (Files.exists(file)) {
+            store = KeyStore.getInstance(file.toFile(), password);
+        } else {
+            store = KeyStore.getInstance("PKCS12");
+            store.load(null, password);
+        }
+        switch (args[0]) {
+            case "list" -> {
+                for (String alias : Collections.list(store.aliases())) {
+                    if (store.entryInstanceOf(alias, KeyStore.SecretKeyEntry.class)) {
+                        byte[] material = store.getKey(alias, password).getEncoded();
+                        System.out.printf("%-16s KCV %s%n", alias, MacKeyStore.create(alias, material).checkValue());
+                    }
+                }
+            }
+            case "add" -> {
+                if (args.length < 2) {
+                    throw new IllegalArgumentException("add requires a terminal id");
+                }
+                byte[] material = args.length > 2 ? HexFormat.of().parseHex(args[2]) : randomKey();
+                if (material.length != 8 && material.length != 16) {
+                    throw new IllegalArgumentException("Expected an 8 or 16 byte key");
+                }
+                String terminal = args[1].toLowerCase(Locale.ROOT);
+                store.setEntry(terminal, new KeyStore.SecretKeyEntry(new SecretKeySpec(material, "DESede")),
+                        new KeyStore.PasswordProtection(password));
+                write(store, file, password);
+                System.out.printf("Stored MAC key for %s, KCV %s%n", terminal,
+                        MacKeyStore.create(terminal, material).checkValue());
+                if (args.length <= 2) {
+                    System.out.println("Key: " + HexFormat.of().withUpperCase().formatHex(material));
+                }
+            }
+            case "remove" -> {
+                if (args.length < 2) {
+                    throw new IllegalArgumentException("remove requires a terminal id");
+                }
+                store.deleteEntry(args[1].toLowerCase(Locale.ROOT));
+                write(store, file, password);
+                System.out.println("Removed MAC key for " + args[1]);
+            }
+            default -> throw new IllegalArgumentException("Unknown command " + args[0]);
+        }
+    }
+
+    private static byte[] randomKey() {
+        byte[] material = new byte[16];
+        new SecureRandom().nextBytes(material);
+        for (int i = 0; i < material.length; i++) {
+            int b = material[i] & 0xfe;
+            material[i] = (byte) (Integer.bitCount(b) % 2 == 0 ? b | 1 : b);
+        }
+        return material;
+    }
+
+    private static void write(KeyStore store, Path file, char[] password) throws IOException, GeneralSecurityException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, ".mac-keys", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                store.store(out, password);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
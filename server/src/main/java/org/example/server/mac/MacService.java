@@ -0,0 +1,247 @@
+package org.example.server.mac;
+
+import org.example.server.config.EnvironmentLoader;
+import org.example.server.metrics.MetricsRegistry;
+import org.jpos.iso.ISOBasePackager;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOFieldPackager;
+import org.jpos.iso.ISOMsg;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ISO 9797-1 MAC algorithm 3 (the ANSI X9.19 retail MAC) over terminal keys from a
+ * {@link MacKeyStore}: single DES CBC with the left key half over the zero-padded data, then the
+ * last block decrypted with the right half and encrypted with the left half again.
+ * <p>
+ * Initialising three {@link Cipher}s per message costs more than MACing a request, so initialised
+ * ciphers are kept in a small pool per {@link MacKey} (at most {@code MAC_POOL_SIZE} idle sets,
+ * default 8) and borrowed for the duration of one MAC. Pools belong to a key instance: when a
+ * terminal's key changes or is removed the keystore reload drops its pool. Exported over JMX as
+ * {@code Mac}.
+ */
+public final class MacService implements MacServiceMXBean {
+    private static final byte[] ZERO_IV = new byte[8];
+    private static volatile MacService shared;
+
+    private final MacKeyStore keys;
+    private final Map<MacKey, ArrayBlockingQueue<Engine>> pools = new ConcurrentHashMap<>();
+    private final int poolSize;
+    private final AtomicLong verified = new AtomicLong();
+    private final AtomicLong verifyFailures = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong cipherInits = new AtomicLong();
+
+    public MacService(Path keystore, char[] password, long reloadIntervalMillis, int poolSize) {
+        this.poolSize = Math.max(1, poolSize);
+        this.keys = new MacKeyStore(keystore, password, reloadIntervalMillis, this::retain);
+    }
+
+    /**
+     * The service for {@code MAC_KEYSTORE} (default {@code mac-keys.p12} in the jPOS home directory)
+     * opened with {@code MAC_KEYSTORE_PASSWORD}, checked for changes every
+     * {@code MAC_KEYSTORE_RELOAD_MS} milliseconds.
+     */
+    public static MacService shared() {
+        MacService service = shared;
+        if (service == null) {
+            synchronized (MacService.class) {
+                service = shared;
+                if (service == null) {
+                    service = new MacService(keystorePath(),
+                            EnvironmentLoader.getOrDefault("MAC_KEYSTORE_PASSWORD", "").toCharArray(),
+                            EnvironmentLoader.getInt("MAC_KEYSTORE_RELOAD_MS", 5000),
+                            EnvironmentLoader.getInt("MAC_POOL_SIZE", 8));
+                    MetricsRegistry.register(MetricsRegistry.name("Mac"), service);
+                    shared = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    static Path keystorePath() {
+        return EnvironmentLoader.get("MAC_KEYSTORE")
+                .map(Path::of)
+                .orElse(Path.of(System.getProperty("jpos.home", "."), "mac-keys.p12"))
+                .toAbsolutePath();
+    }
+
+    /**
+     * Returns the current MAC key of {@code terminalId}, or {@code null} when it has none.
+     */
+    public MacKey find(String terminalId) {
+        return keys.find(terminalId);
+    }
+
+    /**
+     * Returns the MAC of {@code length} bytes of {@code data} starting at {@code offset}.
+     */
+    public byte[] generate(MacKey key, byte[] data, int offset, int length) throws GeneralSecurityException {
+        Engine engine = borrow(key);
+        try {
+            generated.incrementAndGet();
+            return engine.mac(data, offset, length).clone();
+        } finally {
+            release(key, engine);
+        }
+    }
+
+    /**
+     * Checks {@code mac} against the MAC of the data in constant time.
+     */
+    public boolean verify(MacKey key, byte[] data, int offset, int length, byte[] mac)
+            throws GeneralSecurityException {
+        Engine engine = borrow(key);
+        boolean valid;
+        try {
+            valid = MessageDigest.isEqual(engine.mac(data, offset, length), mac);
+        } finally {
+            release(key, engine);
+        }
+        (valid ? verified : verifyFailures).incrementAndGet();
+        return valid;
+    }
+
+    /**
+     * The MAC field of {@code message}: 128 when it has a secondary bitmap, 64 otherwise.
+     */
+    public static int macField(ISOMsg message) {
+        for (int field = 128; field > 64; field--) {
+            if (message.hasField(field)) {
+                return 128;
+            }
+        }
+        return 64;
+    }
+
+    /**
+     * Removes fields 64 and 128 from {@code message}. Responses built by cloning a request must go
+     * through this (or be re-MACed) so that the request's MAC is never echoed back to the terminal.
+     */
+    public static void removeMac(ISOMsg message) {
+        if (message.hasField(64)) {
+            message.unset(64);
+        }
+        if (message.hasField(128)) {
+            message.unset(128);
+        }
+    }
+
+    /**
+     * Length of the MAC field at the end of a message packed with the message's packager. The MAC
+     * covers the packed message up to that field.
+     */
+    public static int packedMacLength(ISOMsg message, int field) throws ISOException {
+        if (!(message.getPackager() instanceof ISOBasePackager packager)) {
+            throw new ISOException("MAC requires an ISOBasePackager, got " + message.getPackager());
+        }
+        ISOFieldPackager fieldPackager = packager.getFieldPackager(field);
+        if (fieldPackager == null) {
+            throw new ISOException("Packager does not define MAC field " + field);
+        }
+        return fieldPackager.getMaxPackedLength();
+    }
+
+    private Engine borrow(MacKey key) throws GeneralSecurityException {
+        Engine engine = pools.computeIfAbsent(key, k -> new ArrayBlockingQueue<>(poolSize)).poll();
+        if (engine == null) {
+            cipherInits.incrementAndGet();
+            engine = new Engine(key);
+        }
+        return engine;
+    }
+
+    private void release(MacKey key, Engine engine) {
+        ArrayBlockingQueue<Engine> pool = pools.get(key);
+        if (pool != null) {
+            pool.offer(engine);
+        }
+    }
+
+    private void retain(Map<String, MacKey> current) {
+        pools.keySet().retainAll(Set.copyOf(current.values()));
+    }
+
+    @Override
+    public String getKeystore() {
+        return keys.file().toString();
+    }
+
+    @Override
+    public int getKeys() {
+        return keys.size();
+    }
+
+    @Override
+    public int getCachedKeys() {
+        return pools.size();
+    }
+
+    @Override
+    public long getVerified() {
+        return verified.get();
+    }
+
+    @Override
+    public long getVerifyFailures() {
+        return verifyFailures.get();
+    }
+
+    @Override
+    public long getGenerated() {
+        return generated.get();
+    }
+
+    @Override
+    public long getCipherInits() {
+        return cipherInits.get();
+    }
+
+    /**
+     * The initialised ciphers for one key, used by one thread at a time.
+     */
+    private static final class Engine {
+        private final Cipher chain;
+        private final Cipher decryptRight;
+        private final Cipher encryptLeft;
+        private final byte[] block = new byte[8];
+        private byte[] buffer = new byte[512];
+
+        private Engine(MacKey key) throws GeneralSecurityException {
+            chain = Cipher.getInstance("DES/CBC/NoPadding");
+            chain.init(Cipher.ENCRYPT_MODE, key.left(), new IvParameterSpec(ZERO_IV));
+            decryptRight = Cipher.getInstance("DES/ECB/NoPadding");
+            decryptRight.init(Cipher.DECRYPT_MODE, key.right());
+            encryptLeft = Cipher.getInstance("DES/ECB/NoPadding");
+            encryptLeft.init(Cipher.ENCRYPT_MODE, key.left());
+        }
+
+        /**
+         * Returns the MAC in a buffer that is reused by the next call. {@code doFinal} leaves each
+         * cipher in its initialised state, with the zero IV, so no re-initialisation is needed.
+         */
+        private byte[] mac(byte[] data, int offset, int length) throws GeneralSecurityException {
+            int padded = Math.max(8, (length + 7) & ~7);
+            if (buffer.length < padded) {
+                buffer = new byte[Math.max(padded, buffer.length * 2)];
+            }
+            System.arraycopy(data, offset, buffer, 0, length);
+            Arrays.fill(buffer, length, padded, (byte) 0);
+            chain.doFinal(buffer, 0, padded, buffer, 0);
+            decryptRight.doFinal(buffer, padded - 8, 8, block, 0);
+            encryptLeft.doFinal(block, 0, 8, block, 0);
+            return block;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.server.mac;
+
+/**
+ * JMX view of the {@link MacService}.
+ */
+public interface MacServiceMXBean {
+    String getKeystore();
+
+    int getKeys();
+
+    int getCachedKeys();
+
+    long getVerified();
+
+    long getVerifyFailures();
+
+    long getGenerated();
+
+    long getCipherInits();
+}
@@ -0,0 +1,183 @@
+package org.example.server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets (16 sub-buckets per power of two, roughly
+ * 6% relative error). Recording is a couple of atomic increments, so it is safe to call on every
+ * transaction from any thread.
+ */
+public final class LatencyRecorder implements LatencyRecorderMXBean {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long duration, TimeUnit unit) {
+        recordMicros(unit.toMicros(duration));
+    }
+
+    public void recordNanos(long nanos) {
+        recordMicros(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public void recordMicros(long micros) {
+        long value = Math.max(0L, micros);
+        buckets.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        return new Snapshot(total, total == 0 ? 0.0 : (double) sum.sum() / count.sum(), counts, max.get());
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long samples = count.sum();
+        return samples == 0 ? 0.0 : (double) sum.sum() / samples;
+    }
+
+    @Override
+    public long getP50Micros() {
+        return snapshot().percentile(50.0);
+    }
+
+    @Override
+    public long getP90Micros() {
+        return snapshot().percentile(90.0);
+    }
+
+    @Override
+    public long getP99Micros() {
+        return snapshot().percentile(99.0);
+    }
+
+    @Override
+    public long getP999Micros() {
+        return snapshot().percentile(99.9);
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return max.get();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0L);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0L);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long lower = (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Point-in-time copy of the histogram.
+     */
+    public static final class Snapshot {
+        private final long count;
+        private final double mean;
+        private final long[] counts;
+        private final long max;
+
+        private Snapshot(long count, double mean, long[] counts, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.counts = counts;
+            this.max = max;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public double mean() {
+            return mean;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        /**
+         * Returns the smallest recorded bucket bound below which {@code percentile} percent of the
+         * samples fall, in microseconds.
+         */
+        public long percentile(double percentile) {
+            if (count == 0) {
+                return 0L;
+            }
+            long rank = (long) Math.ceil(percentile / 100.0 * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return Math.min(upperBoundOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * Returns the samples recorded since {@code earlier} was taken.
+         */
+        public Snapshot since(Snapshot earlier) {
+            long[] delta = new long[counts.length];
+            long total = 0;
+            long deltaMax = 0;
+            for (int i = 0; i < counts.length; i++) {
+                delta[i] = counts[i] - earlier.counts[i];
+                total += delta[i];
+                if (delta[i] > 0) {
+                    deltaMax = upperBoundOf(i);
+                }
+            }
+            double deltaMean = total == 0 ? 0.0
+                    : (mean * count - earlier.mean * earlier.count) / total;
+            return new Snapshot(total, deltaMean, delta, Math.min(deltaMax, max));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.server.metrics;
+
+/**
+ * JMX view of a {@link LatencyRecorder}. All values are reported in microseconds.
+ */
+public interface LatencyRecorderMXBean {
+    long getCount();
+
+    double getMeanMicros();
+
+    long getP50Micros();
+
+    long getP90Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+
+    long getMaxMicros();
+
+    void reset();
+}
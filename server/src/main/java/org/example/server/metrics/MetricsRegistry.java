@@ -0,0 +1,91 @@
+package org.example.server.metrics;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exports server metrics as MBeans on the platform {@link MBeanServer} under the
+ * {@code org.example.server} domain, so they can be read with JConsole, JMX exporters or
+ * {@code jcmd}.
+ */
+public final class MetricsRegistry {
+    public static final String DOMAIN = "org.example.server";
+
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(MetricsRegistry.class);
+    private static final Map<ObjectName, Object> REGISTERED = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Builds an object name such as {@code org.example.server:type=Dispatcher,lane=AUTHORIZATION}.
+     *
+     * @param type       value of the {@code type} key
+     * @param properties additional key/value pairs
+     */
+    public static ObjectName name(String type, String... properties) {
+        if (properties.length % 2 != 0) {
+            throw new IllegalArgumentException("Properties must be key/value pairs");
+        }
+        StringBuilder builder = new StringBuilder(DOMAIN).append(":type=").append(ObjectName.quote(type));
+        for (int i = 0; i < properties.length; i += 2) {
+            builder.append(',').append(properties[i]).append('=').append(ObjectName.quote(properties[i + 1]));
+        }
+        try {
+            return new ObjectName(builder.toString());
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid metric name " + builder, e);
+        }
+    }
+
+    /**
+     * Registers {@code mbean} under {@code name}, replacing any previous registration (for example
+     * after a Q2 redeploy of the owning bean).
+     */
+    public static void register(ObjectName name, Object mbean) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+            REGISTERED.put(name, mbean);
+        } catch (InstanceAlreadyExistsException | MBeanRegistrationException | NotCompliantMBeanException
+                 | InstanceNotFoundException e) {
+            LOGGER.warn("Unable to register metric " + name, e);
+        }
+    }
+
+    public static void unregister(ObjectName name) {
+        REGISTERED.remove(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (InstanceNotFoundException | MBeanRegistrationException e) {
+            LOGGER.warn("Unable to unregister metric " + name, e);
+        }
+    }
+
+    /**
+     * Unregisters {@code name} only while it still refers to {@code mbean}, so a bean being retired
+     * does not remove the registration of the one that replaced it.
+     */
+    public static void unregister(ObjectName name, Object mbean) {
+        if (REGISTERED.get(name) == mbean) {
+            unregister(name);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.server.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection acquire and usage timings for a HikariCP pool, collected through Hikari's metrics
+ * tracker hook. Install {@link #trackerFactory()} on the pool configuration; the timings are then
+ * available from {@link #forPool(String)} and exported as {@code ConnectionAcquire} and
+ * {@code ConnectionUsage} MBeans.
+ */
+public final class PoolMetrics {
+    private static final Map<String, PoolMetrics> POOLS = new ConcurrentHashMap<>();
+    private static final MetricsTrackerFactory FACTORY = PoolMetrics::create;
+
+    private final String poolName;
+    private final LatencyRecorder acquire = new LatencyRecorder();
+    private final LatencyRecorder usage = new LatencyRecorder();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private PoolMetrics(String poolName) {
+        this.poolName = poolName;
+    }
+
+    public static MetricsTrackerFactory trackerFactory() {
+        return FACTORY;
+    }
+
+    /**
+     * Returns the metrics of the running pool called {@code poolName}, or {@code null} when no such
+     * pool was created with {@link #trackerFactory()}.
+     */
+    public static PoolMetrics forPool(String poolName) {
+        return POOLS.get(poolName);
+    }
+
+    public String poolName() {
+        return poolName;
+    }
+
+    /**
+     * Time callers spent waiting in {@code getConnection()}.
+     */
+    public LatencyRecorder acquire() {
+        return acquire;
+    }
+
+    /**
+     * Time between borrowing a connection and returning it, a proxy for database latency.
+     */
+    public LatencyRecorder usage() {
+        return usage;
+    }
+
+    /**
+     * Number of {@code getConnection()} calls that timed out.
+     */
+    public long timeouts() {
+        return timeouts.get();
+    }
+
+    private static IMetricsTracker create(String poolName, PoolStats poolStats) {
+        PoolMetrics metrics = new PoolMetrics(poolName);
+        POOLS.put(poolName, metrics);
+        MetricsRegistry.register(MetricsRegistry.name("ConnectionAcquire", "pool", poolName), metrics.acquire);
+        MetricsRegistry.register(MetricsRegistry.name("ConnectionUsage", "pool", poolName), metrics.usage);
+        return metrics.new Tracker();
+    }
+
+    private final class Tracker implements IMetricsTracker {
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquire.recordNanos(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usage.record(elapsedBorrowedMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            POOLS.remove(poolName, PoolMetrics.this);
+            MetricsRegistry.unregister(MetricsRegistry.name("ConnectionAcquire", "pool", poolName));
+            MetricsRegistry.unregister(MetricsRegistry.name("ConnectionUsage", "pool", poolName));
+        }
+    }
+}
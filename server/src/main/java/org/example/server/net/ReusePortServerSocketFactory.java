@@ -0,0 +1,112 @@
+package org.example.server.net;
+
+import org.example.server.config.EnvironmentLoader;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.jpos.iso.ISOServerSocketFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Server socket factory for {@code QServer} that can bind with {@code SO_REUSEPORT}, so several
+ * server processes on one host share {@code SERVER_PORT} and the kernel spreads new connections
+ * between them. Enabled with {@code SERVER_REUSE_PORT=true}; otherwise it binds a plain listener.
+ * <p>
+ * {@link #stopAccepting()} closes every listener created by this factory, which stops the process
+ * taking new connections while established sessions keep working. {@code ISOServer} then asks for
+ * a new listener and gets one that is never bound and blocks in {@code accept} until
+ * {@code ISOServer} closes it at shutdown, so its accept loop idles instead of retrying and logging
+ * a bind failure every few seconds. Ingress listeners check {@link #isDraining()} to decline
+ * requests that still arrive on established sessions.
+ */
+public class ReusePortServerSocketFactory implements ISOServerSocketFactory {
+    public static final String REUSE_PORT_KEY = "SERVER_REUSE_PORT";
+
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(ReusePortServerSocketFactory.class);
+    private static final Set<ServerSocket> LISTENERS = new CopyOnWriteArraySet<>();
+    private static volatile boolean accepting = true;
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        if (!accepting) {
+            return new DrainedServerSocket();
+        }
+        ServerSocket socket = new ServerSocket();
+        try {
+            socket.setReuseAddress(true);
+            if (Boolean.parseBoolean(EnvironmentLoader.getOrDefault(REUSE_PORT_KEY, "false"))) {
+                if (!socket.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                    throw new IOException("SO_REUSEPORT is not supported on this platform");
+                }
+                socket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            socket.bind(new InetSocketAddress(port), EnvironmentLoader.getInt("SERVER_BACKLOG", 128));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        LISTENERS.add(socket);
+        LOGGER.info("Listening on port {} (SO_REUSEPORT {})", port,
+                socket.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)
+                        && socket.getOption(StandardSocketOptions.SO_REUSEPORT));
+        return socket;
+    }
+
+    /**
+     * Whether {@link #stopAccepting()} was called: the process is shutting down.
+     */
+    public static boolean isDraining() {
+        return !accepting;
+    }
+
+    /**
+     * Closes all listeners and refuses new ones. Connections already accepted are not affected.
+     */
+    public static void stopAccepting() {
+        accepting = false;
+        for (ServerSocket socket : LISTENERS) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to close listener {}", socket.getLocalSocketAddress(), e);
+            }
+        }
+        LISTENERS.clear();
+        LOGGER.info("Stopped accepting new connections");
+    }
+
+    /**
+     * Unbound listener handed out while draining: {@code accept} waits until the socket is closed.
+     */
+    private static final class DrainedServerSocket extends ServerSocket {
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        private DrainedServerSocket() throws IOException {
+            super();
+        }
+
+        @Override
+        public Socket accept() throws IOException {
+            try {
+                closed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new SocketException("Server is draining");
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed.countDown();
+            super.close();
+        }
+    }
+}
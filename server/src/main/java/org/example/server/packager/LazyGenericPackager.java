@@ -0,0 +1,204 @@
+package org.example.server.packager;
+
+import org.jpos.iso.IFA_AMOUNT;
+import org.jpos.iso.IFA_BINARY;
+import org.jpos.iso.IFA_BITMAP;
+import org.jpos.iso.IFA_LLCHAR;
+import org.jpos.iso.IFA_LLLCHAR;
+import org.jpos.iso.IFA_LLNUM;
+import org.jpos.iso.IFA_NUMERIC;
+import org.jpos.iso.IF_CHAR;
+import org.jpos.iso.ISOBitMap;
+import org.jpos.iso.ISOComponent;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOFieldPackager;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.packager.GenericPackager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * {@link GenericPackager} that unpacks into {@link LazyISOMsg}: only the MTI and bitmap are decoded
+ * when a frame arrives, the remaining fields are located by their length prefixes and decoded when
+ * first read. Packing a {@code LazyISOMsg} from this packager copies unchanged fields straight
+ * from the received frame and re-encodes only the fields that were set.
+ * <p>
+ * Locating fields without decoding them is supported for the ASCII field packagers used by
+ * {@code packager/iso87ascii.xml} (fixed {@code IFA_NUMERIC}, {@code IFA_AMOUNT}, {@code IF_CHAR},
+ * {@code IFA_BINARY} and the {@code IFA_LL*}/{@code IFA_LLL*} variable fields). A frame using any
+ * other field packager, or one that does not parse, falls back to the regular eager unpack, so
+ * errors are reported exactly as {@code GenericPackager} reports them.
+ */
+public class LazyGenericPackager extends GenericPackager {
+    private static final int MAX_FIELD = 128;
+    private static final int BITMAP_CHARS = 16;
+
+    public LazyGenericPackager() throws ISOException {
+        super();
+    }
+
+    public LazyGenericPackager(String filename) throws ISOException {
+        super(filename);
+    }
+
+    public LazyGenericPackager(InputStream input) throws ISOException {
+        super(input);
+    }
+
+    @Override
+    public ISOMsg createISOMsg() {
+        return new LazyISOMsg();
+    }
+
+    @Override
+    public int unpack(ISOComponent m, byte[] b) throws ISOException {
+        if (!(m instanceof LazyISOMsg message)) {
+            return super.unpack(m, b);
+        }
+        int[] offsets = new int[MAX_FIELD + 1];
+        int[] lengths = new int[MAX_FIELD + 1];
+        BitSet present = new BitSet(MAX_FIELD + 1);
+        int consumed = locate(b, offsets, lengths, present);
+        if (consumed < 0) {
+            return super.unpack(m, b);
+        }
+        message.attach(this, b, consumed, offsets, lengths, present);
+        ISOFieldPackager mtiPackager = getFieldPackager(0);
+        ISOComponent mti = mtiPackager.createComponent(0);
+        mtiPackager.unpack(mti, b, 0);
+        message.attachDecoded(mti);
+        return consumed;
+    }
+
+    @Override
+    public byte[] pack(ISOComponent m) throws ISOException {
+        if (m instanceof LazyISOMsg message && message.origin() == this) {
+            return message.isModified() ? repack(message) : Arrays.copyOf(message.frame(), message.frameLength());
+        }
+        if (m instanceof LazyISOMsg message) {
+            message.decodeAll();
+        }
+        return super.pack(m);
+    }
+
+    private byte[] repack(LazyISOMsg message) throws ISOException {
+        BitSet present = message.presentFields();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(message.frameLength() + 64);
+        out.writeBytes(getFieldPackager(0).pack(message.getComponent(0)));
+        out.writeBytes(getFieldPackager(1).pack(new ISOBitMap(-1, present)));
+        for (int field = present.nextSetBit(2); field >= 0; field = present.nextSetBit(field + 1)) {
+            if (message.isRawCopyable(field)) {
+                out.write(message.frame(), message.offset(field), message.length(field));
+                continue;
+            }
+            ISOFieldPackager fieldPackager = getFieldPackager(field);
+            if (fieldPackager == null) {
+                throw new ISOException("Field " + field + " is not defined by the packager");
+            }
+            out.writeBytes(fieldPackager.pack(message.getComponent(field)));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Records the offset and packed length of every field after the bitmap.
+     *
+     * @return the number of bytes consumed, or {@code -1} when the frame has to be unpacked eagerly
+     */
+    private int locate(byte[] b, int[] offsets, int[] lengths, BitSet present) {
+        if (fld == null || fld.length <= MAX_FIELD || !(fld[1] instanceof IFA_BITMAP)) {
+            return -1;
+        }
+        int offset = fixedLength(fld[0]);
+        if (offset < 0 || b.length < offset + BITMAP_CHARS) {
+            return -1;
+        }
+        int bitmapChars = (hexDigit(b[offset]) & 0x8) != 0 ? 2 * BITMAP_CHARS : BITMAP_CHARS;
+        if (b.length < offset + bitmapChars) {
+            return -1;
+        }
+        for (int i = 0; i < bitmapChars; i++) {
+            int nibble = hexDigit(b[offset + i]);
+            if (nibble < 0) {
+                return -1;
+            }
+            for (int bit = 0; bit < 4; bit++) {
+                if ((nibble & (0x8 >> bit)) != 0) {
+                    present.set(i * 4 + bit + 1);
+                }
+            }
+        }
+        present.clear(1);
+        offset += bitmapChars;
+        for (int field = present.nextSetBit(2); field >= 0; field = present.nextSetBit(field + 1)) {
+            int length = fld[field] == null ? -1 : packedLength(fld[field], b, offset);
+            if (length < 0 || offset + length > b.length) {
+                return -1;
+            }
+            offsets[field] = offset;
+            lengths[field] = length;
+            offset += length;
+        }
+        return offset;
+    }
+
+    private static int packedLength(ISOFieldPackager fieldPackager, byte[] b, int offset) {
+        int fixed = fixedLength(fieldPackager);
+        if (fixed >= 0) {
+            return fixed;
+        }
+        Class<?> type = fieldPackager.getClass();
+        if (type == IFA_LLCHAR.class || type == IFA_LLNUM.class) {
+            int length = digits(b, offset, 2);
+            return length < 0 ? -1 : 2 + length;
+        }
+        if (type == IFA_LLLCHAR.class) {
+            int length = digits(b, offset, 3);
+            return length < 0 ? -1 : 3 + length;
+        }
+        return -1;
+    }
+
+    /**
+     * Packed length of the fixed-length ASCII field packagers, matched by exact class so that
+     * subclasses with a different encoding fall back to eager unpacking.
+     */
+    private static int fixedLength(ISOFieldPackager fieldPackager) {
+        Class<?> type = fieldPackager.getClass();
+        if (type == IFA_NUMERIC.class || type == IFA_AMOUNT.class || type == IF_CHAR.class || type == IFA_BINARY.class) {
+            return fieldPackager.getMaxPackedLength();
+        }
+        return -1;
+    }
+
+    private static int digits(byte[] b, int offset, int count) {
+        if (offset + count > b.length) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = b[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int hexDigit(byte c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+}
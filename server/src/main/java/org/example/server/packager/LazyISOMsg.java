@@ -0,0 +1,213 @@
+package org.example.server.packager;
+
+import org.jpos.iso.ISOComponent;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOFieldPackager;
+import org.jpos.iso.ISOMsg;
+
+import java.io.ObjectOutput;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * {@link ISOMsg} that keeps the frame it was unpacked from and decodes fields on first access.
+ * <p>
+ * {@link LazyGenericPackager} decodes the MTI and bitmap eagerly and records where every other
+ * field sits in the frame. {@link #getComponent(int)} (and therefore {@code getString},
+ * {@code getValue} and friends) decodes a field the first time it is read; {@link #hasField(int)}
+ * answers from the bitmap. Fields that were never replaced or removed are copied back as raw
+ * bytes when the message, or a {@link #clone() clone} of it such as a response, is packed by the
+ * same packager. Any API that walks all fields ({@link #getChildren()}, {@link #dump}) decodes
+ * everything first, so the message behaves like a regular {@code ISOMsg}. Like {@code ISOMsg},
+ * instances are not thread-safe.
+ */
+public class LazyISOMsg extends ISOMsg {
+    private byte[] frame;
+    private int frameLength;
+    private int[] offsets;
+    private int[] lengths;
+    private LazyGenericPackager origin;
+    private BitSet undecoded = new BitSet();
+    private BitSet rawCopyable = new BitSet();
+    private boolean modified;
+
+    public LazyISOMsg() {
+    }
+
+    void attach(LazyGenericPackager origin, byte[] frame, int frameLength, int[] offsets, int[] lengths,
+                BitSet present) {
+        this.origin = origin;
+        this.frame = frame;
+        this.frameLength = frameLength;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.undecoded = (BitSet) present.clone();
+        this.rawCopyable = (BitSet) present.clone();
+        this.modified = false;
+    }
+
+    /**
+     * Stores a field decoded while attaching (the MTI) without marking the message modified.
+     */
+    void attachDecoded(ISOComponent component) throws ISOException {
+        super.set(component);
+    }
+
+    LazyGenericPackager origin() {
+        return origin;
+    }
+
+    byte[] frame() {
+        return frame;
+    }
+
+    int frameLength() {
+        return frameLength;
+    }
+
+    boolean isModified() {
+        return modified;
+    }
+
+    boolean isRawCopyable(int fieldNumber) {
+        return rawCopyable.get(fieldNumber);
+    }
+
+    int offset(int fieldNumber) {
+        return offsets[fieldNumber];
+    }
+
+    int length(int fieldNumber) {
+        return lengths[fieldNumber];
+    }
+
+    /**
+     * Copy of the frame the message was unpacked from, whatever was changed since, or {@code null}
+     * when it was not unpacked by a {@link LazyGenericPackager}.
+     */
+    public byte[] originalFrame() {
+        return frame == null ? null : Arrays.copyOf(frame, frameLength);
+    }
+
+    /**
+     * Fields present in the message, decoded or not, excluding the MTI and bitmap.
+     */
+    public BitSet presentFields() {
+        BitSet present = (BitSet) undecoded.clone();
+        for (Object key : super.getChildren().keySet()) {
+            if (key instanceof Integer field && field > 1) {
+                present.set(field);
+            }
+        }
+        return present;
+    }
+
+    @Override
+    public ISOComponent getComponent(int fieldNumber) {
+        if (fieldNumber >= 0 && undecoded.get(fieldNumber)) {
+            decode(fieldNumber);
+        }
+        return super.getComponent(fieldNumber);
+    }
+
+    @Override
+    public boolean hasField(int fieldNumber) {
+        return (fieldNumber >= 0 && undecoded.get(fieldNumber)) || super.hasField(fieldNumber);
+    }
+
+    @Override
+    public void set(ISOComponent component) throws ISOException {
+        if (component.getKey() instanceof Integer field && field >= 0) {
+            undecoded.clear(field);
+            rawCopyable.clear(field);
+        }
+        modified = true;
+        super.set(component);
+    }
+
+    @Override
+    public void unset(int fieldNumber) {
+        if (fieldNumber >= 0) {
+            undecoded.clear(fieldNumber);
+            rawCopyable.clear(fieldNumber);
+        }
+        modified = true;
+        super.unset(fieldNumber);
+    }
+
+    @Override
+    public byte[] pack() throws ISOException {
+        if (getPackager() instanceof LazyGenericPackager packager && packager == origin) {
+            return packager.pack(this);
+        }
+        decodeAll();
+        return super.pack();
+    }
+
+    @Override
+    public Map getChildren() {
+        decodeAll();
+        return super.getChildren();
+    }
+
+    @Override
+    public int getMaxField() {
+        decodeAll();
+        return super.getMaxField();
+    }
+
+    @Override
+    public void recalcBitMap() throws ISOException {
+        decodeAll();
+        super.recalcBitMap();
+    }
+
+    @Override
+    public void dump(PrintStream p, String indent) {
+        decodeAll();
+        super.dump(p, indent);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) {
+        decodeAll();
+        super.writeExternal(out);
+    }
+
+    @Override
+    public Object clone() {
+        LazyISOMsg copy = (LazyISOMsg) super.clone();
+        copy.undecoded = (BitSet) undecoded.clone();
+        copy.rawCopyable = (BitSet) rawCopyable.clone();
+        return copy;
+    }
+
+    @Override
+    public ISOMsg clone(int... fields) {
+        decodeAll();
+        return super.clone(fields);
+    }
+
+    /**
+     * Decodes every field that has not been read yet.
+     */
+    public void decodeAll() {
+        for (int field = undecoded.nextSetBit(0); field >= 0; field = undecoded.nextSetBit(field + 1)) {
+            decode(field);
+        }
+    }
+
+    private void decode(int fieldNumber) {
+        undecoded.clear(fieldNumber);
+        ISOFieldPackager fieldPackager = origin.getFieldPackager(fieldNumber);
+        try {
+            ISOComponent component = fieldPackager.createComponent(fieldNumber);
+            fieldPackager.unpack(component, frame, offsets[fieldNumber]);
+            super.set(component);
+        } catch (ISOException e) {
+            throw new IllegalStateException("Unable to unpack field " + fieldNumber, e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.server.pan;
+
+import org.example.server.config.DataSourceProvider;
+import org.example.server.config.EnvironmentLoader;
+import org.example.server.config.Shard;
+import org.example.server.config.ShardedDataSource;
+
+import java.security.GeneralSecurityException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * Tokenizes and encrypts the clear PANs that {@code ISO_MESSAGES} rows stored before PAN
+ * tokenization still hold, and clears them, so {@link PanLookup} finds those rows too and the
+ * {@code PAN} column can be dropped. Run it on every shard after
+ * {@code db/migrations/005-tokenize-pan.sql}, with the keystore the server uses:
+ * <pre>
+ * java -cp server.jar org.example.server.pan.PanBackfill [batch-size]
+ * </pre>
+ * Rows are updated {@code batch-size} at a time (default 1000), each batch in its own
+ * transaction, so the tool can run next to the server and be interrupted and started again.
+ */
+public final class PanBackfill {
+    private static final String COLUMN_SQL = "SELECT COUNT(*) FROM USER_TAB_COLUMNS " +
+            "WHERE TABLE_NAME = 'ISO_MESSAGES' AND COLUMN_NAME = 'PAN'";
+    private static final String SELECT_SQL = "SELECT ROWID, PAN FROM ISO_MESSAGES WHERE PAN IS NOT NULL AND ROWNUM <= ?";
+    private static final String UPDATE_SQL = "UPDATE ISO_MESSAGES SET PAN_TOKEN = ?, PAN_ENCRYPTED = ?, PAN = NULL " +
+            "WHERE ROWID = ?";
+
+    private final ShardedDataSource shards;
+    private final PanVault vault;
+    private final int batchSize;
+
+    public PanBackfill(ShardedDataSource shards, PanVault vault, int batchSize) {
+        this.shards = Objects.requireNonNull(shards, "shards");
+        this.vault = Objects.requireNonNull(vault, "vault");
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Backfills every shard.
+     *
+     * @return number of rows whose PAN was tokenized
+     */
+    public long run() throws SQLException, GeneralSecurityException {
+        long total = 0;
+        for (Shard shard : shards.shards()) {
+            long rows = backfill(shard);
+            System.out.printf("%s: %d rows tokenized%n", shard.getName(), rows);
+            total += rows;
+        }
+        return total;
+    }
+
+    private long backfill(Shard shard) throws SQLException, GeneralSecurityException {
+        try (Connection connection = shard.dataSource().getConnection()) {
+            if (!hasClearPanColumn(connection)) {
+                return 0L;
+            }
+            connection.setAutoCommit(false);
+            long done = 0;
+            try (PreparedStatement select = connection.prepareStatement(SELECT_SQL);
+                 PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+                select.setInt(1, batchSize);
+                int batch;
+                do {
+                    batch = 0;
+                    try (ResultSet rows = select.executeQuery()) {
+                        while (rows.next()) {
+                            String pan = rows.getString(2);
+                            long token = vault.token(pan);
+                            update.setBytes(1, PanToken.toBytes(token));
+                            update.setBytes(2, vault.encrypt(pan, token));
+                            update.setString(3, rows.getString(1));
+                            update.addBatch();
+                            batch++;
+                        }
+                    }
+                    if (batch > 0) {
+                        update.executeBatch();
+                    }
+                    connection.commit();
+                    done += batch;
+                } while (batch == batchSize);
+            } catch (SQLException | GeneralSecurityException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+            return done;
+        }
+    }
+
+    private static boolean hasClearPanColumn(Connection connection) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(COLUMN_SQL);
+             ResultSet rows = select.executeQuery()) {
+            return rows.next() && rows.getInt(1) > 0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        EnvironmentLoader.load();
+        try {
+            long rows = new PanBackfill(DataSourceProvider.getShards(), PanVault.shared(), batchSize).run();
+            System.out.printf("Tokenized %d PANs; the PAN column can now be dropped%n", rows);
+        } finally {
+            DataSourceProvider.close();
+        }
+    }
+}
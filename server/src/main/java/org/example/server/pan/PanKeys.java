@@ -0,0 +1,139 @@
+package org.example.server.pan;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * PAN protection keys read from a local PKCS12 keystore:
+ * <ul>
+ *     <li>{@code pan-token} - the HMAC-SHA256 key PAN tokens are derived from. It can never be
+ *     rotated without re-tokenizing every stored row, since tokens are how rows are found.</li>
+ *     <li>{@code pan-data-<n>} - AES keys that encrypt the PANs, {@code n} from 1 to 255. New rows
+ *     use the highest {@code n}; older keys stay for decrypting the rows written with them.</li>
+ * </ul>
+ * Entries are created with, for example,
+ * {@code keytool -genseckey -storetype PKCS12 -keystore pan-keys.p12 -alias pan-data-2 -keyalg AES -keysize 256}.
+ * A missing keystore is an error: starting with new keys would silently write rows that can never
+ * be matched with the old ones. Only an explicit bootstrap creates one, with a fresh token key and
+ * {@code pan-data-1}; it must then be backed up, since the stored PANs cannot be read or found
+ * without it.
+ */
+final class PanKeys {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(PanKeys.class);
+    static final String TOKEN_ALIAS = "pan-token";
+    static final String DATA_ALIAS_PREFIX = "pan-data-";
+
+    private final SecretKey tokenKey;
+    private final Map<Integer, SecretKey> dataKeys;
+    private final int currentDataKey;
+
+    private PanKeys(SecretKey tokenKey, Map<Integer, SecretKey> dataKeys) {
+        this.tokenKey = tokenKey;
+        this.dataKeys = Map.copyOf(dataKeys);
+        this.currentDataKey = dataKeys.keySet().stream().mapToInt(Integer::intValue).max().orElseThrow();
+    }
+
+    /**
+     * Loads {@code file}. When it does not exist it is created first if {@code bootstrap} is set,
+     * otherwise loading fails.
+     */
+    static PanKeys load(Path file, char[] password, boolean bootstrap) throws IOException, GeneralSecurityException {
+        if (!Files.exists(file)) {
+            if (!bootstrap) {
+                throw new NoSuchFileException(file.toString(), null,
+                        "PAN keystore not found; restore it, or set PAN_KEYSTORE_BOOTSTRAP=true once to create new keys");
+            }
+            create(file, password);
+        }
+        KeyStore store = KeyStore.getInstance(file.toFile(), password);
+        KeyStore.PasswordProtection protection = new KeyStore.PasswordProtection(password);
+        SecretKey tokenKey = null;
+        Map<Integer, SecretKey> dataKeys = new HashMap<>();
+        for (String alias : Collections.list(store.aliases())) {
+            if (!store.entryInstanceOf(alias, KeyStore.SecretKeyEntry.class)) {
+                continue;
+            }
+            SecretKey key = ((KeyStore.SecretKeyEntry) store.getEntry(alias, protection)).getSecretKey();
+            String name = alias.toLowerCase(Locale.ROOT);
+            if (TOKEN_ALIAS.equals(name)) {
+                tokenKey = key;
+            } else if (name.startsWith(DATA_ALIAS_PREFIX)) {
+                int id = dataKeyId(name);
+                byte[] material = key.getEncoded();
+                int length = material == null ? 0 : material.length;
+                if (material != null) {
+                    Arrays.fill(material, (byte) 0);
+                }
+                if (id < 1 || id > 255 || (length != 16 && length != 32)) {
+                    LOGGER.warn("Skipping PAN key {}: expected pan-data-1 to pan-data-255 holding an AES-128 or AES-256 key",
+                            alias);
+                    continue;
+                }
+                dataKeys.put(id, key);
+            }
+        }
+        if (tokenKey == null || dataKeys.isEmpty()) {
+            throw new GeneralSecurityException("PAN keystore " + file + " needs a " + TOKEN_ALIAS + " and a "
+                    + DATA_ALIAS_PREFIX + "<n> entry");
+        }
+        PanKeys keys = new PanKeys(tokenKey, dataKeys);
+        LOGGER.info("Loaded PAN keys from {}: encrypting with {}{}", file, DATA_ALIAS_PREFIX, keys.currentDataKey);
+        return keys;
+    }
+
+    private static int dataKeyId(String alias) {
+        try {
+            return Integer.parseInt(alias.substring(DATA_ALIAS_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void create(Path file, char[] password) throws IOException, GeneralSecurityException {
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        store.load(null, password);
+        KeyStore.PasswordProtection protection = new KeyStore.PasswordProtection(password);
+        KeyGenerator hmac = KeyGenerator.getInstance("HmacSHA256");
+        hmac.init(256);
+        KeyGenerator aes = KeyGenerator.getInstance("AES");
+        aes.init(256);
+        store.setEntry(TOKEN_ALIAS, new KeyStore.SecretKeyEntry(hmac.generateKey()), protection);
+        store.setEntry(DATA_ALIAS_PREFIX + 1, new KeyStore.SecretKeyEntry(aes.generateKey()), protection);
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            store.store(out, password);
+        }
+        LOGGER.warn("Created PAN keystore {} with new keys; back it up, stored PANs cannot be read without it", file);
+    }
+
+    SecretKey tokenKey() {
+        return tokenKey;
+    }
+
+    int currentDataKey() {
+        return currentDataKey;
+    }
+
+    /**
+     * Data key {@code id}, or {@code null} when the keystore no longer has it.
+     */
+    SecretKey dataKey(int id) {
+        return dataKeys.get(id);
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.server.pan;
+
+import org.example.server.config.DataSourceProvider;
+import org.example.server.config.EnvironmentLoader;
+import org.example.server.config.ShardedDataSource;
+
+import java.security.GeneralSecurityException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Finds {@code ISO_MESSAGES} rows of a card by its PAN token through
+ * {@code IDX_ISO_MESSAGES_PAN_TOKEN}. Rows are routed to shards by terminal, so every shard is
+ * asked in parallel; the date range limits the search to the matching daily partitions.
+ * <pre>
+ * java -cp server.jar org.example.server.pan.PanLookup [--reveal] (--token hex | pan) from-date [to-date]
+ * </pre>
+ */
+public final class PanLookup {
+    private static final String SELECT_SQL = "SELECT ID, MTI, PAN_ENCRYPTED, PROCESSING_CODE, AMOUNT, STAN, " +
+            "TERMINAL_ID, CREATED_AT FROM ISO_MESSAGES " +
+            "WHERE PAN_TOKEN = ? AND CREATED_AT >= ? AND CREATED_AT < ? ORDER BY CREATED_AT";
+    private static final long TIMEOUT_MILLIS = 10_000L;
+
+    private final ShardedDataSource shards;
+    private final PanVault vault;
+
+    public PanLookup(ShardedDataSource shards, PanVault vault) {
+        this.shards = Objects.requireNonNull(shards, "shards");
+        this.vault = Objects.requireNonNull(vault, "vault");
+    }
+
+    /**
+     * Transactions with {@code token} received from {@code from} to {@code to} inclusive (server
+     * time zone), oldest first per shard.
+     */
+    public List<TokenizedMessage> find(long token, LocalDate from, LocalDate to) throws SQLException {
+        byte[] raw = PanToken.toBytes(token);
+        return shards.scatterGather(connection -> {
+            List<TokenizedMessage> rows = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+                statement.setBytes(1, raw);
+                statement.setTimestamp(2, Timestamp.valueOf(from.atStartOfDay()));
+                statement.setTimestamp(3, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        long amount = rs.getLong(5);
+                        rows.add(new TokenizedMessage(rs.getLong(1), rs.getString(2), token, rs.getBytes(3),
+                                rs.getString(4), rs.wasNull() ? null : amount, rs.getString(6), rs.getString(7),
+                                rs.getTimestamp(8).toInstant()));
+                    }
+                }
+            }
+            return rows;
+        }, TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Transactions of the card {@code pan}; rows that only share its token are left out.
+     */
+    public List<TokenizedMessage> find(String pan, LocalDate from, LocalDate to)
+            throws SQLException, GeneralSecurityException {
+        List<TokenizedMessage> rows = new ArrayList<>();
+        for (TokenizedMessage row : find(vault.token(pan), from, to)) {
+            if (row.encryptedPan() == null || pan.equals(reveal(row))) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Decrypts the PAN of {@code row}, or returns {@code null} when it has none.
+     */
+    public String reveal(TokenizedMessage row) throws GeneralSecurityException {
+        return row.encryptedPan() == null ? null : vault.decrypt(row.panToken(), row.encryptedPan());
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean reveal = false;
+        String token = null;
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--reveal".equals(args[i])) {
+                reveal = true;
+            } else if ("--token".equals(args[i]) && i + 1 < args.length) {
+                token = args[++i];
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        int dates = positional.size() - (token == null ? 1 : 0);
+        if (dates < 1 || dates > 2) {
+            System.err.println("Usage: PanLookup [--reveal] (--token <hex> | <pan>) <from yyyy-MM-dd> [to yyyy-MM-dd]");
+            System.exit(2);
+        }
+        EnvironmentLoader.load();
+        String pan = token == null ? positional.remove(0) : null;
+        LocalDate from = LocalDate.parse(positional.get(0));
+        LocalDate to = positional.size() > 1 ? LocalDate.parse(positional.get(1)) : from;
+        try {
+            PanLookup lookup = new PanLookup(DataSourceProvider.getShards(), PanVault.shared());
+            List<TokenizedMessage> found = pan == null
+                    ? lookup.find(PanToken.parse(token), from, to) : lookup.find(pan, from, to);
+            if (found.isEmpty()) {
+                System.out.println("No transactions found");
+            }
+            for (TokenizedMessage row : found) {
+                System.out.printf("%s %s token %s terminal %s stan %s pc %s amount %s%s%n", row.createdAt(), row.mti(),
+                        PanToken.format(row.panToken()), row.terminalId(), row.stan(), row.processingCode(),
+                        row.amount(), reveal ? " pan " + lookup.reveal(row) : "");
+            }
+        } finally {
+            DataSourceProvider.close();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.server.pan;
+
+import java.util.HexFormat;
+
+/**
+ * Conversions of a PAN token, the first 64 bits of the keyed hash of a PAN. The database stores a
+ * token as {@code RAW(8)}; people and tools see it as 16 upper-case hex digits, which is also what
+ * Oracle's {@code RAWTOHEX} returns.
+ */
+public final class PanToken {
+    private static final HexFormat HEX = HexFormat.of().withUpperCase();
+
+    private PanToken() {
+    }
+
+    public static String format(long token) {
+        return HEX.toHexDigits(token);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code text} is not 16 hex digits
+     */
+    public static long parse(String text) {
+        if (text == null || text.length() != 16) {
+            throw new IllegalArgumentException("A PAN token is 16 hex digits, not '" + text + "'");
+        }
+        return HexFormat.fromHexDigitsToLong(text);
+    }
+
+    public static byte[] toBytes(long token) {
+        byte[] bytes = new byte[Long.BYTES];
+        for (int i = Long.BYTES - 1; i >= 0; i--) {
+            bytes[i] = (byte) token;
+            token >>>= 8;
+        }
+        return bytes;
+    }
+
+    public static long fromBytes(byte[] bytes) {
+        long token = 0L;
+        for (int i = 0; i < Long.BYTES; i++) {
+            token = token << 8 | (bytes[i] & 0xFF);
+        }
+        return token;
+    }
+}
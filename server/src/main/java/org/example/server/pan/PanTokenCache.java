@@ -0,0 +1,83 @@
+package org.example.server.pan;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded least-recently-used map from PAN to token, so the cards seen most often are not hashed
+ * again for every transaction. The map is split into stripes by PAN hash, each an access-ordered
+ * {@link LinkedHashMap} under its own lock, so concurrent transactions rarely contend; every
+ * stripe evicts its own least recently used entry when full.
+ */
+final class PanTokenCache {
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    PanTokenCache(int capacity) {
+        int perStripe = Math.max(1, (capacity + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /**
+     * Returns the cached token of {@code pan}, or {@code null}.
+     */
+    Long get(String pan) {
+        Stripe stripe = stripe(pan);
+        Long token;
+        synchronized (stripe) {
+            token = stripe.get(pan);
+        }
+        (token != null ? hits : misses).increment();
+        return token;
+    }
+
+    void put(String pan, long token) {
+        Stripe stripe = stripe(pan);
+        synchronized (stripe) {
+            stripe.put(pan, token);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    private Stripe stripe(String pan) {
+        int hash = pan.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static final class Stripe extends LinkedHashMap<String, Long> {
+        private final int capacity;
+
+        private Stripe(int capacity) {
+            super(Math.min(capacity, 1024) * 2, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package org.example.server.pan;
+
+import org.example.server.config.EnvironmentLoader;
+import org.example.server.metrics.MetricsRegistry;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tokenizes and encrypts PANs so {@code ISO_MESSAGES} never holds one in clear.
+ * <p>
+ * The token of a PAN is the first 64 bits of its HMAC-SHA256 under the {@code pan-token} key: a
+ * fixed-width value stored as {@code RAW(8)} and indexed instead of the 19 character PAN, which
+ * cannot be turned back into the PAN without the key. Equal PANs have equal tokens, so rows are
+ * found by token; at 64 bits two different cards share a token with negligible probability, and
+ * {@link PanLookup} can confirm a match by decrypting. Recently seen PANs are kept with their token
+ * in an LRU cache of {@code PAN_TOKEN_CACHE_SIZE} entries (default 100000) so hot cards are not
+ * hashed again.
+ * <p>
+ * The PAN itself is encrypted separately with AES-GCM under the newest {@code pan-data-<n>} key,
+ * with a random 96-bit IV and the token as associated data, so a ciphertext cannot be moved to
+ * another row unnoticed. The stored value is the key number, the IV and the ciphertext with its
+ * tag: at most 48 bytes. Initialised {@link Mac} and {@link Cipher} instances are pooled like the
+ * MAC ciphers of {@code MacService}. Exported over JMX as {@code PanVault}.
+ */
+public final class PanVault implements PanVaultMXBean {
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final int POOL_SIZE = 16;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static volatile PanVault shared;
+
+    private final PanKeys keys;
+    private final PanTokenCache cache;
+    private final ArrayBlockingQueue<Mac> macs = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final ArrayBlockingQueue<Cipher> ciphers = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final LongAdder tokenized = new LongAdder();
+    private final LongAdder encrypted = new LongAdder();
+    private final LongAdder decrypted = new LongAdder();
+
+    private PanVault(PanKeys keys, int cacheSize) {
+        this.keys = keys;
+        this.cache = cacheSize > 0 ? new PanTokenCache(cacheSize) : null;
+    }
+
+    /**
+     * The vault for {@code PAN_KEYSTORE} (default {@code pan-keys.p12} in the jPOS home directory)
+     * opened with {@code PAN_KEYSTORE_PASSWORD}. The keystore must exist unless
+     * {@code PAN_KEYSTORE_BOOTSTRAP} is {@code true}.
+     *
+     * @throws IllegalStateException if the keystore is missing, cannot be read or cannot be created
+     */
+    public static PanVault shared() {
+        PanVault vault = shared;
+        if (vault == null) {
+            synchronized (PanVault.class) {
+                vault = shared;
+                if (vault == null) {
+                    Path file = EnvironmentLoader.get("PAN_KEYSTORE")
+                            .filter(value -> !value.isBlank())
+                            .map(Path::of)
+                            .orElse(Path.of(System.getProperty("jpos.home", "."), "pan-keys.p12"))
+                            .toAbsolutePath();
+                    vault = open(file, EnvironmentLoader.getOrDefault("PAN_KEYSTORE_PASSWORD", "").toCharArray(),
+                            EnvironmentLoader.getInt("PAN_TOKEN_CACHE_SIZE", 100_000),
+                            Boolean.parseBoolean(EnvironmentLoader.getOrDefault("PAN_KEYSTORE_BOOTSTRAP", "false")));
+                    MetricsRegistry.register(MetricsRegistry.name("PanVault"), vault);
+                    shared = vault;
+                }
+            }
+        }
+        return vault;
+    }
+
+    /**
+     * Opens a vault on {@code keystore}, creating the keystore when it does not exist only if
+     * {@code bootstrap} is set. A {@code cacheSize} of 0 disables the token cache.
+     *
+     * @throws IllegalStateException if the keystore is missing, cannot be read or cannot be created
+     */
+    public static PanVault open(Path keystore, char[] password, int cacheSize, boolean bootstrap) {
+        try {
+            return new PanVault(PanKeys.load(keystore, password, bootstrap), cacheSize);
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to open PAN keystore " + keystore, e);
+        }
+    }
+
+    /**
+     * Returns the token of {@code pan}.
+     */
+    public long token(String pan) throws GeneralSecurityException {
+        Long cached = cache == null ? null : cache.get(pan);
+        if (cached != null) {
+            return cached;
+        }
+        Mac mac = macs.poll();
+        if (mac == null) {
+            mac = Mac.getInstance("HmacSHA256");
+            mac.init(keys.tokenKey());
+        }
+        long token;
+        try {
+            byte[] digest = mac.doFinal(pan.getBytes(StandardCharsets.US_ASCII));
+            token = PanToken.fromBytes(digest);
+        } finally {
+            macs.offer(mac);
+        }
+        tokenized.increment();
+        if (cache != null) {
+            cache.put(pan, token);
+        }
+        return token;
+    }
+
+    /**
+     * Encrypts {@code pan}, bound to its {@code token}.
+     */
+    public byte[] encrypt(String pan, long token) throws GeneralSecurityException {
+        int keyId = keys.currentDataKey();
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.nextBytes(iv);
+        Cipher cipher = borrowCipher();
+        byte[] sealed;
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, keys.dataKey(keyId), new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(PanToken.toBytes(token));
+            sealed = cipher.doFinal(pan.getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            ciphers.offer(cipher);
+        }
+        byte[] stored = new byte[1 + IV_LENGTH + sealed.length];
+        stored[0] = (byte) keyId;
+        System.arraycopy(iv, 0, stored, 1, IV_LENGTH);
+        System.arraycopy(sealed, 0, stored, 1 + IV_LENGTH, sealed.length);
+        encrypted.increment();
+        return stored;
+    }
+
+    /**
+     * Decrypts a PAN stored by {@link #encrypt}.
+     *
+     * @throws GeneralSecurityException if its key is gone or it does not belong to {@code token}
+     */
+    public String decrypt(long token, byte[] stored) throws GeneralSecurityException {
+        if (stored == null || stored.length <= 1 + IV_LENGTH + TAG_BITS / 8) {
+            throw new GeneralSecurityException("Encrypted PAN is truncated");
+        }
+        int keyId = stored[0] & 0xFF;
+        SecretKey key = keys.dataKey(keyId);
+        if (key == null) {
+            throw new GeneralSecurityException("PAN data key " + PanKeys.DATA_ALIAS_PREFIX + keyId + " is not in the keystore");
+        }
+        Cipher cipher = borrowCipher();
+        byte[] pan;
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, stored, 1, IV_LENGTH));
+            cipher.updateAAD(PanToken.toBytes(token));
+            pan = cipher.doFinal(stored, 1 + IV_LENGTH, stored.length - 1 - IV_LENGTH);
+        } finally {
+            ciphers.offer(cipher);
+        }
+        decrypted.increment();
+        String value = new String(pan, StandardCharsets.US_ASCII);
+        Arrays.fill(pan, (byte) 0);
+        return value;
+    }
+
+    private Cipher borrowCipher() throws GeneralSecurityException {
+        Cipher cipher = ciphers.poll();
+        return cipher != null ? cipher : Cipher.getInstance("AES/GCM/NoPadding");
+    }
+
+    @Override
+    public long getTokenized() {
+        return tokenized.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cache == null ? 0L : cache.hits();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cache == null ? 0L : cache.misses();
+    }
+
+    @Override
+    public int getCacheSize() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    @Override
+    public long getEncrypted() {
+        return encrypted.sum();
+    }
+
+    @Override
+    public long getDecrypted() {
+        return decrypted.sum();
+    }
+
+    @Override
+    public int getCurrentDataKey() {
+        return keys.currentDataKey();
+    }
+}
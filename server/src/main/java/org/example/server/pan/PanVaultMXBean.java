@@ -0,0 +1,20 @@
+package org.example.server.pan;
+
+/**
+ * JMX view of a {@link PanVault}.
+ */
+public interface PanVaultMXBean {
+    long getTokenized();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    int getCacheSize();
+
+    long getEncrypted();
+
+    long getDecrypted();
+
+    int getCurrentDataKey();
+}
@@ -0,0 +1,13 @@
+package org.example.server.pan;
+
+import java.time.Instant;
+
+/**
+ * Row of {@code ISO_MESSAGES} found by PAN token. The PAN stays encrypted until
+ * {@link PanLookup#reveal(TokenizedMessage)} is called.
+ *
+ * @param amount field 4 in minor units, or {@code null}
+ */
+public record TokenizedMessage(long id, String mti, long panToken, byte[] encryptedPan, String processingCode,
+                               Long amount, String stan, String terminalId, Instant createdAt) {
+}
@@ -0,0 +1,114 @@
+package org.example.server.participant;
+
+import org.example.server.audit.FrameAuditWriter;
+import org.example.server.context.Slots;
+import org.example.server.jfr.ParticipantEvent;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.packager.LazyISOMsg;
+import org.example.server.pan.CardData;
+import org.jpos.core.Configurable;
+import org.jpos.core.Configuration;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.transaction.AbortParticipant;
+import org.jpos.transaction.Context;
+import org.jpos.util.NameRegistrar;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+/**
+ * Hands the original request frame and the packed response of every transaction, approved or
+ * declined, to the {@link FrameAuditWriter} named by {@code writer}. Runs after
+ * {@link SendResponse}, so the response is the one the terminal received, MAC included; the
+ * request is the frame as it arrived, even if participants changed the message since. Frames that
+ * carry cardholder data are stored {@link CardData#sanitize sanitized} instead, so the audit trail
+ * and the dictionary trained from it never hold a full PAN, track data, PIN block or ICC data;
+ * their MAC no longer verifies over the stored bytes. Does nothing while the writer is not running.
+ */
+public class AuditFrames implements AbortParticipant, Configurable {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(AuditFrames.class);
+
+    private String writerName;
+
+    @Override
+    public void setConfiguration(Configuration cfg) {
+        writerName = FrameAuditWriter.registrationName(cfg.get("writer", "server-frame-audit"));
+    }
+
+    @Override
+    public int prepare(long id, Serializable context) {
+        return PREPARED | READONLY;
+    }
+
+    @Override
+    public int prepareForAbort(long id, Serializable context) {
+        return PREPARED | READONLY;
+    }
+
+    @Override
+    public void commit(long id, Serializable context) {
+        audit(context);
+    }
+
+    @Override
+    public void abort(long id, Serializable context) {
+        audit(context);
+    }
+
+    private void audit(Serializable context) {
+        if (!(context instanceof Context ctx)) {
+            return;
+        }
+        FrameAuditWriter writer = NameRegistrar.getIfExists(writerName);
+        ISOMsg request = Slots.REQUEST.get(ctx);
+        if (writer == null || request == null) {
+            return;
+        }
+        ParticipantEvent event = ParticipantEvent.start(AuditFrames.class, "commit");
+        try {
+            byte[] requestFrame = frame(request);
+            ISOMsg response = Slots.RESPONSE.get(ctx);
+            byte[] responseFrame = response == null ? null : frame(response);
+            String mti = request.getMTI();
+            writer.submit(request.getString(41), request.getString(11), mti, requestFrame, responseFrame,
+                    writer.isTraining() ? shape(mti, request) : null);
+        } catch (ISOException e) {
+            LOGGER.warn("Unable to audit frames of STAN {}: {}", request.getString(11), e.getMessage());
+        }
+        event.complete(context);
+    }
+
+    /**
+     * The frame of {@code message} without cardholder data: the original bytes when there is none
+     * to remove, otherwise the {@link CardData#sanitize sanitized} message packed again.
+     */
+    private static byte[] frame(ISOMsg message) throws ISOException {
+        if (!CardData.isPresent(message) && message instanceof LazyISOMsg lazy) {
+            byte[] original = lazy.originalFrame();
+            if (original != null) {
+                return original;
+            }
+        }
+        return CardData.sanitize(message).pack();
+    }
+
+    /**
+     * MTI and present fields, grouping frames of the same layout for dictionary training.
+     */
+    private static String shape(String mti, ISOMsg request) {
+        BitSet fields;
+        if (request instanceof LazyISOMsg lazy) {
+            fields = lazy.presentFields();
+        } else {
+            fields = new BitSet();
+            for (int field = 2; field <= request.getMaxField(); field++) {
+                if (request.hasField(field)) {
+                    fields.set(field);
+                }
+            }
+        }
+        return mti + fields;
+    }
+}
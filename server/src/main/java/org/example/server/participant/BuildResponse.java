@@ -1,47 +1,63 @@
 package org.example.server.participant;
 
+import org.example.server.context.Slots;
+import org.example.server.jfr.ParticipantEvent;
 import org.example.server.logging.ApplicationLogger;
 import org.example.server.logging.ApplicationLoggerFactory;
-import org.example.server.util.ServerContextKeys;
+import org.example.server.util.ResponseCodes;
+import org.jpos.iso.ISOBasePackager;
 import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOFieldPackager;
 import org.jpos.iso.ISOMsg;
+import org.jpos.transaction.AbortParticipant;
 import org.jpos.transaction.Context;
-import org.jpos.transaction.TransactionParticipant;
 
 import java.io.Serializable;
 
 /**
  * Builds the ISO-8583 response message using the data stored in the transaction context.
+ * The participant joins both committed and aborted transactions so a response is always built.
  */
-public class BuildResponse implements TransactionParticipant {
+public class BuildResponse implements AbortParticipant {
     private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(BuildResponse.class);
+    /** Field 44 length in iso87ascii, used when the response has no packager to ask. */
+    private static final int DEFAULT_FIELD_44_LENGTH = 25;
 
     @Override
     public int prepare(long id, Serializable context) {
-        return PREPARED | NO_JOIN | READONLY;
+        return PREPARED | READONLY;
+    }
+
+    @Override
+    public int prepareForAbort(long id, Serializable context) {
+        return PREPARED | READONLY;
     }
 
     @Override
     public void commit(long id, Serializable context) {
+        ParticipantEvent event = ParticipantEvent.start(BuildResponse.class, "commit");
         if (context instanceof Context ctx) {
             buildResponse(ctx, false);
         } else {
             LOGGER.error("Invalid transaction context type during commit: {}", context);
         }
+        event.complete(context);
     }
 
     @Override
     public void abort(long id, Serializable context) {
+        ParticipantEvent event = ParticipantEvent.start(BuildResponse.class, "abort");
         if (context instanceof Context ctx) {
             buildResponse(ctx, true);
         } else {
             LOGGER.error("Invalid transaction context type during abort: {}", context);
         }
+        event.complete(context);
     }
 
     private void buildResponse(Context ctx, boolean aborted) {
-        Object candidate = ctx.get(ServerContextKeys.REQUEST);
-        if (!(candidate instanceof ISOMsg request)) {
+        ISOMsg request = Slots.REQUEST.get(ctx);
+        if (request == null) {
             LOGGER.error("Cannot build response because request message is missing");
             return;
         }
@@ -50,26 +66,45 @@ public class BuildResponse implements TransactionParticipant {
             ISOMsg response = (ISOMsg) request.clone();
             response.setResponseMTI();
 
-            String responseCode = (String) ctx.get(ServerContextKeys.RESPONSE_CODE);
+            String responseCode = Slots.RESPONSE_CODE.get(ctx);
             if (responseCode == null) {
-                responseCode = aborted ? "96" : "00";
+                responseCode = aborted ? ResponseCodes.SYSTEM_ERROR : ResponseCodes.APPROVED;
             }
             response.set(39, responseCode);
 
-            Object approval = ctx.get(ServerContextKeys.APPROVAL_CODE);
-            if (approval instanceof String approvalCode) {
+            String approvalCode = Slots.APPROVAL_CODE.get(ctx);
+            if (approvalCode != null) {
                 response.set(38, approvalCode);
             }
 
-            Object errorMessage = ctx.get(ServerContextKeys.ERROR_MESSAGE);
-            if (errorMessage instanceof String message && !message.isBlank()) {
-                response.set(44, message);
+            String message = Slots.ERROR_MESSAGE.get(ctx);
+            if (message != null && !message.isBlank()) {
+                response.set(44, additionalResponseData(response, message));
             }
 
-            ctx.put(ServerContextKeys.RESPONSE, response);
+            Slots.RESPONSE.put(ctx, response);
             LOGGER.debug("Built ISO-8583 response with MTI {} and code {}", response.getMTI(), responseCode);
         } catch (ISOException e) {
             LOGGER.error("Failed to build ISO-8583 response", e);
         }
     }
+
+    /**
+     * {@code message} cut to the maximum length of field 44 in the response's packager, so that a
+     * long error never makes the response unpackable. The full text stays in the log.
+     */
+    private static String additionalResponseData(ISOMsg response, String message) {
+        int max = DEFAULT_FIELD_44_LENGTH;
+        if (response.getPackager() instanceof ISOBasePackager packager) {
+            ISOFieldPackager field = packager.getFieldPackager(44);
+            if (field != null && field.getLength() > 0) {
+                max = field.getLength();
+            }
+        }
+        if (message.length() <= max) {
+            return message;
+        }
+        LOGGER.debug("Truncating field 44 to {} characters: {}", max, message);
+        return message.substring(0, max);
+    }
 }
\ No newline at end of file
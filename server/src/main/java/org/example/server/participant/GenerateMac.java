@@ -0,0 +1,81 @@
+package org.example.server.participant;
+
+import org.example.server.context.Slots;
+import org.example.server.jfr.ParticipantEvent;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.mac.MacKey;
+import org.example.server.mac.MacService;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.transaction.AbortParticipant;
+import org.jpos.transaction.Context;
+
+import java.io.Serializable;
+import java.security.GeneralSecurityException;
+
+/**
+ * MACs the response built by {@link BuildResponse} with the key that verified the request (see
+ * {@link VerifyMac}), in field 64 or, when the response has a secondary bitmap, field 128. Responses
+ * to requests that were not verified carry no MAC; the request's MAC copied into the response is
+ * removed. Joins committed and aborted transactions and must run between {@link BuildResponse}
+ * and {@link SendResponse}.
+ */
+public class GenerateMac implements AbortParticipant {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(GenerateMac.class);
+    private static final byte[] PLACEHOLDER = new byte[8];
+
+    private final MacService service = MacService.shared();
+
+    @Override
+    public int prepare(long id, Serializable context) {
+        return PREPARED | READONLY;
+    }
+
+    @Override
+    public int prepareForAbort(long id, Serializable context) {
+        return PREPARED | READONLY;
+    }
+
+    @Override
+    public void commit(long id, Serializable context) {
+        ParticipantEvent event = ParticipantEvent.start(GenerateMac.class, "commit");
+        sign(context);
+        event.complete(context);
+    }
+
+    @Override
+    public void abort(long id, Serializable context) {
+        ParticipantEvent event = ParticipantEvent.start(GenerateMac.class, "abort");
+        sign(context);
+        event.complete(context);
+    }
+
+    private void sign(Serializable context) {
+        if (!(context instanceof Context ctx)) {
+            return;
+        }
+        ISOMsg response = Slots.RESPONSE.get(ctx);
+        if (response == null) {
+            return;
+        }
+        MacKey key = Slots.MAC_KEY.get(ctx);
+        if (key == null) {
+            MacService.removeMac(response);
+            return;
+        }
+        int field = MacService.macField(response);
+        try {
+            if (field == 128 && response.hasField(64)) {
+                response.unset(64);
+            }
+            response.set(field, PLACEHOLDER);
+            byte[] packed = response.pack();
+            int length = packed.length - MacService.packedMacLength(response, field);
+            response.set(field, service.generate(key, packed, 0, length));
+        } catch (ISOException | GeneralSecurityException e) {
+            LOGGER.error("Unable to MAC response to STAN " + response.getString(11), e);
+            MacService.removeMac(response);
+        }
+    }
+}
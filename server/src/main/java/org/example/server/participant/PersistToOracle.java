@@ -1,9 +1,20 @@
 package org.example.server.participant;
 
+import org.example.server.chain.Warmable;
 import org.example.server.config.DataSourceProvider;
+import org.example.server.config.Shard;
+import org.example.server.config.ShardedDataSource;
+import org.example.server.context.Slots;
+import org.example.server.deadline.Deadline;
+import org.example.server.deadline.LateCommitJournal;
+import org.example.server.jfr.ConnectionAcquireEvent;
+import org.example.server.jfr.JdbcExecuteEvent;
+import org.example.server.jfr.ParticipantEvent;
 import org.example.server.logging.ApplicationLogger;
 import org.example.server.logging.ApplicationLoggerFactory;
-import org.example.server.util.ServerContextKeys;
+import org.example.server.pan.PanToken;
+import org.example.server.pan.PanVault;
+import org.example.server.util.ResponseCodes;
 import org.jpos.iso.ISOException;
 import org.jpos.iso.ISOMsg;
 import org.jpos.transaction.Context;
@@ -11,72 +22,202 @@ import org.jpos.transaction.TransactionParticipant;
 
 import javax.sql.DataSource;
 import java.io.Serializable;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Types;
 
 /**
  * Persists the ISO-8583 transaction data into an Oracle database using a HikariCP datasource.
+ * The amount (field 4) is stored as a number of minor units. The PAN (field 2) is never stored in
+ * clear: the row gets its {@link PanVault} token, which is what lookups use, and the PAN encrypted
+ * separately.
+ * <p>
+ * Each row goes to the {@link Shard} owning its terminal id (field 41). While that shard is out
+ * of service the transaction is declined with {@code 91} without waiting for a connection.
+ * <p>
+ * When the transaction has a {@link Deadline}, nothing is sent to the database once it has expired,
+ * the insert runs with a query timeout covering the remaining budget, and a row that commits after
+ * the terminal was already declined is written to the {@link LateCommitJournal}.
+ * <p>
+ * Warming borrows a connection from every healthy shard and prepares the insert on it, and runs the
+ * PAN cipher once, so a new chain version does not pay for connection setup, statement parsing and
+ * cipher provider lookup on live traffic.
  */
-public class PersistToOracle implements TransactionParticipant {
+public class PersistToOracle implements TransactionParticipant, Warmable {
     private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(PersistToOracle.class);
     private static final SecureRandom RANDOM = new SecureRandom();
-    private static final String INSERT_SQL = "INSERT INTO ISO_TRANSACTIONS " +
-            "(MTI, PAN, PROCESSING_CODE, AMOUNT, TRANSMISSION_DATETIME, STAN, TERMINAL_ID) " +
-            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SQL = "INSERT INTO ISO_MESSAGES " +
+            "(MTI, PAN_TOKEN, PAN_ENCRYPTED, PROCESSING_CODE, AMOUNT, TRANSMISSION_DATETIME, STAN, TERMINAL_ID) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
-    private final DataSource dataSource;
+    private final ShardedDataSource shards;
+    private final PanVault panVault;
 
     public PersistToOracle() {
-        this(DataSourceProvider.getDataSource());
+        this(DataSourceProvider.getShards(), PanVault.shared());
     }
 
     public PersistToOracle(DataSource dataSource) {
-        this.dataSource = dataSource;
+        this(ShardedDataSource.of(dataSource), PanVault.shared());
+    }
+
+    public PersistToOracle(ShardedDataSource shards, PanVault panVault) {
+        this.shards = shards;
+        this.panVault = panVault;
+    }
+
+    @Override
+    public void warm() throws SQLException, GeneralSecurityException {
+        panVault.encrypt("0000000000000000", 0L);
+        for (Shard shard : shards.shards()) {
+            if (!shard.isHealthy()) {
+                continue;
+            }
+            try (Connection connection = shard.dataSource().getConnection();
+                 PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                statement.clearParameters();
+                LOGGER.debug("Warmed {}", shard.getName());
+            }
+        }
     }
 
     @Override
     public int prepare(long id, Serializable context) {
+        ParticipantEvent event = ParticipantEvent.start(PersistToOracle.class, "prepare");
+        int action = persist(context);
+        event.complete(context, action);
+        return action;
+    }
+
+    private int persist(Serializable context) {
         if (!(context instanceof Context ctx)) {
             LOGGER.error("Invalid transaction context type: {}", context == null ? "null" : context.getClass());
             return ABORTED | NO_JOIN;
         }
-        Object candidate = ctx.get(ServerContextKeys.REQUEST);
-        if (!(candidate instanceof ISOMsg request)) {
+        ISOMsg request = Slots.REQUEST.get(ctx);
+        if (request == null) {
             LOGGER.error("Missing ISO message in transaction context");
-            ctx.put(ServerContextKeys.ERROR_MESSAGE, "No ISO message present");
-            ctx.put(ServerContextKeys.RESPONSE_CODE, "96");
+            Slots.ERROR_MESSAGE.put(ctx, "No ISO message present");
+            Slots.RESPONSE_CODE.put(ctx, ResponseCodes.SYSTEM_ERROR);
+            return ABORTED | NO_JOIN;
+        }
+        long amount;
+        try {
+            amount = Long.parseLong(request.getString(4));
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Rejecting STAN {} with non-numeric amount", request.getString(11));
+            Slots.ERROR_MESSAGE.put(ctx, "Invalid amount");
+            Slots.RESPONSE_CODE.put(ctx, ResponseCodes.INVALID_AMOUNT);
+            return ABORTED | NO_JOIN;
+        }
+        String pan = request.getString(2);
+        byte[] panToken = null;
+        byte[] panEncrypted = null;
+        if (pan != null) {
+            try {
+                long token = panVault.token(pan);
+                panToken = PanToken.toBytes(token);
+                panEncrypted = panVault.encrypt(pan, token);
+            } catch (GeneralSecurityException e) {
+                LOGGER.error("Unable to protect the PAN of STAN " + request.getString(11), e);
+                Slots.ERROR_MESSAGE.put(ctx, "PAN protection failure");
+                Slots.RESPONSE_CODE.put(ctx, ResponseCodes.SYSTEM_ERROR);
+                return ABORTED | NO_JOIN;
+            }
+        }
+        Deadline deadline = Slots.DEADLINE.get(ctx);
+        if (deadline != null && deadline.isExpired()) {
+            return expired(ctx, deadline);
+        }
+        Shard shard = shards.route(request.getString(41));
+        if (!shard.isHealthy()) {
+            LOGGER.warn("Declining STAN {}: {} is out of service", request.getString(11), shard.getName());
+            Slots.ERROR_MESSAGE.put(ctx, "Database shard unavailable");
+            Slots.RESPONSE_CODE.put(ctx, ResponseCodes.ISSUER_UNAVAILABLE);
             return ABORTED | NO_JOIN;
         }
+        shard.routed();
 
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = acquireConnection(shard, request);
              PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
             statement.setString(1, request.getMTI());
-            statement.setString(2, request.getString(2));
-            statement.setString(3, request.getString(3));
-            statement.setString(4, request.getString(4));
-            statement.setString(5, request.getString(7));
-            statement.setString(6, request.getString(11));
-            statement.setString(7, request.getString(41));
-            statement.executeUpdate();
+            if (panToken != null) {
+                statement.setBytes(2, panToken);
+                statement.setBytes(3, panEncrypted);
+            } else {
+                statement.setNull(2, Types.VARBINARY);
+                statement.setNull(3, Types.VARBINARY);
+            }
+            statement.setString(4, request.getString(3));
+            statement.setLong(5, amount);
+            statement.setString(6, request.getString(7));
+            statement.setString(7, request.getString(11));
+            statement.setString(8, request.getString(41));
+            if (deadline != null) {
+                if (deadline.isExpired()) {
+                    return expired(ctx, deadline);
+                }
+                statement.setQueryTimeout(deadline.queryTimeoutSeconds());
+            }
+            execute(statement, request);
+            shard.recordSuccess();
+            if (deadline != null && !deadline.claim()) {
+                LateCommitJournal.shared().record(request, deadline);
+                return expired(ctx, deadline);
+            }
 
             String approvalCode = generateApprovalCode();
-            ctx.put(ServerContextKeys.APPROVAL_CODE, approvalCode);
-            if (ctx.get(ServerContextKeys.RESPONSE_CODE) == null) {
-                ctx.put(ServerContextKeys.RESPONSE_CODE, "00");
+            Slots.APPROVAL_CODE.put(ctx, approvalCode);
+            if (!Slots.RESPONSE_CODE.isSet(ctx)) {
+                Slots.RESPONSE_CODE.put(ctx, ResponseCodes.APPROVED);
             }
 
             LOGGER.info("Persisted transaction with STAN {}", request.getString(11));
             return PREPARED | NO_JOIN;
         } catch (SQLException | ISOException e) {
-            LOGGER.error("Failed to persist transaction to Oracle", e);
-            ctx.put(ServerContextKeys.ERROR_MESSAGE, "Database failure");
-            ctx.put(ServerContextKeys.RESPONSE_CODE, "96");
+            if (e instanceof SQLTimeoutException && deadline != null) {
+                LOGGER.warn("Insert for STAN {} cancelled at its deadline", request.getString(11));
+                return expired(ctx, deadline);
+            }
+            if (e instanceof SQLException sql) {
+                shard.recordFailure(sql);
+            }
+            LOGGER.error("Failed to persist transaction to Oracle " + shard.getName(), e);
+            Slots.ERROR_MESSAGE.put(ctx, "Database failure");
+            Slots.RESPONSE_CODE.put(ctx, ResponseCodes.SYSTEM_ERROR);
             return ABORTED | NO_JOIN;
         }
     }
 
+    private static int expired(Context ctx, Deadline deadline) {
+        Slots.ERROR_MESSAGE.put(ctx, "Deadline exceeded");
+        Slots.RESPONSE_CODE.put(ctx, deadline.declineCode());
+        return ABORTED | NO_JOIN;
+    }
+
+    private static Connection acquireConnection(Shard shard, ISOMsg request) throws SQLException {
+        ConnectionAcquireEvent event = ConnectionAcquireEvent.start();
+        try {
+            return shard.dataSource().getConnection();
+        } finally {
+            event.complete(request);
+        }
+    }
+
+    private static void execute(PreparedStatement statement, ISOMsg request) throws SQLException {
+        JdbcExecuteEvent event = JdbcExecuteEvent.start(INSERT_SQL);
+        int rows = -1;
+        try {
+            rows = statement.executeUpdate();
+        } finally {
+            event.complete(request, rows);
+        }
+    }
+
     private String generateApprovalCode() {
         int number = RANDOM.nextInt(1_000_000);
         return String.format("%06d", number);
@@ -0,0 +1,92 @@
+package org.example.server.participant;
+
+import org.example.server.context.SlotContext;
+import org.example.server.context.Slots;
+import org.example.server.feed.ChangeFeedPublisher;
+import org.example.server.feed.ChangeRecord;
+import org.example.server.jfr.ParticipantEvent;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.jpos.core.Configurable;
+import org.jpos.core.Configuration;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.transaction.Context;
+import org.jpos.transaction.TransactionParticipant;
+import org.jpos.util.NameRegistrar;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Publishes every committed transaction, with its response code and the time from receiving the
+ * request to the commit, to the {@link ChangeFeedPublisher} named by {@code publisher}. Publishing
+ * only queues the record, so the commit never waits for the feed. The PAN is masked to its first
+ * six and last four digits. Does nothing while the publisher is not running.
+ */
+public class PublishChange implements TransactionParticipant, Configurable {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(PublishChange.class);
+
+    private String publisherName;
+
+    @Override
+    public void setConfiguration(Configuration cfg) {
+        publisherName = ChangeFeedPublisher.registrationName(cfg.get("publisher", "server-change-feed"));
+    }
+
+    @Override
+    public int prepare(long id, Serializable context) {
+        return PREPARED | READONLY;
+    }
+
+    @Override
+    public void commit(long id, Serializable context) {
+        if (!(context instanceof Context ctx)) {
+            return;
+        }
+        ChangeFeedPublisher publisher = NameRegistrar.getIfExists(publisherName);
+        ISOMsg request = Slots.REQUEST.get(ctx);
+        if (publisher == null || request == null) {
+            return;
+        }
+        ParticipantEvent event = ParticipantEvent.start(PublishChange.class, "commit");
+        int latencyMicros = -1;
+        if (ctx instanceof SlotContext slotContext && slotContext.getReceivedNanos() != 0L) {
+            latencyMicros = (int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - slotContext.getReceivedNanos()) / 1_000L);
+        }
+        try {
+            publisher.submit(new ChangeRecord(0L, nowMicros(), latencyMicros, amount(request), request.getMTI(),
+                    request.getString(11), request.getString(41), request.getString(32), request.getString(3),
+                    mask(request.getString(2)), Slots.RESPONSE_CODE.get(ctx), Slots.APPROVAL_CODE.get(ctx)));
+        } catch (ISOException e) {
+            LOGGER.warn("Unable to publish STAN {}: {}", request.getString(11), e.getMessage());
+        }
+        event.complete(context);
+    }
+
+    private static long amount(ISOMsg request) {
+        try {
+            return request.hasField(4) ? Long.parseLong(request.getString(4)) : -1L;
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000L;
+    }
+
+    private static String mask(String pan) {
+        if (pan == null) {
+            return null;
+        }
+        char[] masked = pan.toCharArray();
+        int keepStart = masked.length > 10 ? 6 : 0;
+        int keepEnd = masked.length > 10 ? 4 : 0;
+        for (int i = keepStart; i < masked.length - keepEnd; i++) {
+            masked[i] = '*';
+        }
+        return new String(masked);
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.server.participant;
+
+import org.example.server.context.Slots;
+import org.example.server.dispatch.DispatchTicket;
+import org.jpos.transaction.AbortParticipant;
+import org.jpos.transaction.Context;
+
+import java.io.Serializable;
+
+/**
+ * Returns the {@link org.example.server.dispatch.PriorityDispatcher} slot held by the transaction.
+ * Must be the last participant so the slot is only freed once the transaction has finished.
+ */
+public class ReleaseDispatchSlot implements AbortParticipant {
+    @Override
+    public int prepare(long id, Serializable context) {
+        return PREPARED | READONLY;
+    }
+
+    @Override
+    public int prepareForAbort(long id, Serializable context) {
+        return PREPARED | READONLY;
+    }
+
+    @Override
+    public void commit(long id, Serializable context) {
+        release(context);
+    }
+
+    @Override
+    public void abort(long id, Serializable context) {
+        release(context);
+    }
+
+    private void release(Serializable context) {
+        if (context instanceof Context ctx) {
+            DispatchTicket ticket = Slots.DISPATCH_TICKET.get(ctx);
+            if (ticket != null) {
+                ticket.release();
+            }
+        }
+    }
+}
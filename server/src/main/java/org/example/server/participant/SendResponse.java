@@ -0,0 +1,90 @@
+package org.example.server.participant;
+
+import org.example.server.context.SlotContext;
+import org.example.server.context.SlotContextListener;
+import org.example.server.context.Slots;
+import org.example.server.deadline.Deadline;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.metrics.LatencyRecorder;
+import org.example.server.metrics.MetricsRegistry;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOSource;
+import org.jpos.transaction.AbortParticipant;
+import org.jpos.transaction.Context;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Sends the response built by {@link BuildResponse} back through the source the request arrived on,
+ * unless the {@link Deadline} watchdog has already declined the request.
+ * For requests received through {@link SlotContextListener}, the time from receipt to sending the
+ * response is exported as {@code ResponseTime}.
+ */
+public class SendResponse implements AbortParticipant {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(SendResponse.class);
+    private static final LatencyRecorder RESPONSE_TIME = new LatencyRecorder();
+
+    static {
+        MetricsRegistry.register(MetricsRegistry.name("ResponseTime"), RESPONSE_TIME);
+    }
+
+    /**
+     * Time from receiving a request to sending its response.
+     */
+    public static LatencyRecorder responseTime() {
+        return RESPONSE_TIME;
+    }
+
+    @Override
+    public int prepare(long id, Serializable context) {
+        return PREPARED | READONLY;
+    }
+
+    @Override
+    public int prepareForAbort(long id, Serializable context) {
+        return PREPARED | READONLY;
+    }
+
+    @Override
+    public void commit(long id, Serializable context) {
+        send(context);
+    }
+
+    @Override
+    public void abort(long id, Serializable context) {
+        send(context);
+    }
+
+    private void send(Serializable context) {
+        if (!(context instanceof Context ctx)) {
+            LOGGER.error("Invalid transaction context type while sending response: {}", context);
+            return;
+        }
+        ISOSource isoSource = Slots.SOURCE.get(ctx);
+        ISOMsg message = Slots.RESPONSE.get(ctx);
+        if (isoSource == null || message == null) {
+            LOGGER.warn("Cannot send response: source or response missing from transaction context");
+            return;
+        }
+        Deadline deadline = Slots.DEADLINE.get(ctx);
+        if (deadline != null && !deadline.claim()) {
+            LOGGER.debug("Response not sent: the terminal already received the timely decline");
+            return;
+        }
+        if (!isoSource.isConnected()) {
+            LOGGER.warn("Dropping response because the originating connection is closed");
+            return;
+        }
+        try {
+            isoSource.send(message);
+            if (ctx instanceof SlotContext slotContext && slotContext.getReceivedNanos() != 0L) {
+                RESPONSE_TIME.recordNanos(System.nanoTime() - slotContext.getReceivedNanos());
+            }
+        } catch (IOException | ISOException e) {
+            LOGGER.error("Failed to send ISO-8583 response", e);
+        }
+    }
+}
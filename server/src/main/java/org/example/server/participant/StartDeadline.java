@@ -0,0 +1,96 @@
+package org.example.server.participant;
+
+import org.example.server.context.SlotContext;
+import org.example.server.context.Slots;
+import org.example.server.deadline.Deadline;
+import org.example.server.deadline.DeadlineWatchdog;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.jpos.core.Configurable;
+import org.jpos.core.Configuration;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOSource;
+import org.jpos.transaction.Context;
+import org.jpos.transaction.TransactionParticipant;
+import org.jpos.util.Destroyable;
+import org.jpos.util.NameRegistrar;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives each transaction a {@link Deadline} of {@code budget} milliseconds from the time its
+ * request was received, and arms a timely decline with {@code decline-code} that goes out if the
+ * transaction has not claimed its response by then. The watchdog is registered as {@code watchdog}
+ * (default {@code server-deadline}); ingress listeners configured with the same name arm the
+ * deadline on receipt, and this participant only arms it for requests that arrived without one.
+ * Requests whose budget is already spent when they reach the transaction manager are aborted here,
+ * before any database work. Must be the first participant. When the transaction manager is
+ * undeployed the watchdog is unregistered and closed, so a redeploy does not leave its timer
+ * thread behind.
+ */
+public class StartDeadline implements TransactionParticipant, Configurable, Destroyable {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(StartDeadline.class);
+
+    private DeadlineWatchdog watchdog;
+    private String registrationName;
+    private String declineCode;
+
+    @Override
+    public void setConfiguration(Configuration cfg) {
+        destroy();
+        declineCode = cfg.get("decline-code", "91");
+        watchdog = new DeadlineWatchdog(Math.max(1L, cfg.getLong("budget", 20_000L)), TimeUnit.MILLISECONDS,
+                declineCode);
+        registrationName = DeadlineWatchdog.registrationName(cfg.get("watchdog", "server-deadline"));
+        NameRegistrar.register(registrationName, watchdog);
+    }
+
+    @Override
+    public void destroy() {
+        if (watchdog == null) {
+            return;
+        }
+        if (NameRegistrar.getIfExists(registrationName) == watchdog) {
+            NameRegistrar.unregister(registrationName);
+        }
+        watchdog.close();
+        watchdog = null;
+    }
+
+    @Override
+    public int prepare(long id, Serializable context) {
+        if (!(context instanceof Context ctx)) {
+            return PREPARED | NO_JOIN | READONLY;
+        }
+        Deadline deadline = Slots.DEADLINE.get(ctx);
+        boolean armed = deadline != null;
+        if (!armed) {
+            long received = ctx instanceof SlotContext slotContext && slotContext.getReceivedNanos() != 0L
+                    ? slotContext.getReceivedNanos() : System.nanoTime();
+            deadline = watchdog.start(received);
+            Slots.DEADLINE.put(ctx, deadline);
+        }
+        if (deadline.isExpired()) {
+            watchdog.expiredOnArrival();
+            if (!armed) {
+                deadline.claim();
+            }
+            LOGGER.warn("Budget already spent when transaction {} started, declining", id);
+            Slots.ERROR_MESSAGE.put(ctx, "Deadline exceeded");
+            Slots.RESPONSE_CODE.put(ctx, declineCode);
+            return ABORTED | NO_JOIN;
+        }
+        ISOMsg request = Slots.REQUEST.get(ctx);
+        ISOSource source = Slots.SOURCE.get(ctx);
+        if (!armed && request != null && source != null) {
+            try {
+                watchdog.arm(deadline, source, watchdog.decline(request));
+            } catch (ISOException e) {
+                LOGGER.warn("Unable to prepare timely decline for transaction {}: {}", id, e.getMessage());
+            }
+        }
+        return PREPARED | NO_JOIN | READONLY;
+    }
+}
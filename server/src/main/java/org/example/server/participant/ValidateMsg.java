@@ -1,61 +1,94 @@
 package org.example.server.participant;
 
+import org.example.server.chain.Warmable;
+import org.example.server.context.Slots;
+import org.example.server.jfr.ParticipantEvent;
 import org.example.server.logging.ApplicationLogger;
 import org.example.server.logging.ApplicationLoggerFactory;
-import org.example.server.util.ServerContextKeys;
+import org.example.server.util.ResponseCodes;
+import org.example.server.validation.ValidationRules;
+import org.example.server.validation.ValidationRulesFile;
+import org.example.server.validation.Violation;
+import org.jpos.core.Configurable;
+import org.jpos.core.Configuration;
+import org.jpos.core.ConfigurationException;
 import org.jpos.iso.ISOException;
 import org.jpos.iso.ISOMsg;
 import org.jpos.transaction.Context;
 import org.jpos.transaction.TransactionParticipant;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.Path;
 
 /**
- * Validates that the inbound ISO-8583 message contains the required fields.
+ * Validates the inbound ISO-8583 message against the {@link ValidationRules} in {@code rules}
+ * (relative to the jPOS home, {@code cfg/validation-rules.xml} by default). Messages with a missing
+ * or forbidden field or an MTI without rules are declined with 12, badly formatted fields with 30.
+ * Changes to the rules file are picked up within {@code reload-interval} milliseconds without
+ * restarting Q2.
  */
-public class ValidateMsg implements TransactionParticipant {
+public class ValidateMsg implements TransactionParticipant, Configurable, Warmable {
     private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(ValidateMsg.class);
-    private static final int[] REQUIRED_FIELDS = {2, 3, 4, 7, 11, 41};
+
+    private ValidationRulesFile rules;
+
+    @Override
+    public void setConfiguration(Configuration cfg) throws ConfigurationException {
+        Path file = Path.of(System.getProperty("jpos.home", ".")).resolve(cfg.get("rules", "cfg/validation-rules.xml"));
+        try {
+            rules = new ValidationRulesFile(file, cfg.getLong("reload-interval", 5000L));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ConfigurationException("Unable to load validation rules from " + file, e);
+        }
+    }
+
+    /**
+     * Validates a bare 0200 once so the rule lookup path is loaded before the first real request.
+     */
+    @Override
+    public void warm() throws ISOException {
+        ISOMsg probe = new ISOMsg("0200");
+        rules.current().validate(probe);
+    }
 
     @Override
     public int prepare(long id, Serializable context) {
+        ParticipantEvent event = ParticipantEvent.start(ValidateMsg.class, "prepare");
+        int action = validate(context);
+        event.complete(context, action);
+        return action;
+    }
+
+    private int validate(Serializable context) {
         if (!(context instanceof Context ctx)) {
             LOGGER.error("Invalid transaction context type: {}", context == null ? "null" : context.getClass());
             return ABORTED | NO_JOIN;
         }
-        Object candidate = ctx.get(ServerContextKeys.REQUEST);
-        if (!(candidate instanceof ISOMsg request)) {
+        ISOMsg request = Slots.REQUEST.get(ctx);
+        if (request == null) {
             LOGGER.error("Missing ISO message in transaction context");
-            ctx.put(ServerContextKeys.ERROR_MESSAGE, "No ISO message present");
-            ctx.put(ServerContextKeys.RESPONSE_CODE, "96");
+            Slots.ERROR_MESSAGE.put(ctx, "No ISO message present");
+            Slots.RESPONSE_CODE.put(ctx, ResponseCodes.SYSTEM_ERROR);
             return ABORTED | NO_JOIN;
         }
 
-        for (int field : REQUIRED_FIELDS) {
-            if (!request.hasField(field)) {
-                LOGGER.warn("Incoming transaction missing required field {}", field);
-                ctx.put(ServerContextKeys.ERROR_MESSAGE, "Missing required field " + field);
-                ctx.put(ServerContextKeys.RESPONSE_CODE, "12");
-                return ABORTED | NO_JOIN;
-            }
-        }
-
         try {
-            String mti = request.getMTI();
-            if (!"0200".equals(mti)) {
-                LOGGER.warn("Unsupported MTI {} received", mti);
-                ctx.put(ServerContextKeys.ERROR_MESSAGE, "Unsupported MTI");
-                ctx.put(ServerContextKeys.RESPONSE_CODE, "12");
+            Violation violation = rules.current().validate(request);
+            if (violation != null) {
+                LOGGER.warn("Rejecting MTI {} STAN {}: {}", request.getMTI(), request.getString(11), violation.detail());
+                Slots.ERROR_MESSAGE.put(ctx, violation.message());
+                Slots.RESPONSE_CODE.put(ctx, violation.responseCode());
                 return ABORTED | NO_JOIN;
             }
-            LOGGER.debug("Validated inbound ISO-8583 message with MTI {}", mti);
+            LOGGER.debug("Validated inbound ISO-8583 message with MTI {}", request.getMTI());
         } catch (ISOException e) {
             LOGGER.error("Unable to read MTI from request", e);
-            ctx.put(ServerContextKeys.ERROR_MESSAGE, "Invalid MTI");
-            ctx.put(ServerContextKeys.RESPONSE_CODE, "96");
+            Slots.ERROR_MESSAGE.put(ctx, "Invalid MTI");
+            Slots.RESPONSE_CODE.put(ctx, ResponseCodes.SYSTEM_ERROR);
             return ABORTED | NO_JOIN;
         }
 
         return PREPARED | NO_JOIN | READONLY;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package org.example.server.participant;
+
+import org.example.server.context.Slots;
+import org.example.server.jfr.ParticipantEvent;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.mac.MacKey;
+import org.example.server.mac.MacService;
+import org.example.server.util.ResponseCodes;
+import org.jpos.core.Configurable;
+import org.jpos.core.Configuration;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.transaction.Context;
+import org.jpos.transaction.TransactionParticipant;
+
+import java.io.Serializable;
+import java.security.GeneralSecurityException;
+
+/**
+ * Verifies the MAC in field 64 (or 128 when the request has a secondary bitmap) against the
+ * terminal's key from the {@link MacService}. The MAC covers the packed request up to the MAC
+ * field. Requests with a wrong MAC, or with a MAC but no key for their terminal, are declined with
+ * {@code decline-code} (63 by default). With {@code mode} {@code optional} requests without a MAC
+ * pass unchecked; with {@code required} they are declined too.
+ * <p>
+ * The verifying key is stored in the context so {@link GenerateMac} MACs the response with the
+ * same key version, even if the keystore is reloaded in between.
+ */
+public class VerifyMac implements TransactionParticipant, Configurable {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(VerifyMac.class);
+
+    private MacService service;
+    private boolean required;
+    private String declineCode;
+
+    @Override
+    public void setConfiguration(Configuration cfg) {
+        required = "required".equalsIgnoreCase(cfg.get("mode", "optional"));
+        declineCode = cfg.get("decline-code", ResponseCodes.SECURITY_VIOLATION);
+        service = MacService.shared();
+    }
+
+    @Override
+    public int prepare(long id, Serializable context) {
+        ParticipantEvent event = ParticipantEvent.start(VerifyMac.class, "prepare");
+        int action = verify(context);
+        event.complete(context, action);
+        return action;
+    }
+
+    private int verify(Serializable context) {
+        if (!(context instanceof Context ctx)) {
+            return PREPARED | NO_JOIN | READONLY;
+        }
+        ISOMsg request = Slots.REQUEST.get(ctx);
+        if (request == null) {
+            return PREPARED | NO_JOIN | READONLY;
+        }
+        int field = request.hasField(128) ? 128 : request.hasField(64) ? 64 : 0;
+        if (field == 0) {
+            return required ? decline(ctx, request, "MAC missing") : PREPARED | NO_JOIN | READONLY;
+        }
+        MacKey key = service.find(request.getString(41));
+        if (key == null) {
+            return decline(ctx, request, "No MAC key for terminal");
+        }
+        try {
+            byte[] packed = request.pack();
+            int length = packed.length - MacService.packedMacLength(request, field);
+            if (!service.verify(key, packed, 0, length, request.getBytes(field))) {
+                return decline(ctx, request, "MAC verification failed");
+            }
+        } catch (ISOException | GeneralSecurityException e) {
+            LOGGER.error("Unable to verify MAC of STAN " + request.getString(11), e);
+            Slots.ERROR_MESSAGE.put(ctx, "MAC verification error");
+            Slots.RESPONSE_CODE.put(ctx, ResponseCodes.SYSTEM_ERROR);
+            return ABORTED | NO_JOIN;
+        }
+        Slots.MAC_KEY.put(ctx, key);
+        return PREPARED | NO_JOIN | READONLY;
+    }
+
+    private int decline(Context ctx, ISOMsg request, String reason) {
+        LOGGER.warn("Declining STAN {} from terminal {}: {}", request.getString(11), request.getString(41), reason);
+        Slots.ERROR_MESSAGE.put(ctx, reason);
+        Slots.RESPONSE_CODE.put(ctx, declineCode);
+        return ABORTED | NO_JOIN;
+    }
+}
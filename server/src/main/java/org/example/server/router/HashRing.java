@@ -0,0 +1,58 @@
+package org.example.server.router;
+
+import org.example.server.util.StableHash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable consistent-hash ring with virtual nodes.
+ * <p>
+ * Each node is placed at {@code virtualNodes} points derived from its name, so adding or removing
+ * one of {@code n} nodes only moves about {@code 1/n} of the keys and load stays even. Lookups are
+ * a binary search over a sorted {@code long[]}, with no allocation.
+ */
+final class HashRing {
+    private final long[] points;
+    private final String[] owners;
+    private final List<String> nodes;
+
+    HashRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = List.copyOf(nodes);
+        int replicas = Math.max(1, virtualNodes);
+        List<long[]> entries = new ArrayList<>(this.nodes.size() * replicas);
+        for (int n = 0; n < this.nodes.size(); n++) {
+            String node = this.nodes.get(n);
+            for (int r = 0; r < replicas; r++) {
+                entries.add(new long[]{StableHash.hash64(node + '#' + r), n});
+            }
+        }
+        entries.sort((a, b) -> Long.compare(a[0], b[0]));
+        points = new long[entries.size()];
+        owners = new String[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            points[i] = entries.get(i)[0];
+            owners[i] = this.nodes.get((int) entries.get(i)[1]);
+        }
+    }
+
+    /**
+     * Returns the node owning {@code key}, or {@code null} when the ring is empty.
+     */
+    String nodeFor(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, StableHash.hash64(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    List<String> nodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.server.router;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.MUX;
+import org.jpos.q2.QBeanSupport;
+import org.jpos.util.NameRegistrar;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns the router's {@link RouterTable} and keeps it current by sending an 0800 echo through each
+ * backend's QMUX ({@code mux.<backend>}) every {@code interval} milliseconds. Any response within
+ * {@code timeout} counts as healthy; a backend is taken off the ring after {@code failures}
+ * consecutive misses and put back on the first answered echo.
+ */
+public class RouterHealthCheck extends QBeanSupport {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(RouterHealthCheck.class);
+    private static final DateTimeFormatter TRANSMISSION_DATETIME = DateTimeFormatter.ofPattern("MMddHHmmss");
+
+    private final AtomicInteger stan = new AtomicInteger();
+    private final Map<String, Integer> misses = new HashMap<>();
+    private RouterTable table;
+    private ScheduledExecutorService scheduler;
+    private long timeout;
+    private int failures;
+
+    @Override
+    protected void initService() {
+        List<String> backends = Arrays.stream(cfg.get("backends", "").split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toList();
+        if (backends.isEmpty()) {
+            throw new IllegalStateException("Router health check " + getName() + " has no backends configured");
+        }
+        table = new RouterTable(backends, cfg.getInt("virtual-nodes", 160));
+        timeout = Math.max(100L, cfg.getLong("timeout", 2000L));
+        failures = Math.max(1, cfg.getInt("failures", 2));
+    }
+
+    @Override
+    protected void startService() {
+        NameRegistrar.register(RouterTable.registrationName(getName()), table);
+        long interval = Math.max(500L, cfg.getLong("interval", 5000L));
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkAll, 0L, interval, TimeUnit.MILLISECONDS);
+        LOGGER.info("Router health check {} watching backends {}", getName(), table.backends());
+    }
+
+    @Override
+    protected void stopService() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            scheduler = null;
+        }
+        NameRegistrar.unregister(RouterTable.registrationName(getName()));
+    }
+
+    private void checkAll() {
+        for (String backend : table.backends()) {
+            boolean answered = echo(backend);
+            int missed = answered ? 0 : misses.getOrDefault(backend, 0) + 1;
+            misses.put(backend, missed);
+            boolean up = missed == 0 || (missed < failures && table.healthyBackends().contains(backend));
+            if (table.setHealthy(backend, up)) {
+                LOGGER.info("Backend {} is {}; routing over {}", backend, up ? "up" : "down", table.healthyBackends());
+            }
+        }
+    }
+
+    private boolean echo(String backend) {
+        MUX mux = NameRegistrar.getIfExists("mux." + backend);
+        if (mux == null || !mux.isConnected()) {
+            return false;
+        }
+        try {
+            ISOMsg echo = new ISOMsg();
+            echo.setMTI("0800");
+            echo.set(7, TRANSMISSION_DATETIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+            echo.set(11, String.format("%06d", stan.incrementAndGet() % 1_000_000));
+            echo.set(41, "ROUTERHC");
+            echo.set(70, "301");
+            return mux.request(echo, timeout) != null;
+        } catch (ISOException e) {
+            LOGGER.debug("Echo to backend {} failed: {}", backend, e.getMessage());
+            return false;
+        }
+    }
+}
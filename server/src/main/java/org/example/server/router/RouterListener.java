@@ -0,0 +1,110 @@
+package org.example.server.router;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.mac.MacService;
+import org.example.server.metrics.LatencyRecorder;
+import org.example.server.metrics.MetricsRegistry;
+import org.jpos.core.Configurable;
+import org.jpos.core.Configuration;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISORequestListener;
+import org.jpos.iso.ISOResponseListener;
+import org.jpos.iso.ISOSource;
+import org.jpos.iso.MUX;
+import org.jpos.util.NameRegistrar;
+
+import java.io.IOException;
+
+/**
+ * Request listener for the router's terminal-facing {@code QServer}. Each request is routed by its
+ * terminal id (field 41) to a backend on the consistent-hash ring of the {@link RouterTable}
+ * published by {@code table}, and forwarded asynchronously over that backend's QMUX. The backend's
+ * response is relayed to the terminal; when no backend is available or none answers within
+ * {@code timeout} milliseconds the terminal receives a decline with {@code decline-code}.
+ * <p>
+ * The time spent on the request path inside the router and the full round trip are exported as
+ * {@code RouterOverhead} and {@code RouterRoundTrip}.
+ */
+public class RouterListener implements ISORequestListener, Configurable {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(RouterListener.class);
+
+    private final LatencyRecorder overhead = new LatencyRecorder();
+    private final LatencyRecorder roundTrip = new LatencyRecorder();
+    private String tableName;
+    private long timeout;
+    private String declineCode;
+
+    @Override
+    public void setConfiguration(Configuration cfg) {
+        tableName = RouterTable.registrationName(cfg.get("table", "router-health"));
+        timeout = Math.max(100L, cfg.getLong("timeout", 30_000L));
+        declineCode = cfg.get("decline-code", "91");
+        MetricsRegistry.register(MetricsRegistry.name("RouterOverhead"), overhead);
+        MetricsRegistry.register(MetricsRegistry.name("RouterRoundTrip"), roundTrip);
+    }
+
+    @Override
+    public boolean process(ISOSource source, ISOMsg request) {
+        long started = System.nanoTime();
+        RouterTable table = NameRegistrar.getIfExists(tableName);
+        String key = request.hasField(41) ? request.getString(41) : Integer.toHexString(System.identityHashCode(source));
+        String backend = table == null ? null : table.route(key);
+        MUX mux = backend == null ? null : NameRegistrar.getIfExists("mux." + backend);
+        if (mux == null || !mux.isConnected()) {
+            LOGGER.warn("No backend available for terminal {}", key);
+            decline(source, request);
+            return true;
+        }
+        try {
+            mux.request(request, timeout, new Relay(source, request, started), null);
+        } catch (ISOException e) {
+            LOGGER.warn("Unable to forward request from terminal {} to {}", key, backend, e);
+            decline(source, request);
+        }
+        overhead.recordNanos(System.nanoTime() - started);
+        return true;
+    }
+
+    private void decline(ISOSource source, ISOMsg request) {
+        try {
+            ISOMsg response = (ISOMsg) request.clone();
+            response.setResponseMTI();
+            response.set(39, declineCode);
+            MacService.removeMac(response);
+            source.send(response);
+        } catch (ISOException | IOException e) {
+            LOGGER.warn("Unable to send decline to terminal", e);
+        }
+    }
+
+    private final class Relay implements ISOResponseListener {
+        private final ISOSource source;
+        private final ISOMsg request;
+        private final long started;
+
+        private Relay(ISOSource source, ISOMsg request, long started) {
+            this.source = source;
+            this.request = request;
+            this.started = started;
+        }
+
+        @Override
+        public void responseReceived(ISOMsg response, Object handBack) {
+            try {
+                source.send(response);
+            } catch (ISOException | IOException e) {
+                LOGGER.warn("Unable to relay response to terminal {}", request.getString(41), e);
+            }
+            roundTrip.recordNanos(System.nanoTime() - started);
+        }
+
+        @Override
+        public void expired(Object handBack) {
+            LOGGER.warn("Backend did not answer terminal {} STAN {} within {} ms", request.getString(41),
+                    request.getString(11), timeout);
+            decline(source, request);
+        }
+    }
+}
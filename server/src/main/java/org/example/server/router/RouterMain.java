@@ -0,0 +1,205 @@
+package org.example.server.router;
+
+import org.example.server.config.EnvironmentLoader;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.jpos.q2.Q2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point for a router node. Terminals connect to {@code ROUTER_PORT}; each request is
+ * forwarded to one of the backends in {@code ROUTER_BACKENDS} chosen by consistent hashing of the
+ * terminal id, so a terminal's state stays on one server node.
+ * <p>
+ * {@code ROUTER_BACKENDS} is a comma-separated list of {@code [name=]host:port}. Backend names
+ * place them on the hash ring and must stay the same across restarts; they default to
+ * {@code host-port}. The Q2 deploy descriptors (one channel adaptor and QMUX per backend, the
+ * health check and the terminal-facing server) are generated into {@code JPOS_HOME/deploy}.
+ * Run with {@code java -cp server.jar org.example.server.router.RouterMain}.
+ */
+public final class RouterMain {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(RouterMain.class);
+    private static final String GENERATED_PREFIX = "router-";
+    private static final List<String> RESOURCES = List.of(
+            "deploy/00_logger.xml",
+            "logback.xml",
+            "packager/iso87ascii.xml"
+    );
+
+    private RouterMain() {
+    }
+
+    public static void main(String[] args) {
+        EnvironmentLoader.load();
+        try {
+            List<Backend> backends = parseBackends(EnvironmentLoader.getRequired("ROUTER_BACKENDS"));
+            Path home = prepareWorkingDirectory(backends);
+            System.setProperty("jpos.home", home.toString());
+            System.setProperty("q2.deploy.dir", home.resolve("deploy").toString());
+            System.setProperty("logback.configurationFile", home.resolve("logback.xml").toString());
+
+            LOGGER.info("Starting router from {} for backends {}", home, backends);
+            Q2 q2 = new Q2();
+            q2.start();
+            if (!q2.ready(10_000L)) {
+                LOGGER.warn("Router Q2 did not reach ready state within 10 seconds");
+            }
+            CountDownLatch stopped = new CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                LOGGER.info("Shutting down router");
+                q2.shutdown();
+                stopped.countDown();
+            }, "router-shutdown"));
+            while (!stopped.await(1, TimeUnit.SECONDS)) {
+                if (!q2.running()) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to prepare router working directory", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Router interrupted", e);
+        }
+    }
+
+    static List<Backend> parseBackends(String spec) {
+        List<Backend> backends = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            String name = null;
+            int equals = trimmed.indexOf('=');
+            if (equals > 0) {
+                name = trimmed.substring(0, equals).trim();
+                trimmed = trimmed.substring(equals + 1).trim();
+            }
+            int colon = trimmed.lastIndexOf(':');
+            if (colon <= 0 || colon == trimmed.length() - 1) {
+                throw new IllegalStateException("Invalid ROUTER_BACKENDS entry '" + entry + "', expected [name=]host:port");
+            }
+            String host = trimmed.substring(0, colon);
+            int port = Integer.parseInt(trimmed.substring(colon + 1));
+            if (name == null) {
+                name = host + "-" + port;
+            }
+            backends.add(new Backend(name.replaceAll("[^A-Za-z0-9_.-]", "_"), host, port));
+        }
+        if (backends.isEmpty()) {
+            throw new IllegalStateException("ROUTER_BACKENDS does not list any backend");
+        }
+        return backends;
+    }
+
+    private static Path prepareWorkingDirectory(List<Backend> backends) throws IOException {
+        Path home = EnvironmentLoader.get("JPOS_HOME")
+                .map(Path::of)
+                .map(Path::toAbsolutePath)
+                .orElse(null);
+        if (home == null) {
+            home = Files.createTempDirectory("rayan-jpos-router");
+        }
+        Path deploy = home.resolve("deploy");
+        Files.createDirectories(deploy);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(deploy, "*" + GENERATED_PREFIX + "*.xml")) {
+            for (Path file : stale) {
+                Files.delete(file);
+            }
+        }
+        for (String resource : RESOURCES) {
+            copyResource(resource, home.resolve(resource));
+        }
+
+        // Channels are deliberately deployed without a logger: dumping every message on the
+        // forwarding path would dominate the router's overhead.
+        List<String> names = new ArrayList<>();
+        for (Backend backend : backends) {
+            names.add(backend.name());
+            write(deploy.resolve("10_" + GENERATED_PREFIX + "channel-" + backend.name() + ".xml"), """
+                    <?xml version="1.0" encoding="UTF-8"?>
+                    <channel-adaptor name="%1$s-channel" class="org.jpos.q2.iso.ChannelAdaptor">
+                        <channel class="org.jpos.iso.channel.ASCIIChannel" packager="org.jpos.iso.packager.GenericPackager">
+                            <property name="packager-config" value="packager/iso87ascii.xml"/>
+                            <property name="host" value="%2$s"/>
+                            <property name="port" value="%3$d"/>
+                        </channel>
+                        <in>%1$s-send</in>
+                        <out>%1$s-receive</out>
+                        <reconnect-delay>2000</reconnect-delay>
+                    </channel-adaptor>
+                    """.formatted(backend.name(), backend.host(), backend.port()));
+            write(deploy.resolve("20_" + GENERATED_PREFIX + "mux-" + backend.name() + ".xml"), """
+                    <?xml version="1.0" encoding="UTF-8"?>
+                    <mux name="%1$s" logger="Q2" class="org.jpos.q2.iso.QMUX">
+                        <in>%1$s-receive</in>
+                        <out>%1$s-send</out>
+                        <ready>%1$s-channel.ready</ready>
+                        <key>41 11</key>
+                    </mux>
+                    """.formatted(backend.name()));
+        }
+        write(deploy.resolve("30_" + GENERATED_PREFIX + "health.xml"), """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <qbean name="router-health" logger="Q2" class="org.example.server.router.RouterHealthCheck">
+                    <property name="backends" value="%s"/>
+                    <property name="virtual-nodes" value="%d"/>
+                    <property name="interval" value="%d"/>
+                    <property name="timeout" value="2000"/>
+                    <property name="failures" value="2"/>
+                </qbean>
+                """.formatted(String.join(",", names), EnvironmentLoader.getInt("ROUTER_VNODES", 160),
+                EnvironmentLoader.getInt("ROUTER_HEALTH_INTERVAL_MS", 5000)));
+        write(deploy.resolve("40_" + GENERATED_PREFIX + "server.xml"), """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <server name="router-server" class="org.jpos.q2.iso.QServer">
+                    <attr name="port" type="java.lang.Integer">%d</attr>
+                    <channel name="router-channel" class="org.jpos.iso.channel.ASCIIChannel"
+                             packager="org.jpos.iso.packager.GenericPackager">
+                        <property name="packager-config" value="packager/iso87ascii.xml"/>
+                    </channel>
+                    <property name="socketFactory" value="org.example.server.net.ReusePortServerSocketFactory"/>
+                    <request-listener class="org.example.server.router.RouterListener">
+                        <property name="table" value="router-health"/>
+                        <property name="timeout" value="%d"/>
+                        <property name="decline-code" value="91"/>
+                    </request-listener>
+                </server>
+                """.formatted(EnvironmentLoader.getInt("ROUTER_PORT", 6000),
+                EnvironmentLoader.getInt("ROUTER_TIMEOUT_MS", 30_000)));
+        return home;
+    }
+
+    private static void write(Path target, String content) throws IOException {
+        Files.writeString(target, content, StandardCharsets.UTF_8);
+    }
+
+    private static void copyResource(String resource, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try (InputStream inputStream = RouterMain.class.getClassLoader().getResourceAsStream(resource)) {
+            if (inputStream == null) {
+                throw new IOException("Resource not found on classpath: " + resource);
+            }
+            Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    record Backend(String name, String host, int port) {
+        @Override
+        public String toString() {
+            return name + "=" + host + ":" + port;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.server.router;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Routing state shared between the {@link RouterHealthCheck} that owns it and the
+ * {@link RouterListener} instances that read it. Only healthy backends are on the ring, so when a
+ * backend fails or recovers only the terminals it owns move.
+ */
+public final class RouterTable {
+    private final List<String> backends;
+    private final int virtualNodes;
+    private final Set<String> healthy = new LinkedHashSet<>();
+    private volatile HashRing ring;
+
+    RouterTable(List<String> backends, int virtualNodes) {
+        this.backends = List.copyOf(backends);
+        this.virtualNodes = virtualNodes;
+        this.ring = new HashRing(List.of(), virtualNodes);
+    }
+
+    /**
+     * NameRegistrar key for the table published by the health check called {@code name}.
+     */
+    public static String registrationName(String name) {
+        return "router-table." + name;
+    }
+
+    /**
+     * Returns the healthy backend owning {@code key}, or {@code null} when none is available.
+     */
+    public String route(String key) {
+        return ring.nodeFor(key);
+    }
+
+    public List<String> backends() {
+        return backends;
+    }
+
+    public List<String> healthyBackends() {
+        return ring.nodes();
+    }
+
+    /**
+     * Records the health of {@code backend} and rebuilds the ring if it changed.
+     *
+     * @return {@code true} when the health of the backend changed
+     */
+    synchronized boolean setHealthy(String backend, boolean up) {
+        boolean changed = up ? healthy.add(backend) : healthy.remove(backend);
+        if (changed) {
+            ring = new HashRing(backends.stream().filter(healthy::contains).toList(), virtualNodes);
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.server.throttle;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token buckets of one dimension (terminal or acquirer), keyed by the field value. The table is a
+ * {@link ConcurrentHashMap}, so lookups of existing keys take no lock and creating a bucket only
+ * locks its hash bin. Buckets that have been full for the idle timeout are evicted by
+ * {@link #sweep(long)}; a request racing with the eviction of its bucket at worst starts from a
+ * fresh, full bucket. Once the table holds {@code maxKeys} buckets, new keys share one overflow
+ * bucket with the default limit until the next sweep makes room, so a flood of random keys cannot
+ * grow the table without bound.
+ */
+final class BucketTable {
+    private final Limit defaultLimit;
+    private final Map<String, Limit> overrides;
+    private final int maxKeys;
+    private final long idleNanos;
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final TokenBucket overflow;
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    BucketTable(Limit defaultLimit, Map<String, Limit> overrides, int maxKeys, long idleNanos, long now) {
+        this.defaultLimit = defaultLimit;
+        this.overrides = Map.copyOf(overrides);
+        this.maxKeys = Math.max(1, maxKeys);
+        this.idleNanos = idleNanos;
+        this.overflow = new TokenBucket(defaultLimit, now);
+    }
+
+    /**
+     * Returns the bucket of {@code key}, creating it when needed.
+     */
+    TokenBucket bucket(String key, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys && !overrides.containsKey(key)) {
+            return overflow;
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(overrides.getOrDefault(k, defaultLimit), now));
+    }
+
+    void record(boolean admitted) {
+        (admitted ? allowed : throttled).increment();
+    }
+
+    /**
+     * Drops buckets that have been full for the idle timeout and returns how many were dropped.
+     */
+    int sweep(long now) {
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+        int removed = Math.max(0, before - buckets.size());
+        evicted.add(removed);
+        return removed;
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    long allowed() {
+        return allowed.sum();
+    }
+
+    long throttled() {
+        return throttled.sum();
+    }
+
+    long evicted() {
+        return evicted.sum();
+    }
+
+    /**
+     * The {@code limit} keys currently in the table with the most throttled requests.
+     */
+    Map<String, Long> topThrottled(int limit) {
+        Map<String, Long> top = new LinkedHashMap<>();
+        buckets.entrySet().stream()
+                .filter(entry -> entry.getValue().throttled() > 0)
+                .sorted(Comparator.comparingLong((Map.Entry<String, TokenBucket> entry) -> entry.getValue().throttled())
+                        .reversed())
+                .limit(limit)
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue().throttled()));
+        if (overflow.throttled() > 0 && top.size() < limit) {
+            top.put("(overflow)", overflow.throttled());
+        }
+        return top;
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.server.throttle;
+
+import java.util.Map;
+
+/**
+ * Sustained {@code rate} in requests per second and the {@code burst} a key may send at once.
+ */
+record Limit(double rate, int burst) {
+    Limit {
+        if (!(rate > 0.0) || burst < 1) {
+            throw new IllegalArgumentException("Invalid limit " + rate + "/s burst " + burst);
+        }
+    }
+
+    /**
+     * Parses a per-key override of the form {@code key rate burst}.
+     */
+    static Map.Entry<String, Limit> parseOverride(String value) {
+        String[] parts = value.trim().split("\\s+");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Expected 'key rate burst', found '" + value + "'");
+        }
+        try {
+            return Map.entry(parts[0], new Limit(Double.parseDouble(parts[1]), Integer.parseInt(parts[2])));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected 'key rate burst', found '" + value + "'", e);
+        }
+    }
+}
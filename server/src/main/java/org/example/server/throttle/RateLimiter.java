@@ -0,0 +1,233 @@
+package org.example.server.throttle;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.mac.MacService;
+import org.example.server.metrics.MetricsRegistry;
+import org.example.server.util.ResponseCodes;
+import org.jpos.core.ConfigurationException;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOSource;
+import org.jpos.q2.QBeanSupport;
+import org.jpos.util.NameRegistrar;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fair-share admission control for the ingress listeners, applied before a request is queued for
+ * the transaction manager. Every terminal (field 41) and every acquirer (field 32) has its own
+ * {@link TokenBucket}: {@code terminal-rate}/{@code terminal-burst} and
+ * {@code acquirer-rate}/{@code acquirer-burst} by default, overridden per key with
+ * {@code terminal-limit} and {@code acquirer-limit} entries of the form {@code key rate burst}. A
+ * rate of 0 disables that dimension. Over-limit requests are answered at once with
+ * {@code response-code} (65 by default) and never reach the queue; network management messages
+ * (08xx) are always admitted so throttled terminals keep their echoes going.
+ * <p>
+ * Buckets full for {@code idle-timeout} milliseconds are evicted by a background sweep, and each
+ * table holds at most {@code max-keys} buckets. Allowed and throttled counts, and the keys throttled
+ * most, are exported over JMX as {@code Throttle}.
+ */
+public class RateLimiter extends QBeanSupport implements RateLimiterMXBean {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(RateLimiter.class);
+    private static final int TOP_KEYS = 20;
+    /** Stands in for the bucket of a dimension that is disabled or a key the request lacks. */
+    private static final TokenBucket ADMITTED = new TokenBucket(new Limit(1.0, 1), 0L);
+
+    private BucketTable terminals;
+    private BucketTable acquirers;
+    private String responseCode;
+    private volatile boolean enabled;
+    private ScheduledExecutorService sweeper;
+    private ObjectName objectName;
+
+    @Override
+    protected void initService() throws ConfigurationException {
+        responseCode = cfg.get("response-code", ResponseCodes.EXCEEDS_FREQUENCY_LIMIT);
+        int maxKeys = cfg.getInt("max-keys", 100_000);
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1_000L, cfg.getLong("idle-timeout", 60_000L)));
+        long now = System.nanoTime();
+        try {
+            terminals = table("terminal", maxKeys, idleNanos, now);
+            acquirers = table("acquirer", maxKeys, idleNanos, now);
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException(e.getMessage(), e);
+        }
+    }
+
+    private BucketTable table(String dimension, int maxKeys, long idleNanos, long now) {
+        double rate = cfg.getDouble(dimension + "-rate", 0.0);
+        if (rate <= 0.0) {
+            return null;
+        }
+        Limit defaultLimit = new Limit(rate, cfg.getInt(dimension + "-burst", (int) Math.ceil(rate)));
+        Map<String, Limit> overrides = new HashMap<>();
+        for (String entry : cfg.getAll(dimension + "-limit")) {
+            Map.Entry<String, Limit> override = Limit.parseOverride(entry);
+            overrides.put(override.getKey(), override.getValue());
+        }
+        LOGGER.info("Throttling each {} to {}/s, burst {}, with {} overrides", dimension, rate,
+                defaultLimit.burst(), overrides.size());
+        return new BucketTable(defaultLimit, overrides, maxKeys, idleNanos, now);
+    }
+
+    @Override
+    protected void startService() {
+        enabled = cfg.getBoolean("enabled", true) && (terminals != null || acquirers != null);
+        if (!enabled) {
+            LOGGER.info("Rate limiter {} is disabled", getName());
+        }
+        long idleMillis = Math.max(1_000L, cfg.getLong("idle-timeout", 60_000L));
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, getName() + "-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, idleMillis / 2, idleMillis / 2, TimeUnit.MILLISECONDS);
+        objectName = MetricsRegistry.name("Throttle", "name", getName());
+        MetricsRegistry.register(objectName, this);
+        NameRegistrar.register(registrationName(getName()), this);
+    }
+
+    @Override
+    protected void stopService() {
+        NameRegistrar.unregister(registrationName(getName()));
+        MetricsRegistry.unregister(objectName);
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Name under which a running limiter is registered in the {@link NameRegistrar}.
+     */
+    public static String registrationName(String name) {
+        return "throttle." + name;
+    }
+
+    /**
+     * Takes a token for the request's terminal and acquirer. When either is over its limit the
+     * request is answered through {@code source} with the throttling response code and
+     * {@code false} is returned; the caller must then drop it.
+     */
+    public boolean admit(ISOSource source, ISOMsg request) {
+        if (!enabled || isNetworkManagement(request)) {
+            return true;
+        }
+        long now = System.nanoTime();
+        TokenBucket terminal = acquire(terminals, request.getString(41), now);
+        if (terminal == null) {
+            decline(source, request, "terminal");
+            return false;
+        }
+        if (acquire(acquirers, request.getString(32), now) == null) {
+            if (terminal != ADMITTED) {
+                terminal.refund();
+            }
+            decline(source, request, "acquirer");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the bucket a token was taken from, {@link #ADMITTED} when the dimension does not
+     * apply, or {@code null} when the key is over its limit.
+     */
+    private static TokenBucket acquire(BucketTable table, String key, long now) {
+        if (table == null || key == null) {
+            return ADMITTED;
+        }
+        TokenBucket bucket = table.bucket(key, now);
+        boolean admitted = bucket.tryAcquire(now);
+        table.record(admitted);
+        return admitted ? bucket : null;
+    }
+
+    private void decline(ISOSource source, ISOMsg request, String dimension) {
+        LOGGER.debug("Throttled STAN {} from terminal {} acquirer {} by {} limit", request.getString(11),
+                request.getString(41), request.getString(32), dimension);
+        try {
+            ISOMsg response = (ISOMsg) request.clone();
+            response.setResponseMTI();
+            response.set(39, responseCode);
+            MacService.removeMac(response);
+            source.send(response);
+        } catch (ISOException | IOException e) {
+            LOGGER.warn("Unable to answer throttled request: {}", e.getMessage());
+        }
+    }
+
+    private static boolean isNetworkManagement(ISOMsg request) {
+        try {
+            String mti = request.getMTI();
+            return mti != null && mti.length() == 4 && mti.charAt(1) == '8';
+        } catch (ISOException e) {
+            return false;
+        }
+    }
+
+    private void sweep() {
+        long now = System.nanoTime();
+        int removed = (terminals == null ? 0 : terminals.sweep(now)) + (acquirers == null ? 0 : acquirers.sweep(now));
+        if (removed > 0) {
+            LOGGER.debug("Evicted {} idle rate limit buckets", removed);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public int getTerminalKeys() {
+        return terminals == null ? 0 : terminals.size();
+    }
+
+    @Override
+    public int getAcquirerKeys() {
+        return acquirers == null ? 0 : acquirers.size();
+    }
+
+    @Override
+    public long getTerminalAllowed() {
+        return terminals == null ? 0L : terminals.allowed();
+    }
+
+    @Override
+    public long getTerminalThrottled() {
+        return terminals == null ? 0L : terminals.throttled();
+    }
+
+    @Override
+    public long getAcquirerAllowed() {
+        return acquirers == null ? 0L : acquirers.allowed();
+    }
+
+    @Override
+    public long getAcquirerThrottled() {
+        return acquirers == null ? 0L : acquirers.throttled();
+    }
+
+    @Override
+    public long getEvicted() {
+        return (terminals == null ? 0L : terminals.evicted()) + (acquirers == null ? 0L : acquirers.evicted());
+    }
+
+    @Override
+    public Map<String, Long> getTopThrottledTerminals() {
+        return terminals == null ? Map.of() : terminals.topThrottled(TOP_KEYS);
+    }
+
+    @Override
+    public Map<String, Long> getTopThrottledAcquirers() {
+        return acquirers == null ? Map.of() : acquirers.topThrottled(TOP_KEYS);
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.server.throttle;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link RateLimiter}.
+ */
+public interface RateLimiterMXBean {
+    boolean isEnabled();
+
+    int getTerminalKeys();
+
+    int getAcquirerKeys();
+
+    long getTerminalAllowed();
+
+    long getTerminalThrottled();
+
+    long getAcquirerAllowed();
+
+    long getAcquirerThrottled();
+
+    long getEvicted();
+
+    Map<String, Long> getTopThrottledTerminals();
+
+    Map<String, Long> getTopThrottledAcquirers();
+}
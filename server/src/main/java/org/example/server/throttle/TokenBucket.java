@@ -0,0 +1,58 @@
+package org.example.server.throttle;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket refilled at {@code rate} tokens per second and holding up to
+ * {@code burst} tokens. It is kept in its GCRA form: instead of a token count the bucket stores
+ * the theoretical arrival time of the next request, so taking a token is a single compare-and-set
+ * and refilling needs no timer. A bucket whose theoretical arrival time lies in the past is full.
+ */
+final class TokenBucket {
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+    private final AtomicLong throttled = new AtomicLong();
+
+    TokenBucket(Limit limit, long now) {
+        this.intervalNanos = Math.max(1L, (long) (1_000_000_000.0 / limit.rate()));
+        this.toleranceNanos = intervalNanos * (Math.max(1, limit.burst()) - 1);
+        this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token if one is available at {@code now}.
+     */
+    boolean tryAcquire(long now) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long base = arrival - now > 0 ? arrival : now;
+            if (base - now > toleranceNanos) {
+                throttled.incrementAndGet();
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, base + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire(long)} for a request that was throttled by
+     * another limit after all.
+     */
+    void refund() {
+        theoreticalArrival.addAndGet(-intervalNanos);
+    }
+
+    /**
+     * Whether the bucket has been full for at least {@code idleNanos}, so dropping it loses nothing.
+     */
+    boolean isIdle(long now, long idleNanos) {
+        return now - theoreticalArrival.get() >= idleNanos;
+    }
+
+    long throttled() {
+        return throttled.get();
+    }
+}
@@ -0,0 +1,279 @@
+package org.example.server.tuning;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.example.server.config.DataSourceProvider;
+import org.example.server.config.Shard;
+import org.example.server.config.ShardedDataSource;
+import org.example.server.dispatch.PriorityDispatcher;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.metrics.LatencyRecorder;
+import org.example.server.metrics.MetricsRegistry;
+import org.example.server.metrics.PoolMetrics;
+import org.jpos.q2.QBeanSupport;
+import org.jpos.util.NameRegistrar;
+
+import javax.management.ObjectName;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adjusts the Hikari maximum pool size and the dispatcher's in-flight limit (the transaction
+ * manager's effective concurrency) with a {@link GradientLimit} each. The in-flight limit only
+ * matters below the transaction manager's session count, so it is capped at {@code tm-sessions}
+ * and left alone when that is not configured. When the datasource is sharded every shard's pool
+ * has its own limit, and {@code PoolLimit} reports their sum.
+ * <p>
+ * Every {@code interval} milliseconds the pool limit is fed the mean connection usage time (the
+ * database latency seen by participants), grows while callers wait in {@code getConnection()}
+ * longer than {@code target-acquire-wait} (or time out) and backs off when the usage p99 exceeds
+ * {@code max-db-latency}. The concurrency limit is fed the dispatcher's
+ * service time, grows while requests queue in the lanes and backs off when the service p99
+ * exceeds {@code max-service-time}. Intervals with fewer than {@code min-samples} observations are
+ * skipped. Every change is logged and the current limits and last decisions are exported over JMX.
+ */
+public class AutoTuner extends QBeanSupport implements AutoTunerMXBean {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(AutoTuner.class);
+
+    private final AtomicLong adjustments = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+    private ObjectName objectName;
+    private String dispatcherName;
+    private long minSamples;
+    private long targetAcquireWaitMicros;
+    private long maxDbLatencyMicros;
+    private long maxServiceTimeMicros;
+    private int poolMin;
+    private int poolMax;
+    private int concurrencyMin;
+    private int concurrencyMax;
+    private boolean tuneConcurrency;
+    private final Map<String, PoolState> pools = new HashMap<>();
+    private GradientLimit concurrencyLimit;
+    private LatencyRecorder.Snapshot lastService;
+    private volatile boolean tuning;
+    private volatile int currentPoolLimit;
+    private volatile int currentConcurrencyLimit;
+    private volatile String lastPoolDecision = "none";
+    private volatile String lastConcurrencyDecision = "none";
+
+    @Override
+    protected void initService() {
+        dispatcherName = cfg.get("dispatcher", "server-dispatcher");
+        minSamples = Math.max(1L, cfg.getLong("min-samples", 20L));
+        targetAcquireWaitMicros = TimeUnit.MILLISECONDS.toMicros(Math.max(1L, cfg.getLong("target-acquire-wait", 5L)));
+        maxDbLatencyMicros = TimeUnit.MILLISECONDS.toMicros(Math.max(1L, cfg.getLong("max-db-latency", 250L)));
+        maxServiceTimeMicros = TimeUnit.MILLISECONDS.toMicros(Math.max(1L, cfg.getLong("max-service-time", 2000L)));
+        poolMin = cfg.getInt("pool-min", 4);
+        poolMax = cfg.getInt("pool-max", 40);
+        concurrencyMin = cfg.getInt("concurrency-min", 8);
+        int sessions = cfg.getInt("tm-sessions", 0);
+        tuneConcurrency = sessions > 0;
+        concurrencyMax = Math.min(cfg.getInt("concurrency-max", 256), Math.max(sessions, concurrencyMin));
+        if (!tuneConcurrency) {
+            LOGGER.warn("Auto-tuner {} has no tm-sessions; leaving the dispatcher's in-flight limit alone", getName());
+        }
+        tuning = cfg.getBoolean("enabled", true);
+    }
+
+    @Override
+    protected void startService() {
+        objectName = MetricsRegistry.name("AutoTuner", "name", getName());
+        MetricsRegistry.register(objectName, this);
+        long interval = Math.max(1000L, cfg.getLong("interval", 5000L));
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::tickSafely, interval, interval, TimeUnit.MILLISECONDS);
+        LOGGER.info("Auto-tuner {} {} every {} ms (pool {}..{}, concurrency {}..{})", getName(),
+                tuning ? "tuning" : "paused", interval, poolMin, poolMax, concurrencyMin, concurrencyMax);
+    }
+
+    @Override
+    protected void stopService() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            scheduler = null;
+        }
+        MetricsRegistry.unregister(objectName);
+    }
+
+    @Override
+    public boolean isTuning() {
+        return tuning;
+    }
+
+    /**
+     * Pauses or resumes adjustments. While paused the limits are left where they are.
+     */
+    @Override
+    public void setTuning(boolean tuning) {
+        this.tuning = tuning;
+        LOGGER.info("Auto-tuner {} {}", getName(), tuning ? "resumed" : "paused");
+    }
+
+    @Override
+    public int getPoolLimit() {
+        return currentPoolLimit;
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return currentConcurrencyLimit;
+    }
+
+    @Override
+    public long getAdjustments() {
+        return adjustments.get();
+    }
+
+    @Override
+    public String getLastPoolDecision() {
+        return lastPoolDecision;
+    }
+
+    @Override
+    public String getLastConcurrencyDecision() {
+        return lastConcurrencyDecision;
+    }
+
+    private void tickSafely() {
+        if (!tuning) {
+            return;
+        }
+        try {
+            tunePools();
+            tuneConcurrency();
+        } catch (RuntimeException e) {
+            LOGGER.error("Auto-tuner iteration failed", e);
+        }
+    }
+
+    private void tunePools() {
+        ShardedDataSource shards = DataSourceProvider.currentShards();
+        if (shards == null) {
+            if (DataSourceProvider.current() instanceof HikariDataSource pool) {
+                currentPoolLimit = tunePool(pool);
+            }
+            return;
+        }
+        int total = 0;
+        for (Shard shard : shards.shards()) {
+            if (shard.dataSource() instanceof HikariDataSource pool) {
+                total += tunePool(pool);
+            }
+        }
+        currentPoolLimit = total;
+    }
+
+    /**
+     * Tunes one pool and returns its current limit.
+     */
+    private int tunePool(HikariDataSource pool) {
+        if (pool.isClosed()) {
+            return 0;
+        }
+        PoolMetrics metrics = PoolMetrics.forPool(pool.getPoolName());
+        HikariPoolMXBean poolBean = pool.getHikariPoolMXBean();
+        HikariConfigMXBean configBean = pool.getHikariConfigMXBean();
+        int current = configBean.getMaximumPoolSize();
+        if (metrics == null || poolBean == null) {
+            return current;
+        }
+        PoolState state = pools.computeIfAbsent(pool.getPoolName(),
+                name -> new PoolState(newLimit(current, poolMin, poolMax)));
+
+        LatencyRecorder.Snapshot acquire = metrics.acquire().snapshot();
+        LatencyRecorder.Snapshot usage = metrics.usage().snapshot();
+        long timeouts = metrics.timeouts();
+        LatencyRecorder.Snapshot acquireDelta = state.lastAcquire == null ? acquire : acquire.since(state.lastAcquire);
+        LatencyRecorder.Snapshot usageDelta = state.lastUsage == null ? usage : usage.since(state.lastUsage);
+        long timeoutDelta = timeouts - state.lastTimeouts;
+        state.lastAcquire = acquire;
+        state.lastUsage = usage;
+        state.lastTimeouts = timeouts;
+        if (usageDelta.count() < minSamples && timeoutDelta == 0) {
+            return current;
+        }
+
+        int waiting = poolBean.getThreadsAwaitingConnection();
+        long acquireP99 = acquireDelta.percentile(99.0);
+        long usageP99 = usageDelta.percentile(99.0);
+        boolean queued = waiting > 0 || timeoutDelta > 0 || acquireP99 > targetAcquireWaitMicros;
+        boolean overloaded = usageP99 > maxDbLatencyMicros;
+        int next = state.limit.update(usageDelta.mean(), queued, overloaded);
+        if (next == current) {
+            return current;
+        }
+        configBean.setMaximumPoolSize(next);
+        adjustments.incrementAndGet();
+        lastPoolDecision = String.format("%s max pool %d -> %d (db mean %.0f us, db p99 %d us, baseline %.0f us, "
+                        + "acquire p99 %d us, waiting %d, active %d, timeouts %d)", pool.getPoolName(), current, next,
+                usageDelta.mean(), usageP99, state.limit.baselineMicros(), acquireP99, waiting,
+                poolBean.getActiveConnections(), timeoutDelta);
+        LOGGER.info("Auto-tuner: {}", lastPoolDecision);
+        return next;
+    }
+
+    private void tuneConcurrency() {
+        if (!tuneConcurrency) {
+            return;
+        }
+        PriorityDispatcher dispatcher = NameRegistrar.getIfExists(PriorityDispatcher.registrationName(dispatcherName));
+        if (dispatcher == null) {
+            return;
+        }
+        int current = dispatcher.getMaxInFlight();
+        if (concurrencyLimit == null) {
+            concurrencyLimit = newLimit(current, concurrencyMin, concurrencyMax);
+        }
+
+        LatencyRecorder.Snapshot service = dispatcher.getServiceTime().snapshot();
+        LatencyRecorder.Snapshot serviceDelta = lastService == null ? service : service.since(lastService);
+        lastService = service;
+        if (serviceDelta.count() < minSamples) {
+            return;
+        }
+
+        int queued = dispatcher.getQueued();
+        long serviceP99 = serviceDelta.percentile(99.0);
+        int next = concurrencyLimit.update(serviceDelta.mean(), queued > 0, serviceP99 > maxServiceTimeMicros);
+        currentConcurrencyLimit = next;
+        if (next == current) {
+            return;
+        }
+        dispatcher.setMaxInFlight(next);
+        adjustments.incrementAndGet();
+        lastConcurrencyDecision = String.format("max in-flight %d -> %d (service mean %.0f us, service p99 %d us, "
+                        + "baseline %.0f us, queued %d, in flight %d)", current, next, serviceDelta.mean(), serviceP99,
+                concurrencyLimit.baselineMicros(), queued, dispatcher.getInFlight());
+        LOGGER.info("Auto-tuner: {}", lastConcurrencyDecision);
+    }
+
+    private GradientLimit newLimit(int initial, int min, int max) {
+        return new GradientLimit(initial, min, max,
+                cfg.getDouble("tolerance", 1.5),
+                cfg.getDouble("smoothing", 0.2),
+                cfg.getDouble("backoff-ratio", 0.9));
+    }
+
+    private static final class PoolState {
+        private final GradientLimit limit;
+        private LatencyRecorder.Snapshot lastAcquire;
+        private LatencyRecorder.Snapshot lastUsage;
+        private long lastTimeouts;
+
+        private PoolState(GradientLimit limit) {
+            this.limit = limit;
+        }
+    }
+}
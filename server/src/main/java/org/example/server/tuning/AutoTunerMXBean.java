@@ -0,0 +1,20 @@
+package org.example.server.tuning;
+
+/**
+ * JMX view of the {@link AutoTuner}.
+ */
+public interface AutoTunerMXBean {
+    boolean isTuning();
+
+    void setTuning(boolean tuning);
+
+    int getPoolLimit();
+
+    int getConcurrencyLimit();
+
+    long getAdjustments();
+
+    String getLastPoolDecision();
+
+    String getLastConcurrencyDecision();
+}
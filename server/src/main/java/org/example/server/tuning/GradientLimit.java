@@ -0,0 +1,76 @@
+package org.example.server.tuning;
+
+/**
+ * Gradient concurrency limit with AIMD-style backoff.
+ * <p>
+ * Each update compares the latency observed over the last interval with a slowly moving baseline.
+ * While latency stays within {@code tolerance} of the baseline and callers are queueing, the limit
+ * grows by roughly its square root; once latency rises it shrinks in proportion to the latency
+ * gradient (never below half per step). An explicit overload signal backs the limit off
+ * multiplicatively. Changes are smoothed and clamped to {@code [minLimit, maxLimit]}. Not
+ * thread-safe; callers update it from a single tuning thread.
+ */
+final class GradientLimit {
+    private static final double BASELINE_ALPHA = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+    private double limit;
+    private double baselineMicros;
+
+    GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing,
+                  double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.tolerance = Math.max(1.0, tolerance);
+        this.smoothing = Math.min(1.0, Math.max(0.01, smoothing));
+        this.backoffRatio = Math.min(0.99, Math.max(0.1, backoffRatio));
+        this.limit = clamp(initialLimit);
+    }
+
+    /**
+     * Feeds one interval of observations into the algorithm.
+     *
+     * @param latencyMicros mean latency over the interval
+     * @param queued        whether callers are waiting for capacity
+     * @param overloaded    whether a hard latency or timeout ceiling was breached
+     * @return the new limit
+     */
+    int update(double latencyMicros, boolean queued, boolean overloaded) {
+        if (overloaded) {
+            limit = clamp(limit * backoffRatio);
+            return limit();
+        }
+        if (latencyMicros <= 0.0) {
+            return limit();
+        }
+        if (baselineMicros == 0.0 || latencyMicros < baselineMicros) {
+            baselineMicros = latencyMicros;
+        } else {
+            baselineMicros += (latencyMicros - baselineMicros) * BASELINE_ALPHA;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baselineMicros / latencyMicros));
+        double target = limit * gradient;
+        if (queued) {
+            target += Math.sqrt(limit);
+        }
+        limit = clamp(limit * (1.0 - smoothing) + target * smoothing);
+        return limit();
+    }
+
+    int limit() {
+        return (int) Math.round(limit);
+    }
+
+    double baselineMicros() {
+        return baselineMicros;
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.server.util;
+
+/**
+ * ISO-8583 field 39 response codes used by the server. Participants store these constants in the
+ * context rather than building new strings per transaction.
+ */
+public final class ResponseCodes {
+    public static final String APPROVED = "00";
+    public static final String INVALID_TRANSACTION = "12";
+    public static final String INVALID_AMOUNT = "13";
+    public static final String FORMAT_ERROR = "30";
+    public static final String SECURITY_VIOLATION = "63";
+    public static final String EXCEEDS_FREQUENCY_LIMIT = "65";
+    public static final String ISSUER_UNAVAILABLE = "91";
+    public static final String SYSTEM_ERROR = "96";
+
+    private ResponseCodes() {
+    }
+}
@@ -2,6 +2,7 @@ package org.example.server.util;
 
 /**
  * Keys used to store data in the jPOS transaction {@link org.jpos.transaction.Context}.
+ * Participants read and write them through the typed {@link org.example.server.context.Slots}.
  */
 public final class ServerContextKeys {
     /**
@@ -16,9 +17,34 @@ public final class ServerContextKeys {
      * {@code RESPONSE} key before it can write it back to the network channel.
      */
     public static final String RESPONSE = "RESPONSE";
+    /**
+     * {@link org.jpos.iso.ISOSource} the request arrived on, stored by jPOS
+     * {@code IncomingListener}.
+     */
+    public static final String SOURCE = "SOURCE";
     public static final String RESPONSE_CODE = "responseCode";
     public static final String ERROR_MESSAGE = "errorMessage";
     public static final String APPROVAL_CODE = "approvalCode";
+    /**
+     * {@link org.example.server.dispatch.DispatchTicket} attached by the priority dispatcher and
+     * released by {@link org.example.server.participant.ReleaseDispatchSlot}.
+     */
+    public static final String DISPATCH_TICKET = "DISPATCH_TICKET";
+    /**
+     * {@link org.example.server.deadline.Deadline} attached by
+     * {@link org.example.server.participant.StartDeadline}.
+     */
+    public static final String DEADLINE = "DEADLINE";
+    /**
+     * {@link org.example.server.mac.MacKey} that verified the request, stored by
+     * {@link org.example.server.participant.VerifyMac} and used to MAC the response.
+     */
+    public static final String MAC_KEY = "MAC_KEY";
+    /**
+     * {@link org.example.server.chain.ChainRun} of the participant chain version a transaction
+     * prepared on, stored by {@link org.example.server.chain.VersionedChain}.
+     */
+    public static final String PARTICIPANT_CHAIN = "PARTICIPANT_CHAIN";
 
     private ServerContextKeys() {
     }
@@ -0,0 +1,61 @@
+package org.example.server.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hash functions whose output is stable across JVMs and releases, unlike {@link String#hashCode()}
+ * mixed through {@link java.util.HashMap}. Use them wherever a key must map to the same node or
+ * shard in every process.
+ */
+public final class StableHash {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private StableHash() {
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes of {@code key}, finished with the MurmurHash3 mixer so that
+     * similar keys (sequential terminal ids) spread evenly.
+     */
+    public static long hash64(String key) {
+        long hash = FNV_OFFSET;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Jump consistent hash (Lamping and Veach): maps {@code key} to a bucket in {@code [0, buckets)}
+     * such that growing from {@code n} to {@code n + 1} buckets only moves {@code 1/(n + 1)} of the keys.
+     */
+    public static int bucket(String key, int buckets) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("buckets must be positive");
+        }
+        long state = hash64(key);
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            state = state * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((state >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    /**
+     * MurmurHash3 64-bit finaliser.
+     */
+    public static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe1a85ec3L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
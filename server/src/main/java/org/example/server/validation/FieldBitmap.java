@@ -0,0 +1,83 @@
+package org.example.server.validation;
+
+import org.example.server.packager.LazyISOMsg;
+import org.jpos.iso.ISOMsg;
+
+import java.util.BitSet;
+
+/**
+ * Presence bitmaps of ISO 8583 fields 0 to 128 as three 64 bit words, bit {@code n} standing for
+ * field {@code n}. Rule masks and message bitmaps share this layout, so a rule is checked against a
+ * message with a handful of word operations whatever the number of fields it names.
+ */
+final class FieldBitmap {
+    static final int WORDS = 3;
+    static final int MAX_FIELD = 128;
+
+    private FieldBitmap() {
+    }
+
+    /**
+     * Fields present in {@code message}. A {@link LazyISOMsg} answers from its wire bitmap without
+     * decoding any field.
+     */
+    static long[] of(ISOMsg message) {
+        if (message instanceof LazyISOMsg lazy) {
+            return words(lazy.presentFields());
+        }
+        long[] words = new long[WORDS];
+        for (Object key : message.getChildren().keySet()) {
+            if (key instanceof Integer field && field > 1 && field <= MAX_FIELD) {
+                words[field >>> 6] |= 1L << field;
+            }
+        }
+        return words;
+    }
+
+    static long[] words(BitSet fields) {
+        long[] words = new long[WORDS];
+        long[] packed = fields.toLongArray();
+        System.arraycopy(packed, 0, words, 0, Math.min(WORDS, packed.length));
+        return words;
+    }
+
+    static boolean containsAll(long[] present, long[] mask) {
+        return (present[0] & mask[0]) == mask[0]
+                && (present[1] & mask[1]) == mask[1]
+                && (present[2] & mask[2]) == mask[2];
+    }
+
+    static boolean intersects(long[] present, long[] mask) {
+        return ((present[0] & mask[0]) | (present[1] & mask[1]) | (present[2] & mask[2])) != 0L;
+    }
+
+    /**
+     * Lowest field set in {@code mask} but not in {@code present}, or -1.
+     */
+    static int firstMissing(long[] present, long[] mask) {
+        for (int i = 0; i < WORDS; i++) {
+            long missing = mask[i] & ~present[i];
+            if (missing != 0L) {
+                return (i << 6) + Long.numberOfTrailingZeros(missing);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lowest field set in both {@code present} and {@code mask}, or -1.
+     */
+    static int firstCommon(long[] present, long[] mask) {
+        for (int i = 0; i < WORDS; i++) {
+            long common = mask[i] & present[i];
+            if (common != 0L) {
+                return (i << 6) + Long.numberOfTrailingZeros(common);
+            }
+        }
+        return -1;
+    }
+
+    static boolean isSet(long[] present, int field) {
+        return (present[field >>> 6] & (1L << field)) != 0L;
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.server.validation;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Format and length constraint on one field, compiled from a {@code <field>} element of the rules
+ * file. The character class is checked with a table lookup per character; {@code pattern} is
+ * compiled once at load time and {@code values} is a hash set.
+ */
+final class FieldRule {
+    private final int field;
+    private final Format format;
+    private final int minLength;
+    private final int maxLength;
+    private final Pattern pattern;
+    private final Set<String> values;
+
+    FieldRule(int field, Format format, int minLength, int maxLength, Pattern pattern, Set<String> values) {
+        this.field = field;
+        this.format = format;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.pattern = pattern;
+        this.values = values;
+    }
+
+    int field() {
+        return field;
+    }
+
+    /**
+     * Returns why {@code value} breaks the rule, or {@code null} when it conforms.
+     */
+    String check(String value) {
+        if (value == null) {
+            return "not a character field";
+        }
+        int length = value.length();
+        if (length < minLength || length > maxLength) {
+            return minLength == maxLength
+                    ? "length " + length + ", expected " + minLength
+                    : "length " + length + ", expected " + minLength + " to " + maxLength;
+        }
+        if (format != null) {
+            for (int i = 0; i < length; i++) {
+                if (!format.accepts(value.charAt(i))) {
+                    return "not " + format.description;
+                }
+            }
+        }
+        if (values != null && !values.contains(value)) {
+            return "value not allowed";
+        }
+        if (pattern != null && !pattern.matcher(value).matches()) {
+            return "does not match " + pattern.pattern();
+        }
+        return null;
+    }
+
+    /**
+     * Character classes of ISO 8583 field attributes.
+     */
+    enum Format {
+        N("numeric", "0123456789"),
+        A("alphabetic", "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz"),
+        AN("alphanumeric", "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz"),
+        ANS("printable", null),
+        HEX("hexadecimal", "0123456789ABCDEFabcdef"),
+        Z("track data", "0123456789=D^");
+
+        private final String description;
+        private final boolean[] accepted = new boolean[128];
+
+        Format(String description, String characters) {
+            this.description = description;
+            if (characters == null) {
+                for (char c = 0x20; c < 0x7f; c++) {
+                    accepted[c] = true;
+                }
+            } else {
+                for (int i = 0; i < characters.length(); i++) {
+                    accepted[characters.charAt(i)] = true;
+                }
+            }
+        }
+
+        boolean accepts(char c) {
+            return c < 128 && accepted[c];
+        }
+
+        static Format parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown field format '" + name + "'", e);
+            }
+        }
+    }
+}
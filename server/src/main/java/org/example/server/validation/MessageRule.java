@@ -0,0 +1,64 @@
+package org.example.server.validation;
+
+import org.jpos.iso.ISOMsg;
+
+/**
+ * Compiled rule for one MTI, optionally narrowed to a processing code. Mandatory, forbidden and
+ * conditional fields are bitmap masks tested against the message's presence bitmap; format
+ * constraints are checked only for the fields the message carries.
+ */
+final class MessageRule {
+    private final String description;
+    private final long[] mandatory;
+    private final long[] forbidden;
+    private final Condition[] conditions;
+    private final FieldRule[] fieldRules;
+
+    MessageRule(String description, long[] mandatory, long[] forbidden, Condition[] conditions, FieldRule[] fieldRules) {
+        this.description = description;
+        this.mandatory = mandatory;
+        this.forbidden = forbidden;
+        this.conditions = conditions;
+        this.fieldRules = fieldRules;
+    }
+
+    /**
+     * Checks {@code message}, whose present fields are {@code present}, and returns the first
+     * violation found, or {@code null}.
+     */
+    Violation check(ISOMsg message, long[] present) {
+        if (!FieldBitmap.containsAll(present, mandatory)) {
+            return Violation.missing(FieldBitmap.firstMissing(present, mandatory));
+        }
+        if (FieldBitmap.intersects(present, forbidden)) {
+            return Violation.forbidden(FieldBitmap.firstCommon(present, forbidden));
+        }
+        for (Condition condition : conditions) {
+            if (FieldBitmap.intersects(present, condition.trigger()) == condition.whenPresent()
+                    && !FieldBitmap.containsAll(present, condition.required())) {
+                return Violation.missing(FieldBitmap.firstMissing(present, condition.required()));
+            }
+        }
+        for (FieldRule rule : fieldRules) {
+            if (FieldBitmap.isSet(present, rule.field())) {
+                String reason = rule.check(message.getString(rule.field()));
+                if (reason != null) {
+                    return Violation.invalid(rule.field(), reason);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    /**
+     * Fields {@code required} when any of the {@code trigger} fields is present ({@code whenPresent})
+     * or when none of them is.
+     */
+    record Condition(long[] trigger, boolean whenPresent, long[] required) {
+    }
+}
@@ -0,0 +1,270 @@
+package org.example.server.validation;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Message validation rules compiled from a rules file such as {@code cfg/validation-rules.xml}:
+ * <pre>
+ * &lt;validation-rules&gt;
+ *     &lt;field id="2" format="n" min="12" max="19"/&gt;
+ *     &lt;message mti="0200"&gt;
+ *         &lt;mandatory&gt;3 4 7 11 41&lt;/mandatory&gt;
+ *         &lt;conditional fields="2" unless="35"/&gt;
+ *     &lt;/message&gt;
+ *     &lt;message mti="0200" processing-code="20"&gt;
+ *         &lt;mandatory&gt;2 3 4 7 11 37 41&lt;/mandatory&gt;
+ *         &lt;forbidden&gt;52&lt;/forbidden&gt;
+ *         &lt;field id="37" format="an" length="12"/&gt;
+ *     &lt;/message&gt;
+ * &lt;/validation-rules&gt;
+ * </pre>
+ * A {@code message} applies to an MTI and, optionally, to a full six digit processing code or to its
+ * two digit transaction type; the most specific one wins. {@code mandatory} and {@code forbidden}
+ * list field numbers; a {@code conditional} makes {@code fields} mandatory when any of the
+ * {@code when} fields is present, or when none of the {@code unless} fields is. {@code field}
+ * elements constrain the format ({@code n}, {@code a}, {@code an}, {@code ans}, {@code hex} or
+ * {@code z}), the {@code length} or {@code min}/{@code max} length, a regular expression
+ * {@code pattern} and a list of allowed {@code values}. Top level {@code field} elements apply to
+ * every message and can be overridden inside a {@code message}.
+ * <p>
+ * Finding the rule takes at most three hash lookups, and checking it a few bitmap word operations
+ * plus the format checks of the fields present, whatever the number of rules.
+ */
+public final class ValidationRules {
+    private final Map<String, MtiRules> rules;
+    private final int size;
+
+    private ValidationRules(Map<String, MtiRules> rules, int size) {
+        this.rules = rules;
+        this.size = size;
+    }
+
+    /**
+     * Compiles the rules file read from {@code input}.
+     *
+     * @throws IllegalArgumentException if the file is not well formed or a rule is invalid
+     */
+    public static ValidationRules parse(InputStream input) throws IOException {
+        Document document;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            document = factory.newDocumentBuilder().parse(input);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalArgumentException("Unreadable validation rules: " + e.getMessage(), e);
+        }
+        Element root = document.getDocumentElement();
+        if (!"validation-rules".equals(root.getTagName())) {
+            throw new IllegalArgumentException("Expected <validation-rules>, found <" + root.getTagName() + ">");
+        }
+        Map<Integer, FieldRule> globalFields = new TreeMap<>();
+        Map<String, MtiRules> rules = new HashMap<>();
+        int size = 0;
+        for (Element element : children(root)) {
+            if ("field".equals(element.getTagName())) {
+                FieldRule rule = fieldRule(element);
+                globalFields.put(rule.field(), rule);
+            } else if (!"message".equals(element.getTagName())) {
+                throw new IllegalArgumentException("Unknown element <" + element.getTagName() + ">");
+            }
+        }
+        for (Element element : children(root)) {
+            if ("message".equals(element.getTagName())) {
+                String mti = element.getAttribute("mti").trim();
+                if (!mti.matches("\\d{4}")) {
+                    throw new IllegalArgumentException("Invalid mti '" + mti + "'");
+                }
+                String processingCode = element.getAttribute("processing-code").trim();
+                MessageRule rule = messageRule(element, mti, processingCode, globalFields);
+                rules.computeIfAbsent(mti, key -> new MtiRules()).add(processingCode, rule);
+                size++;
+            }
+        }
+        return new ValidationRules(rules, size);
+    }
+
+    /**
+     * Validates {@code message}, returning the first violation or {@code null} when it conforms.
+     */
+    public Violation validate(ISOMsg message) throws ISOException {
+        MtiRules candidates = rules.get(message.getMTI());
+        MessageRule rule = candidates == null ? null : candidates.find(message.getString(3));
+        if (rule == null) {
+            return Violation.unsupportedMti();
+        }
+        return rule.check(message, FieldBitmap.of(message));
+    }
+
+    /**
+     * Number of {@code message} rules.
+     */
+    public int size() {
+        return size;
+    }
+
+    private static MessageRule messageRule(Element element, String mti, String processingCode,
+                                           Map<Integer, FieldRule> globalFields) {
+        String description = processingCode.isEmpty() ? mti : mti + "/" + processingCode;
+        BitSet mandatory = new BitSet();
+        BitSet forbidden = new BitSet();
+        List<MessageRule.Condition> conditions = new ArrayList<>();
+        Map<Integer, FieldRule> fields = new TreeMap<>(globalFields);
+        for (Element child : children(element)) {
+            switch (child.getTagName()) {
+                case "mandatory" -> mandatory.or(fieldList(child.getTextContent()));
+                case "forbidden" -> forbidden.or(fieldList(child.getTextContent()));
+                case "conditional" -> {
+                    BitSet required = fieldList(child.getAttribute("fields"));
+                    boolean whenPresent = child.hasAttribute("when");
+                    if (whenPresent == child.hasAttribute("unless")) {
+                        throw new IllegalArgumentException("Conditional in " + description
+                                + " needs exactly one of when or unless");
+                    }
+                    BitSet trigger = fieldList(child.getAttribute(whenPresent ? "when" : "unless"));
+                    if (required.isEmpty() || trigger.isEmpty()) {
+                        throw new IllegalArgumentException("Conditional in " + description + " lists no fields");
+                    }
+                    conditions.add(new MessageRule.Condition(FieldBitmap.words(trigger), whenPresent,
+                            FieldBitmap.words(required)));
+                }
+                case "field" -> {
+                    FieldRule rule = fieldRule(child);
+                    fields.put(rule.field(), rule);
+                }
+                default -> throw new IllegalArgumentException("Unknown element <" + child.getTagName() + "> in " + description);
+            }
+        }
+        if (mandatory.intersects(forbidden)) {
+            BitSet both = (BitSet) mandatory.clone();
+            both.and(forbidden);
+            throw new IllegalArgumentException("Fields " + both + " both mandatory and forbidden in " + description);
+        }
+        return new MessageRule(description, FieldBitmap.words(mandatory), FieldBitmap.words(forbidden),
+                conditions.toArray(new MessageRule.Condition[0]), fields.values().toArray(new FieldRule[0]));
+    }
+
+    private static FieldRule fieldRule(Element element) {
+        int field = fieldNumber(element.getAttribute("id"));
+        try {
+            FieldRule.Format format = element.hasAttribute("format") ? FieldRule.Format.parse(element.getAttribute("format")) : null;
+            int min = 0;
+            int max = Integer.MAX_VALUE;
+            if (element.hasAttribute("length")) {
+                min = max = Integer.parseInt(element.getAttribute("length").trim());
+            }
+            if (element.hasAttribute("min")) {
+                min = Integer.parseInt(element.getAttribute("min").trim());
+            }
+            if (element.hasAttribute("max")) {
+                max = Integer.parseInt(element.getAttribute("max").trim());
+            }
+            if (min < 0 || min > max) {
+                throw new IllegalArgumentException("invalid length bounds " + min + ".." + max);
+            }
+            Pattern pattern = element.hasAttribute("pattern") ? Pattern.compile(element.getAttribute("pattern")) : null;
+            Set<String> values = element.hasAttribute("values")
+                    ? Set.copyOf(Arrays.asList(element.getAttribute("values").trim().split("\\s+")))
+                    : null;
+            return new FieldRule(field, format, min, max, pattern, values);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid rule for field " + field + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static BitSet fieldList(String text) {
+        BitSet fields = new BitSet();
+        for (String token : text.trim().split("[\\s,]+")) {
+            if (!token.isEmpty()) {
+                fields.set(fieldNumber(token));
+            }
+        }
+        return fields;
+    }
+
+    private static int fieldNumber(String text) {
+        try {
+            int field = Integer.parseInt(text.trim());
+            if (field >= 2 && field <= FieldBitmap.MAX_FIELD) {
+                return field;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid field number '" + text + "'");
+    }
+
+    private static List<Element> children(Element parent) {
+        List<Element> elements = new ArrayList<>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (nodes.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                elements.add((Element) nodes.item(i));
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Rules of one MTI, by full processing code, by transaction type and for any processing code.
+     */
+    private static final class MtiRules {
+        private final Map<String, MessageRule> byProcessingCode = new HashMap<>();
+        private final Map<String, MessageRule> byTransactionType = new HashMap<>();
+        private MessageRule any;
+
+        void add(String processingCode, MessageRule rule) {
+            MessageRule previous;
+            switch (processingCode.length()) {
+                case 0 -> {
+                    previous = any;
+                    any = rule;
+                }
+                case 2 -> previous = byTransactionType.put(processingCode, rule);
+                case 6 -> previous = byProcessingCode.put(processingCode, rule);
+                default -> throw new IllegalArgumentException("processing-code of " + rule
+                        + " must have 2 or 6 digits");
+            }
+            if (!processingCode.chars().allMatch(Character::isDigit)) {
+                throw new IllegalArgumentException("processing-code of " + rule + " is not numeric");
+            }
+            if (previous != null) {
+                throw new IllegalArgumentException("Duplicate rule for " + rule);
+            }
+        }
+
+        MessageRule find(String processingCode) {
+            if (processingCode != null && processingCode.length() >= 2) {
+                MessageRule rule = byProcessingCode.isEmpty() ? null : byProcessingCode.get(processingCode);
+                if (rule == null && !byTransactionType.isEmpty()) {
+                    rule = byTransactionType.get(processingCode.substring(0, 2));
+                }
+                if (rule != null) {
+                    return rule;
+                }
+            }
+            return any;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.server.validation;
+
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link ValidationRules} loaded from a file and recompiled when it changes. The file is checked at
+ * most every {@code reloadIntervalMillis} by the thread that happens to ask for the rules, and
+ * recompiled when its modification time or size changed; other threads keep using the current rules
+ * meanwhile. A file that fails to compile leaves the previous rules in place.
+ */
+public final class ValidationRulesFile {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(ValidationRulesFile.class);
+
+    private final Path file;
+    private final long reloadIntervalNanos;
+    private final AtomicBoolean checking = new AtomicBoolean();
+    private volatile ValidationRules rules;
+    private volatile long lastCheck;
+    private long lastModified;
+    private long lastSize;
+
+    /**
+     * Loads {@code file}, which must exist and compile.
+     *
+     * @throws IllegalArgumentException if the rules do not compile
+     */
+    public ValidationRulesFile(Path file, long reloadIntervalMillis) throws IOException {
+        this.file = file;
+        this.reloadIntervalNanos = Math.max(0L, reloadIntervalMillis) * 1_000_000L;
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        rules = compile();
+        lastModified = attributes.lastModifiedTime().toMillis();
+        lastSize = attributes.size();
+        lastCheck = System.nanoTime();
+        LOGGER.info("Loaded {} validation rules from {}", rules.size(), file);
+    }
+
+    /**
+     * Returns the current rules, reloading the file first when it is due for a check and changed.
+     */
+    public ValidationRules current() {
+        long now = System.nanoTime();
+        if (reloadIntervalNanos > 0L && now - lastCheck >= reloadIntervalNanos && checking.compareAndSet(false, true)) {
+            try {
+                lastCheck = now;
+                reloadIfChanged();
+            } finally {
+                checking.set(false);
+            }
+        }
+        return rules;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    private void reloadIfChanged() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            long modified = attributes.lastModifiedTime().toMillis();
+            if (modified == lastModified && attributes.size() == lastSize) {
+                return;
+            }
+            lastModified = modified;
+            lastSize = attributes.size();
+            rules = compile();
+            LOGGER.info("Reloaded {} validation rules from {}", rules.size(), file);
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.error("Keeping the current validation rules, unable to load " + file, e);
+        }
+    }
+
+    private ValidationRules compile() throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return ValidationRules.parse(input);
+        }
+    }
+}
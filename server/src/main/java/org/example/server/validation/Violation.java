@@ -0,0 +1,32 @@
+package org.example.server.validation;
+
+import org.example.server.util.ResponseCodes;
+
+/**
+ * Why a message failed validation and the response code it is declined with. {@code message} is
+ * short enough for field 44 of the response (25 characters in iso87ascii); {@code detail} carries
+ * the full reason and only goes to the log.
+ */
+public record Violation(String responseCode, String message, String detail) {
+    private static final Violation UNSUPPORTED_MTI =
+            new Violation(ResponseCodes.INVALID_TRANSACTION, "Unsupported MTI", "Unsupported MTI");
+
+    static Violation unsupportedMti() {
+        return UNSUPPORTED_MTI;
+    }
+
+    static Violation missing(int field) {
+        String message = "Missing field " + field;
+        return new Violation(ResponseCodes.INVALID_TRANSACTION, message, message);
+    }
+
+    static Violation forbidden(int field) {
+        String message = "Field " + field + " not allowed";
+        return new Violation(ResponseCodes.INVALID_TRANSACTION, message, message);
+    }
+
+    static Violation invalid(int field, String reason) {
+        String message = "Invalid field " + field;
+        return new Violation(ResponseCodes.FORMAT_ERROR, message, message + ": " + reason);
+    }
+}
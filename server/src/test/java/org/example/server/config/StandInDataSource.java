@@ -0,0 +1,240 @@
+package org.example.server.config;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * In-memory {@link DataSource} that stands in for Oracle when measuring the server without a database.
+ * Tests install it with {@link DataSourceProvider#install(DataSource)} before starting the server.
+ * <p>
+ * Statements accept any SQL, sleep for the configured latency (plus uniform jitter) when executed
+ * and fail with the configured probability. Queries return empty result sets. The number of open
+ * connections is tracked so callers can detect connection leaks.
+ */
+public final class StandInDataSource implements DataSource {
+    private static final Class<?>[] CONNECTION = {Connection.class};
+    private static final Class<?>[] PREPARED_STATEMENT = {PreparedStatement.class};
+    private static final Class<?>[] RESULT_SET = {ResultSet.class};
+
+    private final long latencyMicros;
+    private final long jitterMicros;
+    private final double errorRate;
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private volatile int loginTimeout;
+
+    public StandInDataSource(long latencyMicros, long jitterMicros, double errorRate) {
+        this.latencyMicros = Math.max(0L, latencyMicros);
+        this.jitterMicros = Math.max(0L, jitterMicros);
+        this.errorRate = Math.max(0.0, Math.min(1.0, errorRate));
+    }
+
+    /**
+     * Creates a stand-in configured from the {@code standin.latencyMicros},
+     * {@code standin.jitterMicros} and {@code standin.errorRate} system properties.
+     */
+    public static StandInDataSource fromSystemProperties() {
+        String errorRate = System.getProperty("standin.errorRate");
+        return new StandInDataSource(
+                Long.getLong("standin.latencyMicros", 500L),
+                Long.getLong("standin.jitterMicros", 250L),
+                errorRate == null ? 0.0 : Double.parseDouble(errorRate));
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    @Override
+    public Connection getConnection() {
+        openConnections.incrementAndGet();
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), CONNECTION, new ConnectionHandler());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("Stand-in datasource does not use java.util.logging");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        if (type.isInstance(this)) {
+            return type.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) {
+        return type.isInstance(this);
+    }
+
+    private void execute() throws SQLException {
+        executions.incrementAndGet();
+        long delay = latencyMicros + (jitterMicros == 0 ? 0 : ThreadLocalRandom.current().nextLong(jitterMicros + 1));
+        if (delay > 0) {
+            try {
+                TimeUnit.MICROSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted during stand-in execution", e);
+            }
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            injectedErrors.incrementAndGet();
+            throw new SQLTransientConnectionException("Injected stand-in database failure");
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == double.class) {
+            return 0.0d;
+        }
+        if (type == float.class) {
+            return 0.0f;
+        }
+        return null;
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private boolean autoCommit = true;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        openConnections.decrementAndGet();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed.get();
+                case "isValid":
+                    return !closed.get();
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "prepareStatement":
+                case "createStatement":
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), PREPARED_STATEMENT, new StatementHandler());
+                case "unwrap":
+                    return null;
+                case "isWrapperFor":
+                    return Boolean.FALSE;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "StandInConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private int batched;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            switch (method.getName()) {
+                case "executeUpdate":
+                    execute();
+                    return method.getReturnType() == long.class ? 1L : 1;
+                case "execute":
+                    execute();
+                    return Boolean.FALSE;
+                case "executeQuery":
+                    execute();
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), RESULT_SET,
+                            (resultSet, resultMethod, resultArgs) -> defaultValue(resultMethod.getReturnType()));
+                case "addBatch":
+                    batched++;
+                    return null;
+                case "executeBatch":
+                    execute();
+                    int[] counts = new int[batched];
+                    Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+                    batched = 0;
+                    return counts;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "StandInStatement@" + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+}
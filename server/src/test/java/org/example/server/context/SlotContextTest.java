@@ -0,0 +1,96 @@
+package org.example.server.context;
+
+import org.example.server.util.ServerContextKeys;
+import org.jpos.transaction.Context;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Slot values must behave like map entries whichever {@link Context} API reaches them: the typed
+ * slots, the string keys, {@code put} with {@code persist}, the map view, {@code clone()} and
+ * serialization.
+ */
+class SlotContextTest {
+    @Test
+    void persistentPutLandsInTheSlot() {
+        SlotContext ctx = new SlotContext();
+        ctx.put(ServerContextKeys.RESPONSE_CODE, "05", true);
+
+        assertEquals("05", Slots.RESPONSE_CODE.get(ctx));
+        assertEquals("05", ctx.getString(ServerContextKeys.RESPONSE_CODE));
+    }
+
+    @Test
+    void mapViewReadsAndWritesSlots() {
+        SlotContext ctx = new SlotContext();
+        Slots.RESPONSE_CODE.put(ctx, "00");
+        ctx.put("TRACE", "x");
+
+        Map<Object, Object> map = ctx.getMap();
+        assertEquals("00", map.get(ServerContextKeys.RESPONSE_CODE));
+        assertEquals(Map.of(ServerContextKeys.RESPONSE_CODE, "00", "TRACE", "x"), new HashMap<>(map));
+
+        map.put(ServerContextKeys.ERROR_MESSAGE, "Invalid amount");
+        map.remove(ServerContextKeys.RESPONSE_CODE);
+        assertEquals("Invalid amount", Slots.ERROR_MESSAGE.get(ctx));
+        assertFalse(ctx.hasKey(ServerContextKeys.RESPONSE_CODE));
+        assertEquals("x", ctx.getString("TRACE"));
+    }
+
+    @Test
+    void cloneCopiesSlots() {
+        SlotContext ctx = new SlotContext();
+        Slots.RESPONSE_CODE.put(ctx, "00");
+        ctx.put("TRACE", "x");
+
+        SlotContext copy = ctx.clone();
+        Slots.RESPONSE_CODE.put(copy, "91");
+        copy.put("TRACE", "y");
+
+        assertEquals("00", Slots.RESPONSE_CODE.get(ctx));
+        assertEquals("x", ctx.getString("TRACE"));
+        assertEquals("91", Slots.RESPONSE_CODE.get(copy));
+        assertEquals("91", copy.getMap().get(ServerContextKeys.RESPONSE_CODE));
+        assertEquals(2, copy.getMap().size());
+    }
+
+    @Test
+    void serializationKeepsPersistentSlotsOnly() throws IOException, ClassNotFoundException {
+        SlotContext ctx = new SlotContext();
+        ctx.put(ServerContextKeys.RESPONSE_CODE, "05", true);
+        ctx.put(ServerContextKeys.APPROVAL_CODE, "123456", true);
+        ctx.put(ServerContextKeys.APPROVAL_CODE, null);
+        Slots.ERROR_MESSAGE.put(ctx, "transient");
+        ctx.put("TRACE", "x", true);
+
+        SlotContext copy = roundTrip(ctx);
+
+        assertEquals("05", Slots.RESPONSE_CODE.get(copy));
+        assertEquals("x", copy.getString("TRACE"));
+        assertNull(Slots.APPROVAL_CODE.get(copy));
+        assertNull(Slots.ERROR_MESSAGE.get(copy));
+        assertTrue(roundTrip(copy).hasKey(ServerContextKeys.RESPONSE_CODE));
+    }
+
+    private static SlotContext roundTrip(SlotContext ctx) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(ctx);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (SlotContext) in.readObject();
+        }
+    }
+}
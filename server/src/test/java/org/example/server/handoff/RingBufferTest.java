@@ -0,0 +1,144 @@
+package org.example.server.handoff;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress tests for {@link RingBuffer}: several producers and consumers hand over elements through a
+ * small ring, so every slot is reused many times and producers regularly find it full. Every
+ * element must be taken exactly once, and each consumer must see any one producer's elements in
+ * the order they were offered.
+ */
+class RingBufferTest {
+    private static final int CAPACITY = 64;
+    private static final int PER_PRODUCER = 200_000;
+
+    @Test
+    @Timeout(120)
+    void handsOverEveryElementOnceWithParking() throws InterruptedException {
+        stress(WaitStrategy.PARK, 4, 4, false);
+    }
+
+    @Test
+    @Timeout(120)
+    void handsOverEveryElementOnceWithYielding() throws InterruptedException {
+        stress(WaitStrategy.YIELD, 4, 4, false);
+    }
+
+    @Test
+    @Timeout(120)
+    void singleWriterFeedsManyConsumers() throws InterruptedException {
+        stress(WaitStrategy.PARK, 1, 4, true);
+    }
+
+    @Test
+    void offerFailsWhenFullAndPollWhenEmpty() {
+        RingBuffer<Long> ring = new RingBuffer<>(4, false, WaitStrategy.PARK, 1_000L);
+        for (long i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4L));
+        for (long i = 0; i < 4; i++) {
+            assertEquals(Long.valueOf(i), ring.poll());
+        }
+        assertNull(ring.poll());
+        assertNull(ring.poll(TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+
+    private static void stress(WaitStrategy strategy, int producers, int consumers, boolean singleWriter)
+            throws InterruptedException {
+        RingBuffer<Long> ring = new RingBuffer<>(CAPACITY, singleWriter, strategy, 10_000L);
+        long total = (long) producers * PER_PRODUCER;
+        AtomicLong remaining = new AtomicLong(total);
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<long[]> taken = new ArrayList<>();
+
+        for (int c = 0; c < consumers; c++) {
+            long[] received = new long[(int) total];
+            taken.add(received);
+            threads.add(Thread.ofPlatform().name("consumer-" + c).unstarted(() -> {
+                long[] lastSequence = new long[producers];
+                Arrays.fill(lastSequence, -1L);
+                int count = 0;
+                await(start);
+                while (remaining.getAndDecrement() > 0) {
+                    Long element;
+                    while ((element = ring.poll(TimeUnit.MILLISECONDS.toNanos(10))) == null) {
+                        if (failure.get() != null) {
+                            return;
+                        }
+                    }
+                    int producer = (int) (element >>> 32);
+                    long sequence = element & 0xFFFFFFFFL;
+                    if (sequence <= lastSequence[producer]) {
+                        failure.compareAndSet(null, "producer " + producer + " element " + sequence
+                                + " taken after " + lastSequence[producer]);
+                    }
+                    lastSequence[producer] = sequence;
+                    received[count++] = element + 1;
+                }
+            }));
+        }
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            threads.add(Thread.ofPlatform().name("producer-" + p).unstarted(() -> {
+                await(start);
+                for (long i = 0; i < PER_PRODUCER; i++) {
+                    ring.put(producer << 32 | i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get(), failure.get());
+        BitSet seen = new BitSet((int) total);
+        long duplicates = 0;
+        for (long[] received : taken) {
+            for (long value : received) {
+                if (value == 0L) {
+                    break;
+                }
+                long element = value - 1;
+                int bit = (int) ((element >>> 32) * PER_PRODUCER + (element & 0xFFFFFFFFL));
+                if (seen.get(bit)) {
+                    duplicates++;
+                }
+                seen.set(bit);
+            }
+        }
+        assertEquals(0L, duplicates, "elements taken twice");
+        assertEquals(total, seen.cardinality(), "distinct elements taken");
+        assertEquals(total, ring.getPublished());
+        assertEquals(total, ring.getConsumed());
+        assertEquals(0, ring.getSize());
+        assertNull(ring.poll());
+    }
+
+    private static void await(CountDownLatch start) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.server.mac;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Known-answer tests for the ISO 9797-1 MAC algorithm 3 (zero padding, method 1) computed by the
+ * pooled cipher engines. The vectors are the X9.19 "Now is the time for all " example, the
+ * Bouncy Castle ISO9797Alg3Mac vector and, for a single length key, the FIPS 113 example.
+ */
+class MacServiceTest {
+    private static final HexFormat HEX = HexFormat.of().withUpperCase();
+    private static final char[] PASSWORD = "test".toCharArray();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void matchesRetailMacVectors() throws Exception {
+        MacService service = service("T1", "0123456789ABCDEFFEDCBA9876543210");
+        MacKey key = service.find("T1");
+
+        assertMac("A1C72E74EA3FA9B6", service, key, "Now is the time for all ");
+        assertMac("2E2B1428CC78254F", service, key, "Now is the time for it");
+        assertMac("08D7B4FB629D0885", service, key, "");
+    }
+
+    @Test
+    void matchesBouncyCastleVector() throws Exception {
+        MacService service = service("T2", "7CA110454A1A6E570131D9619DC1376E");
+
+        assertMac("F09B856213BAB83B", service, service.find("T2"), "Hello World !!!!");
+    }
+
+    @Test
+    void singleLengthKeyIsPlainCbcMac() throws Exception {
+        MacService service = service("T3", "0123456789ABCDEF");
+
+        assertMac("70A30640CC76DD8B", service, service.find("T3"), "Now is the time for all ");
+    }
+
+    @Test
+    void reusedEngineClearsPaddingAfterLongerMessage() throws Exception {
+        MacService service = service("T1", "0123456789ABCDEFFEDCBA9876543210");
+        MacKey key = service.find("T1");
+
+        assertMac("68F4F5BB97CF03E2", service, key, "x".repeat(600));
+        assertMac("2E2B1428CC78254F", service, key, "Now is the time for it");
+    }
+
+    @Test
+    void macsTheGivenRangeOnly() throws Exception {
+        MacService service = service("T1", "0123456789ABCDEFFEDCBA9876543210");
+        byte[] data = "####Now is the time for all ####".getBytes(StandardCharsets.US_ASCII);
+
+        byte[] mac = service.generate(service.find("T1"), data, 4, 24);
+
+        assertArrayEquals(HEX.parseHex("A1C72E74EA3FA9B6"), mac);
+    }
+
+    @Test
+    void verifiesOnlyTheMatchingMac() throws Exception {
+        MacService service = service("T1", "0123456789ABCDEFFEDCBA9876543210");
+        MacKey key = service.find("T1");
+        byte[] data = "Now is the time for all ".getBytes(StandardCharsets.US_ASCII);
+        byte[] mac = HEX.parseHex("A1C72E74EA3FA9B6");
+
+        assertTrue(service.verify(key, data, 0, data.length, mac));
+        byte[] flipped = Arrays.copyOf(mac, mac.length);
+        flipped[7] ^= 1;
+        assertFalse(service.verify(key, data, 0, data.length, flipped));
+    }
+
+    private static void assertMac(String expected, MacService service, MacKey key, String data) throws Exception {
+        byte[] bytes = data.getBytes(StandardCharsets.US_ASCII);
+        assertArrayEquals(HEX.parseHex(expected), service.generate(key, bytes, 0, bytes.length), data);
+    }
+
+    private MacService service(String terminal, String key) throws Exception {
+        Path file = directory.resolve(terminal + ".p12");
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        store.load(null, PASSWORD);
+        String algorithm = key.length() == 16 ? "DES" : "DESede";
+        store.setEntry(terminal, new KeyStore.SecretKeyEntry(new SecretKeySpec(HEX.parseHex(key), algorithm)),
+                new KeyStore.PasswordProtection(PASSWORD));
+        try (OutputStream out = Files.newOutputStream(file)) {
+            store.store(out, PASSWORD);
+        }
+        MacService service = new MacService(file, PASSWORD, 60_000L, 1);
+        assertNotNull(service.find(terminal));
+        return service;
+    }
+}
@@ -0,0 +1,206 @@
+package org.example.server.packager;
+
+import org.jpos.iso.ISOComponent;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOUtil;
+import org.jpos.iso.packager.GenericPackager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips through {@link LazyGenericPackager} must be indistinguishable from
+ * {@link GenericPackager} with the same {@code packager/iso87ascii.xml}: the same field values
+ * after unpacking, and the same bytes after packing, whether the message was left untouched,
+ * modified, or cloned into a response.
+ */
+class LazyGenericPackagerTest {
+    private static final int MAX_FIELD = 128;
+
+    private GenericPackager eagerPackager;
+    private LazyGenericPackager lazyPackager;
+
+    @BeforeEach
+    void setUp() throws ISOException, IOException {
+        try (InputStream eager = resource(); InputStream lazy = resource()) {
+            eagerPackager = new GenericPackager(eager);
+            lazyPackager = new LazyGenericPackager(lazy);
+        }
+    }
+
+    @Test
+    void unchangedMessageRepacksToTheSameFrame() throws ISOException {
+        byte[] frame = pack(financialRequest());
+
+        LazyISOMsg lazy = unpackLazy(frame);
+
+        assertSameFields(unpackEager(frame), lazy);
+        assertArrayEquals(frame, lazy.pack());
+    }
+
+    @Test
+    void secondaryBitmapRoundTrips() throws ISOException {
+        ISOMsg request = financialRequest();
+        request.set(70, "301");
+        request.set(90, "020000012301011200000000000000000000000000");
+        request.set(102, "ACCOUNT-0001");
+        request.set(128, ISOUtil.hex2byte("0102030405060708"));
+        byte[] frame = pack(request);
+
+        LazyISOMsg lazy = unpackLazy(frame);
+
+        assertTrue(lazy.hasField(128));
+        assertSameFields(unpackEager(frame), lazy);
+        assertArrayEquals(frame, lazy.pack());
+    }
+
+    @Test
+    void modifiedFieldsRepackLikeTheEagerPackager() throws ISOException {
+        ISOMsg request = financialRequest();
+        request.set(102, "ACCOUNT-0001");
+        byte[] frame = pack(request);
+        ISOMsg eager = unpackEager(frame);
+        LazyISOMsg lazy = unpackLazy(frame);
+
+        for (ISOMsg m : new ISOMsg[]{eager, lazy}) {
+            m.set(4, "000000020000");
+            m.set(37, "000000000042");
+            m.set(48, "updated additional data");
+            m.unset(52);
+        }
+
+        assertSameFields(eager, lazy);
+        assertArrayEquals(eager.pack(), lazy.pack());
+    }
+
+    @Test
+    void droppingSecondaryFieldsDropsTheSecondaryBitmap() throws ISOException {
+        ISOMsg request = financialRequest();
+        request.set(70, "301");
+        request.set(128, ISOUtil.hex2byte("0102030405060708"));
+        byte[] frame = pack(request);
+        ISOMsg eager = unpackEager(frame);
+        LazyISOMsg lazy = unpackLazy(frame);
+
+        for (ISOMsg m : new ISOMsg[]{eager, lazy}) {
+            m.unset(70);
+            m.unset(128);
+        }
+
+        assertFalse(lazy.hasField(128));
+        assertArrayEquals(eager.pack(), lazy.pack());
+    }
+
+    @Test
+    void clonedResponseRepacksLikeTheEagerPackager() throws ISOException {
+        ISOMsg request = financialRequest();
+        request.set(102, "ACCOUNT-0001");
+        request.set(128, ISOUtil.hex2byte("0102030405060708"));
+        byte[] frame = pack(request);
+        ISOMsg eager = (ISOMsg) unpackEager(frame).clone();
+        LazyISOMsg lazy = (LazyISOMsg) unpackLazy(frame).clone();
+
+        for (ISOMsg m : new ISOMsg[]{eager, lazy}) {
+            m.setResponseMTI();
+            m.set(39, "00");
+            m.unset(2, 52, 128);
+        }
+
+        assertSameFields(eager, lazy);
+        assertArrayEquals(eager.pack(), lazy.pack());
+    }
+
+    @Test
+    void cloneDoesNotShareChangesWithTheOriginal() throws ISOException {
+        byte[] frame = pack(financialRequest());
+        LazyISOMsg original = unpackLazy(frame);
+
+        LazyISOMsg copy = (LazyISOMsg) original.clone();
+        copy.set(11, "999999");
+        copy.unset(41);
+
+        assertEquals("000123", original.getString(11));
+        assertTrue(original.hasField(41));
+        assertArrayEquals(frame, original.pack());
+    }
+
+    private static ISOMsg financialRequest() throws ISOException {
+        ISOMsg m = new ISOMsg("0200");
+        m.set(2, "4242424242424242");
+        m.set(3, "000000");
+        m.set(4, "000000010000");
+        m.set(7, "0101120000");
+        m.set(11, "000123");
+        m.set(12, "120000");
+        m.set(35, "4242424242424242=25121010000000000000");
+        m.set(41, "TERM0001");
+        m.set(43, "RAYAN TEST MERCHANT          TEHRAN   IR");
+        m.set(48, "additional data");
+        m.set(49, "840");
+        m.set(52, ISOUtil.hex2byte("1122334455667788"));
+        return m;
+    }
+
+    private byte[] pack(ISOMsg m) throws ISOException {
+        m.setPackager(eagerPackager);
+        return m.pack();
+    }
+
+    private ISOMsg unpackEager(byte[] frame) throws ISOException {
+        ISOMsg m = new ISOMsg();
+        m.setPackager(eagerPackager);
+        m.unpack(frame);
+        return m;
+    }
+
+    private LazyISOMsg unpackLazy(byte[] frame) throws ISOException {
+        ISOMsg m = lazyPackager.createISOMsg();
+        m.setPackager(lazyPackager);
+        m.unpack(frame);
+        return assertInstanceOf(LazyISOMsg.class, m);
+    }
+
+    /**
+     * Compares the MTI and every data field; the bitmap itself is compared through the packed bytes.
+     */
+    private static void assertSameFields(ISOMsg expected, ISOMsg actual) {
+        for (int field = 0; field <= MAX_FIELD; field++) {
+            if (field == 1) {
+                continue;
+            }
+            assertEquals(expected.hasField(field), actual.hasField(field), "presence of field " + field);
+            if (!expected.hasField(field)) {
+                continue;
+            }
+            ISOComponent want = expected.getComponent(field);
+            ISOComponent got = actual.getComponent(field);
+            try {
+                if (want.getValue() instanceof byte[] bytes) {
+                    assertArrayEquals(bytes, (byte[]) got.getValue(), "field " + field);
+                } else {
+                    assertEquals(want.getValue(), got.getValue(), "field " + field);
+                }
+            } catch (ISOException e) {
+                throw new AssertionError("field " + field, e);
+            }
+        }
+    }
+
+    private static InputStream resource() throws IOException {
+        InputStream inputStream = LazyGenericPackagerTest.class.getClassLoader()
+                .getResourceAsStream("packager/iso87ascii.xml");
+        if (inputStream == null) {
+            throw new IOException("Resource not found on classpath: packager/iso87ascii.xml");
+        }
+        return inputStream;
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.server.participant;
+
+import org.example.server.util.ServerContextKeys;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOSource;
+import org.jpos.transaction.Context;
+import org.jpos.transaction.TransactionConstants;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link BuildResponse} and {@link SendResponse} must both join committed and aborted
+ * transactions, or the terminal never gets an answer.
+ */
+class ResponseDeliveryTest {
+    private final BuildResponse build = new BuildResponse();
+    private final SendResponse send = new SendResponse();
+    private final RecordingSource source = new RecordingSource();
+
+    @Test
+    void joinsCommittedAndAbortedTransactions() {
+        Context ctx = context();
+        assertEquals(0, build.prepare(1L, ctx) & TransactionConstants.NO_JOIN);
+        assertEquals(0, build.prepareForAbort(1L, ctx) & TransactionConstants.NO_JOIN);
+        assertEquals(0, send.prepare(1L, ctx) & TransactionConstants.NO_JOIN);
+        assertEquals(0, send.prepareForAbort(1L, ctx) & TransactionConstants.NO_JOIN);
+    }
+
+    @Test
+    void sendsApprovalOnCommit() {
+        Context ctx = context();
+        build.commit(1L, ctx);
+        send.commit(1L, ctx);
+
+        assertEquals(1, source.sent.size());
+        ISOMsg response = source.sent.get(0);
+        assertEquals("0210", response.getString(0));
+        assertEquals("00", response.getString(39));
+    }
+
+    @Test
+    void sendsSystemErrorOnAbort() {
+        Context ctx = context();
+        build.abort(1L, ctx);
+        send.abort(1L, ctx);
+
+        assertEquals(1, source.sent.size());
+        assertEquals("0210", source.sent.get(0).getString(0));
+        assertEquals("96", source.sent.get(0).getString(39));
+    }
+
+    @Test
+    void keepsResponseCodeSetByParticipants() {
+        Context ctx = context();
+        ctx.put(ServerContextKeys.RESPONSE_CODE, "30");
+        build.abort(1L, ctx);
+        send.abort(1L, ctx);
+
+        assertEquals("30", source.sent.get(0).getString(39));
+    }
+
+    @Test
+    void dropsResponseForClosedConnection() {
+        Context ctx = context();
+        source.connected = false;
+        build.commit(1L, ctx);
+        send.commit(1L, ctx);
+
+        assertTrue(source.sent.isEmpty());
+    }
+
+    private Context context() {
+        Context ctx = new Context();
+        ISOMsg request = new ISOMsg("0200");
+        request.set(3, "000000");
+        request.set(11, "000001");
+        request.set(41, "TERMID01");
+        ctx.put(ServerContextKeys.REQUEST, request);
+        ctx.put(ServerContextKeys.SOURCE, source);
+        return ctx;
+    }
+
+    private static final class RecordingSource implements ISOSource {
+        private final List<ISOMsg> sent = new ArrayList<>();
+        private boolean connected = true;
+
+        @Override
+        public void send(ISOMsg message) {
+            sent.add(message);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.example.server.soak;
+
+import org.example.server.ServerMain;
+import org.example.server.config.DataSourceProvider;
+import org.example.server.config.EnvironmentLoader;
+import org.example.server.config.StandInDataSource;
+import org.example.server.logging.ApplicationLogger;
+import org.example.server.logging.ApplicationLoggerFactory;
+import org.example.server.metrics.LatencyRecorder;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.channel.ASCIIChannel;
+import org.jpos.iso.packager.GenericPackager;
+import org.jpos.q2.Q2;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the server in-process against a {@link StandInDataSource}, drives it with concurrent
+ * ASCII channels and fails when throughput, p99 latency, error ratio or leak checks fall outside
+ * the configured bounds.
+ * <p>
+ * Bounds are read from {@code soak.*} system properties; see {@link Settings}. The stand-in's
+ * latency and error rate come from {@code standin.*}. Run by failsafe in the {@code soak} Maven
+ * profile: {@code mvn -pl server -Psoak verify -Dsoak.duration=1800}.
+ */
+class SoakIT {
+    private static final ApplicationLogger LOGGER = ApplicationLoggerFactory.getLogger(SoakIT.class);
+    private static final DateTimeFormatter TRANSMISSION_DATETIME = DateTimeFormatter.ofPattern("MMddHHmmss");
+    private static final DateTimeFormatter LOCAL_TIME = DateTimeFormatter.ofPattern("HHmmss");
+    private static final DateTimeFormatter LOCAL_DATE = DateTimeFormatter.ofPattern("MMdd");
+
+    private final Settings settings = Settings.fromSystemProperties();
+    private final LatencyRecorder latency = new LatencyRecorder();
+    private final AtomicLong stan = new AtomicLong();
+    private final AtomicLong approved = new AtomicLong();
+    private final AtomicLong declined = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicBoolean measuring = new AtomicBoolean();
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    @Test
+    void staysWithinBounds() throws Exception {
+        EnvironmentLoader.load();
+        if (System.getProperty("JPOS_HOME") == null) {
+            System.setProperty("JPOS_HOME", Files.createTempDirectory("rayan-jpos-soak").toString());
+        }
+        if (System.getProperty("SERVER_PORT") == null) {
+            System.setProperty("SERVER_PORT", Integer.toString(freePort()));
+        }
+        System.setProperty("PAN_KEYSTORE_BOOTSTRAP", "true");
+        // Every driver is a closed loop on its own terminal, far above the per-terminal rate limit.
+        System.setProperty("THROTTLE_ENABLED", "false");
+        List<String> failures = run();
+        failures.forEach(failure -> LOGGER.error("Soak check failed: {}", failure));
+        assertTrue(failures.isEmpty(), () -> String.join("; ", failures));
+    }
+
+    private List<String> run() throws Exception {
+        StandInDataSource dataSource = StandInDataSource.fromSystemProperties();
+        DataSourceProvider.install(dataSource);
+
+        int baselineThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+        long baselineHeap = usedHeapAfterGc();
+
+        Q2 q2 = ServerMain.start();
+        int port = EnvironmentLoader.getInt("SERVER_PORT", 5000);
+        LOGGER.info("Soak run against port {} with {} connections for {}s (+{}s warm-up)",
+                port, settings.connections(), settings.durationSeconds(), settings.warmupSeconds());
+
+        List<Thread> drivers = new ArrayList<>();
+        for (int i = 0; i < settings.connections(); i++) {
+            Thread driver = new Thread(() -> drive(port), "soak-driver-" + i);
+            driver.start();
+            drivers.add(driver);
+        }
+
+        TimeUnit.SECONDS.sleep(settings.warmupSeconds());
+        latency.reset();
+        approved.set(0L);
+        declined.set(0L);
+        failed.set(0L);
+        measuring.set(true);
+        long started = System.nanoTime();
+        TimeUnit.SECONDS.sleep(settings.durationSeconds());
+        measuring.set(false);
+        double elapsedSeconds = (System.nanoTime() - started) / 1_000_000_000.0;
+
+        running.set(false);
+        for (Thread driver : drivers) {
+            driver.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        ServerMain.stop(q2);
+        TimeUnit.SECONDS.sleep(2);
+
+        LatencyRecorder.Snapshot snapshot = latency.snapshot();
+        long total = approved.get() + declined.get() + failed.get();
+        double tps = snapshot.count() / elapsedSeconds;
+        double p99Millis = snapshot.percentile(99.0) / 1000.0;
+        double errorRatio = total == 0 ? 1.0 : (double) (declined.get() + failed.get()) / total;
+        int threadGrowth = ManagementFactory.getThreadMXBean().getThreadCount() - baselineThreads;
+        long heapGrowthMb = (usedHeapAfterGc() - baselineHeap) / (1024 * 1024);
+
+        LOGGER.info("Soak results: {} tx, {} tps, p50 {} ms, p99 {} ms, max {} ms, errors {}",
+                total, String.format("%.1f", tps), snapshot.percentile(50.0) / 1000.0, p99Millis,
+                snapshot.max() / 1000.0, String.format("%.4f", errorRatio));
+        LOGGER.info("Leak checks: thread growth {}, open connections {}, heap growth {} MB, db executions {}",
+                threadGrowth, dataSource.getOpenConnections(), heapGrowthMb, dataSource.getExecutions());
+
+        List<String> failures = new ArrayList<>();
+        if (tps < settings.minTps()) {
+            failures.add(String.format("throughput %.1f tps below floor %.1f", tps, settings.minTps()));
+        }
+        if (tps > settings.maxTps()) {
+            failures.add(String.format("throughput %.1f tps above ceiling %.1f", tps, settings.maxTps()));
+        }
+        if (p99Millis < settings.minP99Millis()) {
+            failures.add(String.format("p99 %.3f ms below floor %.3f ms", p99Millis, settings.minP99Millis()));
+        }
+        if (p99Millis > settings.maxP99Millis()) {
+            failures.add(String.format("p99 %.3f ms above ceiling %.3f ms", p99Millis, settings.maxP99Millis()));
+        }
+        if (errorRatio > settings.maxErrorRatio()) {
+            failures.add(String.format("error ratio %.4f above %.4f", errorRatio, settings.maxErrorRatio()));
+        }
+        if (threadGrowth > settings.maxThreadGrowth()) {
+            failures.add("thread count grew by " + threadGrowth);
+        }
+        if (dataSource.getOpenConnections() != 0) {
+            failures.add(dataSource.getOpenConnections() + " database connections left open");
+        }
+        if (heapGrowthMb > settings.maxHeapGrowthMb()) {
+            failures.add("heap grew by " + heapGrowthMb + " MB");
+        }
+        return failures;
+    }
+
+    private void drive(int port) {
+        ASCIIChannel channel;
+        try {
+            channel = new ASCIIChannel("127.0.0.1", port, createPackager());
+            channel.setTimeout(settings.responseTimeoutMillis());
+        } catch (ISOException | IOException e) {
+            LOGGER.error("Unable to create soak client channel", e);
+            return;
+        }
+        while (running.get()) {
+            try {
+                if (!channel.isConnected()) {
+                    channel.connect();
+                }
+                ISOMsg request = createRequest();
+                long sent = System.nanoTime();
+                channel.send(request);
+                ISOMsg response = channel.receive();
+                long elapsed = System.nanoTime() - sent;
+                if (!measuring.get()) {
+                    continue;
+                }
+                latency.recordNanos(elapsed);
+                if ("00".equals(response.getString(39))) {
+                    approved.incrementAndGet();
+                } else {
+                    declined.incrementAndGet();
+                }
+            } catch (ISOException | IOException e) {
+                if (measuring.get()) {
+                    failed.incrementAndGet();
+                }
+                LOGGER.debug("Soak driver exchange failed: {}", e.getMessage());
+                disconnect(channel);
+            }
+        }
+        disconnect(channel);
+    }
+
+    private ISOMsg createRequest() throws ISOException {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        ISOMsg request = new ISOMsg();
+        request.setMTI("0200");
+        request.set(2, "4242424242424242");
+        request.set(3, "000000");
+        request.set(4, "000000010000");
+        request.set(7, TRANSMISSION_DATETIME.format(now));
+        request.set(11, String.format("%06d", stan.incrementAndGet() % 1_000_000L));
+        request.set(12, LOCAL_TIME.format(now));
+        request.set(13, LOCAL_DATE.format(now));
+        request.set(41, "SOAK" + String.format("%04d", Thread.currentThread().threadId() % 10_000L));
+        request.set(49, "840");
+        return request;
+    }
+
+    private static GenericPackager createPackager() throws ISOException, IOException {
+        try (InputStream inputStream = SoakIT.class.getClassLoader().getResourceAsStream("packager/iso87ascii.xml")) {
+            if (inputStream == null) {
+                throw new IOException("Resource not found on classpath: packager/iso87ascii.xml");
+            }
+            return new GenericPackager(inputStream);
+        }
+    }
+
+    private static void disconnect(ASCIIChannel channel) {
+        try {
+            channel.disconnect();
+        } catch (IOException e) {
+            LOGGER.debug("Error while disconnecting soak channel: {}", e.getMessage());
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(200L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Soak bounds, read from {@code soak.duration}, {@code soak.warmup} (seconds),
+     * {@code soak.connections}, {@code soak.minTps}/{@code soak.maxTps},
+     * {@code soak.minP99Ms}/{@code soak.maxP99Ms}, {@code soak.maxErrorRatio},
+     * {@code soak.maxThreadGrowth}, {@code soak.maxHeapGrowthMb} and {@code soak.responseTimeoutMs}.
+     */
+    record Settings(long durationSeconds, long warmupSeconds, int connections, double minTps, double maxTps,
+                    double minP99Millis, double maxP99Millis, double maxErrorRatio, int maxThreadGrowth,
+                    long maxHeapGrowthMb, int responseTimeoutMillis) {
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Long.getLong("soak.duration", 60L),
+                    Long.getLong("soak.warmup", 10L),
+                    Integer.getInteger("soak.connections", 16),
+                    doubleProperty("soak.minTps", 50.0),
+                    doubleProperty("soak.maxTps", Double.MAX_VALUE),
+                    doubleProperty("soak.minP99Ms", 0.0),
+                    doubleProperty("soak.maxP99Ms", 250.0),
+                    doubleProperty("soak.maxErrorRatio", 0.001),
+                    Integer.getInteger("soak.maxThreadGrowth", 2),
+                    Long.getLong("soak.maxHeapGrowthMb", 64L),
+                    Integer.getInteger("soak.responseTimeoutMs", 5000));
+        }
+
+        private static double doubleProperty(String key, double defaultValue) {
+            String value = System.getProperty(key);
+            return value == null ? defaultValue : Double.parseDouble(value);
+        }
+    }
+}